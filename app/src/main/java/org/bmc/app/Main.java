@@ -3,6 +3,7 @@ package org.bmc.app;
 import org.bmc.app.ui.MainFrame;
 import org.bmc.app.ui.ConnectionStatusDialog;
 import org.bmc.app.util.DBConnection;
+import org.bmc.app.util.EdtWatchdog;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.util.logging.Logger;
@@ -18,6 +19,9 @@ public class Main {
     public static void main(String[] args) {
         logger.info("Starting Baltimore Metal Crafters Database Application...");
         
+        // Time every UI event from the start so stalls during startup are caught too
+        EdtWatchdog.install();
+        
         System.out.println("=== BMC Application Starting ===");
         System.out.println("Creating connection status dialog...");
         
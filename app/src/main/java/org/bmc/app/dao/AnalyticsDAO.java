@@ -0,0 +1,117 @@
+package org.bmc.app.dao;
+
+import org.bmc.app.util.DBConnection;
+import java.sql.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Data Access Object that streams denormalized fact rows for the in-memory
+ * analytics cube. Rows are handed to a callback one at a time so the caller
+ * can encode them straight into columnar storage without building a list.
+ */
+public class AnalyticsDAO {
+    private static final Logger logger = Logger.getLogger(AnalyticsDAO.class.getName());
+
+    /**
+     * Callback invoked for every row of a fact query
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+        void handle(ResultSet rs) throws SQLException;
+    }
+
+    private static final String INVOICE_FACTS_SQL =
+        "SELECT i.invoice_id, i.invoice_date, COALESCE(i.total_amount, 0) AS total_amount, i.paid, " +
+        "       j.status, c.name AS customer_name, e.name AS employee_name, e.role " +
+        "FROM Invoice i " +
+        "JOIN Job j ON i.job_id = j.job_id " +
+        "JOIN Customer c ON j.customer_id = c.customer_id " +
+        "LEFT JOIN Employee e ON j.employee_id = e.employee_id " +
+        "WHERE i.invoice_id > ? " +
+        "ORDER BY i.invoice_id";
+
+    private static final String LABOR_FACTS_SQL =
+        "SELECT w.worklog_id, w.work_date, COALESCE(w.hours_worked, 0) AS hours_worked, " +
+        "       ROUND(COALESCE(w.hours_worked, 0) * COALESCE(e.hourly_rate, 0), 2) AS labor_cost, " +
+        "       e.name AS employee_name, e.role, j.status, c.name AS customer_name " +
+        "FROM WorkLog w " +
+        "JOIN Job j ON w.job_id = j.job_id " +
+        "JOIN Customer c ON j.customer_id = c.customer_id " +
+        "JOIN Employee e ON w.employee_id = e.employee_id " +
+        "WHERE w.worklog_id > ? " +
+        "ORDER BY w.worklog_id";
+
+    private static final String MATERIAL_FACTS_SQL =
+        "SELECT COALESCE(jm.quantity_used, 0) AS quantity_used, " +
+        "       ROUND(COALESCE(jm.quantity_used, 0) * COALESCE(m.unit_cost, 0), 2) AS material_cost, " +
+        "       m.name AS material_name, m.category, j.start_date, j.status, " +
+        "       c.name AS customer_name, e.name AS employee_name, e.role " +
+        "FROM JobMaterial jm " +
+        "JOIN Material m ON jm.material_id = m.material_id " +
+        "JOIN Job j ON jm.job_id = j.job_id " +
+        "JOIN Customer c ON j.customer_id = c.customer_id " +
+        "LEFT JOIN Employee e ON j.employee_id = e.employee_id";
+
+    /**
+     * Stream invoice facts with an invoice_id greater than the given watermark
+     *
+     * @param afterInvoiceId only rows with a larger invoice_id are returned (0 for all)
+     * @param handler callback receiving each row
+     * @return number of rows streamed, or -1 on error
+     */
+    public int streamInvoiceFacts(int afterInvoiceId, RowHandler handler) {
+        return stream(INVOICE_FACTS_SQL, afterInvoiceId, handler, "invoice");
+    }
+
+    /**
+     * Stream work log (labor) facts with a worklog_id greater than the given watermark
+     *
+     * @param afterWorklogId only rows with a larger worklog_id are returned (0 for all)
+     * @param handler callback receiving each row
+     * @return number of rows streamed, or -1 on error
+     */
+    public int streamLaborFacts(int afterWorklogId, RowHandler handler) {
+        return stream(LABOR_FACTS_SQL, afterWorklogId, handler, "labor");
+    }
+
+    /**
+     * Stream all job material facts. JobMaterial has no surrogate key to
+     * use as a watermark, so this is always a full read.
+     *
+     * @param handler callback receiving each row
+     * @return number of rows streamed, or -1 on error
+     */
+    public int streamMaterialFacts(RowHandler handler) {
+        return stream(MATERIAL_FACTS_SQL, null, handler, "material");
+    }
+
+    private int stream(String sql, Integer watermark, RowHandler handler, String factName) {
+        int count = 0;
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            // Ask Connector/J to stream rows instead of buffering the whole result
+            ps.setFetchSize(Integer.MIN_VALUE);
+            if (watermark != null) {
+                ps.setInt(1, watermark);
+            }
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(rs);
+                    count++;
+                }
+            }
+
+            logger.info("Streamed " + count + " " + factName + " facts");
+
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error streaming " + factName + " facts", e);
+            return -1;
+        }
+
+        return count;
+    }
+}
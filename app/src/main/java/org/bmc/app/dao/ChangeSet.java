@@ -0,0 +1,66 @@
+package org.bmc.app.dao;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Result of a "changed since T" query: rows inserted or updated since the
+ * previous watermark, ids deleted since then, and the watermark to pass to
+ * the next call.
+ *
+ * @param <T> entity type
+ */
+public class ChangeSet<T> {
+    private final List<T> changed;
+    private final Set<Integer> deletedIds;
+    private final Timestamp watermark;
+    private final boolean fullSnapshot;
+
+    public ChangeSet(List<T> changed, Set<Integer> deletedIds, Timestamp watermark, boolean fullSnapshot) {
+        this.changed = Collections.unmodifiableList(changed);
+        this.deletedIds = Collections.unmodifiableSet(deletedIds);
+        this.watermark = watermark;
+        this.fullSnapshot = fullSnapshot;
+    }
+
+    /**
+     * Get rows inserted or updated since the requested time
+     */
+    public List<T> getChanged() {
+        return changed;
+    }
+
+    /**
+     * Get primary keys of rows deleted since the requested time
+     */
+    public Set<Integer> getDeletedIds() {
+        return deletedIds;
+    }
+
+    /**
+     * Get the server time to pass as "since" on the next call
+     */
+    public Timestamp getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * True if this is a complete snapshot (first load, or the previous
+     * watermark was too old to delta from) and should replace, not merge
+     */
+    public boolean isFullSnapshot() {
+        return fullSnapshot;
+    }
+
+    public boolean isEmpty() {
+        return changed.isEmpty() && deletedIds.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ChangeSet{changed=%d, deleted=%d, watermark=%s, full=%s}",
+                changed.size(), deletedIds.size(), watermark, fullSnapshot);
+    }
+}
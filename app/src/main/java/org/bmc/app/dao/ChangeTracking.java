@@ -0,0 +1,87 @@
+package org.bmc.app.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Shared helpers for the delta-fetch ("changed since T") DAO methods.
+ * Relies on the updated_at columns and DeletedRow tombstones added by
+ * db/migrations/001_change_tracking.sql, and on the updated_at columns of
+ * Job and Vendor (008_change_tracking_joins.sql) for the display columns
+ * joined from them.
+ */
+final class ChangeTracking {
+
+    /**
+     * Re-read this much history on every delta so rows written by
+     * transactions that committed just after the previous watermark was
+     * taken are not missed. Re-delivered rows are merged idempotently.
+     */
+    static final long OVERLAP_MILLIS = 2000;
+
+    /**
+     * Watermarks older than this are answered with a full snapshot, since
+     * tombstones may have been purged.
+     */
+    static final long MAX_DELTA_AGE_MILLIS = 24L * 60 * 60 * 1000;
+
+    private static final String SERVER_TIME_SQL = "SELECT CURRENT_TIMESTAMP(3)";
+
+    private static final String SELECT_DELETED_SQL =
+        "SELECT row_id FROM DeletedRow WHERE table_name = ? AND deleted_at >= ?";
+
+    private ChangeTracking() {
+    }
+
+    /**
+     * Read the database server clock. Watermarks always come from the server
+     * so client clock skew cannot cause missed changes.
+     */
+    static Timestamp serverTime(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(SERVER_TIME_SQL);
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getTimestamp(1);
+        }
+    }
+
+    /**
+     * Decide whether a delta can be served for the given watermark
+     *
+     * @param since previous watermark, may be null
+     * @param now current server time
+     * @return true if a full snapshot is required
+     */
+    static boolean needsFullSnapshot(Timestamp since, Timestamp now) {
+        return since == null || now.getTime() - since.getTime() > MAX_DELTA_AGE_MILLIS;
+    }
+
+    /**
+     * Lower bound to query from, including the overlap window
+     */
+    static Timestamp lowerBound(Timestamp since) {
+        return new Timestamp(since.getTime() - OVERLAP_MILLIS);
+    }
+
+    /**
+     * Find primary keys deleted from a table since the given time
+     */
+    static Set<Integer> findDeletedSince(Connection conn, String tableName, Timestamp since) throws SQLException {
+        Set<Integer> deleted = new HashSet<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(SELECT_DELETED_SQL)) {
+            pstmt.setString(1, tableName);
+            pstmt.setTimestamp(2, since);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    deleted.add(rs.getInt(1));
+                }
+            }
+        }
+        return deleted;
+    }
+}
@@ -5,8 +5,11 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -30,6 +33,10 @@ public class CustomerDAO {
     
     private static final String SELECT_ALL_SQL = 
         "SELECT customer_id, name, contact_name, phone, email, address FROM Customer ORDER BY name";
+
+    private static final String SELECT_CHANGED_SINCE_SQL = 
+        "SELECT customer_id, name, contact_name, phone, email, address FROM Customer " +
+        "WHERE updated_at >= ? ORDER BY name";
     
     private static final String UPDATE_SQL = 
         "UPDATE Customer SET name = ?, contact_name = ?, phone = ?, email = ?, address = ? WHERE customer_id = ?";
@@ -77,6 +84,7 @@ public class CustomerDAO {
                 if (rs.next()) {
                     customer.setCustomerId(rs.getInt(1));
                     LOGGER.info(() -> String.format("Created customer with ID: %d", customer.getCustomerId()));
+                    DataChangeNotifier.fire(DataChangeNotifier.Entity.CUSTOMER);
                     return customer;
                 }
             }
@@ -131,6 +139,17 @@ public class CustomerDAO {
      * @return List of all customers, ordered by name
      */
     public List<Customer> findAll() {
+        List<Customer> customers = findAllOrNull();
+        return customers != null ? customers : new ArrayList<>();
+    }
+    
+    /**
+     * Retrieves all customers, telling a failed query apart from an empty
+     * table, for callers that must not replace data they already have
+     * 
+     * @return List of all customers, ordered by name, or null if the query failed
+     */
+    public List<Customer> findAllOrNull() {
         List<Customer> customers = new ArrayList<>();
         
         Connection conn = null;
@@ -150,6 +169,7 @@ public class CustomerDAO {
             
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error retrieving all customers", e);
+            return null;
         } finally {
             closeResources(conn, pstmt, rs);
         }
@@ -157,6 +177,53 @@ public class CustomerDAO {
         return customers;
     }
     
+    /**
+     * Retrieves customers inserted, updated or deleted since a watermark.
+     * Pass null (or a watermark older than a day) to get a full snapshot.
+     * 
+     * @param since watermark from a previous ChangeSet, or null for a full snapshot
+     * @return ChangeSet with changed rows, deleted IDs and the next watermark, or null if the query failed
+     */
+    public ChangeSet<Customer> findChangedSince(Timestamp since) {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBConnection.getConnection();
+            Timestamp watermark = ChangeTracking.serverTime(conn);
+            boolean fullSnapshot = ChangeTracking.needsFullSnapshot(since, watermark);
+            
+            List<Customer> changed = new ArrayList<>();
+            Set<Integer> deletedIds = new HashSet<>();
+            
+            if (fullSnapshot) {
+                pstmt = conn.prepareStatement(SELECT_ALL_SQL);
+            } else {
+                Timestamp from = ChangeTracking.lowerBound(since);
+                deletedIds = ChangeTracking.findDeletedSince(conn, "Customer", from);
+                pstmt = conn.prepareStatement(SELECT_CHANGED_SINCE_SQL);
+                pstmt.setTimestamp(1, from);
+            }
+            
+            rs = pstmt.executeQuery();
+            while (rs.next()) {
+                changed.add(mapResultSetToCustomer(rs));
+            }
+            
+            ChangeSet<Customer> changes = new ChangeSet<>(changed, deletedIds, watermark, fullSnapshot);
+            LOGGER.fine(() -> "Customer changes since " + since + ": " + changes);
+            return changes;
+            
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error retrieving changed customers", e);
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+        
+        return null;
+    }
+    
     /**
      * Updates an existing customer in the database
      * 
@@ -187,6 +254,7 @@ public class CustomerDAO {
             
             if (rowsAffected > 0) {
                 LOGGER.info(() -> String.format("Updated customer ID: %d", customer.getCustomerId()));
+                DataChangeNotifier.fire(DataChangeNotifier.Entity.CUSTOMER);
                 return true;
             }
             
@@ -223,6 +291,7 @@ public class CustomerDAO {
             
             if (rowsAffected > 0) {
                 LOGGER.info(() -> String.format("Deleted customer ID: %d", customerId));
+                DataChangeNotifier.fire(DataChangeNotifier.Entity.CUSTOMER);
                 return true;
             }
             
@@ -0,0 +1,86 @@
+package org.bmc.app.dao;
+
+import org.bmc.app.util.DBConnection;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.logging.Logger;
+
+/**
+ * Aggregate queries behind the dashboard figures that cannot be kept up to
+ * date row by row (jobs have no change tracking, work logs are written
+ * outside this application). Each is a single indexed scan returning one row.
+ */
+public class DashboardDAO {
+    private static final Logger LOGGER = Logger.getLogger(DashboardDAO.class.getName());
+
+    /**
+     * Open jobs by due date
+     */
+    public static class JobDueCounts {
+        private final int dueSoon;
+        private final int overdue;
+
+        public JobDueCounts(int dueSoon, int overdue) {
+            this.dueSoon = dueSoon;
+            this.overdue = overdue;
+        }
+
+        public int getDueSoon() {
+            return dueSoon;
+        }
+
+        public int getOverdue() {
+            return overdue;
+        }
+    }
+
+    /**
+     * Count jobs that are not completed and due within the next days, or past due
+     *
+     * @param dueSoonDays how many days ahead count as "due soon" (today included)
+     * @return counts, or null if the query failed
+     */
+    public JobDueCounts countOpenJobsByDueDate(int dueSoonDays) {
+        String sql = "SELECT " +
+                     "COALESCE(SUM(due_date BETWEEN CURDATE() AND DATE_ADD(CURDATE(), INTERVAL ? DAY)), 0) AS due_soon, " +
+                     "COALESCE(SUM(due_date < CURDATE()), 0) AS overdue " +
+                     "FROM Job WHERE status != 'Completed' AND due_date IS NOT NULL";
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, dueSoonDays);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new JobDueCounts(rs.getInt("due_soon"), rs.getInt("overdue"));
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.severe("Error counting jobs by due date: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Total hours logged on or after a date
+     *
+     * @return hours, or null if the query failed
+     */
+    public BigDecimal sumLaborHoursSince(LocalDate from) {
+        String sql = "SELECT COALESCE(SUM(hours_worked), 0) AS hours FROM WorkLog WHERE work_date >= ?";
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setDate(1, Date.valueOf(from));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getBigDecimal("hours");
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.severe("Error summing labor hours: " + e.getMessage());
+        }
+        return null;
+    }
+}
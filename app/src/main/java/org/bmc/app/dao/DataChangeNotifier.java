@@ -0,0 +1,51 @@
+package org.bmc.app.dao;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * In-process notification that data was written through a DAO.
+ *
+ * DAOs call {@link #fire} after a successful insert, update or delete so any
+ * screen showing that entity can mark itself out of date, regardless of
+ * which panel or dialog made the change. Listeners run on the thread that
+ * performed the write and should only record the fact (e.g. set a flag or
+ * post work to the Event Dispatch Thread).
+ */
+public final class DataChangeNotifier {
+    private static final Logger LOGGER = Logger.getLogger(DataChangeNotifier.class.getName());
+
+    /**
+     * Kinds of data that can change
+     */
+    public enum Entity {
+        CUSTOMER, EMPLOYEE, JOB, INVOICE, MATERIAL, PURCHASE_ORDER, PHOTO
+    }
+
+    private static final List<Consumer<Entity>> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private DataChangeNotifier() {
+    }
+
+    public static void addListener(Consumer<Entity> listener) {
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(Consumer<Entity> listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Announce that rows of the given kinds were written
+     */
+    public static void fire(Entity... entities) {
+        for (Entity entity : entities) {
+            LOGGER.fine(() -> "Data changed: " + entity);
+            for (Consumer<Entity> listener : LISTENERS) {
+                listener.accept(entity);
+            }
+        }
+    }
+}
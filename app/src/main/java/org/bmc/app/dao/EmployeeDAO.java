@@ -87,6 +87,7 @@ public class EmployeeDAO {
                 if (rs.next()) {
                     employee.setEmployeeId(rs.getInt(1));
                     LOGGER.info(() -> String.format("Created employee with ID: %d", employee.getEmployeeId()));
+                    DataChangeNotifier.fire(DataChangeNotifier.Entity.EMPLOYEE);
                     return employee;
                 }
             }
@@ -141,6 +142,17 @@ public class EmployeeDAO {
      * @return List of all employees, ordered by name
      */
     public List<Employee> findAll() {
+        List<Employee> employees = findAllOrNull();
+        return employees != null ? employees : new ArrayList<>();
+    }
+    
+    /**
+     * Retrieves all employees like {@link #findAll()}, but answers a failed
+     * query with null instead of an empty list
+     * 
+     * @return List of all employees, ordered by name, or null if the query failed
+     */
+    public List<Employee> findAllOrNull() {
         List<Employee> employees = new ArrayList<>();
         
         Connection conn = null;
@@ -160,6 +172,7 @@ public class EmployeeDAO {
             
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error retrieving all employees", e);
+            return null;
         } finally {
             closeResources(conn, pstmt, rs);
         }
@@ -197,6 +210,7 @@ public class EmployeeDAO {
             
             if (rowsAffected > 0) {
                 LOGGER.info(() -> String.format("Updated employee ID: %d", employee.getEmployeeId()));
+                DataChangeNotifier.fire(DataChangeNotifier.Entity.EMPLOYEE);
                 return true;
             }
             
@@ -233,6 +247,7 @@ public class EmployeeDAO {
             
             if (rowsAffected > 0) {
                 LOGGER.info(() -> String.format("Deleted employee ID: %d", employeeId));
+                DataChangeNotifier.fire(DataChangeNotifier.Entity.EMPLOYEE);
                 return true;
             }
             
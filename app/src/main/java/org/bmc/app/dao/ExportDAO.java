@@ -0,0 +1,145 @@
+package org.bmc.app.dao;
+
+import org.bmc.app.util.DBConnection;
+import org.bmc.app.util.StreamingExporter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.logging.Logger;
+
+/**
+ * Data Access Object for full-table exports. Each dataset is read with a
+ * streaming (forward-only, row-at-a-time) result set and written directly to
+ * disk by {@link StreamingExporter}, so exports never hold the table in memory.
+ * @author BMC Systems Team
+ */
+public class ExportDAO {
+    private static final Logger LOGGER = Logger.getLogger(ExportDAO.class.getName());
+
+    /**
+     * Exportable datasets
+     */
+    public enum Dataset {
+        CUSTOMERS("Customers", "customers",
+            "SELECT customer_id, name, contact_name, phone, email, address FROM Customer ORDER BY customer_id",
+            "SELECT COUNT(*) FROM Customer"),
+        EMPLOYEES("Employees", "employees",
+            "SELECT employee_id, name, role, specialization, contact_info, hourly_rate FROM Employee ORDER BY employee_id",
+            "SELECT COUNT(*) FROM Employee"),
+        JOBS("Jobs", "jobs",
+            "SELECT j.job_id, j.customer_id, c.name AS customer_name, j.employee_id, e.name AS employee_name, " +
+            "j.description, j.status, j.start_date, j.due_date, j.estimated_labor_cost, j.estimated_material_cost " +
+            "FROM Job j " +
+            "LEFT JOIN Customer c ON j.customer_id = c.customer_id " +
+            "LEFT JOIN Employee e ON j.employee_id = e.employee_id " +
+            "ORDER BY j.job_id",
+            "SELECT COUNT(*) FROM Job"),
+        INVOICES("Invoice History", "invoices",
+            "SELECT i.invoice_id, i.job_id, c.name AS customer_name, j.description AS job_description, " +
+            "i.invoice_date, i.labor_cost, i.material_cost, i.total_amount, i.paid " +
+            "FROM Invoice i " +
+            "LEFT JOIN Job j ON i.job_id = j.job_id " +
+            "LEFT JOIN Customer c ON j.customer_id = c.customer_id " +
+            "ORDER BY i.invoice_id",
+            "SELECT COUNT(*) FROM Invoice"),
+        MATERIALS("Materials", "materials",
+            "SELECT m.material_id, m.name, m.category, m.stock_quantity, m.reorder_level, m.unit_cost, " +
+            "m.vendor_id, v.name AS vendor_name " +
+            "FROM Material m " +
+            "LEFT JOIN Vendor v ON m.vendor_id = v.vendor_id " +
+            "ORDER BY m.material_id",
+            "SELECT COUNT(*) FROM Material"),
+        PURCHASE_ORDERS("Purchase Orders", "purchase_orders",
+            "SELECT po.po_id, po.vendor_id, v.name AS vendor_name, po.order_date, po.total_cost, po.status " +
+            "FROM PurchaseOrder po " +
+            "LEFT JOIN Vendor v ON po.vendor_id = v.vendor_id " +
+            "ORDER BY po.po_id",
+            "SELECT COUNT(*) FROM PurchaseOrder");
+
+        private final String label;
+        private final String fileName;
+        private final String selectSql;
+        private final String countSql;
+
+        Dataset(String label, String fileName, String selectSql, String countSql) {
+            this.label = label;
+            this.fileName = fileName;
+            this.selectSql = selectSql;
+            this.countSql = countSql;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+    }
+
+    /**
+     * Count the rows in a dataset so the UI can show determinate progress
+     *
+     * @param dataset dataset to count
+     * @return row count, or -1 on error
+     */
+    public long count(Dataset dataset) {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(dataset.countSql);
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            LOGGER.severe("Error counting " + dataset.label + ": " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Stream a dataset to a file
+     *
+     * @param dataset dataset to export
+     * @param target output file
+     * @param format output format
+     * @param monitor progress/cancel callback, may be null
+     * @return number of rows written, or -1 if cancelled
+     * @throws SQLException if the query fails
+     * @throws IOException if writing the file fails
+     */
+    public long export(Dataset dataset, Path target, StreamingExporter.Format format,
+                       StreamingExporter.ExportMonitor monitor) throws SQLException, IOException {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(dataset.selectSql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            // Integer.MIN_VALUE tells Connector/J to stream rows instead of buffering the result
+            stmt.setFetchSize(Integer.MIN_VALUE);
+
+            // Closing a half-read streaming result set drains every remaining row,
+            // so the query is killed first whenever the export stops early
+            try (ResultSet rs = stmt.executeQuery()) {
+                long rows;
+                try {
+                    rows = StreamingExporter.exportResultSet(rs, target, format, monitor);
+                } catch (IOException | SQLException | RuntimeException e) {
+                    cancelQuery(stmt, e);
+                    throw e;
+                }
+                if (rows >= 0) {
+                    LOGGER.info("Exported " + rows + " rows of " + dataset.label + " to " + target);
+                } else {
+                    stmt.cancel();
+                }
+                return rows;
+            }
+        }
+    }
+
+    private static void cancelQuery(Statement stmt, Exception cause) {
+        try {
+            stmt.cancel();
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
+    }
+}
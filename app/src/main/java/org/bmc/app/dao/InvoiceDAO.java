@@ -6,8 +6,11 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -41,6 +44,21 @@ public class InvoiceDAO {
         "LEFT JOIN Job j ON i.job_id = j.job_id " +
         "LEFT JOIN Customer c ON j.customer_id = c.customer_id " +
         "ORDER BY i.invoice_date DESC";
+
+    // An invoice also changes when its job's description or its customer's name does;
+    // each branch of the union uses its own table's updated_at index
+    private static final String SELECT_CHANGED_SINCE_SQL = 
+        "SELECT i.invoice_id, i.job_id, i.invoice_date, i.labor_cost, i.material_cost, i.total_amount, i.paid, " +
+        "j.description as job_description, c.name as customer_name " +
+        "FROM (SELECT invoice_id FROM Invoice WHERE updated_at >= ? " +
+        "      UNION SELECT ji.invoice_id FROM Job jj JOIN Invoice ji ON ji.job_id = jj.job_id " +
+        "            WHERE jj.updated_at >= ? " +
+        "      UNION SELECT ci.invoice_id FROM Customer cc JOIN Job cj ON cj.customer_id = cc.customer_id " +
+        "            JOIN Invoice ci ON ci.job_id = cj.job_id WHERE cc.updated_at >= ?) changed " +
+        "JOIN Invoice i ON i.invoice_id = changed.invoice_id " +
+        "LEFT JOIN Job j ON i.job_id = j.job_id " +
+        "LEFT JOIN Customer c ON j.customer_id = c.customer_id " +
+        "ORDER BY i.invoice_date DESC";
     
     private static final String UPDATE_SQL = 
         "UPDATE Invoice SET job_id = ?, invoice_date = ?, labor_cost = ?, material_cost = ?, total_amount = ?, paid = ? WHERE invoice_id = ?";
@@ -129,6 +147,7 @@ public class InvoiceDAO {
                 if (rs.next()) {
                     invoice.setInvoiceId(rs.getInt(1));
                     LOGGER.info(() -> String.format("Created invoice with ID: %d", invoice.getInvoiceId()));
+                    DataChangeNotifier.fire(DataChangeNotifier.Entity.INVOICE);
                     return invoice;
                 }
             }
@@ -209,6 +228,57 @@ public class InvoiceDAO {
         return invoices;
     }
     
+    /**
+     * Retrieves invoices inserted, updated or deleted since a watermark,
+     * including invoices whose job or customer was edited since, since
+     * they show the job's description and the customer's name.
+     * Pass null (or a watermark older than a day) to get a full snapshot.
+     * 
+     * @param since watermark from a previous ChangeSet, or null for a full snapshot
+     * @return ChangeSet with changed rows, deleted IDs and the next watermark, or null if the query failed
+     */
+    public ChangeSet<Invoice> findChangedSince(Timestamp since) {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBConnection.getConnection();
+            Timestamp watermark = ChangeTracking.serverTime(conn);
+            boolean fullSnapshot = ChangeTracking.needsFullSnapshot(since, watermark);
+            
+            List<Invoice> changed = new ArrayList<>();
+            Set<Integer> deletedIds = new HashSet<>();
+            
+            if (fullSnapshot) {
+                pstmt = conn.prepareStatement(SELECT_ALL_SQL);
+            } else {
+                Timestamp from = ChangeTracking.lowerBound(since);
+                deletedIds = ChangeTracking.findDeletedSince(conn, "Invoice", from);
+                pstmt = conn.prepareStatement(SELECT_CHANGED_SINCE_SQL);
+                pstmt.setTimestamp(1, from);
+                pstmt.setTimestamp(2, from);
+                pstmt.setTimestamp(3, from);
+            }
+            
+            rs = pstmt.executeQuery();
+            while (rs.next()) {
+                changed.add(mapResultSetToInvoice(rs));
+            }
+            
+            ChangeSet<Invoice> changes = new ChangeSet<>(changed, deletedIds, watermark, fullSnapshot);
+            LOGGER.fine(() -> "Invoice changes since " + since + ": " + changes);
+            return changes;
+            
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error retrieving changed invoices", e);
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+        
+        return null;
+    }
+    
     /**
      * Updates an existing invoice in the database
      * 
@@ -240,6 +310,7 @@ public class InvoiceDAO {
             
             if (rowsAffected > 0) {
                 LOGGER.info(() -> String.format("Updated invoice ID: %d", invoice.getInvoiceId()));
+                DataChangeNotifier.fire(DataChangeNotifier.Entity.INVOICE);
                 return true;
             }
             
@@ -276,6 +347,7 @@ public class InvoiceDAO {
             
             if (rowsAffected > 0) {
                 LOGGER.info(() -> String.format("Deleted invoice ID: %d", invoiceId));
+                DataChangeNotifier.fire(DataChangeNotifier.Entity.INVOICE);
                 return true;
             }
             
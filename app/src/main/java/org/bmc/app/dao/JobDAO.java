@@ -60,6 +60,23 @@ public class JobDAO {
         "UPDATE Job SET customer_id = ?, employee_id = ?, quote_id = ?, description = ?, start_date = ?, due_date = ?, status = ?, estimated_labor_cost = ?, estimated_material_cost = ? " +
         "WHERE job_id = ?";
     
+    private static final String LOCK_STATUS_SQL = 
+        "SELECT status FROM Job WHERE job_id = ? FOR UPDATE";
+    
+    // Material rows are locked before the JobMaterial rows the move reads, the order JobMaterialDAO uses
+    private static final String FIND_MATERIAL_IDS_SQL = 
+        "SELECT material_id FROM JobMaterial WHERE job_id = ? ORDER BY material_id";
+    
+    private static final String LOCK_MATERIAL_SQL = 
+        "SELECT material_id FROM Material WHERE material_id = ? FOR UPDATE";
+    
+    // Completing a job uses up its reserved materials (sign -1); reopening it puts them back (sign 1)
+    private static final String MOVE_MATERIALS_SQL = 
+        "UPDATE Material m JOIN JobMaterial jm ON jm.material_id = m.material_id " +
+        "SET m.stock_quantity = m.stock_quantity + ? * jm.quantity_used, " +
+        "m.reserved_quantity = m.reserved_quantity + ? * jm.quantity_used " +
+        "WHERE jm.job_id = ?";
+    
     private static final String DELETE_SQL = 
         "DELETE FROM Job WHERE job_id = ?";
     
@@ -185,6 +202,7 @@ public class JobDAO {
                 if (rs.next()) {
                     job.setJobId(rs.getInt(1));
                     LOGGER.info(() -> "Created job with ID: " + job.getJobId());
+                    DataChangeNotifier.fire(DataChangeNotifier.Entity.JOB);
                     return job;
                 }
             }
@@ -239,6 +257,17 @@ public class JobDAO {
      * @return List of all jobs, ordered by due date
      */
     public List<Job> findAll() {
+        List<Job> jobs = findAllOrNull();
+        return jobs != null ? jobs : new ArrayList<>();
+    }
+    
+    /**
+     * Retrieves all jobs; unlike {@link #findAll()} a failed query is
+     * reported rather than looking like an empty table
+     * 
+     * @return List of all jobs, ordered by due date, or null if the query failed
+     */
+    public List<Job> findAllOrNull() {
         List<Job> jobs = new ArrayList<>();
         
         Connection conn = null;
@@ -258,6 +287,7 @@ public class JobDAO {
             
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error retrieving all jobs", e);
+            return null;
         } finally {
             closeResources(conn, pstmt, rs);
         }
@@ -266,7 +296,9 @@ public class JobDAO {
     }
     
     /**
-     * Updates an existing job in the database
+     * Updates an existing job in the database. When the job becomes
+     * completed, its materials are taken off the reserved and on-hand
+     * quantities in the same transaction; reopening it reverses that.
      * 
      * @param job Job object with updated information
      * @return true if update successful, false otherwise
@@ -279,9 +311,25 @@ public class JobDAO {
         
         Connection conn = null;
         PreparedStatement pstmt = null;
+        ResultSet rs = null;
         
         try {
             conn = DBConnection.getConnection();
+            conn.setAutoCommit(false);
+            
+            // Locked first, as JobMaterialDAO does, so status and reservations change together
+            pstmt = conn.prepareStatement(LOCK_STATUS_SQL);
+            pstmt.setInt(1, job.getJobId());
+            rs = pstmt.executeQuery();
+            if (!rs.next()) {
+                conn.rollback();
+                return false;
+            }
+            boolean wasCompleted = Job.Status.fromString(rs.getString("status")) == Job.Status.COMPLETED;
+            boolean isCompleted = job.getStatus() == Job.Status.COMPLETED;
+            rs.close();
+            pstmt.close();
+            
             pstmt = conn.prepareStatement(UPDATE_SQL);
             
             pstmt.setInt(1, job.getCustomerId());
@@ -312,16 +360,36 @@ public class JobDAO {
             pstmt.setInt(10, job.getJobId());
             
             int rowsAffected = pstmt.executeUpdate();
+            pstmt.close();
+            
+            int materialsMoved = 0;
+            if (wasCompleted != isCompleted) {
+                lockMaterials(conn, job.getJobId());
+                pstmt = conn.prepareStatement(MOVE_MATERIALS_SQL);
+                int sign = isCompleted ? -1 : 1;
+                pstmt.setInt(1, sign);
+                pstmt.setInt(2, sign);
+                pstmt.setInt(3, job.getJobId());
+                materialsMoved = pstmt.executeUpdate();
+            }
+            conn.commit();
             
             if (rowsAffected > 0) {
                 LOGGER.info(() -> String.format("Updated job ID: %d", job.getJobId()));
+                if (materialsMoved > 0) {
+                    DataChangeNotifier.fire(DataChangeNotifier.Entity.JOB, DataChangeNotifier.Entity.MATERIAL);
+                } else {
+                    DataChangeNotifier.fire(DataChangeNotifier.Entity.JOB);
+                }
                 return true;
             }
             
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error updating job", e);
+            rollback(conn);
         } finally {
-            closeResources(conn, pstmt, null);
+            resetAutoCommit(conn);
+            closeResources(conn, pstmt, rs);
         }
         
         return false;
@@ -351,6 +419,7 @@ public class JobDAO {
             
             if (rowsAffected > 0) {
                 LOGGER.info(() -> String.format("Deleted job ID: %d", jobId));
+                DataChangeNotifier.fire(DataChangeNotifier.Entity.JOB);
                 return true;
             }
             
@@ -599,9 +668,51 @@ public class JobDAO {
         return job;
     }
     
+    /**
+     * Lock the Material rows of a job's assignments, in ID order. The job's
+     * own lock keeps its assignments from changing in the meantime.
+     */
+    private void lockMaterials(Connection conn, int jobId) throws SQLException {
+        List<Integer> materialIds = new ArrayList<>();
+        try (PreparedStatement find = conn.prepareStatement(FIND_MATERIAL_IDS_SQL)) {
+            find.setInt(1, jobId);
+            try (ResultSet ids = find.executeQuery()) {
+                while (ids.next()) {
+                    materialIds.add(ids.getInt("material_id"));
+                }
+            }
+        }
+        try (PreparedStatement lock = conn.prepareStatement(LOCK_MATERIAL_SQL)) {
+            for (Integer materialId : materialIds) {
+                lock.setInt(1, materialId);
+                lock.executeQuery().close();
+            }
+        }
+    }
+    
+    private void rollback(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.rollback();
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Error rolling back", e);
+            }
+        }
+    }
+    
+    private void resetAutoCommit(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Error restoring auto-commit", e);
+            }
+        }
+    }
+
     /**
      * Safely closes database resources
-     * 
+     *
      * @param conn Connection to close
      * @param pstmt PreparedStatement to close
      * @param rs ResultSet to close
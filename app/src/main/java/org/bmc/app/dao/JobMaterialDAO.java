@@ -9,10 +9,53 @@ import java.util.logging.Logger;
 /**
  * Data Access Object for JobMaterial relationships.
  * Manages the many-to-many relationship between jobs and materials.
+ *
+ * Assigning a material reserves it: each change to an assignment moves
+ * Material.reserved_quantity (or, for a completed job, the quantity on
+ * hand) in the same transaction as the JobMaterial row. Taking more is a
+ * single conditional UPDATE that only succeeds while enough is available,
+ * so concurrent assignments can never promise the same stock twice.
+ * Every change first locks the job's row, which serializes all changes to
+ * that job's assignments; rows are then locked in one order, Material
+ * before JobMaterial, the same as {@link JobDAO#update} when a job is
+ * completed. (Inserting a JobMaterial row share-locks its Material row,
+ * so taking the stock afterwards would deadlock two concurrent assigns.)
  */
 public class JobMaterialDAO {
     private static final Logger logger = Logger.getLogger(JobMaterialDAO.class.getName());
     
+    private static final int DUPLICATE_KEY_ERROR = 1062; // MySQL ER_DUP_ENTRY
+    
+    // Completed jobs have used their materials; anything else holds a reservation
+    private static final String LOCK_JOB_SQL =
+        "SELECT status FROM Job WHERE job_id = ? FOR UPDATE";
+    // Read under the job's lock, which every writer of the job's assignments holds
+    private static final String FIND_ASSIGNMENT_SQL =
+        "SELECT quantity_used FROM JobMaterial WHERE job_id = ? AND material_id = ?";
+    private static final String FIND_MATERIAL_SQL =
+        "SELECT 1 FROM Material WHERE material_id = ?";
+    private static final String TAKE_STOCK_SQL =
+        "UPDATE Material SET stock_quantity = stock_quantity - ?, reserved_quantity = reserved_quantity + ? " +
+        "WHERE material_id = ? AND stock_quantity - reserved_quantity >= ?";
+    private static final String RETURN_STOCK_SQL =
+        "UPDATE Material SET stock_quantity = stock_quantity + ?, reserved_quantity = reserved_quantity - ? " +
+        "WHERE material_id = ?";
+    
+    /**
+     * Outcome of a change to a job's materials
+     */
+    public enum ReservationResult {
+        OK,
+        /** Not enough of the material is available; nothing was changed */
+        INSUFFICIENT_STOCK,
+        /** The material is already assigned to the job */
+        ALREADY_ASSIGNED,
+        /** The job, material or assignment no longer exists */
+        NOT_FOUND,
+        /** The database could not be updated */
+        FAILED
+    }
+    
     /**
      * Represents a material assignment to a job with details
      */
@@ -23,15 +66,17 @@ public class JobMaterialDAO {
         private String category;
         private int quantityUsed;
         private int stockQuantity;
+        private int availableQuantity;
         
         public JobMaterialInfo(int jobId, int materialId, String materialName, 
-                              String category, int quantityUsed, int stockQuantity) {
+                              String category, int quantityUsed, int stockQuantity, int availableQuantity) {
             this.jobId = jobId;
             this.materialId = materialId;
             this.materialName = materialName;
             this.category = category;
             this.quantityUsed = quantityUsed;
             this.stockQuantity = stockQuantity;
+            this.availableQuantity = availableQuantity;
         }
         
         public int getJobId() { return jobId; }
@@ -40,6 +85,7 @@ public class JobMaterialDAO {
         public String getCategory() { return category; }
         public int getQuantityUsed() { return quantityUsed; }
         public int getStockQuantity() { return stockQuantity; }
+        public int getAvailableQuantity() { return availableQuantity; }
     }
     
     /**
@@ -49,7 +95,7 @@ public class JobMaterialDAO {
         List<JobMaterialInfo> materials = new ArrayList<>();
         
         String sql = "SELECT jm.job_id, jm.material_id, jm.quantity_used, " +
-                     "m.name, m.category, m.stock_quantity " +
+                     "m.name, m.category, m.stock_quantity, m.reserved_quantity " +
                      "FROM JobMaterial jm " +
                      "JOIN Material m ON jm.material_id = m.material_id " +
                      "WHERE jm.job_id = ? " +
@@ -68,7 +114,8 @@ public class JobMaterialDAO {
                         rs.getString("name"),
                         rs.getString("category"),
                         rs.getInt("quantity_used"),
-                        rs.getInt("stock_quantity")
+                        rs.getInt("stock_quantity"),
+                        rs.getInt("stock_quantity") - rs.getInt("reserved_quantity")
                     ));
                 }
             }
@@ -84,89 +131,227 @@ public class JobMaterialDAO {
     }
     
     /**
-     * Assign a material to a job
+     * Assign a material to a job, reserving the quantity if that much is
+     * available (or, for a completed job, taking it off the quantity on hand)
      */
-    public boolean assignMaterial(int jobId, int materialId, int quantityUsed) {
+    public ReservationResult assignMaterial(int jobId, int materialId, int quantityUsed) {
         String sql = "INSERT INTO JobMaterial (job_id, material_id, quantity_used) " +
                      "VALUES (?, ?, ?)";
         
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, jobId);
-            stmt.setInt(2, materialId);
-            stmt.setInt(3, quantityUsed);
-            
-            int rowsAffected = stmt.executeUpdate();
-            
-            if (rowsAffected > 0) {
-                logger.info("Assigned material " + materialId + " to job " + jobId + 
-                           " (quantity: " + quantityUsed + ")");
-                return true;
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Boolean completed = lockJob(conn, jobId);
+                if (completed == null) {
+                    conn.rollback();
+                    return ReservationResult.NOT_FOUND;
+                }
+                if (findAssignment(conn, jobId, materialId) != null) {
+                    conn.rollback();
+                    return ReservationResult.ALREADY_ASSIGNED;
+                }
+                
+                if (!takeStock(conn, materialId, quantityUsed, completed)) {
+                    ReservationResult result = materialExists(conn, materialId)
+                        ? ReservationResult.INSUFFICIENT_STOCK : ReservationResult.NOT_FOUND;
+                    conn.rollback();
+                    return result;
+                }
+                
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setInt(1, jobId);
+                    stmt.setInt(2, materialId);
+                    stmt.setInt(3, quantityUsed);
+                    stmt.executeUpdate();
+                } catch (SQLIntegrityConstraintViolationException e) {
+                    // Not expected under the job's lock, but never leave the stock taken
+                    conn.rollback();
+                    return e.getErrorCode() == DUPLICATE_KEY_ERROR
+                        ? ReservationResult.ALREADY_ASSIGNED : ReservationResult.NOT_FOUND;
+                }
+                
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
             
+            DataChangeNotifier.fire(DataChangeNotifier.Entity.JOB, DataChangeNotifier.Entity.MATERIAL);
+            logger.info("Assigned material " + materialId + " to job " + jobId + 
+                       " (quantity: " + quantityUsed + ")");
+            return ReservationResult.OK;
+            
         } catch (SQLException e) {
             logger.severe("Error assigning material to job: " + e.getMessage());
             e.printStackTrace();
         }
         
-        return false;
+        return ReservationResult.FAILED;
     }
     
     /**
-     * Update the quantity of a material for a job
+     * Update the quantity of a material for a job, reserving or releasing
+     * the difference. An increase needs that much more to be available.
      */
-    public boolean updateQuantity(int jobId, int materialId, int quantityUsed) {
+    public ReservationResult updateQuantity(int jobId, int materialId, int quantityUsed) {
         String sql = "UPDATE JobMaterial SET quantity_used = ? " +
                      "WHERE job_id = ? AND material_id = ?";
         
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, quantityUsed);
-            stmt.setInt(2, jobId);
-            stmt.setInt(3, materialId);
-            
-            int rowsAffected = stmt.executeUpdate();
-            
-            if (rowsAffected > 0) {
-                logger.info("Updated quantity for material " + materialId + " on job " + jobId + 
-                           " to " + quantityUsed);
-                return true;
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Boolean completed = lockJob(conn, jobId);
+                Integer previous = completed != null ? findAssignment(conn, jobId, materialId) : null;
+                if (previous == null) {
+                    conn.rollback();
+                    return ReservationResult.NOT_FOUND;
+                }
+                
+                int difference = quantityUsed - previous;
+                boolean adjusted = difference == 0
+                    || (difference > 0 ? takeStock(conn, materialId, difference, completed)
+                                       : returnStock(conn, materialId, -difference, completed));
+                if (!adjusted) {
+                    conn.rollback();
+                    return difference > 0 ? ReservationResult.INSUFFICIENT_STOCK : ReservationResult.NOT_FOUND;
+                }
+                
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setInt(1, quantityUsed);
+                    stmt.setInt(2, jobId);
+                    stmt.setInt(3, materialId);
+                    stmt.executeUpdate();
+                }
+                
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
             
+            DataChangeNotifier.fire(DataChangeNotifier.Entity.JOB, DataChangeNotifier.Entity.MATERIAL);
+            logger.info("Updated quantity for material " + materialId + " on job " + jobId + 
+                       " to " + quantityUsed);
+            return ReservationResult.OK;
+            
         } catch (SQLException e) {
             logger.severe("Error updating material quantity: " + e.getMessage());
             e.printStackTrace();
         }
         
-        return false;
+        return ReservationResult.FAILED;
     }
     
     /**
-     * Remove a material assignment from a job
+     * Remove a material assignment from a job, releasing its reservation
+     * (or, for a completed job, putting the quantity back on hand)
      */
-    public boolean removeMaterial(int jobId, int materialId) {
+    public ReservationResult removeMaterial(int jobId, int materialId) {
         String sql = "DELETE FROM JobMaterial WHERE job_id = ? AND material_id = ?";
         
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, jobId);
-            stmt.setInt(2, materialId);
-            
-            int rowsAffected = stmt.executeUpdate();
-            
-            if (rowsAffected > 0) {
-                logger.info("Removed material " + materialId + " from job " + jobId);
-                return true;
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Boolean completed = lockJob(conn, jobId);
+                Integer previous = completed != null ? findAssignment(conn, jobId, materialId) : null;
+                if (previous == null) {
+                    conn.rollback();
+                    return ReservationResult.NOT_FOUND;
+                }
+                
+                returnStock(conn, materialId, previous, completed);
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setInt(1, jobId);
+                    stmt.setInt(2, materialId);
+                    stmt.executeUpdate();
+                }
+                
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
             
+            DataChangeNotifier.fire(DataChangeNotifier.Entity.JOB, DataChangeNotifier.Entity.MATERIAL);
+            logger.info("Removed material " + materialId + " from job " + jobId);
+            return ReservationResult.OK;
+            
         } catch (SQLException e) {
             logger.severe("Error removing material from job: " + e.getMessage());
             e.printStackTrace();
         }
         
-        return false;
+        return ReservationResult.FAILED;
+    }
+    
+    /**
+     * Lock a job's row for the rest of the transaction
+     *
+     * @return whether the job is completed, or null if it doesn't exist
+     */
+    private static Boolean lockJob(Connection conn, int jobId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(LOCK_JOB_SQL)) {
+            stmt.setInt(1, jobId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? "Completed".equalsIgnoreCase(rs.getString("status")) : null;
+            }
+        }
+    }
+    
+    /**
+     * Read an assignment; the caller holds the job's lock, so it can't
+     * change before the transaction ends
+     *
+     * @return its quantity, or null if the material isn't assigned to the job
+     */
+    private static Integer findAssignment(Connection conn, int jobId, int materialId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(FIND_ASSIGNMENT_SQL)) {
+            stmt.setInt(1, jobId);
+            stmt.setInt(2, materialId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt("quantity_used") : null;
+            }
+        }
+    }
+    
+    private static boolean materialExists(Connection conn, int materialId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(FIND_MATERIAL_SQL)) {
+            stmt.setInt(1, materialId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+    
+    /**
+     * Reserve a quantity, or use it up for a completed job, if that much is
+     * available
+     *
+     * @return false if not enough is available or the material is gone
+     */
+    private static boolean takeStock(Connection conn, int materialId, int quantity, boolean completed)
+            throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(TAKE_STOCK_SQL)) {
+            stmt.setInt(1, completed ? quantity : 0);
+            stmt.setInt(2, completed ? 0 : quantity);
+            stmt.setInt(3, materialId);
+            stmt.setInt(4, quantity);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+    
+    /**
+     * Release a reservation, or put a completed job's quantity back on hand
+     *
+     * @return false if the material is gone
+     */
+    private static boolean returnStock(Connection conn, int materialId, int quantity, boolean completed)
+            throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(RETURN_STOCK_SQL)) {
+            stmt.setInt(1, completed ? quantity : 0);
+            stmt.setInt(2, completed ? 0 : quantity);
+            stmt.setInt(3, materialId);
+            return stmt.executeUpdate() > 0;
+        }
     }
 }
@@ -6,7 +6,9 @@ import org.bmc.app.util.DBConnection;
 import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Logger;
 
 /**
@@ -20,9 +22,20 @@ public class MaterialDAO {
     }
 
     public List<Material> findAll() {
+        List<Material> materials = findAllOrNull();
+        return materials != null ? materials : new ArrayList<>();
+    }
+    
+    /**
+     * Find all materials, or null on a database error, so a cache can keep
+     * what it has
+     * 
+     * @return materials ordered by name, or null if the query failed
+     */
+    public List<Material> findAllOrNull() {
         List<Material> materials = new ArrayList<>();
         String sql = "SELECT m.material_id, m.name, m.category, m.stock_quantity, m.reorder_level, " +
-                     "m.unit_cost, m.vendor_id, v.name AS vendor_name " +
+                     "m.reserved_quantity, m.unit_cost, m.vendor_id, v.name AS vendor_name " +
                      "FROM Material m " +
                      "LEFT JOIN Vendor v ON m.vendor_id = v.vendor_id " +
                      "ORDER BY m.name";
@@ -37,13 +50,59 @@ public class MaterialDAO {
             LOGGER.info("Retrieved " + materials.size() + " materials");
         } catch (SQLException e) {
             LOGGER.severe("Error finding all materials: " + e.getMessage());
+            return null;
         }
         return materials;
     }
 
+    /**
+     * Find materials inserted, updated or deleted since a watermark,
+     * including materials whose vendor was edited since, since they show
+     * the vendor's name.
+     * Pass null (or a watermark older than a day) to get a full snapshot.
+     * Returns null if the query failed.
+     */
+    public ChangeSet<Material> findChangedSince(Timestamp since) {
+        String columns = "SELECT m.material_id, m.name, m.category, m.stock_quantity, m.reorder_level, " +
+                         "m.reserved_quantity, m.unit_cost, m.vendor_id, v.name AS vendor_name ";
+        String joins = "LEFT JOIN Vendor v ON m.vendor_id = v.vendor_id ";
+        // Each branch of the union uses its own table's updated_at index
+        String changedIds = "FROM (SELECT material_id FROM Material WHERE updated_at >= ? " +
+                            "      UNION SELECT vm.material_id FROM Vendor vv JOIN Material vm ON vm.vendor_id = vv.vendor_id " +
+                            "            WHERE vv.updated_at >= ?) changed " +
+                            "JOIN Material m ON m.material_id = changed.material_id ";
+        
+        try (Connection conn = DBConnection.getConnection()) {
+            Timestamp watermark = ChangeTracking.serverTime(conn);
+            boolean fullSnapshot = ChangeTracking.needsFullSnapshot(since, watermark);
+            Timestamp from = fullSnapshot ? null : ChangeTracking.lowerBound(since);
+            
+            Set<Integer> deletedIds = fullSnapshot
+                ? new HashSet<>() : ChangeTracking.findDeletedSince(conn, "Material", from);
+            String sql = columns + (fullSnapshot ? "FROM Material m " : changedIds) + joins + "ORDER BY m.name";
+            
+            List<Material> changed = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                if (!fullSnapshot) {
+                    stmt.setTimestamp(1, from);
+                    stmt.setTimestamp(2, from);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        changed.add(mapResultSetToMaterial(rs));
+                    }
+                }
+            }
+            return new ChangeSet<>(changed, deletedIds, watermark, fullSnapshot);
+        } catch (SQLException e) {
+            LOGGER.severe("Error finding changed materials: " + e.getMessage());
+        }
+        return null;
+    }
+
     public Material findById(Integer id) {
         String sql = "SELECT m.material_id, m.name, m.category, m.stock_quantity, m.reorder_level, " +
-                     "m.unit_cost, m.vendor_id, v.name AS vendor_name " +
+                     "m.reserved_quantity, m.unit_cost, m.vendor_id, v.name AS vendor_name " +
                      "FROM Material m " +
                      "LEFT JOIN Vendor v ON m.vendor_id = v.vendor_id " +
                      "WHERE m.material_id = ?";
@@ -65,11 +124,11 @@ public class MaterialDAO {
     public List<Material> findLowStock() {
         List<Material> lowStockMaterials = new ArrayList<>();
         String sql = "SELECT m.material_id, m.name, m.category, m.stock_quantity, m.reorder_level, " +
-                     "m.unit_cost, m.vendor_id, v.name AS vendor_name " +
+                     "m.reserved_quantity, m.unit_cost, m.vendor_id, v.name AS vendor_name " +
                      "FROM Material m " +
                      "LEFT JOIN Vendor v ON m.vendor_id = v.vendor_id " +
-                     "WHERE m.stock_quantity <= m.reorder_level " +
-                     "ORDER BY m.stock_quantity";
+                     "WHERE m.stock_quantity - m.reserved_quantity <= m.reorder_level " +
+                     "ORDER BY m.stock_quantity - m.reserved_quantity";
         
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql);
@@ -105,6 +164,7 @@ public class MaterialDAO {
             int rowsAffected = stmt.executeUpdate();
             
             if (rowsAffected > 0) {
+                DataChangeNotifier.fire(DataChangeNotifier.Entity.MATERIAL);
                 try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                     if (generatedKeys.next()) {
                         material.setMaterialId(generatedKeys.getInt(1));
@@ -119,26 +179,32 @@ public class MaterialDAO {
         return false;
     }
 
+    /**
+     * Update a material's details. The quantity on hand is not written: it
+     * was read when the edit began and may since have been changed by
+     * {@link #updateStock} or a job completing, so it only changes through
+     * those compare-and-set paths.
+     */
     public boolean update(Material material) {
-        String sql = "UPDATE Material SET name = ?, category = ?, stock_quantity = ?, " +
+        String sql = "UPDATE Material SET name = ?, category = ?, " +
                      "reorder_level = ?, unit_cost = ?, vendor_id = ? WHERE material_id = ?";
         
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, material.getName());
             stmt.setString(2, material.getCategory());
-            stmt.setInt(3, material.getStockQuantity() != null ? material.getStockQuantity() : 0);
-            stmt.setInt(4, material.getReorderLevel() != null ? material.getReorderLevel() : 5);
-            stmt.setBigDecimal(5, material.getUnitCost());
+            stmt.setInt(3, material.getReorderLevel() != null ? material.getReorderLevel() : 5);
+            stmt.setBigDecimal(4, material.getUnitCost());
             if (material.getVendorId() != null) {
-                stmt.setInt(6, material.getVendorId());
+                stmt.setInt(5, material.getVendorId());
             } else {
-                stmt.setNull(6, Types.INTEGER);
+                stmt.setNull(5, Types.INTEGER);
             }
-            stmt.setInt(7, material.getMaterialId());
+            stmt.setInt(6, material.getMaterialId());
             
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected > 0) {
+                DataChangeNotifier.fire(DataChangeNotifier.Entity.MATERIAL);
                 LOGGER.info("Material updated successfully: " + material.getName());
                 return true;
             }
@@ -148,6 +214,35 @@ public class MaterialDAO {
         return false;
     }
 
+    /**
+     * Set the quantity on hand, unless it has changed since it was read.
+     * Only the stock column is written, so a concurrent edit of another
+     * field or a reservation is never overwritten.
+     *
+     * @param expectedQuantity quantity on hand the new value was based on
+     * @return 1 if updated, 0 if the quantity had changed (or the material
+     *         is gone) and nothing was written, -1 if the update failed
+     */
+    public int updateStock(int materialId, int expectedQuantity, int newQuantity) {
+        String sql = "UPDATE Material SET stock_quantity = ? WHERE material_id = ? AND stock_quantity = ?";
+        
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, newQuantity);
+            stmt.setInt(2, materialId);
+            stmt.setInt(3, expectedQuantity);
+            int rowsAffected = stmt.executeUpdate();
+            if (rowsAffected > 0) {
+                DataChangeNotifier.fire(DataChangeNotifier.Entity.MATERIAL);
+                LOGGER.info("Stock of material " + materialId + " set from " + expectedQuantity + " to " + newQuantity);
+            }
+            return rowsAffected;
+        } catch (SQLException e) {
+            LOGGER.severe("Error updating stock: " + e.getMessage());
+        }
+        return -1;
+    }
+
     public boolean delete(Integer id) {
         String sql = "DELETE FROM Material WHERE material_id = ?";
         
@@ -156,6 +251,7 @@ public class MaterialDAO {
             stmt.setInt(1, id);
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected > 0) {
+                DataChangeNotifier.fire(DataChangeNotifier.Entity.MATERIAL);
                 LOGGER.info("Material deleted successfully: ID " + id);
                 return true;
             }
@@ -168,7 +264,7 @@ public class MaterialDAO {
     public List<Material> search(String keyword) {
         List<Material> materials = new ArrayList<>();
         String sql = "SELECT m.material_id, m.name, m.category, m.stock_quantity, m.reorder_level, " +
-                     "m.unit_cost, m.vendor_id, v.name AS vendor_name " +
+                     "m.reserved_quantity, m.unit_cost, m.vendor_id, v.name AS vendor_name " +
                      "FROM Material m " +
                      "LEFT JOIN Vendor v ON m.vendor_id = v.vendor_id " +
                      "WHERE m.name LIKE ? OR m.category LIKE ? " +
@@ -198,6 +294,7 @@ public class MaterialDAO {
         material.setName(rs.getString("name"));
         material.setCategory(rs.getString("category"));
         material.setStockQuantity(rs.getInt("stock_quantity"));
+        material.setReservedQuantity(rs.getInt("reserved_quantity"));
         material.setReorderLevel(rs.getInt("reorder_level"));
         material.setUnitCost(rs.getBigDecimal("unit_cost"));
         int vendorId = rs.getInt("vendor_id");
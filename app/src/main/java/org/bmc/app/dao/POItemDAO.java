@@ -78,6 +78,7 @@ public class POItemDAO {
             int rowsAffected = stmt.executeUpdate();
             
             if (rowsAffected > 0) {
+                DataChangeNotifier.fire(DataChangeNotifier.Entity.PURCHASE_ORDER);
                 try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                     if (generatedKeys.next()) {
                         item.setPoItemId(generatedKeys.getInt(1));
@@ -105,6 +106,7 @@ public class POItemDAO {
             
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected > 0) {
+                DataChangeNotifier.fire(DataChangeNotifier.Entity.PURCHASE_ORDER);
                 LOGGER.info("PO item updated successfully: Item #" + item.getPoItemId());
                 return true;
             }
@@ -122,6 +124,7 @@ public class POItemDAO {
             stmt.setInt(1, id);
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected > 0) {
+                DataChangeNotifier.fire(DataChangeNotifier.Entity.PURCHASE_ORDER);
                 LOGGER.info("PO item deleted successfully: ID " + id);
                 return true;
             }
@@ -139,6 +142,9 @@ public class POItemDAO {
             stmt.setInt(1, poId);
             int rowsAffected = stmt.executeUpdate();
             LOGGER.info("Deleted " + rowsAffected + " items for PO #" + poId);
+            if (rowsAffected > 0) {
+                DataChangeNotifier.fire(DataChangeNotifier.Entity.PURCHASE_ORDER);
+            }
             return true;
         } catch (SQLException e) {
             LOGGER.severe("Error deleting PO items: " + e.getMessage());
@@ -5,8 +5,15 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -21,15 +28,107 @@ public class PhotoDAO {
     
     private static final Logger LOGGER = Logger.getLogger(PhotoDAO.class.getName());
     
+    /**
+     * Space recompression has saved, counting each stored file once
+     */
+    public static class TranscodeSavings {
+        private final int files;
+        private final long bytesSaved;
+        private final int retainedFiles;
+        private final long retainedBytes;
+        
+        public TranscodeSavings(int files, long bytesSaved, int retainedFiles, long retainedBytes) {
+            this.files = files;
+            this.bytesSaved = bytesSaved;
+            this.retainedFiles = retainedFiles;
+            this.retainedBytes = retainedBytes;
+        }
+        
+        /**
+         * Gets the number of files replaced by a smaller JPEG
+         */
+        public int getFiles() {
+            return files;
+        }
+        
+        /**
+         * Gets the bytes saved once every original is deleted
+         */
+        public long getBytesSaved() {
+            return bytesSaved;
+        }
+        
+        /**
+         * Gets the number of originals still kept for their retention window
+         */
+        public int getRetainedFiles() {
+            return retainedFiles;
+        }
+        
+        public long getRetainedBytes() {
+            return retainedBytes;
+        }
+    }
+    
     // SQL Queries
     private static final String INSERT_SQL = 
-        "INSERT INTO Photo (job_id, file_path, description) VALUES (?, ?, ?)";
+        "INSERT INTO Photo (job_id, file_path, description, content_hash, thumb_small_path, thumb_medium_path, " +
+        "width, height, format, file_size, taken_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private static final String SELECT_COLUMNS = 
+        "SELECT photo_id, job_id, file_path, description, thumb_small_path, thumb_medium_path, content_hash, " +
+        "width, height, format, file_size, taken_at, original_path, original_size, transcoded_at FROM Photo ";
     
     private static final String SELECT_BY_JOB_SQL = 
-        "SELECT photo_id, job_id, file_path, description FROM Photo WHERE job_id = ? ORDER BY photo_id";
+        SELECT_COLUMNS + "WHERE job_id = ? ORDER BY photo_id";
     
     private static final String SELECT_BY_ID_SQL = 
-        "SELECT photo_id, job_id, file_path, description FROM Photo WHERE photo_id = ?";
+        SELECT_COLUMNS + "WHERE photo_id = ?";
+    
+    private static final String SELECT_PAGE_SQL = 
+        SELECT_COLUMNS + "WHERE photo_id > ? ORDER BY photo_id LIMIT ?";
+    
+    private static final String SELECT_WITHOUT_METADATA_SQL = 
+        SELECT_COLUMNS + "WHERE photo_id > ? AND format IS NULL ORDER BY photo_id LIMIT ?";
+    
+    private static final String SELECT_TRANSCODE_CANDIDATES_SQL = 
+        SELECT_COLUMNS + "WHERE photo_id > ? AND transcoded_at IS NULL AND format IN ('png', 'bmp') " +
+        "AND file_size >= ? ORDER BY photo_id LIMIT ?";
+    
+    private static final String SELECT_EXPIRED_ORIGINALS_SQL = 
+        "SELECT DISTINCT original_path FROM Photo WHERE original_path IS NOT NULL AND transcoded_at < ? LIMIT ?";
+    
+    private static final String TRANSCODE_SAVINGS_SQL = 
+        "SELECT COUNT(*), COALESCE(SUM(original_size - file_size), 0), " +
+        "COUNT(original_path), COALESCE(SUM(CASE WHEN original_path IS NOT NULL THEN original_size END), 0) " +
+        "FROM (SELECT DISTINCT file_path, file_size, original_path, original_size FROM Photo " +
+        "WHERE original_size > file_size) transcoded";
+    
+    private static final String UPDATE_THUMBNAILS_SQL = 
+        "UPDATE Photo SET thumb_small_path = ?, thumb_medium_path = ? WHERE photo_id = ?";
+    
+    private static final String UPDATE_METADATA_SQL = 
+        "UPDATE Photo SET width = ?, height = ?, format = ?, file_size = ?, taken_at = ? WHERE photo_id = ?";
+    
+    // Rows sharing a stored file are recompressed together, matched by hash (or ID for older photos)
+    private static final String UPDATE_TRANSCODED_SQL = 
+        "UPDATE Photo SET file_path = ?, content_hash = ?, format = ?, file_size = ?, thumb_small_path = ?, " +
+        "thumb_medium_path = ?, original_path = ?, original_size = ?, transcoded_at = NOW() ";
+    
+    private static final String UPDATE_TRANSCODE_SKIPPED_SQL = 
+        "UPDATE Photo SET original_size = file_size, transcoded_at = NOW() ";
+    
+    private static final String WHERE_SAME_FILE_BY_HASH = 
+        "WHERE content_hash = ? AND file_path = ? AND transcoded_at IS NULL";
+    
+    private static final String WHERE_SAME_FILE_BY_ID = 
+        "WHERE photo_id = ? AND file_path = ? AND transcoded_at IS NULL";
+    
+    private static final String CLEAR_ORIGINAL_SQL = 
+        "UPDATE Photo SET original_path = NULL WHERE original_path = ?";
+    
+    private static final String COUNT_BY_HASH_SQL = 
+        "SELECT COUNT(*) FROM Photo WHERE content_hash = ?";
     
     private static final String DELETE_SQL = 
         "DELETE FROM Photo WHERE photo_id = ?";
@@ -57,9 +156,7 @@ public class PhotoDAO {
             conn = DBConnection.getConnection();
             pstmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
             
-            pstmt.setInt(1, photo.getJobId());
-            pstmt.setString(2, photo.getFilePath());
-            pstmt.setString(3, photo.getDescription());
+            setInsertParameters(pstmt, photo);
             
             int rowsAffected = pstmt.executeUpdate();
             
@@ -69,6 +166,7 @@ public class PhotoDAO {
                     photo.setPhotoId(rs.getInt(1));
                     LOGGER.info(() -> String.format("Created photo with ID: %d for job: %d", 
                         photo.getPhotoId(), photo.getJobId()));
+                    DataChangeNotifier.fire(DataChangeNotifier.Entity.PHOTO);
                     return photo;
                 }
             }
@@ -82,6 +180,67 @@ public class PhotoDAO {
         return null;
     }
     
+    /**
+     * Creates several photo records in one transaction: either all are
+     * inserted or none are
+     * 
+     * @param photos Photo objects to create (IDs will be set)
+     * @return true if every photo was inserted, false if the batch was rolled back
+     */
+    public boolean createAll(List<Photo> photos) {
+        if (photos == null || photos.isEmpty()) {
+            return true;
+        }
+        for (Photo photo : photos) {
+            if (!photo.isValid()) {
+                LOGGER.warning("Cannot create invalid photo: " + photo);
+                return false;
+            }
+        }
+        
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBConnection.getConnection();
+            conn.setAutoCommit(false);
+            pstmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+            
+            for (Photo photo : photos) {
+                setInsertParameters(pstmt, photo);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            
+            rs = pstmt.getGeneratedKeys();
+            int index = 0;
+            while (rs.next() && index < photos.size()) {
+                photos.get(index++).setPhotoId(rs.getInt(1));
+            }
+            if (index != photos.size()) {
+                throw new SQLException("Expected " + photos.size() + " generated keys, got " + index);
+            }
+            
+            conn.commit();
+            LOGGER.info(() -> String.format("Created %d photos for job: %d", photos.size(), photos.get(0).getJobId()));
+            DataChangeNotifier.fire(DataChangeNotifier.Entity.PHOTO);
+            return true;
+            
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error creating " + photos.size() + " photos", e);
+            rollback(conn);
+            for (Photo photo : photos) {
+                photo.setPhotoId(null);
+            }
+        } finally {
+            resetAutoCommit(conn);
+            closeResources(conn, pstmt, rs);
+        }
+        
+        return false;
+    }
+    
     /**
      * Retrieves all photos for a specific job
      * 
@@ -156,6 +315,476 @@ public class PhotoDAO {
         return null;
     }
     
+    /**
+     * Retrieves one page of all photos in ID order, for walking the whole
+     * table without holding it in memory
+     * 
+     * @param afterPhotoId last ID of the previous page, or 0 for the first page
+     * @param limit maximum photos to return
+     * @return the page (empty after the last one), or null if the query failed
+     */
+    public List<Photo> findPage(int afterPhotoId, int limit) {
+        List<Photo> photos = new ArrayList<>();
+        
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBConnection.getConnection();
+            pstmt = conn.prepareStatement(SELECT_PAGE_SQL);
+            pstmt.setInt(1, afterPhotoId);
+            pstmt.setInt(2, limit);
+            
+            rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                photos.add(mapResultSetToPhoto(rs));
+            }
+            return photos;
+            
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error retrieving photos after ID: " + afterPhotoId, e);
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Retrieves photos whose file metadata hasn't been read, in ID order,
+     * a page at a time
+     * 
+     * @param afterPhotoId last ID of the previous page, or 0 for the first page
+     * @param limit maximum photos to return
+     * @return the page (empty after the last one), or null if the query failed
+     */
+    public List<Photo> findWithoutMetadata(int afterPhotoId, int limit) {
+        List<Photo> photos = new ArrayList<>();
+        
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBConnection.getConnection();
+            pstmt = conn.prepareStatement(SELECT_WITHOUT_METADATA_SQL);
+            pstmt.setInt(1, afterPhotoId);
+            pstmt.setInt(2, limit);
+            
+            rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                photos.add(mapResultSetToPhoto(rs));
+            }
+            return photos;
+            
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error retrieving photos without metadata after ID: " + afterPhotoId, e);
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Finds which of some file paths any photo refers to, as its image, one
+     * of its downscaled copies or the original it was recompressed from
+     * 
+     * @param paths relative paths to check (at most a few hundred)
+     * @return the referenced paths, or null if the query failed
+     */
+    public Set<String> findReferencedPaths(Collection<String> paths) {
+        return findPathsIn(paths, "file_path", "thumb_small_path", "thumb_medium_path", "original_path");
+    }
+    
+    /**
+     * Finds which of some file paths any photo shows, as its image or one
+     * of its downscaled copies
+     * 
+     * @param paths relative paths to check (at most a few hundred)
+     * @return the paths in use, or null if the query failed
+     */
+    public Set<String> findUsedAsImage(Collection<String> paths) {
+        return findPathsIn(paths, "file_path", "thumb_small_path", "thumb_medium_path");
+    }
+    
+    private Set<String> findPathsIn(Collection<String> paths, String... columns) {
+        if (paths.isEmpty()) {
+            return Collections.emptySet();
+        }
+        
+        String placeholders = String.join(", ", Collections.nCopies(paths.size(), "?"));
+        List<String> conditions = new ArrayList<>();
+        for (String column : columns) {
+            conditions.add(column + " IN (" + placeholders + ")");
+        }
+        String sql = "SELECT " + String.join(", ", columns) + " FROM Photo WHERE " +
+                     String.join(" OR ", conditions);
+        
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBConnection.getConnection();
+            pstmt = conn.prepareStatement(sql);
+            int index = 1;
+            for (int i = 0; i < columns.length; i++) {
+                for (String path : paths) {
+                    pstmt.setString(index++, path);
+                }
+            }
+            
+            rs = pstmt.executeQuery();
+            
+            Set<String> wanted = new HashSet<>(paths);
+            Set<String> referenced = new HashSet<>();
+            while (rs.next()) {
+                for (int column = 1; column <= columns.length; column++) {
+                    String path = rs.getString(column);
+                    if (path != null && wanted.contains(path)) {
+                        referenced.add(path);
+                    }
+                }
+            }
+            return referenced;
+            
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error checking photo references", e);
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Records the downscaled copies generated for a photo
+     * 
+     * @param photo Photo with photoId and thumbnail paths set
+     * @return true if the photo row still exists and was updated, false otherwise
+     */
+    public boolean updateThumbnails(Photo photo) {
+        if (photo == null || photo.getPhotoId() == null) {
+            return false;
+        }
+        
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        
+        try {
+            conn = DBConnection.getConnection();
+            pstmt = conn.prepareStatement(UPDATE_THUMBNAILS_SQL);
+            pstmt.setString(1, photo.getSmallThumbnailPath());
+            pstmt.setString(2, photo.getMediumThumbnailPath());
+            pstmt.setInt(3, photo.getPhotoId());
+            
+            int rowsAffected = pstmt.executeUpdate();
+            
+            if (rowsAffected > 0) {
+                LOGGER.fine(() -> String.format("Recorded thumbnails for photo ID: %d", photo.getPhotoId()));
+                DataChangeNotifier.fire(DataChangeNotifier.Entity.PHOTO);
+                return true;
+            }
+            
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error updating thumbnails for photo ID: " + photo.getPhotoId(), e);
+        } finally {
+            closeResources(conn, pstmt, null);
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Records the file metadata of several photos in one batch
+     * 
+     * @param photos Photos with photoId and metadata set
+     * @return number of rows updated, or -1 if the update failed
+     */
+    public int updateMetadata(List<Photo> photos) {
+        if (photos == null || photos.isEmpty()) {
+            return 0;
+        }
+        
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        
+        try {
+            conn = DBConnection.getConnection();
+            pstmt = conn.prepareStatement(UPDATE_METADATA_SQL);
+            
+            for (Photo photo : photos) {
+                setMetadataParameters(pstmt, photo, 1);
+                pstmt.setInt(6, photo.getPhotoId());
+                pstmt.addBatch();
+            }
+            
+            int updated = 0;
+            for (int count : pstmt.executeBatch()) {
+                updated += Math.max(0, count);
+            }
+            int rows = updated;
+            LOGGER.fine(() -> String.format("Recorded metadata for %d photos", rows));
+            if (rows > 0) {
+                DataChangeNotifier.fire(DataChangeNotifier.Entity.PHOTO);
+            }
+            return rows;
+            
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error updating metadata for " + photos.size() + " photos", e);
+        } finally {
+            closeResources(conn, pstmt, null);
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Retrieves large photos stored in a lossless format that haven't been
+     * considered for recompression, in ID order, a page at a time
+     * 
+     * @param afterPhotoId last ID of the previous page, or 0 for the first page
+     * @param minBytes smallest file size worth recompressing
+     * @param limit maximum photos to return
+     * @return the page (empty after the last one), or null if the query failed
+     */
+    public List<Photo> findTranscodeCandidates(int afterPhotoId, long minBytes, int limit) {
+        List<Photo> photos = new ArrayList<>();
+        
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBConnection.getConnection();
+            pstmt = conn.prepareStatement(SELECT_TRANSCODE_CANDIDATES_SQL);
+            pstmt.setInt(1, afterPhotoId);
+            pstmt.setLong(2, minBytes);
+            pstmt.setInt(3, limit);
+            
+            rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                photos.add(mapResultSetToPhoto(rs));
+            }
+            return photos;
+            
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error retrieving photos to recompress after ID: " + afterPhotoId, e);
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Points every photo of a stored file at its recompressed replacement
+     * and records the original
+     * 
+     * @param photo Photo with the new file path, hash, format, size and
+     *              thumbnail paths set, and originalPath/originalSize set to
+     *              the file being replaced
+     * @param originalHash content hash of the file being replaced (null for
+     *                     older photos, which own their file)
+     * @return number of rows updated (0 if they were deleted or changed
+     *         meanwhile), or -1 if the update failed
+     */
+    public int recordTranscode(Photo photo, String originalHash) {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        
+        try {
+            conn = DBConnection.getConnection();
+            pstmt = conn.prepareStatement(UPDATE_TRANSCODED_SQL +
+                (originalHash != null ? WHERE_SAME_FILE_BY_HASH : WHERE_SAME_FILE_BY_ID));
+            pstmt.setString(1, photo.getFilePath());
+            pstmt.setString(2, photo.getContentHash());
+            pstmt.setString(3, photo.getFormat());
+            pstmt.setObject(4, photo.getFileSize(), Types.BIGINT);
+            pstmt.setString(5, photo.getSmallThumbnailPath());
+            pstmt.setString(6, photo.getMediumThumbnailPath());
+            pstmt.setString(7, photo.getOriginalPath());
+            pstmt.setObject(8, photo.getOriginalSize(), Types.BIGINT);
+            setSameFileParameters(pstmt, 9, photo.getPhotoId(), originalHash, photo.getOriginalPath());
+            
+            int rowsAffected = pstmt.executeUpdate();
+            
+            if (rowsAffected > 0) {
+                LOGGER.fine(() -> String.format("Recorded recompressed file %s for %d photos",
+                    photo.getFilePath(), rowsAffected));
+                DataChangeNotifier.fire(DataChangeNotifier.Entity.PHOTO);
+            }
+            return rowsAffected;
+            
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error recording recompressed file for photo ID: " + photo.getPhotoId(), e);
+        } finally {
+            closeResources(conn, pstmt, null);
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Marks every photo of a stored file as considered for recompression
+     * without replacing the file, so it isn't tried again
+     * 
+     * @param photo Photo whose file was left as it was
+     * @return number of rows updated, or -1 if the update failed
+     */
+    public int markTranscodeSkipped(Photo photo) {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        
+        try {
+            conn = DBConnection.getConnection();
+            pstmt = conn.prepareStatement(UPDATE_TRANSCODE_SKIPPED_SQL +
+                (photo.getContentHash() != null ? WHERE_SAME_FILE_BY_HASH : WHERE_SAME_FILE_BY_ID));
+            setSameFileParameters(pstmt, 1, photo.getPhotoId(), photo.getContentHash(), photo.getFilePath());
+            
+            return pstmt.executeUpdate();
+            
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error marking photo ID: " + photo.getPhotoId() + " as considered", e);
+        } finally {
+            closeResources(conn, pstmt, null);
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Finds originals kept after recompression whose retention has run out
+     * 
+     * @param recompressedBefore end of the retention window
+     * @param limit maximum paths to return
+     * @return relative paths, or null if the query failed
+     */
+    public List<String> findExpiredOriginals(LocalDateTime recompressedBefore, int limit) {
+        List<String> paths = new ArrayList<>();
+        
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBConnection.getConnection();
+            pstmt = conn.prepareStatement(SELECT_EXPIRED_ORIGINALS_SQL);
+            pstmt.setTimestamp(1, Timestamp.valueOf(recompressedBefore));
+            pstmt.setInt(2, limit);
+            
+            rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                paths.add(rs.getString(1));
+            }
+            return paths;
+            
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error retrieving expired photo originals", e);
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Forgets a kept original, once it has been deleted
+     * 
+     * @param originalPath relative path of the original
+     * @return true if the update succeeded
+     */
+    public boolean clearOriginal(String originalPath) {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        
+        try {
+            conn = DBConnection.getConnection();
+            pstmt = conn.prepareStatement(CLEAR_ORIGINAL_SQL);
+            pstmt.setString(1, originalPath);
+            pstmt.executeUpdate();
+            return true;
+            
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error clearing photo original: " + originalPath, e);
+        } finally {
+            closeResources(conn, pstmt, null);
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Totals the space recompression has saved
+     * 
+     * @return savings, or null if the query failed
+     */
+    public TranscodeSavings getTranscodeSavings() {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBConnection.getConnection();
+            pstmt = conn.prepareStatement(TRANSCODE_SAVINGS_SQL);
+            
+            rs = pstmt.executeQuery();
+            
+            if (rs.next()) {
+                return new TranscodeSavings(rs.getInt(1), rs.getLong(2), rs.getInt(3), rs.getLong(4));
+            }
+            
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error totalling recompression savings", e);
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Counts the photos whose image has a content hash, i.e. the references
+     * to one stored file
+     * 
+     * @param contentHash SHA-256 of the image
+     * @return number of photos, or -1 if the count failed
+     */
+    public int countByContentHash(String contentHash) {
+        if (contentHash == null) {
+            return 0;
+        }
+        
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DBConnection.getConnection();
+            pstmt = conn.prepareStatement(COUNT_BY_HASH_SQL);
+            pstmt.setString(1, contentHash);
+            
+            rs = pstmt.executeQuery();
+            
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+            
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error counting photos with hash: " + contentHash, e);
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+        
+        return -1;
+    }
+    
     /**
      * Deletes a photo from the database
      * Note: This does NOT delete the physical file - caller must handle that
@@ -180,6 +809,7 @@ public class PhotoDAO {
             
             if (rowsAffected > 0) {
                 LOGGER.info(() -> String.format("Deleted photo ID: %d", photoId));
+                DataChangeNotifier.fire(DataChangeNotifier.Entity.PHOTO);
                 return true;
             }
             
@@ -195,6 +825,7 @@ public class PhotoDAO {
     /**
      * Deletes all photos for a specific job
      * Note: This does NOT delete the physical files - caller must handle that
+     * (files left behind are found by PhotoGarbageCollector)
      * 
      * @param jobId ID of the job
      * @return number of photos deleted
@@ -216,6 +847,7 @@ public class PhotoDAO {
             
             if (rowsAffected > 0) {
                 LOGGER.info(() -> String.format("Deleted %d photos for job ID: %d", rowsAffected, jobId));
+                DataChangeNotifier.fire(DataChangeNotifier.Entity.PHOTO);
             }
             
             return rowsAffected;
@@ -237,12 +869,74 @@ public class PhotoDAO {
      * @throws SQLException if database access error occurs
      */
     private Photo mapResultSetToPhoto(ResultSet rs) throws SQLException {
-        return new Photo(
+        Photo photo = new Photo(
             rs.getInt("photo_id"),
             rs.getInt("job_id"),
             rs.getString("file_path"),
             rs.getString("description")
         );
+        photo.setSmallThumbnailPath(rs.getString("thumb_small_path"));
+        photo.setMediumThumbnailPath(rs.getString("thumb_medium_path"));
+        photo.setContentHash(rs.getString("content_hash"));
+        photo.setWidth(rs.getObject("width", Integer.class));
+        photo.setHeight(rs.getObject("height", Integer.class));
+        photo.setFormat(rs.getString("format"));
+        photo.setFileSize(rs.getObject("file_size", Long.class));
+        Timestamp takenAt = rs.getTimestamp("taken_at");
+        photo.setTakenAt(takenAt != null ? takenAt.toLocalDateTime() : null);
+        photo.setOriginalPath(rs.getString("original_path"));
+        photo.setOriginalSize(rs.getObject("original_size", Long.class));
+        Timestamp transcodedAt = rs.getTimestamp("transcoded_at");
+        photo.setTranscodedAt(transcodedAt != null ? transcodedAt.toLocalDateTime() : null);
+        return photo;
+    }
+    
+    private void setInsertParameters(PreparedStatement pstmt, Photo photo) throws SQLException {
+        pstmt.setInt(1, photo.getJobId());
+        pstmt.setString(2, photo.getFilePath());
+        pstmt.setString(3, photo.getDescription());
+        pstmt.setString(4, photo.getContentHash());
+        pstmt.setString(5, photo.getSmallThumbnailPath());
+        pstmt.setString(6, photo.getMediumThumbnailPath());
+        setMetadataParameters(pstmt, photo, 7);
+    }
+    
+    private void setMetadataParameters(PreparedStatement pstmt, Photo photo, int first) throws SQLException {
+        pstmt.setObject(first, photo.getWidth(), Types.INTEGER);
+        pstmt.setObject(first + 1, photo.getHeight(), Types.INTEGER);
+        pstmt.setString(first + 2, photo.getFormat());
+        pstmt.setObject(first + 3, photo.getFileSize(), Types.BIGINT);
+        pstmt.setTimestamp(first + 4, photo.getTakenAt() != null ? Timestamp.valueOf(photo.getTakenAt()) : null);
+    }
+    
+    private void setSameFileParameters(PreparedStatement pstmt, int first, Integer photoId, String contentHash,
+                                       String filePath) throws SQLException {
+        if (contentHash != null) {
+            pstmt.setString(first, contentHash);
+        } else {
+            pstmt.setInt(first, photoId);
+        }
+        pstmt.setString(first + 1, filePath);
+    }
+    
+    private void rollback(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.rollback();
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Error rolling back", e);
+            }
+        }
+    }
+    
+    private void resetAutoCommit(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Error restoring auto-commit", e);
+            }
+        }
     }
     
     /**
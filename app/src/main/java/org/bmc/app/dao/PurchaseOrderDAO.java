@@ -7,7 +7,9 @@ import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Logger;
 
 /**
@@ -42,6 +44,52 @@ public class PurchaseOrderDAO {
         return purchaseOrders;
     }
 
+    /**
+     * Find purchase orders inserted, updated or deleted since a watermark,
+     * including orders whose vendor was edited since, since they show the
+     * vendor's name.
+     * Pass null (or a watermark older than a day) to get a full snapshot.
+     * Returns null if the query failed.
+     */
+    public ChangeSet<PurchaseOrder> findChangedSince(Timestamp since) {
+        String columns = "SELECT po.po_id, po.vendor_id, v.name AS vendor_name, po.order_date, " +
+                         "po.total_cost, po.status ";
+        String joins = "JOIN Vendor v ON po.vendor_id = v.vendor_id ";
+        // Each branch of the union uses its own table's updated_at index
+        String changedIds = "FROM (SELECT po_id FROM PurchaseOrder WHERE updated_at >= ? " +
+                            "      UNION SELECT vpo.po_id FROM Vendor vv JOIN PurchaseOrder vpo ON vpo.vendor_id = vv.vendor_id " +
+                            "            WHERE vv.updated_at >= ?) changed " +
+                            "JOIN PurchaseOrder po ON po.po_id = changed.po_id ";
+        
+        try (Connection conn = DBConnection.getConnection()) {
+            Timestamp watermark = ChangeTracking.serverTime(conn);
+            boolean fullSnapshot = ChangeTracking.needsFullSnapshot(since, watermark);
+            Timestamp from = fullSnapshot ? null : ChangeTracking.lowerBound(since);
+            
+            Set<Integer> deletedIds = fullSnapshot
+                ? new HashSet<>() : ChangeTracking.findDeletedSince(conn, "PurchaseOrder", from);
+            String sql = columns + (fullSnapshot ? "FROM PurchaseOrder po " : changedIds) + joins
+                + "ORDER BY po.order_date DESC";
+            
+            List<PurchaseOrder> changed = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                if (!fullSnapshot) {
+                    stmt.setTimestamp(1, from);
+                    stmt.setTimestamp(2, from);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        changed.add(mapResultSetToPurchaseOrder(rs));
+                    }
+                }
+            }
+            return new ChangeSet<>(changed, deletedIds, watermark, fullSnapshot);
+        } catch (SQLException e) {
+            LOGGER.severe("Error finding changed purchase orders: " + e.getMessage());
+        }
+        return null;
+    }
+
     public PurchaseOrder findById(Integer id) {
         String sql = "SELECT po.po_id, po.vendor_id, v.name AS vendor_name, po.order_date, " +
                      "po.total_cost, po.status " +
@@ -77,6 +125,7 @@ public class PurchaseOrderDAO {
             int rowsAffected = stmt.executeUpdate();
             
             if (rowsAffected > 0) {
+                DataChangeNotifier.fire(DataChangeNotifier.Entity.PURCHASE_ORDER);
                 try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                     if (generatedKeys.next()) {
                         po.setPoId(generatedKeys.getInt(1));
@@ -105,6 +154,7 @@ public class PurchaseOrderDAO {
             
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected > 0) {
+                DataChangeNotifier.fire(DataChangeNotifier.Entity.PURCHASE_ORDER);
                 LOGGER.info("Purchase order updated successfully: PO #" + po.getPoId());
                 return true;
             }
@@ -122,6 +172,7 @@ public class PurchaseOrderDAO {
             stmt.setInt(1, id);
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected > 0) {
+                DataChangeNotifier.fire(DataChangeNotifier.Entity.PURCHASE_ORDER);
                 LOGGER.info("Purchase order deleted successfully: ID " + id);
                 return true;
             }
@@ -1,6 +1,7 @@
 package org.bmc.app.dao;
 
 import org.bmc.app.util.DBConnection;
+import java.io.Serializable;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.sql.*;
@@ -440,7 +441,9 @@ public class ReportDAO {
     /**
      * Represents vendor spending summary by month
      */
-    public static class VendorSpendingReport {
+    public static class VendorSpendingReport implements Serializable {
+        private static final long serialVersionUID = 1L;
+        
         private int vendorId;
         private String vendorName;
         private String vendorContact;
@@ -522,7 +525,9 @@ public class ReportDAO {
     /**
      * Represents comprehensive cost comparison (estimated vs actual) for a job, including labor and materials
      */
-    public static class JobCostComparisonReport {
+    public static class JobCostComparisonReport implements Serializable {
+        private static final long serialVersionUID = 1L;
+        
         private int jobId;
         private String customerName;
         private String description;
@@ -676,7 +681,9 @@ public class ReportDAO {
      * @deprecated Use JobCostComparisonReport instead for comprehensive cost tracking
      */
     @Deprecated
-    public static class LaborCostComparisonReport {
+    public static class LaborCostComparisonReport implements Serializable {
+        private static final long serialVersionUID = 1L;
+        
         private int jobId;
         private String customerName;
         private String description;
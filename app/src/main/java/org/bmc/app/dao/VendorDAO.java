@@ -19,6 +19,16 @@ public class VendorDAO {
     }
 
     public List<Vendor> findAll() {
+        List<Vendor> vendors = findAllOrNull();
+        return vendors != null ? vendors : new ArrayList<>();
+    }
+    
+    /**
+     * Find all vendors, or null on a database error
+     * 
+     * @return vendors ordered by name, or null if the query failed
+     */
+    public List<Vendor> findAllOrNull() {
         List<Vendor> vendors = new ArrayList<>();
         String sql = "SELECT vendor_id, name, contact_info, phone, email " +
                      "FROM Vendor ORDER BY name";
@@ -33,6 +43,7 @@ public class VendorDAO {
             LOGGER.info("Retrieved " + vendors.size() + " vendors");
         } catch (SQLException e) {
             LOGGER.severe("Error finding all vendors: " + e.getMessage());
+            return null;
         }
         return vendors;
     }
@@ -222,6 +222,22 @@ public class Job {
     
     // Business Methods
     
+    /**
+     * Gets the total estimated cost (labor + material)
+     * 
+     * @return estimated labor plus material cost, treating missing values as zero
+     */
+    public BigDecimal getEstimatedTotalCost() {
+        BigDecimal total = BigDecimal.ZERO;
+        if (estimatedLaborCost != null) {
+            total = total.add(estimatedLaborCost);
+        }
+        if (estimatedMaterialCost != null) {
+            total = total.add(estimatedMaterialCost);
+        }
+        return total;
+    }
+    
     /**
      * Validates that the job has required information
      * 
@@ -11,6 +11,7 @@ public class Material {
     private String name;
     private String category;
     private Integer stockQuantity;
+    private int reservedQuantity;
     private Integer reorderLevel;
     private BigDecimal unitCost;
     private Integer vendorId;
@@ -74,6 +75,25 @@ public class Material {
         this.stockQuantity = stockQuantity;
     }
 
+    /**
+     * Quantity on hand promised to jobs not completed yet
+     */
+    public int getReservedQuantity() {
+        return reservedQuantity;
+    }
+
+    public void setReservedQuantity(int reservedQuantity) {
+        this.reservedQuantity = reservedQuantity;
+    }
+
+    /**
+     * Quantity on hand not reserved for a job (negative if more is
+     * reserved than is on hand)
+     */
+    public Integer getAvailableQuantity() {
+        return stockQuantity != null ? stockQuantity - reservedQuantity : null;
+    }
+
     public Integer getReorderLevel() {
         return reorderLevel;
     }
@@ -108,7 +128,7 @@ public class Material {
 
     public boolean isLowStock() {
         return stockQuantity != null && reorderLevel != null 
-               && stockQuantity <= reorderLevel;
+               && getAvailableQuantity() <= reorderLevel;
     }
 
     @Override
@@ -118,6 +138,7 @@ public class Material {
                 ", name='" + name + '\'' +
                 ", category='" + category + '\'' +
                 ", stockQuantity=" + stockQuantity +
+                ", reservedQuantity=" + reservedQuantity +
                 ", reorderLevel=" + reorderLevel +
                 ", unitCost=" + unitCost +
                 ", vendorId=" + vendorId +
@@ -1,5 +1,7 @@
 package org.bmc.app.model;
 
+import java.time.LocalDateTime;
+
 /**
  * Represents a photo attached to a job.
  * Photos are stored on the file system with metadata in the database.
@@ -10,6 +12,17 @@ public class Photo {
     private Integer jobId;
     private String filePath;
     private String description;
+    private String smallThumbnailPath;
+    private String mediumThumbnailPath;
+    private String contentHash;
+    private Integer width;
+    private Integer height;
+    private String format;
+    private Long fileSize;
+    private LocalDateTime takenAt;
+    private String originalPath;
+    private Long originalSize;
+    private LocalDateTime transcodedAt;
     
     /**
      * Constructor for new photos (without ID)
@@ -70,6 +83,9 @@ public class Photo {
         if (description != null && !description.trim().isEmpty()) {
             return description;
         }
+        if (contentHash != null && photoId != null) {
+            return "Photo " + photoId; // stored under its hash, which means nothing to a reader
+        }
         return getFilename();
     }
     
@@ -107,6 +123,159 @@ public class Photo {
         this.description = description;
     }
     
+    /**
+     * Gets the path of the small downscaled copy (null until generated)
+     */
+    public String getSmallThumbnailPath() {
+        return smallThumbnailPath;
+    }
+    
+    public void setSmallThumbnailPath(String smallThumbnailPath) {
+        this.smallThumbnailPath = smallThumbnailPath;
+    }
+    
+    /**
+     * Gets the path of the medium downscaled copy (null until generated)
+     */
+    public String getMediumThumbnailPath() {
+        return mediumThumbnailPath;
+    }
+    
+    public void setMediumThumbnailPath(String mediumThumbnailPath) {
+        this.mediumThumbnailPath = mediumThumbnailPath;
+    }
+    
+    /**
+     * Gets the SHA-256 of the image file (null for photos stored before
+     * content addressing, which own their file)
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+    
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+    
+    /**
+     * Gets the width in pixels (null if unknown)
+     */
+    public Integer getWidth() {
+        return width;
+    }
+    
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+    
+    /**
+     * Gets the height in pixels (null if unknown)
+     */
+    public Integer getHeight() {
+        return height;
+    }
+    
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+    
+    /**
+     * Gets the image format, e.g. "jpeg" (null until the metadata is read)
+     */
+    public String getFormat() {
+        return format;
+    }
+    
+    public void setFormat(String format) {
+        this.format = format;
+    }
+    
+    /**
+     * Gets the size of the image file in bytes (null if unknown)
+     */
+    public Long getFileSize() {
+        return fileSize;
+    }
+    
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+    
+    /**
+     * Gets when the photo was taken, from the camera's EXIF data (null if
+     * the file doesn't say)
+     */
+    public LocalDateTime getTakenAt() {
+        return takenAt;
+    }
+    
+    public void setTakenAt(LocalDateTime takenAt) {
+        this.takenAt = takenAt;
+    }
+    
+    /**
+     * Gets the path of the file this photo was recompressed from, kept for
+     * a retention window (null if there is none, or it has been deleted)
+     */
+    public String getOriginalPath() {
+        return originalPath;
+    }
+    
+    public void setOriginalPath(String originalPath) {
+        this.originalPath = originalPath;
+    }
+    
+    /**
+     * Gets the size in bytes of the file before recompression (null if the
+     * photo was never considered for it)
+     */
+    public Long getOriginalSize() {
+        return originalSize;
+    }
+    
+    public void setOriginalSize(Long originalSize) {
+        this.originalSize = originalSize;
+    }
+    
+    /**
+     * Gets when the photo was considered for recompression, whether or not
+     * its file was replaced (null if not yet)
+     */
+    public LocalDateTime getTranscodedAt() {
+        return transcodedAt;
+    }
+    
+    public void setTranscodedAt(LocalDateTime transcodedAt) {
+        this.transcodedAt = transcodedAt;
+    }
+    
+    /**
+     * Checks whether the file's metadata has been read
+     * 
+     * @return true if the format is recorded
+     */
+    public boolean hasMetadata() {
+        return format != null;
+    }
+    
+    /**
+     * Gets the pixel size for display, e.g. "4032 x 3024"
+     * 
+     * @return dimensions, or an empty string if unknown
+     */
+    public String getDimensionsDisplay() {
+        return width != null && height != null ? width + " x " + height : "";
+    }
+    
+    /**
+     * Checks whether the downscaled copies have been generated
+     * 
+     * @return true if both thumbnail paths are recorded
+     */
+    public boolean hasThumbnails() {
+        return smallThumbnailPath != null && mediumThumbnailPath != null;
+    }
+    
     @Override
     public String toString() {
         return String.format("Photo[id=%d, jobId=%d, file=%s]", 
@@ -0,0 +1,606 @@
+package org.bmc.app.service;
+
+import org.bmc.app.dao.AnalyticsDAO;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+/**
+ * In-memory columnar cube over invoice, labor and material facts.
+ *
+ * Every fact is one row of dictionary-encoded dimension codes (int arrays)
+ * and fixed-point measures stored in hundredths (long arrays), so ad-hoc
+ * group-by/filter/sum queries are tight loops over primitive columns.
+ * Invoice and labor facts are refreshed incrementally by id watermark;
+ * material facts have no surrogate key and are re-read on every refresh.
+ */
+public class AnalyticsCube {
+    private static final Logger logger = Logger.getLogger(AnalyticsCube.class.getName());
+
+    private static final String NONE = "(none)";
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int DENSE_GROUP_LIMIT = 1 << 20;
+
+    /**
+     * Dimensions every fact can be grouped or filtered by
+     */
+    public enum Dimension {
+        SOURCE("Source"),
+        CUSTOMER("Customer"),
+        EMPLOYEE("Employee"),
+        ROLE("Role"),
+        JOB_STATUS("Job Status"),
+        PAYMENT_STATUS("Payment Status"),
+        MATERIAL("Material"),
+        MATERIAL_CATEGORY("Material Category"),
+        YEAR("Year"),
+        QUARTER("Quarter"),
+        MONTH("Month");
+
+        private final String label;
+
+        Dimension(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * Additive measures. COUNT is derived from the number of matching facts
+     * and is not stored as a column.
+     */
+    public enum Measure {
+        REVENUE("Revenue", true),
+        LABOR_COST("Labor Cost", true),
+        MATERIAL_COST("Material Cost", true),
+        LABOR_HOURS("Labor Hours", false),
+        MATERIAL_QUANTITY("Material Quantity", false),
+        COUNT("Count", false);
+
+        private final String label;
+        private final boolean currency;
+
+        Measure(String label, boolean currency) {
+            this.label = label;
+            this.currency = currency;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public boolean isCurrency() {
+            return currency;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private static final int DIMENSION_COUNT = Dimension.values().length;
+    private static final int STORED_MEASURES = Measure.COUNT.ordinal();
+
+    /**
+     * One aggregated output row of a query
+     */
+    public static class Row {
+        private final String[] keys;
+        private final BigDecimal value;
+
+        public Row(String[] keys, BigDecimal value) {
+            this.keys = keys;
+            this.value = value;
+        }
+
+        public String getKey(int index) { return keys[index]; }
+        public String[] getKeys() { return keys.clone(); }
+        public BigDecimal getValue() { return value; }
+    }
+
+    /**
+     * Result of a group-by query
+     */
+    public static class QueryResult {
+        private final List<Dimension> groupBy;
+        private final Measure measure;
+        private final List<Row> rows;
+        private final long factsScanned;
+        private final long elapsedNanos;
+
+        public QueryResult(List<Dimension> groupBy, Measure measure, List<Row> rows,
+                           long factsScanned, long elapsedNanos) {
+            this.groupBy = groupBy;
+            this.measure = measure;
+            this.rows = rows;
+            this.factsScanned = factsScanned;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public List<Dimension> getGroupBy() { return groupBy; }
+        public Measure getMeasure() { return measure; }
+        public List<Row> getRows() { return rows; }
+        public long getFactsScanned() { return factsScanned; }
+        public double getElapsedMillis() { return elapsedNanos / 1_000_000.0; }
+    }
+
+    private final AnalyticsDAO analyticsDAO;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Dictionary[] dictionaries = new Dictionary[DIMENSION_COUNT];
+
+    private Segment invoiceFacts = new Segment(INITIAL_CAPACITY);
+    private Segment laborFacts = new Segment(INITIAL_CAPACITY);
+    private Segment materialFacts = new Segment(INITIAL_CAPACITY);
+    private int invoiceWatermark;
+    private int laborWatermark;
+    private volatile boolean loaded;
+    private volatile long lastRefreshMillis;
+
+    public AnalyticsCube() {
+        this(new AnalyticsDAO());
+    }
+
+    public AnalyticsCube(AnalyticsDAO analyticsDAO) {
+        this.analyticsDAO = analyticsDAO;
+        for (int i = 0; i < DIMENSION_COUNT; i++) {
+            dictionaries[i] = new Dictionary();
+        }
+    }
+
+    /**
+     * Discard all facts and load everything from the database.
+     * Use this to pick up edits to existing rows (e.g. invoices marked paid).
+     * If any query fails the facts already loaded are kept.
+     *
+     * @return false if the facts could not be read
+     */
+    public synchronized boolean reload() {
+        long start = System.currentTimeMillis();
+
+        Segment invoices = new Segment(INITIAL_CAPACITY);
+        Segment labor = new Segment(INITIAL_CAPACITY);
+        int[] invoiceMax = {0};
+        int[] laborMax = {0};
+
+        int invoiceRows = analyticsDAO.streamInvoiceFacts(0, rs -> invoiceMax[0] = Math.max(invoiceMax[0], appendInvoice(invoices, rs)));
+        int laborRows = analyticsDAO.streamLaborFacts(0, rs -> laborMax[0] = Math.max(laborMax[0], appendLabor(labor, rs)));
+        Segment materials = loadMaterialFacts();
+        if (invoiceRows < 0 || laborRows < 0 || materials == null) {
+            logger.warning("Analytics cube not reloaded: cannot read facts");
+            return false;
+        }
+
+        lock.writeLock().lock();
+        try {
+            invoiceFacts = invoices;
+            laborFacts = labor;
+            materialFacts = materials;
+            invoiceWatermark = invoiceMax[0];
+            laborWatermark = laborMax[0];
+            lastRefreshMillis = System.currentTimeMillis();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        loaded = true;
+        logger.info("Analytics cube reloaded with " + getFactCount() + " facts in "
+                + (System.currentTimeMillis() - start) + " ms");
+        return true;
+    }
+
+    /**
+     * Append invoices and work logs created since the last load and re-read
+     * job materials. Falls back to a full reload if the cube is empty.
+     * If any query fails nothing is changed.
+     *
+     * @return false if the facts could not be read
+     */
+    public synchronized boolean refresh() {
+        if (!loaded) {
+            return reload();
+        }
+
+        long start = System.currentTimeMillis();
+        int fromInvoice;
+        int fromLabor;
+        lock.readLock().lock();
+        try {
+            fromInvoice = invoiceWatermark;
+            fromLabor = laborWatermark;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Segment newInvoices = new Segment(64);
+        Segment newLabor = new Segment(64);
+        int[] invoiceMax = {fromInvoice};
+        int[] laborMax = {fromLabor};
+
+        int invoiceRows = analyticsDAO.streamInvoiceFacts(fromInvoice, rs -> invoiceMax[0] = Math.max(invoiceMax[0], appendInvoice(newInvoices, rs)));
+        int laborRows = analyticsDAO.streamLaborFacts(fromLabor, rs -> laborMax[0] = Math.max(laborMax[0], appendLabor(newLabor, rs)));
+        Segment materials = loadMaterialFacts();
+        if (invoiceRows < 0 || laborRows < 0 || materials == null) {
+            logger.warning("Analytics cube not refreshed: cannot read facts");
+            return false;
+        }
+
+        lock.writeLock().lock();
+        try {
+            invoiceFacts.appendAll(newInvoices);
+            laborFacts.appendAll(newLabor);
+            materialFacts = materials;
+            invoiceWatermark = invoiceMax[0];
+            laborWatermark = laborMax[0];
+            lastRefreshMillis = System.currentTimeMillis();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        logger.info("Analytics cube refreshed: +" + newInvoices.size + " invoice facts, +"
+                + newLabor.size + " labor facts in " + (System.currentTimeMillis() - start) + " ms");
+        return true;
+    }
+
+    /**
+     * Group facts by the given dimensions and sum a measure
+     *
+     * @param groupBy dimensions to group by (may be empty for a grand total)
+     * @param filters allowed values per dimension; facts must match every entry
+     * @param measure measure to aggregate
+     * @return aggregated rows sorted by key
+     */
+    public QueryResult query(List<Dimension> groupBy, Map<Dimension, Set<String>> filters, Measure measure) {
+        long start = System.nanoTime();
+        int groupCount = groupBy.size();
+        int[] groupDims = new int[groupCount];
+        long[] radix = new long[groupCount];
+        int[] sizes = new int[groupCount];
+
+        lock.readLock().lock();
+        try {
+            long combinations = 1;
+            for (int g = 0; g < groupCount; g++) {
+                groupDims[g] = groupBy.get(g).ordinal();
+                sizes[g] = Math.max(1, dictionaries[groupDims[g]].size());
+                radix[g] = combinations;
+                try {
+                    combinations = Math.multiplyExact(combinations, sizes[g]);
+                } catch (ArithmeticException e) {
+                    throw new IllegalArgumentException("Too many group-by dimensions for a single query", e);
+                }
+            }
+
+            boolean[][] allowed = buildFilterMasks(filters);
+            int measureIndex = measure == Measure.COUNT ? -1 : measure.ordinal();
+            Aggregator aggregator = combinations <= DENSE_GROUP_LIMIT
+                    ? new DenseAggregator((int) combinations) : new SparseAggregator();
+
+            long scanned = 0;
+            for (Segment segment : new Segment[] {invoiceFacts, laborFacts, materialFacts}) {
+                scanned += segment.size;
+                scan(segment, groupDims, radix, allowed, measureIndex, aggregator);
+            }
+
+            List<Row> rows = new ArrayList<>();
+            aggregator.forEach((key, sum, count) -> {
+                String[] keys = new String[groupCount];
+                for (int g = 0; g < groupCount; g++) {
+                    int code = (int) ((key / radix[g]) % sizes[g]);
+                    keys[g] = dictionaries[groupDims[g]].decode(code);
+                }
+                BigDecimal value = measureIndex < 0 ? BigDecimal.valueOf(count) : BigDecimal.valueOf(sum, 2);
+                rows.add(new Row(keys, value));
+            });
+            rows.sort(ROW_ORDER);
+
+            return new QueryResult(Collections.unmodifiableList(new ArrayList<>(groupBy)), measure,
+                    rows, scanned, System.nanoTime() - start);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the distinct values seen for a dimension, sorted
+     */
+    public List<String> getValues(Dimension dimension) {
+        List<String> values = dictionaries[dimension.ordinal()].values();
+        Collections.sort(values);
+        return values;
+    }
+
+    /**
+     * Get the total number of facts currently held
+     */
+    public int getFactCount() {
+        lock.readLock().lock();
+        try {
+            return invoiceFacts.size + laborFacts.size + materialFacts.size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the time of the last load or refresh, 0 if never loaded
+     */
+    public long getLastRefreshMillis() {
+        return lastRefreshMillis;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    private void scan(Segment segment, int[] groupDims, long[] radix, boolean[][] allowed,
+                      int measureIndex, Aggregator aggregator) {
+        int size = segment.size;
+        int[][] dims = segment.dims;
+        long[] values = measureIndex < 0 ? null : segment.values[measureIndex];
+
+        rows:
+        for (int r = 0; r < size; r++) {
+            for (int d = 0; d < DIMENSION_COUNT; d++) {
+                if (allowed[d] != null && !allowed[d][dims[d][r]]) {
+                    continue rows;
+                }
+            }
+            long key = 0;
+            for (int g = 0; g < groupDims.length; g++) {
+                key += dims[groupDims[g]][r] * radix[g];
+            }
+            aggregator.add(key, values == null ? 0 : values[r]);
+        }
+    }
+
+    private boolean[][] buildFilterMasks(Map<Dimension, Set<String>> filters) {
+        boolean[][] allowed = new boolean[DIMENSION_COUNT][];
+        if (filters == null) {
+            return allowed;
+        }
+        for (Map.Entry<Dimension, Set<String>> entry : filters.entrySet()) {
+            Dictionary dictionary = dictionaries[entry.getKey().ordinal()];
+            boolean[] mask = new boolean[dictionary.size()];
+            for (int code = 0; code < mask.length; code++) {
+                mask[code] = entry.getValue().contains(dictionary.decode(code));
+            }
+            allowed[entry.getKey().ordinal()] = mask;
+        }
+        return allowed;
+    }
+
+    private Segment loadMaterialFacts() {
+        Segment materials = new Segment(INITIAL_CAPACITY);
+        int[] codes = new int[DIMENSION_COUNT];
+        long[] measures = new long[STORED_MEASURES];
+
+        int rows = analyticsDAO.streamMaterialFacts(rs -> {
+            Arrays.fill(measures, 0);
+            encodeCommon(codes, "Material", rs, rs.getDate("start_date"));
+            codes[Dimension.PAYMENT_STATUS.ordinal()] = encode(Dimension.PAYMENT_STATUS, null);
+            codes[Dimension.MATERIAL.ordinal()] = encode(Dimension.MATERIAL, rs.getString("material_name"));
+            codes[Dimension.MATERIAL_CATEGORY.ordinal()] = encode(Dimension.MATERIAL_CATEGORY, rs.getString("category"));
+            measures[Measure.MATERIAL_COST.ordinal()] = toHundredths(rs.getBigDecimal("material_cost"));
+            measures[Measure.MATERIAL_QUANTITY.ordinal()] = rs.getLong("quantity_used") * 100;
+            materials.append(codes, measures);
+        });
+        return rows < 0 ? null : materials;
+    }
+
+    private int appendInvoice(Segment target, ResultSet rs) throws SQLException {
+        int[] codes = new int[DIMENSION_COUNT];
+        long[] measures = new long[STORED_MEASURES];
+
+        encodeCommon(codes, "Invoice", rs, rs.getDate("invoice_date"));
+        codes[Dimension.PAYMENT_STATUS.ordinal()] = encode(Dimension.PAYMENT_STATUS, rs.getBoolean("paid") ? "Paid" : "Unpaid");
+        codes[Dimension.MATERIAL.ordinal()] = encode(Dimension.MATERIAL, null);
+        codes[Dimension.MATERIAL_CATEGORY.ordinal()] = encode(Dimension.MATERIAL_CATEGORY, null);
+        measures[Measure.REVENUE.ordinal()] = toHundredths(rs.getBigDecimal("total_amount"));
+        target.append(codes, measures);
+        return rs.getInt("invoice_id");
+    }
+
+    private int appendLabor(Segment target, ResultSet rs) throws SQLException {
+        int[] codes = new int[DIMENSION_COUNT];
+        long[] measures = new long[STORED_MEASURES];
+
+        encodeCommon(codes, "Labor", rs, rs.getDate("work_date"));
+        codes[Dimension.PAYMENT_STATUS.ordinal()] = encode(Dimension.PAYMENT_STATUS, null);
+        codes[Dimension.MATERIAL.ordinal()] = encode(Dimension.MATERIAL, null);
+        codes[Dimension.MATERIAL_CATEGORY.ordinal()] = encode(Dimension.MATERIAL_CATEGORY, null);
+        measures[Measure.LABOR_COST.ordinal()] = toHundredths(rs.getBigDecimal("labor_cost"));
+        measures[Measure.LABOR_HOURS.ordinal()] = toHundredths(rs.getBigDecimal("hours_worked"));
+        target.append(codes, measures);
+        return rs.getInt("worklog_id");
+    }
+
+    private void encodeCommon(int[] codes, String source, ResultSet rs, Date factDate) throws SQLException {
+        codes[Dimension.SOURCE.ordinal()] = encode(Dimension.SOURCE, source);
+        codes[Dimension.CUSTOMER.ordinal()] = encode(Dimension.CUSTOMER, rs.getString("customer_name"));
+        codes[Dimension.EMPLOYEE.ordinal()] = encode(Dimension.EMPLOYEE, rs.getString("employee_name"));
+        codes[Dimension.ROLE.ordinal()] = encode(Dimension.ROLE, rs.getString("role"));
+        codes[Dimension.JOB_STATUS.ordinal()] = encode(Dimension.JOB_STATUS, rs.getString("status"));
+
+        LocalDate date = factDate != null ? factDate.toLocalDate() : null;
+        codes[Dimension.YEAR.ordinal()] = encode(Dimension.YEAR, date == null ? null : String.valueOf(date.getYear()));
+        codes[Dimension.QUARTER.ordinal()] = encode(Dimension.QUARTER,
+                date == null ? null : date.getYear() + "-Q" + ((date.getMonthValue() - 1) / 3 + 1));
+        codes[Dimension.MONTH.ordinal()] = encode(Dimension.MONTH,
+                date == null ? null : String.format("%d-%02d", date.getYear(), date.getMonthValue()));
+    }
+
+    private int encode(Dimension dimension, String value) {
+        return dictionaries[dimension.ordinal()].encode(value == null || value.trim().isEmpty() ? NONE : value);
+    }
+
+    private static long toHundredths(BigDecimal value) {
+        return value == null ? 0 : value.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private static final Comparator<Row> ROW_ORDER = (a, b) -> {
+        for (int i = 0; i < a.keys.length; i++) {
+            int cmp = a.keys[i].compareTo(b.keys[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    };
+
+    /**
+     * Append-only string dictionary. Codes are stable for the life of the cube.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        synchronized int encode(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        synchronized String decode(int code) {
+            return values.get(code);
+        }
+
+        synchronized int size() {
+            return values.size();
+        }
+
+        synchronized List<String> values() {
+            return new ArrayList<>(values);
+        }
+    }
+
+    /**
+     * Growable column block: one int array per dimension, one long array per stored measure
+     */
+    private static final class Segment {
+        private int size;
+        private int[][] dims = new int[DIMENSION_COUNT][];
+        private long[][] values = new long[STORED_MEASURES][];
+
+        Segment(int capacity) {
+            for (int d = 0; d < DIMENSION_COUNT; d++) {
+                dims[d] = new int[capacity];
+            }
+            for (int m = 0; m < STORED_MEASURES; m++) {
+                values[m] = new long[capacity];
+            }
+        }
+
+        void append(int[] dimCodes, long[] measures) {
+            ensureCapacity(size + 1);
+            for (int d = 0; d < DIMENSION_COUNT; d++) {
+                dims[d][size] = dimCodes[d];
+            }
+            for (int m = 0; m < STORED_MEASURES; m++) {
+                values[m][size] = measures[m];
+            }
+            size++;
+        }
+
+        void appendAll(Segment other) {
+            ensureCapacity(size + other.size);
+            for (int d = 0; d < DIMENSION_COUNT; d++) {
+                System.arraycopy(other.dims[d], 0, dims[d], size, other.size);
+            }
+            for (int m = 0; m < STORED_MEASURES; m++) {
+                System.arraycopy(other.values[m], 0, values[m], size, other.size);
+            }
+            size += other.size;
+        }
+
+        private void ensureCapacity(int required) {
+            int capacity = dims[0].length;
+            if (required <= capacity) {
+                return;
+            }
+            int newCapacity = Math.max(required, capacity + (capacity >> 1));
+            for (int d = 0; d < DIMENSION_COUNT; d++) {
+                dims[d] = Arrays.copyOf(dims[d], newCapacity);
+            }
+            for (int m = 0; m < STORED_MEASURES; m++) {
+                values[m] = Arrays.copyOf(values[m], newCapacity);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface GroupVisitor {
+        void visit(long key, long sum, long count);
+    }
+
+    private interface Aggregator {
+        void add(long key, long value);
+        void forEach(GroupVisitor visitor);
+    }
+
+    /**
+     * Array-indexed accumulation used when the key space is small
+     */
+    private static final class DenseAggregator implements Aggregator {
+        private final long[] sums;
+        private final long[] counts;
+
+        DenseAggregator(int size) {
+            sums = new long[size];
+            counts = new long[size];
+        }
+
+        @Override
+        public void add(long key, long value) {
+            sums[(int) key] += value;
+            counts[(int) key]++;
+        }
+
+        @Override
+        public void forEach(GroupVisitor visitor) {
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    visitor.visit(i, sums[i], counts[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Hash-based accumulation for large key spaces
+     */
+    private static final class SparseAggregator implements Aggregator {
+        private final Map<Long, long[]> groups = new HashMap<>();
+
+        @Override
+        public void add(long key, long value) {
+            long[] acc = groups.computeIfAbsent(key, k -> new long[2]);
+            acc[0] += value;
+            acc[1]++;
+        }
+
+        @Override
+        public void forEach(GroupVisitor visitor) {
+            groups.forEach((key, acc) -> visitor.visit(key, acc[0], acc[1]));
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package org.bmc.app.service;
+
+import org.bmc.app.dao.ChangeSet;
+import org.bmc.app.dao.DashboardDAO;
+import org.bmc.app.dao.DashboardDAO.JobDueCounts;
+import org.bmc.app.dao.DataChangeNotifier;
+import org.bmc.app.dao.InvoiceDAO;
+import org.bmc.app.dao.MaterialDAO;
+import org.bmc.app.model.Invoice;
+import org.bmc.app.model.Material;
+import org.bmc.app.util.AppConfig;
+
+import javax.swing.SwingUtilities;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the dashboard figures (jobs due soon and overdue, low stock count,
+ * outstanding receivables, this month's invoiced revenue and labor hours)
+ * current without re-running reports.
+ *
+ * Invoices and materials are held as one small contribution per row, so a
+ * change applies the difference between a row's old and new contribution
+ * to the running totals; the changed rows come from the tables' change
+ * tracking queries. Job due counts and labor hours are single-row aggregate
+ * queries. A DAO write in this application updates only the figures that
+ * depend on it, shortly after the write; every dashboard.pollSeconds
+ * (default 60) the same delta queries pick up changes made by other
+ * clients, which costs little when nothing changed. All state is owned by
+ * one background thread; listeners get immutable snapshots on the EDT.
+ * A figure whose latest read failed, or that has not been read yet, is
+ * reported as unavailable rather than as 0 or an old value.
+ */
+public class DashboardAggregator {
+    private static final Logger logger = Logger.getLogger(DashboardAggregator.class.getName());
+
+    private static final DashboardAggregator INSTANCE = new DashboardAggregator();
+
+    private static final long COALESCE_MILLIS = 250; // let a burst of writes cause one update
+
+    /**
+     * Dashboard figures at one point in time
+     */
+    public static class Snapshot {
+        private final int jobsDueSoon;
+        private final int jobsOverdue;
+        private final int lowStockCount;
+        private final BigDecimal receivables;
+        private final BigDecimal monthRevenue;
+        private final BigDecimal monthLaborHours;
+        private final boolean invoicesAvailable;
+        private final boolean materialsAvailable;
+        private final boolean jobsAvailable;
+        private final boolean laborHoursAvailable;
+        private final int dueSoonDays;
+        private final YearMonth month;
+        private final Instant updatedAt;
+
+        Snapshot(int jobsDueSoon, int jobsOverdue, int lowStockCount, BigDecimal receivables,
+                 BigDecimal monthRevenue, BigDecimal monthLaborHours, boolean invoicesAvailable,
+                 boolean materialsAvailable, boolean jobsAvailable, boolean laborHoursAvailable,
+                 int dueSoonDays, YearMonth month) {
+            this.jobsDueSoon = jobsDueSoon;
+            this.jobsOverdue = jobsOverdue;
+            this.lowStockCount = lowStockCount;
+            this.receivables = receivables;
+            this.monthRevenue = monthRevenue;
+            this.monthLaborHours = monthLaborHours;
+            this.invoicesAvailable = invoicesAvailable;
+            this.materialsAvailable = materialsAvailable;
+            this.jobsAvailable = jobsAvailable;
+            this.laborHoursAvailable = laborHoursAvailable;
+            this.dueSoonDays = dueSoonDays;
+            this.month = month;
+            this.updatedAt = Instant.now();
+        }
+
+        public int getJobsDueSoon() { return jobsDueSoon; }
+        public int getJobsOverdue() { return jobsOverdue; }
+        public int getLowStockCount() { return lowStockCount; }
+        public BigDecimal getReceivables() { return receivables; }
+        public BigDecimal getMonthRevenue() { return monthRevenue; }
+        public BigDecimal getMonthLaborHours() { return monthLaborHours; }
+        /** False if receivables and month revenue could not be read */
+        public boolean isInvoicesAvailable() { return invoicesAvailable; }
+        /** False if the low stock count could not be read */
+        public boolean isMaterialsAvailable() { return materialsAvailable; }
+        /** False if the due soon and overdue job counts could not be read */
+        public boolean isJobsAvailable() { return jobsAvailable; }
+        /** False if this month's labor hours could not be read */
+        public boolean isLaborHoursAvailable() { return laborHoursAvailable; }
+        public int getDueSoonDays() { return dueSoonDays; }
+        public YearMonth getMonth() { return month; }
+        public Instant getUpdatedAt() { return updatedAt; }
+    }
+
+    /**
+     * What one invoice adds to the totals
+     */
+    private static final class InvoiceFacts {
+        final BigDecimal amount;
+        final boolean paid;
+        final LocalDate date;
+
+        InvoiceFacts(Invoice invoice) {
+            amount = invoice.getTotalAmount() != null ? invoice.getTotalAmount() : BigDecimal.ZERO;
+            paid = Boolean.TRUE.equals(invoice.getPaid());
+            date = invoice.getInvoiceDate();
+        }
+
+        BigDecimal receivable() {
+            return paid ? BigDecimal.ZERO : amount;
+        }
+
+        BigDecimal revenueIn(YearMonth month) {
+            return date != null && YearMonth.from(date).equals(month) ? amount : BigDecimal.ZERO;
+        }
+    }
+
+    private final int dueSoonDays = AppConfig.getInt("dashboard.dueSoonDays", 7);
+    private final long pollSeconds = AppConfig.getLong("dashboard.pollSeconds", 60);
+    private final InvoiceDAO invoiceDAO = new InvoiceDAO();
+    private final MaterialDAO materialDAO = new MaterialDAO();
+    private final DashboardDAO dashboardDAO = new DashboardDAO();
+    private final List<Consumer<Snapshot>> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean jobsQueued = new AtomicBoolean();
+    private final AtomicBoolean invoicesQueued = new AtomicBoolean();
+    private final AtomicBoolean materialsQueued = new AtomicBoolean();
+    private volatile Snapshot snapshot;
+    private ScheduledExecutorService scheduler;
+
+    // Owned by the scheduler thread
+    private final Map<Integer, InvoiceFacts> invoices = new HashMap<>();
+    private Timestamp invoiceWatermark;
+    private BigDecimal receivables = BigDecimal.ZERO;
+    private BigDecimal monthRevenue = BigDecimal.ZERO;
+    private YearMonth month = YearMonth.now();
+    private Boolean invoicesAvailable; // null until the first attempt
+
+    private final Map<Integer, Boolean> lowStockById = new HashMap<>();
+    private Timestamp materialWatermark;
+    private int lowStockCount;
+    private Boolean materialsAvailable; // null until the first attempt
+
+    private JobDueCounts jobCounts = new JobDueCounts(0, 0);
+    private Boolean jobsAvailable; // null until the first attempt
+    private BigDecimal laborHours = BigDecimal.ZERO;
+    private Boolean laborHoursAvailable; // null until the first attempt
+
+    private DashboardAggregator() {
+    }
+
+    public static DashboardAggregator getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Compute every figure in the background and start following changes.
+     * Safe to call more than once.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dashboard-aggregator");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        DataChangeNotifier.addListener(this::dataChanged);
+        scheduler.scheduleWithFixedDelay(this::pollAll, 0, Math.max(5, pollSeconds), TimeUnit.SECONDS);
+        logger.info("Dashboard aggregator started, polling every " + pollSeconds + " s");
+    }
+
+    /**
+     * Re-check every figure now
+     */
+    public void refreshNow() {
+        if (scheduler != null) {
+            scheduler.execute(this::pollAll);
+        }
+    }
+
+    /**
+     * Get the latest figures, or null before the first computation finished
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Register for new snapshots, delivered on the EDT
+     */
+    public void addListener(Consumer<Snapshot> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<Snapshot> listener) {
+        listeners.remove(listener);
+    }
+
+    private void dataChanged(DataChangeNotifier.Entity entity) {
+        switch (entity) {
+            case JOB:
+                queue(jobsQueued, this::updateJobs);
+                break;
+            case INVOICE:
+                queue(invoicesQueued, this::updateInvoices);
+                break;
+            case MATERIAL:
+                queue(materialsQueued, this::updateMaterials);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void queue(AtomicBoolean queued, Runnable update) {
+        if (scheduler != null && queued.compareAndSet(false, true)) {
+            scheduler.schedule(() -> {
+                queued.set(false);
+                run(update);
+                publish();
+            }, COALESCE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void pollAll() {
+        long start = System.currentTimeMillis();
+        YearMonth now = YearMonth.now();
+        if (!now.equals(month)) {
+            month = now;
+            monthRevenue = BigDecimal.ZERO;
+            for (InvoiceFacts facts : invoices.values()) {
+                monthRevenue = monthRevenue.add(facts.revenueIn(month));
+            }
+        }
+        run(this::updateInvoices);
+        run(this::updateMaterials);
+        run(this::updateJobs);
+        run(this::updateLaborHours);
+        publish();
+        logger.fine(() -> "Dashboard poll took " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private void run(Runnable update) {
+        try {
+            update.run();
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Error updating dashboard", e);
+        }
+    }
+
+    private void updateInvoices() {
+        ChangeSet<Invoice> changes = invoiceDAO.findChangedSince(invoiceWatermark);
+        if (changes == null) {
+            // The totals are only as current as the last successful read; don't pass them off as current
+            if (!Boolean.FALSE.equals(invoicesAvailable)) {
+                logger.warning("Receivables and revenue unavailable: cannot read invoice changes "
+                               + "(database error, or migration 001 not applied)");
+            }
+            invoicesAvailable = false;
+            return;
+        }
+        invoicesAvailable = true;
+        invoiceWatermark = changes.getWatermark();
+        if (changes.isFullSnapshot()) {
+            invoices.clear();
+            receivables = BigDecimal.ZERO;
+            monthRevenue = BigDecimal.ZERO;
+        }
+        for (Integer invoiceId : changes.getDeletedIds()) {
+            subtract(invoices.remove(invoiceId));
+        }
+        for (Invoice invoice : changes.getChanged()) {
+            InvoiceFacts facts = new InvoiceFacts(invoice);
+            subtract(invoices.put(invoice.getInvoiceId(), facts));
+            receivables = receivables.add(facts.receivable());
+            monthRevenue = monthRevenue.add(facts.revenueIn(month));
+        }
+    }
+
+    private void subtract(InvoiceFacts facts) {
+        if (facts != null) {
+            receivables = receivables.subtract(facts.receivable());
+            monthRevenue = monthRevenue.subtract(facts.revenueIn(month));
+        }
+    }
+
+    private void updateMaterials() {
+        ChangeSet<Material> changes = materialDAO.findChangedSince(materialWatermark);
+        if (changes == null) {
+            if (!Boolean.FALSE.equals(materialsAvailable)) {
+                logger.warning("Low stock count unavailable: cannot read material changes "
+                               + "(database error, or migration 001 not applied)");
+            }
+            materialsAvailable = false;
+            return;
+        }
+        materialsAvailable = true;
+        materialWatermark = changes.getWatermark();
+        if (changes.isFullSnapshot()) {
+            lowStockById.clear();
+            lowStockCount = 0;
+        }
+        for (Integer materialId : changes.getDeletedIds()) {
+            if (Boolean.TRUE.equals(lowStockById.remove(materialId))) {
+                lowStockCount--;
+            }
+        }
+        for (Material material : changes.getChanged()) {
+            boolean low = material.isLowStock();
+            if (Boolean.TRUE.equals(lowStockById.put(material.getMaterialId(), low))) {
+                lowStockCount--;
+            }
+            if (low) {
+                lowStockCount++;
+            }
+        }
+    }
+
+    private void updateJobs() {
+        JobDueCounts counts = dashboardDAO.countOpenJobsByDueDate(dueSoonDays);
+        if (counts == null) {
+            if (!Boolean.FALSE.equals(jobsAvailable)) {
+                logger.warning("Job due counts unavailable: cannot count open jobs");
+            }
+            jobsAvailable = false;
+            return;
+        }
+        jobsAvailable = true;
+        jobCounts = counts;
+    }
+
+    private void updateLaborHours() {
+        BigDecimal hours = dashboardDAO.sumLaborHoursSince(month.atDay(1));
+        if (hours == null) {
+            if (!Boolean.FALSE.equals(laborHoursAvailable)) {
+                logger.warning("Labor hours unavailable: cannot sum this month's work logs");
+            }
+            laborHoursAvailable = false;
+            return;
+        }
+        laborHoursAvailable = true;
+        laborHours = hours;
+    }
+
+    private void publish() {
+        Snapshot next = new Snapshot(jobCounts.getDueSoon(), jobCounts.getOverdue(), lowStockCount,
+                                     receivables, monthRevenue, laborHours,
+                                     Boolean.TRUE.equals(invoicesAvailable), Boolean.TRUE.equals(materialsAvailable),
+                                     Boolean.TRUE.equals(jobsAvailable), Boolean.TRUE.equals(laborHoursAvailable),
+                                     dueSoonDays, month);
+        snapshot = next;
+        SwingUtilities.invokeLater(() -> {
+            for (Consumer<Snapshot> listener : listeners) {
+                listener.accept(next);
+            }
+        });
+    }
+}
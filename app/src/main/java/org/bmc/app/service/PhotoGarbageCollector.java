@@ -0,0 +1,371 @@
+package org.bmc.app.service;
+
+import org.bmc.app.dao.PhotoDAO;
+import org.bmc.app.model.Photo;
+import org.bmc.app.util.AppConfig;
+import org.bmc.app.util.PhotoStorageUtil;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reconciles the photos/ directory with the Photo table.
+ *
+ * Finds orphans (files no photo refers to, as its image, a downscaled
+ * copy or a recompressed original still kept, e.g. left by deleting a
+ * job's photos or by an upload whose insert failed) and dangling photos
+ * (rows whose image file is gone). The table is read a page at a time by
+ * ID into a set of referenced paths, then the directory is walked once;
+ * neither side is ever loaded as a whole result set. Files changed within
+ * photos.gc.graceMinutes (default 60) are left alone, since an upload may
+ * not have inserted its row yet, and every orphan is checked against the
+ * table again right before it is deleted.
+ *
+ * Runs in the background every photos.gc.intervalHours (default 24, 0
+ * turns it off) at low priority, pausing between pages so it never
+ * competes with the UI. Background runs only report unless
+ * photos.gc.autoRemove is true; Tools &gt; Photo Storage shows the latest
+ * report and removes what the user confirms.
+ */
+public class PhotoGarbageCollector {
+    private static final Logger logger = Logger.getLogger(PhotoGarbageCollector.class.getName());
+
+    private static final PhotoGarbageCollector INSTANCE = new PhotoGarbageCollector();
+
+    private static final Path PHOTOS_ROOT = Paths.get("photos");
+    private static final int PAGE_SIZE = 1000;
+    private static final int RECHECK_BATCH = 200;
+    private static final long PAUSE_MILLIS = 20; // between pages and batches, to stay out of the way
+
+    /**
+     * A stored file no photo refers to
+     */
+    public static class Orphan {
+        private final String path;
+        private final long size;
+        private final Instant modified;
+
+        Orphan(String path, long size, Instant modified) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public Instant getModified() {
+            return modified;
+        }
+    }
+
+    /**
+     * Result of one reconciliation
+     */
+    public static class Report {
+        private final int photoCount;
+        private final int fileCount;
+        private final long fileBytes;
+        private final List<Orphan> orphans;
+        private final List<Photo> dangling;
+        private final boolean complete;
+        private final long durationMillis;
+        private final Instant finishedAt;
+
+        Report(int photoCount, int fileCount, long fileBytes, List<Orphan> orphans, List<Photo> dangling,
+               boolean complete, long durationMillis) {
+            this.photoCount = photoCount;
+            this.fileCount = fileCount;
+            this.fileBytes = fileBytes;
+            this.orphans = Collections.unmodifiableList(orphans);
+            this.dangling = Collections.unmodifiableList(dangling);
+            this.complete = complete;
+            this.durationMillis = durationMillis;
+            this.finishedAt = Instant.now();
+        }
+
+        public int getPhotoCount() { return photoCount; }
+        public int getFileCount() { return fileCount; }
+        public long getFileBytes() { return fileBytes; }
+        public List<Orphan> getOrphans() { return orphans; }
+        public List<Photo> getDangling() { return dangling; }
+        /** False if the scan was cancelled or the table could not be read; nothing may be removed then */
+        public boolean isComplete() { return complete; }
+        public long getDurationMillis() { return durationMillis; }
+        public Instant getFinishedAt() { return finishedAt; }
+
+        public long getOrphanBytes() {
+            return orphans.stream().mapToLong(Orphan::getSize).sum();
+        }
+    }
+
+    private final PhotoDAO photoDAO = new PhotoDAO();
+    private final long graceMillis = AppConfig.getLong("photos.gc.graceMinutes", 60) * 60_000;
+    private final long intervalHours = AppConfig.getLong("photos.gc.intervalHours", 24);
+    private final boolean autoRemove = AppConfig.getBoolean("photos.gc.autoRemove", false);
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Report lastReport;
+    private ScheduledExecutorService scheduler;
+
+    private PhotoGarbageCollector() {
+    }
+
+    public static PhotoGarbageCollector getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Schedule background runs. Safe to call more than once.
+     */
+    public synchronized void start() {
+        if (scheduler != null || intervalHours <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "photo-gc");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        // First run well after startup, when the application has settled
+        scheduler.scheduleWithFixedDelay(this::backgroundRun, 15, intervalHours * 60, TimeUnit.MINUTES);
+        logger.info("Photo garbage collector scheduled every " + intervalHours + " h");
+    }
+
+    /**
+     * Get the latest report, or null before the first scan
+     */
+    public Report getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Compare the photo directory with the Photo table. Call from a
+     * background thread.
+     *
+     * @param cancelled checked between pages and directories
+     * @return the report, or null if another scan is already running
+     */
+    public Report scan(BooleanSupplier cancelled) {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            Report report = doScan(cancelled);
+            lastReport = report;
+            logger.info(String.format("Photo scan: %d photos, %d files (%s), %d orphans (%s), %d dangling, %d ms%s",
+                report.getPhotoCount(), report.getFileCount(), PhotoStorageUtil.formatFileSize(report.getFileBytes()),
+                report.getOrphans().size(), PhotoStorageUtil.formatFileSize(report.getOrphanBytes()),
+                report.getDangling().size(), report.getDurationMillis(), report.isComplete() ? "" : " (incomplete)"));
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Delete orphaned files that are still unreferenced, then any
+     * directories left empty
+     *
+     * @return number of files deleted
+     */
+    public int removeOrphans(List<Orphan> orphans) {
+        int removed = 0;
+        long bytes = 0;
+        for (int from = 0; from < orphans.size(); from += RECHECK_BATCH) {
+            List<Orphan> batch = orphans.subList(from, Math.min(orphans.size(), from + RECHECK_BATCH));
+            List<String> paths = new ArrayList<>();
+            for (Orphan orphan : batch) {
+                paths.add(orphan.getPath());
+            }
+            // A photo may have been added for one of these since the scan
+            Set<String> referenced = photoDAO.findReferencedPaths(paths);
+            if (referenced == null) {
+                logger.warning("Cannot re-check photo references, leaving remaining orphans");
+                break;
+            }
+            for (Orphan orphan : batch) {
+                if (referenced.contains(orphan.getPath())) {
+                    continue;
+                }
+                Path file = Paths.get(orphan.getPath());
+                try {
+                    if (Files.deleteIfExists(file)) {
+                        removed++;
+                        bytes += orphan.getSize();
+                        deleteEmptyParents(file);
+                    }
+                } catch (IOException e) {
+                    logger.warning("Cannot delete orphaned photo file " + file + ": " + e.getMessage());
+                }
+            }
+            pause();
+        }
+        logger.info("Removed " + removed + " orphaned photo files (" + PhotoStorageUtil.formatFileSize(bytes) + ")");
+        return removed;
+    }
+
+    /**
+     * Delete photo rows whose image file is still missing
+     *
+     * @return number of rows deleted
+     */
+    public int removeDangling(List<Photo> dangling) {
+        int removed = 0;
+        for (Photo photo : dangling) {
+            if (!PhotoStorageUtil.photoExists(photo.getFilePath()) && photoDAO.delete(photo.getPhotoId())) {
+                removed++;
+            }
+        }
+        logger.info("Removed " + removed + " photos whose image file was missing");
+        return removed;
+    }
+
+    private void backgroundRun() {
+        try {
+            Report report = scan(() -> false);
+            if (report != null && report.isComplete() && autoRemove && !report.getOrphans().isEmpty()) {
+                removeOrphans(report.getOrphans());
+            }
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Photo garbage collection failed", e);
+        }
+    }
+
+    private Report doScan(BooleanSupplier cancelled) {
+        long start = System.currentTimeMillis();
+
+        // Every path the table refers to, read a page at a time
+        Set<String> referenced = new HashSet<>();
+        List<Photo> dangling = new ArrayList<>();
+        int photoCount = 0;
+        int lastId = 0;
+        while (true) {
+            if (cancelled.getAsBoolean()) {
+                return new Report(photoCount, 0, 0, new ArrayList<>(), dangling, false,
+                                  System.currentTimeMillis() - start);
+            }
+            List<Photo> page = photoDAO.findPage(lastId, PAGE_SIZE);
+            if (page == null) {
+                return new Report(photoCount, 0, 0, new ArrayList<>(), dangling, false,
+                                  System.currentTimeMillis() - start);
+            }
+            for (Photo photo : page) {
+                referenced.add(normalize(photo.getFilePath()));
+                if (photo.getSmallThumbnailPath() != null) {
+                    referenced.add(normalize(photo.getSmallThumbnailPath()));
+                }
+                if (photo.getMediumThumbnailPath() != null) {
+                    referenced.add(normalize(photo.getMediumThumbnailPath()));
+                }
+                if (photo.getOriginalPath() != null) {
+                    referenced.add(normalize(photo.getOriginalPath()));
+                }
+                if (!PhotoStorageUtil.photoExists(photo.getFilePath())) {
+                    dangling.add(photo);
+                }
+                lastId = photo.getPhotoId();
+            }
+            photoCount += page.size();
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+            pause();
+        }
+
+        // Every file on disk that is not in the set, unless too new to judge
+        List<Orphan> orphans = new ArrayList<>();
+        long[] totals = new long[2];
+        boolean[] interrupted = new boolean[1];
+        long cutoff = System.currentTimeMillis() - graceMillis;
+        if (Files.isDirectory(PHOTOS_ROOT)) {
+            try {
+                Files.walkFileTree(PHOTOS_ROOT, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                        if (cancelled.getAsBoolean()) {
+                            interrupted[0] = true;
+                            return FileVisitResult.TERMINATE;
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (!attrs.isRegularFile()) {
+                            return FileVisitResult.CONTINUE;
+                        }
+                        totals[0]++;
+                        totals[1] += attrs.size();
+                        String path = normalize(file.toString());
+                        if (!referenced.contains(path) && attrs.lastModifiedTime().toMillis() < cutoff) {
+                            orphans.add(new Orphan(path, attrs.size(), attrs.lastModifiedTime().toInstant()));
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) {
+                        logger.warning("Cannot read " + file + ": " + e.getMessage());
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                logger.warning("Error walking photo directory: " + e.getMessage());
+                interrupted[0] = true;
+            }
+        }
+        return new Report(photoCount, (int) totals[0], totals[1], orphans, dangling, !interrupted[0],
+                          System.currentTimeMillis() - start);
+    }
+
+    private static void deleteEmptyParents(Path file) {
+        Path dir = file.getParent();
+        while (dir != null && !dir.equals(PHOTOS_ROOT)) {
+            try {
+                Files.delete(dir);
+            } catch (IOException e) {
+                return; // not empty (or not ours to delete)
+            }
+            dir = dir.getParent();
+        }
+    }
+
+    /**
+     * Stored paths use '/'; walked paths use the platform separator
+     */
+    private static String normalize(String path) {
+        return Paths.get(path).normalize().toString().replace('\\', '/');
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(PAUSE_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.bmc.app.service;
+
+import org.bmc.app.dao.PhotoDAO;
+import org.bmc.app.model.Photo;
+import org.bmc.app.util.AppConfig;
+import org.bmc.app.util.PhotoMetadataReader;
+import org.bmc.app.util.PhotoStorageUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fills in the file metadata ({@link PhotoMetadataReader}) of photos
+ * recorded before it was captured at upload.
+ *
+ * Runs once, shortly after startup, on a low-priority thread. Photos still
+ * missing metadata are read a page at a time by ID; only their file headers
+ * are read, and each page is written back in one batch. Photos whose file
+ * is missing are skipped and tried again on the next start. Set
+ * photos.metadata.backfill=false to turn it off.
+ */
+public class PhotoMetadataIndexer {
+    private static final Logger logger = Logger.getLogger(PhotoMetadataIndexer.class.getName());
+
+    private static final PhotoMetadataIndexer INSTANCE = new PhotoMetadataIndexer();
+
+    private static final int PAGE_SIZE = 200;
+    private static final long PAUSE_MILLIS = 50; // between pages, to stay out of the way
+
+    private final PhotoDAO photoDAO = new PhotoDAO();
+    private final boolean enabled = AppConfig.getBoolean("photos.metadata.backfill", true);
+    private ScheduledExecutorService scheduler;
+
+    private PhotoMetadataIndexer() {
+    }
+
+    public static PhotoMetadataIndexer getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Schedule the backfill; does nothing if already started or turned off
+     */
+    public synchronized void start() {
+        if (scheduler != null || !enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "photo-metadata");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        // After the first screens have loaded their photos
+        scheduler.schedule(this::backgroundRun, 30, TimeUnit.SECONDS);
+        scheduler.shutdown(); // the delayed run still happens; nothing else is scheduled
+    }
+
+    private void backgroundRun() {
+        try {
+            backfill();
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Photo metadata backfill failed", e);
+        }
+    }
+
+    /**
+     * Read and record the metadata of every photo that lacks it
+     *
+     * @return number of photos updated
+     */
+    public int backfill() {
+        long start = System.currentTimeMillis();
+        int afterPhotoId = 0;
+        int updated = 0;
+        int skipped = 0;
+        while (true) {
+            List<Photo> page = photoDAO.findWithoutMetadata(afterPhotoId, PAGE_SIZE);
+            if (page == null) {
+                logger.warning("Photo metadata backfill stopped: cannot read photos");
+                break;
+            }
+            if (page.isEmpty()) {
+                break;
+            }
+
+            List<Photo> read = new ArrayList<>(page.size());
+            for (Photo photo : page) {
+                if (PhotoMetadataReader.read(photo, PhotoStorageUtil.getPhotoFile(photo.getFilePath()))) {
+                    read.add(photo);
+                } else {
+                    skipped++;
+                }
+            }
+            afterPhotoId = page.get(page.size() - 1).getPhotoId();
+
+            int rows = photoDAO.updateMetadata(read);
+            if (rows < 0) {
+                logger.warning("Photo metadata backfill stopped: cannot record metadata");
+                break;
+            }
+            updated += rows;
+
+            try {
+                Thread.sleep(PAUSE_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (updated > 0 || skipped > 0) {
+            logger.info(String.format("Recorded metadata of %d photos in %d ms (%d without a readable file)",
+                                      updated, System.currentTimeMillis() - start, skipped));
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,436 @@
+package org.bmc.app.service;
+
+import org.bmc.app.dao.PhotoDAO;
+import org.bmc.app.model.Photo;
+import org.bmc.app.util.AppConfig;
+import org.bmc.app.util.PhotoBlobStore;
+import org.bmc.app.util.PhotoMetadataReader;
+import org.bmc.app.util.PhotoStorageUtil;
+
+import javax.swing.SwingUtilities;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Adds and removes job photos, keeping the Photo rows and the stored files
+ * in step.
+ *
+ * Image files live in the content-addressed {@link PhotoBlobStore}, where
+ * every photo of the same image points at one file. The Photo table is the
+ * reference count: a file (and its downscaled copies) is deleted with the
+ * last row carrying its content hash. Photos uploaded before content
+ * addressing have no hash and own their file outright.
+ *
+ * Bulk imports store and thumbnail files on a pool of
+ * photos.import.threads workers (default: up to 4, one per core) and
+ * insert all rows in one transaction, so an import either adds every
+ * accepted photo or none.
+ */
+public class PhotoService {
+    private static final Logger logger = Logger.getLogger(PhotoService.class.getName());
+
+    private static final PhotoService INSTANCE = new PhotoService();
+
+    private final PhotoDAO photoDAO = new PhotoDAO();
+    private final ExecutorService uploadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "photo-upload");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final int importThreads = Math.max(1, AppConfig.getInt("photos.import.threads",
+        Math.min(4, Runtime.getRuntime().availableProcessors())));
+
+    /**
+     * Receives import progress and can stop an import
+     */
+    public interface ImportMonitor {
+        /**
+         * Called from worker threads after each file is stored or rejected
+         */
+        void filesProcessed(int done, int total);
+
+        /**
+         * Checked before each file and once more before the insert; once
+         * true, no more files are stored and nothing is recorded. A cancel
+         * after the last check is too late: the import completes and its
+         * result reports what was imported.
+         */
+        boolean isCancelled();
+    }
+
+    /**
+     * Outcome of a bulk import
+     */
+    public static class ImportResult {
+        private final List<Photo> imported;
+        private final List<String> rejected;
+        private final int duplicates;
+        private final boolean cancelled;
+
+        ImportResult(List<Photo> imported, List<String> rejected, int duplicates, boolean cancelled) {
+            this.imported = imported;
+            this.rejected = rejected;
+            this.duplicates = duplicates;
+            this.cancelled = cancelled;
+        }
+
+        /**
+         * Photos added to the job, in the order the files were given
+         */
+        public List<Photo> getImported() {
+            return imported;
+        }
+
+        /**
+         * One "file name: reason" line per file that was not imported
+         */
+        public List<String> getRejected() {
+            return rejected;
+        }
+
+        /**
+         * How many imported photos reuse an image that was already stored
+         */
+        public int getDuplicates() {
+            return duplicates;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    /**
+     * Outcome of storing one file
+     */
+    private static final class StoredFile {
+        final File source;
+        final Photo photo;
+        final PhotoBlobStore.Blob blob;
+        final String rejection;
+
+        StoredFile(File source, Photo photo, PhotoBlobStore.Blob blob, String rejection) {
+            this.source = source;
+            this.photo = photo;
+            this.blob = blob;
+            this.rejection = rejection;
+        }
+    }
+
+    private PhotoService() {
+    }
+
+    public static PhotoService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Store an image and attach it to a job
+     *
+     * @param jobId job the photo belongs to
+     * @param sourceFile image to upload
+     * @param description optional description
+     * @return the saved photo, or null if the file was rejected or could not
+     *         be stored or recorded
+     */
+    public Photo addPhoto(Integer jobId, File sourceFile, String description) {
+        PhotoBlobStore.Blob blob = PhotoStorageUtil.savePhoto(sourceFile);
+        if (blob == null) {
+            return null;
+        }
+
+        Photo photo = new Photo(jobId, blob.getRelativePath(), description);
+        photo.setContentHash(blob.getHash());
+        PhotoMetadataReader.read(photo, PhotoStorageUtil.getPhotoFile(blob.getRelativePath()));
+        Photo saved = photoDAO.create(photo);
+        if (saved == null) {
+            release(photo);
+            return null;
+        }
+
+        // Another client may have deleted the last other photo of this image, and
+        // with it the file, between storing and inserting; put the file back
+        if (!PhotoStorageUtil.photoExists(saved.getFilePath())) {
+            logger.warning("Stored photo disappeared, storing again: " + saved.getFilePath());
+            PhotoStorageUtil.savePhoto(sourceFile);
+        }
+        if (blob.isDuplicate()) {
+            logger.info("Photo for job " + jobId + " reuses stored image " + blob.getHash());
+        }
+        return saved;
+    }
+
+    /**
+     * Store an image and attach it to a job on a background thread, so a
+     * large file doesn't block the caller
+     *
+     * @param onSaved called on the Event Dispatch Thread with the saved photo
+     * @param onError called on the Event Dispatch Thread with a short message
+     * @return handle of the upload
+     */
+    public Future<?> addPhotoAsync(Integer jobId, File sourceFile, String description,
+                                   Consumer<Photo> onSaved, Consumer<String> onError) {
+        return uploadExecutor.submit(() -> {
+            Photo saved = null;
+            try {
+                saved = addPhoto(jobId, sourceFile, description);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Error uploading " + sourceFile, e);
+            }
+            Photo result = saved;
+            SwingUtilities.invokeLater(() -> {
+                if (result != null) {
+                    onSaved.accept(result);
+                } else {
+                    onError.accept("Failed to save photo. Check file format and size.");
+                }
+            });
+        });
+    }
+
+    /**
+     * Import many images into a job. Call from a background thread.
+     *
+     * Files are validated, copied, hashed and thumbnailed in parallel, then
+     * all accepted photos are inserted in one transaction. Folders are
+     * searched for images, subfolders included. If the import is cancelled
+     * or the insert fails, files stored by this import are removed again.
+     *
+     * @param jobId job the photos belong to
+     * @param selection files and folders to import
+     * @param monitor progress and cancellation, or null
+     * @return what was imported and what was rejected; if the rows could not
+     *         be inserted, nothing is imported and every file is rejected
+     */
+    public ImportResult importPhotos(Integer jobId, List<File> selection, ImportMonitor monitor) {
+        long start = System.currentTimeMillis();
+        List<File> files = expand(selection);
+        int total = files.size();
+        AtomicInteger done = new AtomicInteger();
+
+        ExecutorService workers = Executors.newFixedThreadPool(Math.min(importThreads, Math.max(1, total)),
+            runnable -> {
+                Thread thread = new Thread(runnable, "photo-import");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            });
+        List<Future<StoredFile>> tasks = new ArrayList<>();
+        try {
+            for (File file : files) {
+                tasks.add(workers.submit(() -> {
+                    if (monitor != null && monitor.isCancelled()) {
+                        return null;
+                    }
+                    StoredFile stored = storeForImport(jobId, file);
+                    if (monitor != null) {
+                        monitor.filesProcessed(done.incrementAndGet(), total);
+                    }
+                    return stored;
+                }));
+            }
+
+            List<StoredFile> stored = new ArrayList<>();
+            for (Future<StoredFile> task : tasks) {
+                try {
+                    StoredFile result = task.get();
+                    if (result != null) {
+                        stored.add(result);
+                    }
+                } catch (ExecutionException e) {
+                    logger.log(Level.WARNING, "Photo import task failed", e.getCause());
+                }
+            }
+            return record(jobId, files, stored, monitor != null && monitor.isCancelled(), start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new ImportResult(Collections.emptyList(), Collections.emptyList(), 0, true);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Insert the stored photos in one transaction, or undo the import
+     */
+    private ImportResult record(Integer jobId, List<File> files, List<StoredFile> stored, boolean cancelled,
+                                long start) {
+        List<Photo> photos = new ArrayList<>();
+        List<String> rejected = new ArrayList<>();
+        int duplicates = 0;
+        for (StoredFile file : stored) {
+            if (file.rejection != null) {
+                rejected.add(file.rejection);
+            } else {
+                photos.add(file.photo);
+                if (file.blob.isDuplicate()) {
+                    duplicates++;
+                }
+            }
+        }
+
+        if (cancelled || !photoDAO.createAll(photos)) {
+            for (StoredFile file : stored) {
+                if (file.rejection == null) {
+                    release(file.photo);
+                }
+            }
+            if (cancelled) {
+                logger.info("Photo import for job " + jobId + " cancelled after " + stored.size() + " files");
+                return new ImportResult(Collections.emptyList(), rejected, 0, true);
+            }
+            for (StoredFile file : stored) {
+                if (file.rejection == null) {
+                    rejected.add(file.source.getName() + ": could not be saved to the database");
+                }
+            }
+            return new ImportResult(Collections.emptyList(), rejected, 0, false);
+        }
+
+        // As in addPhoto: a file shared with a photo deleted meanwhile may be gone
+        for (StoredFile file : stored) {
+            if (file.rejection == null && !PhotoStorageUtil.photoExists(file.photo.getFilePath())) {
+                logger.warning("Stored photo disappeared, storing again: " + file.photo.getFilePath());
+                PhotoStorageUtil.savePhoto(file.source);
+            }
+        }
+        logger.info(String.format("Imported %d of %d photos for job %d (%d already stored) in %d ms",
+            photos.size(), files.size(), jobId, duplicates, System.currentTimeMillis() - start));
+        return new ImportResult(photos, rejected, duplicates, false);
+    }
+
+    /**
+     * Validate, store and thumbnail one file on a worker thread
+     */
+    private StoredFile storeForImport(Integer jobId, File file) {
+        PhotoBlobStore.Blob blob = PhotoStorageUtil.savePhoto(file);
+        if (blob == null) {
+            String reason = file.length() > PhotoStorageUtil.getMaxFileSize()
+                ? "larger than " + PhotoStorageUtil.formatFileSize(PhotoStorageUtil.getMaxFileSize())
+                : "not a supported image or could not be copied";
+            return new StoredFile(file, null, null, file.getName() + ": " + reason);
+        }
+
+        Photo photo = new Photo(jobId, blob.getRelativePath(), null);
+        photo.setContentHash(blob.getHash());
+        PhotoMetadataReader.read(photo, PhotoStorageUtil.getPhotoFile(blob.getRelativePath()));
+        try {
+            if (!ThumbnailGenerator.getInstance().writeThumbnailFiles(photo)) {
+                release(photo);
+                return new StoredFile(file, null, null, file.getName() + ": not a readable image");
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not fatal: the photo is imported and gets its copies when first shown
+            logger.warning("Error making thumbnails for " + file + ": " + e.getMessage());
+            photo.setSmallThumbnailPath(null);
+            photo.setMediumThumbnailPath(null);
+        }
+        return new StoredFile(file, photo, blob, null);
+    }
+
+    /**
+     * Replace folders by the supported images in them, subfolders included
+     */
+    private static List<File> expand(List<File> selection) {
+        List<File> files = new ArrayList<>();
+        for (File file : selection) {
+            if (file.isDirectory()) {
+                try (Stream<Path> paths = Files.walk(file.toPath())) {
+                    files.addAll(paths.filter(Files::isRegularFile)
+                                      .map(Path::toFile)
+                                      .filter(PhotoService::hasSupportedExtension)
+                                      .sorted()
+                                      .collect(Collectors.toList()));
+                } catch (IOException e) {
+                    logger.warning("Cannot read folder " + file + ": " + e.getMessage());
+                }
+            } else {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private static boolean hasSupportedExtension(File file) {
+        String name = file.getName().toLowerCase();
+        for (String format : PhotoStorageUtil.getSupportedFormats()) {
+            if (name.endsWith(format)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Delete a photo, and its image file once no other photo uses it
+     *
+     * @return true if the photo was deleted
+     */
+    public boolean deletePhoto(Photo photo) {
+        if (!photoDAO.delete(photo.getPhotoId())) {
+            return false;
+        }
+        release(photo);
+        return true;
+    }
+
+    /**
+     * Delete a photo's files unless other photos still reference them.
+     * Counting the image's hash is not enough on its own: a recompressed
+     * photo's kept original is another image's file, and uploading that
+     * image again reuses it, so each path is checked against every photo.
+     */
+    private void release(Photo photo) {
+        int references = photoDAO.countByContentHash(photo.getContentHash());
+        if (references < 0) {
+            logger.warning("Keeping " + photo.getFilePath() + ", reference count unavailable");
+            return;
+        }
+        if (references > 0) {
+            return;
+        }
+        Photo files = withDerivedCopies(photo);
+        Set<String> inUse = photoDAO.findReferencedPaths(PhotoStorageUtil.getPhotoFilePaths(files));
+        if (inUse == null) {
+            logger.warning("Keeping " + photo.getFilePath() + ", cannot check which of its files are in use");
+            return;
+        }
+        PhotoStorageUtil.deletePhotoFiles(files, inUse);
+    }
+
+    /**
+     * Fill in the copy paths a photo's file would have when the row never
+     * recorded them (e.g. it was deleted while they were being generated)
+     */
+    private static Photo withDerivedCopies(Photo photo) {
+        if (photo.hasThumbnails() || photo.getContentHash() == null) {
+            return photo;
+        }
+        Photo files = new Photo(photo.getPhotoId(), photo.getJobId(), photo.getFilePath(), photo.getDescription());
+        files.setSmallThumbnailPath(existingCopy(photo, PhotoStorageUtil.SMALL_THUMBNAIL_SIZE));
+        files.setMediumThumbnailPath(existingCopy(photo, PhotoStorageUtil.MEDIUM_THUMBNAIL_SIZE));
+        files.setOriginalPath(photo.getOriginalPath());
+        return files;
+    }
+
+    private static String existingCopy(Photo photo, int size) {
+        String path = PhotoStorageUtil.getThumbnailPath(photo.getFilePath(), size);
+        return PhotoStorageUtil.photoExists(path) ? path : null;
+    }
+}
@@ -0,0 +1,391 @@
+package org.bmc.app.service;
+
+import org.bmc.app.dao.PhotoDAO;
+import org.bmc.app.dao.PhotoDAO.TranscodeSavings;
+import org.bmc.app.model.Photo;
+import org.bmc.app.util.AppConfig;
+import org.bmc.app.util.ImageDecoder;
+import org.bmc.app.util.PhotoBlobStore;
+import org.bmc.app.util.PhotoStorageUtil;
+
+import java.awt.AWTEvent;
+import java.awt.Dimension;
+import java.awt.GraphicsEnvironment;
+import java.awt.Toolkit;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Recompresses large photos stored losslessly (PNG screenshots, BMPs) as
+ * JPEG to save disk space.
+ *
+ * Off unless photos.transcode.enabled is true. Every
+ * photos.transcode.intervalMinutes (default 60) a low-priority thread looks
+ * for PNG and BMP photos of at least photos.transcode.minKB (default 512)
+ * not considered before and encodes each at photos.transcode.quality
+ * (default 85). The JPEG replaces the file only if it is at least
+ * photos.transcode.minSavingsPercent (default 25) smaller; images with
+ * transparency are left alone, since JPEG would flatten it. Every photo of
+ * the stored file is switched over at once, thumbnails included.
+ *
+ * The replaced file stays where it was, recorded as the photos' original,
+ * for photos.transcode.retentionDays (default 30), and is deleted by a
+ * later run. The space saved is totalled after each run for
+ * Tools &gt; Photo Storage.
+ *
+ * Photos are converted one at a time and only while the user is idle: no
+ * key or mouse input for photos.transcode.idleSeconds (default 120). A run
+ * waits as soon as the user is back, and pauses after each photo.
+ */
+public class PhotoTranscoder {
+    private static final Logger logger = Logger.getLogger(PhotoTranscoder.class.getName());
+
+    private static final PhotoTranscoder INSTANCE = new PhotoTranscoder();
+
+    private static final String JPEG_FORMAT = "jpeg";
+    private static final int PAGE_SIZE = 50;
+    private static final int PURGE_BATCH = 200;
+    private static final long PAUSE_MILLIS = 500; // after each photo, to stay out of the way
+
+    private final PhotoDAO photoDAO = new PhotoDAO();
+    private final boolean enabled = AppConfig.getBoolean("photos.transcode.enabled", false);
+    private final float quality =
+        Math.max(1, Math.min(100, AppConfig.getInt("photos.transcode.quality", 85))) / 100f;
+    private final long minBytes = AppConfig.getLong("photos.transcode.minKB", 512) * 1024;
+    private final int minSavingsPercent = AppConfig.getInt("photos.transcode.minSavingsPercent", 25);
+    private final int retentionDays = Math.max(0, AppConfig.getInt("photos.transcode.retentionDays", 30));
+    private final long idleMillis = AppConfig.getLong("photos.transcode.idleSeconds", 120) * 1000;
+    private final long intervalMinutes = Math.max(1, AppConfig.getLong("photos.transcode.intervalMinutes", 60));
+    private volatile long lastInputMillis = System.currentTimeMillis();
+    private volatile TranscodeSavings lastSavings;
+    private ScheduledExecutorService scheduler;
+
+    private PhotoTranscoder() {
+    }
+
+    public static PhotoTranscoder getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Start watching for user input and schedule background runs; does
+     * nothing if already started or turned off
+     */
+    public synchronized void start() {
+        if (scheduler != null || !enabled) {
+            return;
+        }
+        if (!GraphicsEnvironment.isHeadless()) {
+            Toolkit.getDefaultToolkit().addAWTEventListener(event -> lastInputMillis = System.currentTimeMillis(),
+                AWTEvent.KEY_EVENT_MASK | AWTEvent.MOUSE_EVENT_MASK | AWTEvent.MOUSE_MOTION_EVENT_MASK |
+                AWTEvent.MOUSE_WHEEL_EVENT_MASK);
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "photo-transcoder");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::backgroundRun, 10, intervalMinutes, TimeUnit.MINUTES);
+        logger.info("Photo recompression scheduled every " + intervalMinutes + " min");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get the space saved as of the latest run, or null before the first
+     */
+    public TranscodeSavings getLastSavings() {
+        return lastSavings;
+    }
+
+    private void backgroundRun() {
+        try {
+            purgeExpiredOriginals();
+            transcodePending();
+            lastSavings = photoDAO.getTranscodeSavings();
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Photo recompression failed", e);
+        }
+    }
+
+    /**
+     * Recompress every photo not considered yet, waiting for the user to be
+     * idle before each
+     */
+    private void transcodePending() {
+        long start = System.currentTimeMillis();
+        Set<String> handled = new HashSet<>(); // photos sharing a file come up once per row
+        int afterPhotoId = 0;
+        int converted = 0;
+        int left = 0;
+        long saved = 0;
+        pages:
+        while (true) {
+            List<Photo> page = photoDAO.findTranscodeCandidates(afterPhotoId, minBytes, PAGE_SIZE);
+            if (page == null) {
+                logger.warning("Photo recompression stopped: cannot read photos");
+                break;
+            }
+            if (page.isEmpty()) {
+                break;
+            }
+            for (Photo photo : page) {
+                afterPhotoId = photo.getPhotoId();
+                if (!handled.add(photo.getFilePath())) {
+                    continue;
+                }
+                if (!awaitIdle()) {
+                    break pages;
+                }
+                try {
+                    long bytes = transcode(photo);
+                    if (bytes > 0) {
+                        converted++;
+                        saved += bytes;
+                    } else if (bytes == 0) {
+                        left++;
+                    }
+                } catch (IOException e) {
+                    logger.warning("Cannot recompress " + photo.getFilePath() + ": " + e.getMessage());
+                }
+                if (!pause()) {
+                    break pages;
+                }
+            }
+        }
+        if (converted > 0 || left > 0) {
+            logger.info(String.format("Recompressed %d photos, saving %s, in %d ms (%d left as they were)",
+                                      converted, PhotoStorageUtil.formatFileSize(saved),
+                                      System.currentTimeMillis() - start, left));
+        }
+    }
+
+    /**
+     * Replace a photo's file with a JPEG if that saves enough space
+     *
+     * @return bytes saved; 0 if the file was left as it was; -1 if nothing
+     *         was recorded and the photo should be tried again next run
+     */
+    private long transcode(Photo photo) throws IOException {
+        File source = PhotoStorageUtil.getPhotoFile(photo.getFilePath());
+        if (source == null || !source.isFile()) {
+            return -1; // reported by PhotoGarbageCollector
+        }
+        long originalSize = source.length();
+        Dimension size = ImageDecoder.readSize(source);
+        BufferedImage image = size != null ? ImageDecoder.decodeToFit(source, size.width, size.height) : null;
+        // The decode budget subsamples images too large for it; a smaller copy must not replace the photo
+        if (image == null || image.getWidth() != size.width || image.getHeight() != size.height) {
+            logger.fine("Not recompressing " + photo.getFilePath() + ": cannot decode at full size");
+            return skip(photo);
+        }
+        if (hasTransparency(image)) {
+            return skip(photo);
+        }
+
+        File jpeg = File.createTempFile("transcode", ".jpg");
+        try {
+            ImageDecoder.writeJpeg(image, jpeg, quality);
+            if (jpeg.length() > originalSize * (100 - minSavingsPercent) / 100) {
+                return skip(photo);
+            }
+            return replace(photo, PhotoBlobStore.store(jpeg), originalSize);
+        } finally {
+            // Not thrown: the replacement may already be recorded, and this is only a temp file
+            if (!jpeg.delete() && jpeg.exists()) {
+                logger.warning("Cannot delete temporary file " + jpeg);
+                jpeg.deleteOnExit();
+            }
+        }
+    }
+
+    private long skip(Photo photo) {
+        return photoDAO.markTranscodeSkipped(photo) >= 0 ? 0 : -1;
+    }
+
+    /**
+     * Point every photo of the original file at the stored JPEG, with
+     * thumbnails named after it
+     */
+    private long replace(Photo photo, PhotoBlobStore.Blob blob, long originalSize) {
+        String originalPath = photo.getFilePath();
+        Photo replacement = new Photo(photo.getPhotoId(), photo.getJobId(), blob.getRelativePath(),
+                                      photo.getDescription());
+        replacement.setContentHash(blob.getHash());
+        replacement.setFormat(JPEG_FORMAT);
+        replacement.setFileSize(blob.getSize());
+        replacement.setOriginalPath(originalPath);
+        replacement.setOriginalSize(originalSize);
+
+        List<String> created = new ArrayList<>();
+        replacement.setSmallThumbnailPath(
+            copyThumbnail(photo.getSmallThumbnailPath(), originalPath, blob.getRelativePath(), created));
+        replacement.setMediumThumbnailPath(
+            copyThumbnail(photo.getMediumThumbnailPath(), originalPath, blob.getRelativePath(), created));
+
+        int rows = photoDAO.recordTranscode(replacement, photo.getContentHash());
+        if (rows <= 0) {
+            // Deleted or changed meanwhile; don't leave files behind that nothing uses
+            if (photoDAO.countByContentHash(blob.getHash()) == 0) {
+                created.forEach(PhotoStorageUtil::deletePhoto);
+                PhotoStorageUtil.deletePhoto(blob.getRelativePath());
+            }
+            return -1;
+        }
+
+        // Copies named after the original are no longer used; the original itself is kept for now
+        String[][] copies = {{photo.getSmallThumbnailPath(), replacement.getSmallThumbnailPath()},
+                             {photo.getMediumThumbnailPath(), replacement.getMediumThumbnailPath()}};
+        for (String[] copy : copies) {
+            if (copy[0] != null && !copy[0].equals(copy[1]) && !copy[0].equals(originalPath)) {
+                PhotoStorageUtil.deletePhoto(copy[0]);
+            }
+        }
+        logger.fine(() -> String.format("Recompressed %s to %s (%s to %s) for %d photos", originalPath,
+            blob.getRelativePath(), PhotoStorageUtil.formatFileSize(originalSize),
+            PhotoStorageUtil.formatFileSize(blob.getSize()), rows));
+        return originalSize - blob.getSize();
+    }
+
+    /**
+     * Copy a thumbnail of the original to the name it has next to the
+     * JPEG, unless it is there already
+     *
+     * @return path the replacement should record
+     */
+    private static String copyThumbnail(String thumbnail, String originalPath, String newPath, List<String> created) {
+        if (thumbnail == null) {
+            return null;
+        }
+        if (thumbnail.equals(originalPath)) {
+            return newPath; // small image, shown as is
+        }
+        for (int size : new int[]{PhotoStorageUtil.SMALL_THUMBNAIL_SIZE, PhotoStorageUtil.MEDIUM_THUMBNAIL_SIZE}) {
+            if (!thumbnail.equals(PhotoStorageUtil.getThumbnailPath(originalPath, size))) {
+                continue;
+            }
+            String target = PhotoStorageUtil.getThumbnailPath(newPath, size);
+            if (PhotoStorageUtil.photoExists(target)) {
+                return target;
+            }
+            try {
+                Files.copy(Paths.get(thumbnail), Paths.get(target));
+                created.add(target);
+                return target;
+            } catch (IOException e) {
+                logger.fine("Cannot copy thumbnail " + thumbnail + ": " + e.getMessage());
+                return null; // made again the next time a viewer asks
+            }
+        }
+        return thumbnail; // named some other way; keep using it
+    }
+
+    private static boolean hasTransparency(BufferedImage image) {
+        if (!image.getColorModel().hasAlpha()) {
+            return false;
+        }
+        int width = image.getWidth();
+        int[] row = new int[width];
+        for (int y = 0; y < image.getHeight(); y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int argb : row) {
+                if ((argb >>> 24) != 0xFF) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Delete originals whose retention has run out, unless a photo uploaded
+     * since uses the same file again
+     */
+    private void purgeExpiredOriginals() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        int deleted = 0;
+        long bytes = 0;
+        while (true) {
+            List<String> paths = photoDAO.findExpiredOriginals(cutoff, PURGE_BATCH);
+            if (paths == null) {
+                logger.warning("Cannot read expired photo originals");
+                return;
+            }
+            int cleared = 0;
+            Set<String> inUse = paths.isEmpty() ? new HashSet<>() : photoDAO.findUsedAsImage(paths);
+            if (inUse == null) {
+                logger.warning("Cannot check expired photo originals");
+                return;
+            }
+            for (String path : paths) {
+                try {
+                    Path file = Paths.get(path);
+                    long size = Files.exists(file) ? Files.size(file) : 0;
+                    if (!inUse.contains(path) && Files.deleteIfExists(file)) {
+                        deleted++;
+                        bytes += size;
+                    }
+                    if (photoDAO.clearOriginal(path)) {
+                        cleared++;
+                    }
+                } catch (IOException e) {
+                    logger.warning("Cannot delete photo original " + path + ": " + e.getMessage());
+                }
+            }
+            if (paths.size() < PURGE_BATCH || cleared == 0) {
+                break;
+            }
+        }
+        if (deleted > 0) {
+            logger.info("Deleted " + deleted + " photo originals past their retention ("
+                        + PhotoStorageUtil.formatFileSize(bytes) + ")");
+        }
+    }
+
+    /**
+     * Wait until there has been no user input for the idle time
+     *
+     * @return false if interrupted
+     */
+    private boolean awaitIdle() {
+        while (true) {
+            long wait = lastInputMillis + idleMillis - System.currentTimeMillis();
+            if (wait <= 0) {
+                return true;
+            }
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    private static boolean pause() {
+        try {
+            Thread.sleep(PAUSE_MILLIS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
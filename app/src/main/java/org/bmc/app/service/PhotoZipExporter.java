@@ -0,0 +1,268 @@
+package org.bmc.app.service;
+
+import org.bmc.app.dao.PhotoDAO;
+import org.bmc.app.model.Job;
+import org.bmc.app.model.Photo;
+import org.bmc.app.util.PhotoStorageUtil;
+import org.bmc.app.util.StreamingExporter.ExportMonitor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes the photos of one or more jobs into a ZIP file, one folder per
+ * job, with a manifest.csv listing each photo's job and description.
+ *
+ * Each photo is copied into the archive's FileChannel a buffer at a time,
+ * so memory use does not depend on how many or how large the photos are.
+ * Photos are not memory-mapped, which on Windows would keep them from
+ * being deleted until the mapping is garbage-collected. JPEG, PNG and GIF files are already compressed and are
+ * stored as they are; compressing them again would cost time for no gain.
+ * The ZIP is written to a temporary file next to the target and only moved
+ * into place when complete, so a cancelled or failed export leaves nothing
+ * behind.
+ */
+public class PhotoZipExporter {
+    private static final Logger logger = Logger.getLogger(PhotoZipExporter.class.getName());
+
+    private static final PhotoZipExporter INSTANCE = new PhotoZipExporter();
+
+    private static final String MANIFEST_NAME = "manifest.csv";
+    private static final int MAX_NAME_LENGTH = 40;
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final PhotoDAO photoDAO = new PhotoDAO();
+
+    /**
+     * Outcome of an export
+     */
+    public static class ExportResult {
+        private final int photos;
+        private final List<String> missing;
+        private final long bytes;
+        private final boolean cancelled;
+
+        ExportResult(int photos, List<String> missing, long bytes, boolean cancelled) {
+            this.photos = photos;
+            this.missing = missing;
+            this.bytes = bytes;
+            this.cancelled = cancelled;
+        }
+
+        /**
+         * Photos written to the archive
+         */
+        public int getPhotos() {
+            return photos;
+        }
+
+        /**
+         * One "Job #: photo" line per photo whose file was not found; these
+         * are listed in the manifest but not in the archive
+         */
+        public List<String> getMissing() {
+            return missing;
+        }
+
+        /**
+         * Size of the finished archive
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * True if the export was stopped; no file was written
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private PhotoZipExporter() {
+    }
+
+    public static PhotoZipExporter getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Look up the photos of some jobs, to count them before exporting
+     *
+     * @return photos of each job, in the order the jobs were given
+     */
+    public Map<Job, List<Photo>> findPhotos(List<Job> jobs) {
+        Map<Job, List<Photo>> photosByJob = new LinkedHashMap<>();
+        for (Job job : jobs) {
+            photosByJob.put(job, photoDAO.findByJobId(job.getJobId()));
+        }
+        return photosByJob;
+    }
+
+    /**
+     * Export photos into a ZIP file. Call from a background thread.
+     *
+     * @param photosByJob photos to export, from {@link #findPhotos}
+     * @param target ZIP file to write; replaced if it exists
+     * @param monitor receives the number of photos written, and is checked
+     *        between photos to stop the export
+     * @return what was exported
+     * @throws IOException if a photo could not be read or the archive written
+     */
+    public ExportResult export(Map<Job, List<Photo>> photosByJob, Path target, ExportMonitor monitor)
+            throws IOException {
+        target = target.toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), ".export-", ".tmp");
+        try {
+            List<String> missing = new ArrayList<>();
+            StringBuilder manifest = new StringBuilder("Job ID,Job,Photo ID,File,Description\r\n");
+            int written = 0;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+                 ZipOutputStream zip = new ZipOutputStream(Channels.newOutputStream(channel), StandardCharsets.UTF_8)) {
+                for (Map.Entry<Job, List<Photo>> entry : photosByJob.entrySet()) {
+                    Job job = entry.getKey();
+                    for (Photo photo : entry.getValue()) {
+                        if (monitor.isCancelled()) {
+                            logger.info("Photo export cancelled after " + written + " photos");
+                            return new ExportResult(written, missing, 0, true);
+                        }
+
+                        File file = PhotoStorageUtil.getPhotoFile(photo.getFilePath());
+                        String entryName = null;
+                        if (file != null && file.isFile()) {
+                            entryName = entryName(job, photo, file);
+                            writeEntry(zip, entryName, file);
+                            written++;
+                            monitor.rowsWritten(written);
+                        } else {
+                            missing.add("Job #" + job.getJobId() + ": " + photo.getDisplayName());
+                        }
+                        appendCsvRow(manifest, job.getJobId(), job.getDescription(), photo.getPhotoId(),
+                                     entryName != null ? entryName : "(file missing)", photo.getDescription());
+                    }
+                }
+
+                ZipEntry manifestEntry = new ZipEntry(MANIFEST_NAME);
+                zip.putNextEntry(manifestEntry);
+                zip.write(manifest.toString().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+                zip.finish();
+                channel.force(true);
+            }
+
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            long bytes = Files.size(target);
+            logger.info(String.format("Exported %d photos of %d jobs (%d bytes) to %s",
+                                      written, photosByJob.size(), bytes, target));
+            return new ExportResult(written, missing, bytes, false);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Copy a file into the archive. Already compressed formats are stored,
+     * which needs the CRC before the entry header, so those are read twice:
+     * once to checksum, once to write.
+     */
+    private static void writeEntry(ZipOutputStream zip, String name, File file) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(file.lastModified());
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = in.size();
+            if (isCompressed(file.getName())) {
+                CRC32 crc = new CRC32();
+                ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+                long position = 0;
+                int read;
+                while ((read = in.read(buffer, position)) >= 0) {
+                    position += read;
+                    buffer.flip();
+                    crc.update(buffer);
+                    buffer.clear();
+                }
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(size);
+                entry.setCompressedSize(size);
+                entry.setCrc(crc.getValue());
+            }
+            zip.putNextEntry(entry);
+            // Not closed: that would close the archive
+            WritableByteChannel out = Channels.newChannel(zip);
+            for (long position = 0; position < size; ) {
+                long transferred = in.transferTo(position, size - position, out);
+                if (transferred <= 0) {
+                    throw new IOException(file + " shrank while being exported");
+                }
+                position += transferred;
+            }
+            zip.closeEntry();
+        }
+    }
+
+    /**
+     * Folder per job, files named by photo ID and description, e.g.
+     * job_12/345_kitchen_before.jpg
+     */
+    private static String entryName(Job job, Photo photo, File file) {
+        StringBuilder name = new StringBuilder("job_").append(job.getJobId()).append('/').append(photo.getPhotoId());
+        String description = photo.getDescription();
+        if (description != null) {
+            String slug = description.trim().toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "_")
+                .replaceAll("^_+|_+$", "");
+            if (!slug.isEmpty()) {
+                name.append('_').append(slug, 0, Math.min(slug.length(), MAX_NAME_LENGTH));
+            }
+        }
+        String filename = file.getName();
+        int lastDot = filename.lastIndexOf('.');
+        if (lastDot > 0) {
+            name.append(filename.substring(lastDot).toLowerCase(Locale.ROOT));
+        }
+        return name.toString();
+    }
+
+    private static boolean isCompressed(String filename) {
+        String lower = filename.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".jpg") || lower.endsWith(".jpeg") || lower.endsWith(".png") || lower.endsWith(".gif");
+    }
+
+    private static void appendCsvRow(StringBuilder csv, Object... values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                csv.append(',');
+            }
+            String text = values[i] != null ? values[i].toString() : "";
+            if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0
+                    || text.indexOf('\r') >= 0) {
+                csv.append('"').append(text.replace("\"", "\"\"")).append('"');
+            } else {
+                csv.append(text);
+            }
+        }
+        csv.append("\r\n");
+    }
+}
@@ -0,0 +1,306 @@
+package org.bmc.app.service;
+
+import org.bmc.app.dao.ChangeSet;
+import org.bmc.app.dao.CustomerDAO;
+import org.bmc.app.dao.DataChangeNotifier;
+import org.bmc.app.dao.EmployeeDAO;
+import org.bmc.app.dao.JobDAO;
+import org.bmc.app.dao.MaterialDAO;
+import org.bmc.app.dao.VendorDAO;
+import org.bmc.app.model.Customer;
+import org.bmc.app.model.Employee;
+import org.bmc.app.model.Job;
+import org.bmc.app.model.Material;
+import org.bmc.app.model.Vendor;
+import org.bmc.app.util.AppConfig;
+
+import javax.swing.SwingUtilities;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Shared, in-memory copy of the small lists that dialogs offer as choices
+ * (customers, employees, vendors, materials, jobs), so opening a dialog does
+ * not run a findAll() per combo box.
+ *
+ * Each list is loaded once, then refreshed in the background when a DAO
+ * write marks it stale (via {@link DataChangeNotifier}) or when it is older
+ * than referenceData.maxAgeSeconds (default 300), which picks up changes
+ * made by other clients. A refresh that fails keeps the current list and is
+ * retried on the next read. Customers and materials refresh incrementally from
+ * their change-tracking queries; the rest are reloaded. Readers always get
+ * the current list immediately; only the very first read of a list that
+ * was not preloaded waits for the database. Listeners are told on the Event
+ * Dispatch Thread when a list has been refreshed.
+ */
+public class ReferenceDataCache {
+    private static final Logger logger = Logger.getLogger(ReferenceDataCache.class.getName());
+
+    private static final ReferenceDataCache INSTANCE = new ReferenceDataCache();
+
+    /**
+     * Lists held by the cache
+     */
+    public enum Kind {
+        CUSTOMERS, EMPLOYEES, VENDORS, MATERIALS, JOBS
+    }
+
+    private final long maxAgeMillis = AppConfig.getLong("referenceData.maxAgeSeconds", 300) * 1000L;
+    private final Map<Kind, Entry<?>> entries = new EnumMap<>(Kind.class);
+    private final List<Consumer<Kind>> listeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reference-data");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Entry<Customer> customers;
+    private final Entry<Employee> employees;
+    private final Entry<Vendor> vendors;
+    private final Entry<Material> materials;
+    private final Entry<Job> jobs;
+
+    private ReferenceDataCache() {
+        CustomerDAO customerDAO = new CustomerDAO();
+        MaterialDAO materialDAO = new MaterialDAO();
+        Comparator<String> byName = Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER);
+
+        customers = register(new Entry<>(Kind.CUSTOMERS, Customer::getCustomerId, customerDAO::findAllOrNull,
+            customerDAO::findChangedSince, Comparator.comparing(Customer::getName, byName)));
+        employees = register(new Entry<>(Kind.EMPLOYEES, Employee::getEmployeeId, new EmployeeDAO()::findAllOrNull,
+            null, null));
+        vendors = register(new Entry<>(Kind.VENDORS, Vendor::getVendorId, new VendorDAO()::findAllOrNull,
+            null, null));
+        materials = register(new Entry<>(Kind.MATERIALS, Material::getMaterialId, materialDAO::findAllOrNull,
+            materialDAO::findChangedSince, Comparator.comparing(Material::getName, byName)));
+        jobs = register(new Entry<>(Kind.JOBS, Job::getJobId, new JobDAO()::findAllOrNull, null, null));
+
+        DataChangeNotifier.addListener(this::dataChanged);
+    }
+
+    public static ReferenceDataCache getInstance() {
+        return INSTANCE;
+    }
+
+    public List<Customer> getCustomers() {
+        return customers.get();
+    }
+
+    public List<Employee> getEmployees() {
+        return employees.get();
+    }
+
+    public List<Vendor> getVendors() {
+        return vendors.get();
+    }
+
+    public List<Material> getMaterials() {
+        return materials.get();
+    }
+
+    /**
+     * Get all jobs, not just open ones: invoices are usually raised once a
+     * job is completed
+     */
+    public List<Job> getJobs() {
+        return jobs.get();
+    }
+
+    /**
+     * Get the current contents of a list
+     */
+    public List<?> get(Kind kind) {
+        return entries.get(kind).get();
+    }
+
+    /**
+     * Load every list in the background, e.g. at startup, so the first
+     * dialog does not wait either
+     */
+    public void preload() {
+        for (Entry<?> entry : entries.values()) {
+            entry.refreshAsync();
+        }
+    }
+
+    /**
+     * Mark a list out of date; it is refreshed on its next read
+     */
+    public void invalidate(Kind kind) {
+        entries.get(kind).stale = true;
+    }
+
+    /**
+     * Register for "list refreshed" notifications, delivered on the EDT
+     */
+    public void addListener(Consumer<Kind> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<Kind> listener) {
+        listeners.remove(listener);
+    }
+
+    private void dataChanged(DataChangeNotifier.Entity entity) {
+        switch (entity) {
+            case CUSTOMER:
+                invalidate(Kind.CUSTOMERS);
+                break;
+            case EMPLOYEE:
+                invalidate(Kind.EMPLOYEES);
+                break;
+            case MATERIAL:
+                invalidate(Kind.MATERIALS);
+                break;
+            case JOB:
+                invalidate(Kind.JOBS);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private <T> Entry<T> register(Entry<T> entry) {
+        entries.put(entry.kind, entry);
+        return entry;
+    }
+
+    private void fireRefreshed(Kind kind) {
+        SwingUtilities.invokeLater(() -> {
+            for (Consumer<Kind> listener : listeners) {
+                listener.accept(kind);
+            }
+        });
+    }
+
+    /**
+     * One cached list and how to reload it
+     */
+    private class Entry<T> {
+        final Kind kind;
+        final Function<T, Integer> keyOf;
+        final Supplier<List<T>> loadAll;                      // null if the query failed
+        final Function<Timestamp, ChangeSet<T>> loadChanges; // null if only full reloads are possible
+        final Comparator<T> order;                            // order to keep after merging changes
+
+        final AtomicBoolean refreshing = new AtomicBoolean();
+        volatile List<T> items;
+        volatile boolean stale = true;
+        volatile long loadedAt;
+        Timestamp watermark; // touched only under the entry lock
+
+        Entry(Kind kind, Function<T, Integer> keyOf, Supplier<List<T>> loadAll,
+              Function<Timestamp, ChangeSet<T>> loadChanges, Comparator<T> order) {
+            this.kind = kind;
+            this.keyOf = keyOf;
+            this.loadAll = loadAll;
+            this.loadChanges = loadChanges;
+            this.order = order;
+        }
+
+        List<T> get() {
+            List<T> current = items;
+            if (current == null) {
+                // Nothing to show yet, so this one read has to wait (or join a preload)
+                synchronized (this) {
+                    if (items == null) {
+                        load();
+                    }
+                }
+                return items;
+            }
+            if (stale || System.currentTimeMillis() - loadedAt > maxAgeMillis) {
+                refreshAsync();
+            }
+            return current;
+        }
+
+        void refreshAsync() {
+            if (refreshing.compareAndSet(false, true)) {
+                executor.execute(() -> {
+                    try {
+                        load();
+                    } finally {
+                        refreshing.set(false);
+                    }
+                });
+            }
+        }
+
+        synchronized void load() {
+            // Cleared before querying so a write during the query marks it stale again
+            stale = false;
+            List<T> previous = items;
+            try {
+                List<T> next = loadChanges != null ? merge(previous) : null;
+                if (next == null) {
+                    List<T> all = loadAll.get();
+                    if (all == null) {
+                        // Keep what we have rather than emptying every picker; retry on the next read
+                        stale = true;
+                        logger.warning("Keeping cached reference data " + kind + ": reload failed");
+                        if (items == null) {
+                            items = Collections.emptyList();
+                        }
+                        return;
+                    }
+                    next = Collections.unmodifiableList(new ArrayList<>(all));
+                }
+                items = next;
+                loadedAt = System.currentTimeMillis();
+                if (previous != null && next != previous) {
+                    fireRefreshed(kind);
+                }
+                logger.fine(() -> "Reference data " + kind + ": " + items.size() + " rows");
+            } catch (RuntimeException e) {
+                stale = true;
+                logger.log(Level.WARNING, "Error loading reference data " + kind, e);
+                if (items == null) {
+                    items = Collections.emptyList();
+                }
+            }
+        }
+
+        /**
+         * Apply rows changed since the last watermark
+         *
+         * @return the merged list, the same list if nothing changed, or null
+         * if the query failed (e.g. migration 001 is not applied), in which
+         * case the caller loads everything instead, as the panels do
+         */
+        private List<T> merge(List<T> previous) {
+            ChangeSet<T> changes = loadChanges.apply(watermark);
+            if (changes == null) {
+                return null;
+            }
+            watermark = changes.getWatermark();
+            if (changes.isFullSnapshot()) {
+                return Collections.unmodifiableList(new ArrayList<>(changes.getChanged()));
+            }
+            if (changes.isEmpty()) {
+                return previous;
+            }
+
+            Map<Integer, T> byKey = new LinkedHashMap<>();
+            for (T item : previous) {
+                byKey.put(keyOf.apply(item), item);
+            }
+            byKey.keySet().removeAll(changes.getDeletedIds());
+            for (T item : changes.getChanged()) {
+                byKey.put(keyOf.apply(item), item);
+            }
+            List<T> merged = new ArrayList<>(byKey.values());
+            merged.sort(order);
+            return Collections.unmodifiableList(merged);
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package org.bmc.app.service;
+
+import org.bmc.app.dao.ReportDAO;
+import org.bmc.app.util.AppConfig;
+import org.bmc.app.util.DBConnection;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Pre-computes heavy reports in the background and keeps the latest result
+ * of each as a snapshot on disk, so ReportsPanel can show them instantly.
+ *
+ * Reports run on a single low-priority thread at a fixed interval and/or at
+ * configured off-peak times of day. Snapshots survive restarts (one
+ * serialized file per report, replaced atomically), so the first view after
+ * launch does not wait on the database either. Configuration
+ * (application.properties):
+ * <pre>
+ *   reports.snapshot.enabled          master switch (default true)
+ *   reports.snapshot.reports          report keys to pre-compute
+ *   reports.snapshot.intervalMinutes  0 disables interval runs
+ *   reports.snapshot.offPeakTimes     comma-separated HH:mm times of day
+ *   reports.snapshot.directory        where snapshot files live
+ * </pre>
+ */
+public class ReportSnapshotService {
+    private static final Logger logger = Logger.getLogger(ReportSnapshotService.class.getName());
+
+    private static final ReportSnapshotService INSTANCE = new ReportSnapshotService();
+
+    /**
+     * Reports that can be pre-computed
+     */
+    public enum SnapshotReport {
+        JOB_COST_COMPARISON("jobCostComparison", "Job Cost Comparison", ReportDAO::getJobCostComparison),
+        @SuppressWarnings("deprecation")
+        LABOR_COST_COMPARISON("laborCostComparison", "Labor Cost Comparison", ReportDAO::getLaborCostComparison),
+        VENDOR_SPENDING_BY_MONTH("vendorSpendingByMonth", "Vendor Spending by Month", ReportDAO::getVendorSpendingByMonth);
+
+        private final String key;
+        private final String label;
+        private final Function<ReportDAO, List<?>> query;
+
+        SnapshotReport(String key, String label, Function<ReportDAO, List<?>> query) {
+            this.key = key;
+            this.label = label;
+            this.query = query;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        static SnapshotReport fromKey(String key) {
+            for (SnapshotReport report : values()) {
+                if (report.key.equalsIgnoreCase(key)) {
+                    return report;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A report result and when it was generated
+     *
+     * @param <T> report row type
+     */
+    public static class Snapshot<T> implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final List<T> rows;
+        private final Instant generatedAt;
+        private final long durationMillis;
+
+        Snapshot(List<T> rows, Instant generatedAt, long durationMillis) {
+            this.rows = rows;
+            this.generatedAt = generatedAt;
+            this.durationMillis = durationMillis;
+        }
+
+        public List<T> getRows() { return Collections.unmodifiableList(rows); }
+        public Instant getGeneratedAt() { return generatedAt; }
+        public long getDurationMillis() { return durationMillis; }
+    }
+
+    private final ReportDAO reportDAO = new ReportDAO();
+    private final Map<SnapshotReport, Snapshot<?>> snapshots = new ConcurrentHashMap<>();
+    private final List<Consumer<SnapshotReport>> listeners = new CopyOnWriteArrayList<>();
+    private final Set<SnapshotReport> failedReports = ConcurrentHashMap.newKeySet();
+    private final Set<SnapshotReport> enabledReports = EnumSet.noneOf(SnapshotReport.class);
+    private final boolean enabled;
+    private final long intervalMinutes;
+    private final List<LocalTime> offPeakTimes = new ArrayList<>();
+    private final Path directory;
+    private ScheduledExecutorService scheduler;
+
+    private ReportSnapshotService() {
+        enabled = AppConfig.getBoolean("reports.snapshot.enabled", true);
+        intervalMinutes = AppConfig.getLong("reports.snapshot.intervalMinutes", 60);
+        directory = Paths.get(AppConfig.getString("reports.snapshot.directory", "snapshots"));
+
+        for (String key : AppConfig.getList("reports.snapshot.reports", "jobCostComparison,vendorSpendingByMonth")) {
+            SnapshotReport report = SnapshotReport.fromKey(key);
+            if (report != null) {
+                enabledReports.add(report);
+            } else {
+                logger.warning("Unknown snapshot report in configuration: " + key);
+            }
+        }
+        for (String time : AppConfig.getList("reports.snapshot.offPeakTimes", "02:00")) {
+            try {
+                offPeakTimes.add(LocalTime.parse(time));
+            } catch (RuntimeException e) {
+                logger.warning("Invalid off-peak time in configuration: " + time);
+            }
+        }
+    }
+
+    public static ReportSnapshotService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Load persisted snapshots and start the schedule. Stale or missing
+     * snapshots are regenerated right away. Safe to call more than once.
+     */
+    public synchronized void start() {
+        if (!enabled || scheduler != null || enabledReports.isEmpty()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "report-snapshots");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+
+        scheduler.execute(() -> {
+            for (SnapshotReport report : enabledReports) {
+                loadFromDisk(report);
+            }
+            for (SnapshotReport report : enabledReports) {
+                if (isStale(snapshots.get(report))) {
+                    generate(report);
+                }
+            }
+        });
+
+        if (intervalMinutes > 0) {
+            scheduler.scheduleWithFixedDelay(this::generateAll, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+        }
+        for (LocalTime time : offPeakTimes) {
+            scheduleOffPeak(time);
+        }
+        logger.info("Report snapshots enabled for " + enabledReports + " every " + intervalMinutes +
+                    " min and at " + offPeakTimes);
+    }
+
+    /**
+     * True if the report is pre-computed; otherwise callers should query live
+     */
+    public boolean isEnabled(SnapshotReport report) {
+        return enabled && enabledReports.contains(report);
+    }
+
+    /**
+     * Get the latest snapshot of a report
+     *
+     * @return snapshot, or null if none has been generated yet
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Snapshot<T> getSnapshot(SnapshotReport report) {
+        return (Snapshot<T>) snapshots.get(report);
+    }
+
+    /**
+     * Run a report live on the calling thread and store the result as the
+     * new snapshot. Call from a background thread.
+     *
+     * @return the fresh snapshot, or null if the report could not be run; the
+     *         previous snapshot is then kept
+     */
+    public <T> Snapshot<T> refreshNow(SnapshotReport report) {
+        return generate(report) ? getSnapshot(report) : null;
+    }
+
+    /**
+     * True if the latest attempt to refresh a report failed, so its snapshot
+     * is older than the schedule promises
+     */
+    public boolean isRefreshFailed(SnapshotReport report) {
+        return failedReports.contains(report);
+    }
+
+    /**
+     * Register a callback invoked (on the snapshot thread) whenever a report
+     * gets a new snapshot or fails to refresh
+     */
+    public void addListener(Consumer<SnapshotReport> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<SnapshotReport> listener) {
+        listeners.remove(listener);
+    }
+
+    private boolean isStale(Snapshot<?> snapshot) {
+        if (snapshot == null) {
+            return true;
+        }
+        if (intervalMinutes <= 0) {
+            return false;
+        }
+        return Duration.between(snapshot.getGeneratedAt(), Instant.now()).toMinutes() >= intervalMinutes;
+    }
+
+    private void scheduleOffPeak(LocalTime time) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = now.toLocalDate().atTime(time);
+        if (!next.isAfter(now)) {
+            next = next.plusDays(1);
+        }
+        // Re-armed after each run rather than fixed-rate so DST changes do not drift it
+        scheduler.schedule(() -> {
+            generateAll();
+            scheduleOffPeak(time);
+        }, Duration.between(now, next).toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void generateAll() {
+        for (SnapshotReport report : enabledReports) {
+            generate(report);
+        }
+    }
+
+    /**
+     * Synchronized so a live refresh and a scheduled run never query the same
+     * reports concurrently
+     *
+     * @return true if a new snapshot was stored
+     */
+    private synchronized boolean generate(SnapshotReport report) {
+        boolean generated = false;
+        if (!DBConnection.testConnection()) {
+            logger.warning("Skipping " + report.getLabel() + " snapshot: database unavailable");
+        } else {
+            generated = runQuery(report);
+        }
+        if (generated) {
+            failedReports.remove(report);
+        } else {
+            failedReports.add(report);
+        }
+        for (Consumer<SnapshotReport> listener : listeners) {
+            listener.accept(report);
+        }
+        return generated;
+    }
+
+    /**
+     * ReportDAO answers SQL errors with an empty list and reports them only in
+     * its log, so errors logged on this thread while the query runs mark it
+     * failed; an empty list then must not replace the last good snapshot.
+     */
+    private boolean runQuery(SnapshotReport report) {
+        Logger reportLogger = Logger.getLogger(ReportDAO.class.getName());
+        ErrorCounter errors = new ErrorCounter(Thread.currentThread());
+        reportLogger.addHandler(errors);
+        try {
+            long start = System.currentTimeMillis();
+            List<?> rows = new ArrayList<>(report.query.apply(reportDAO));
+            if (errors.count > 0) {
+                logger.warning("Keeping previous " + report.getLabel() + " snapshot: report query failed");
+                return false;
+            }
+            Snapshot<?> snapshot = new Snapshot<>(rows, Instant.now(), System.currentTimeMillis() - start);
+            snapshots.put(report, snapshot);
+            saveToDisk(report, snapshot);
+            logger.info("Generated " + report.getLabel() + " snapshot: " + rows.size() + " rows in " +
+                        snapshot.getDurationMillis() + " ms");
+            return true;
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Error generating " + report.getLabel() + " snapshot", e);
+            return false;
+        } finally {
+            reportLogger.removeHandler(errors);
+        }
+    }
+
+    private Path snapshotFile(SnapshotReport report) {
+        return directory.resolve(report.getKey() + ".ser");
+    }
+
+    private void saveToDisk(SnapshotReport report, Snapshot<?> snapshot) {
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, "." + report.getKey() + "-", ".tmp");
+            try {
+                try (ObjectOutputStream out = new ObjectOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    out.writeObject(snapshot);
+                }
+                Files.move(temp, snapshotFile(report), StandardCopyOption.REPLACE_EXISTING,
+                           StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            logger.warning("Could not persist " + report.getLabel() + " snapshot: " + e.getMessage());
+        }
+    }
+
+    private void loadFromDisk(SnapshotReport report) {
+        Path file = snapshotFile(report);
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            Snapshot<?> snapshot = (Snapshot<?>) in.readObject();
+            snapshots.put(report, snapshot);
+            logger.info("Loaded " + report.getLabel() + " snapshot from " + snapshot.getGeneratedAt());
+            for (Consumer<SnapshotReport> listener : listeners) {
+                listener.accept(report);
+            }
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            // Written by an incompatible version; it will be regenerated
+            logger.warning("Discarding unreadable snapshot " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Counts the errors ReportDAO logs from one thread
+     */
+    private static class ErrorCounter extends Handler {
+        private final int threadId;
+        private volatile int count;
+
+        ErrorCounter(Thread thread) {
+            this.threadId = (int) thread.getId();
+        }
+
+        @Override
+        public void publish(LogRecord record) {
+            if (record.getLevel().intValue() >= Level.SEVERE.intValue() && record.getThreadID() == threadId) {
+                count++;
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
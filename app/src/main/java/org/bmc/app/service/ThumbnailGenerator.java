@@ -0,0 +1,174 @@
+package org.bmc.app.service;
+
+import org.bmc.app.dao.PhotoDAO;
+import org.bmc.app.model.Photo;
+import org.bmc.app.util.ImageDecoder;
+import org.bmc.app.util.PhotoStorageUtil;
+
+import javax.swing.SwingUtilities;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Makes the small and medium JPEG copies of a photo and records them on its
+ * Photo row, so viewers read a few hundred KB instead of decoding the
+ * original every time.
+ *
+ * The original is decoded once, at medium size; the small copy is scaled
+ * from that. Copies are written next to the original (name_320.jpg,
+ * name_800.jpg by default, see photos.thumbnail.smallSize/mediumSize), so
+ * photos sharing one stored image share its copies too. A photo already no
+ * larger than a copy's size uses the original for it.
+ * Work runs on one low-priority background thread, and a photo already
+ * queued is not queued twice. Photos uploaded before thumbnails existed get
+ * theirs the first time a viewer asks ({@link #ensureThumbnails}).
+ */
+public class ThumbnailGenerator {
+    private static final Logger logger = Logger.getLogger(ThumbnailGenerator.class.getName());
+
+    private static final ThumbnailGenerator INSTANCE = new ThumbnailGenerator();
+
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final PhotoDAO photoDAO = new PhotoDAO();
+    private final Set<Integer> queued = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "thumbnail-generator");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private ThumbnailGenerator() {
+    }
+
+    public static ThumbnailGenerator getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Generate a photo's copies in the background
+     *
+     * @param photo saved photo (must have an ID)
+     * @param onDone called on the Event Dispatch Thread with the photo, its
+     *               thumbnail paths filled in; not called if generation failed
+     */
+    public void generate(Photo photo, Consumer<Photo> onDone) {
+        if (photo.getPhotoId() == null || !queued.add(photo.getPhotoId())) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                if (createThumbnails(photo)) {
+                    if (onDone != null) {
+                        SwingUtilities.invokeLater(() -> onDone.accept(photo));
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.log(Level.WARNING, "Error generating thumbnails for " + photo, e);
+            } finally {
+                queued.remove(photo.getPhotoId());
+            }
+        });
+    }
+
+    /**
+     * Generate a photo's copies in the background unless it already has them
+     */
+    public void ensureThumbnails(Photo photo, Consumer<Photo> onDone) {
+        if (!photo.hasThumbnails()) {
+            generate(photo, onDone);
+        }
+    }
+
+    /**
+     * Write a photo's copies and record them on its row, on the calling thread
+     *
+     * @return true if the copies were written and recorded; false if the
+     *         image could not be read or the photo was deleted meanwhile
+     */
+    public boolean createThumbnails(Photo photo) throws IOException {
+        long start = System.currentTimeMillis();
+        if (!writeThumbnailFiles(photo)) {
+            return false;
+        }
+        if (!photoDAO.updateThumbnails(photo)) {
+            // Row is gone (or the update failed); don't leave orphaned copies behind
+            // unless other photos of the same image use them
+            if (photoDAO.countByContentHash(photo.getContentHash()) == 0) {
+                for (String copy : new String[]{photo.getSmallThumbnailPath(), photo.getMediumThumbnailPath()}) {
+                    if (!copy.equals(photo.getFilePath())) {
+                        PhotoStorageUtil.deletePhoto(copy);
+                    }
+                }
+            }
+            photo.setSmallThumbnailPath(null);
+            photo.setMediumThumbnailPath(null);
+            return false;
+        }
+        logger.fine("Thumbnails for " + photo + " in " + (System.currentTimeMillis() - start) + " ms");
+        return true;
+    }
+
+    /**
+     * Write a photo's copies and set their paths on it, without touching the
+     * database (for photos not inserted yet)
+     *
+     * @return false if the image could not be read
+     */
+    public boolean writeThumbnailFiles(Photo photo) throws IOException {
+        File original = PhotoStorageUtil.getPhotoFile(photo.getFilePath());
+        Dimension size = original != null && original.isFile() ? ImageDecoder.readSize(original) : null;
+        if (size == null) {
+            logger.warning("Cannot read image for thumbnails: " + photo.getFilePath());
+            return false;
+        }
+        int longest = Math.max(size.width, size.height);
+        int smallSize = PhotoStorageUtil.SMALL_THUMBNAIL_SIZE;
+        int mediumSize = PhotoStorageUtil.MEDIUM_THUMBNAIL_SIZE;
+        // Photos of the same stored image share its copies; only missing ones are made
+        String mediumPath = photo.getFilePath();
+        BufferedImage base = null;
+        if (longest > mediumSize) {
+            mediumPath = PhotoStorageUtil.getThumbnailPath(photo.getFilePath(), mediumSize);
+            File mediumFile = PhotoStorageUtil.getPhotoFile(mediumPath);
+            if (!mediumFile.isFile()) {
+                base = ImageDecoder.decodeToFit(original, mediumSize, mediumSize);
+                ImageDecoder.writeJpeg(base, mediumFile, JPEG_QUALITY);
+            }
+        }
+
+        String smallPath = photo.getFilePath();
+        if (longest > smallSize) {
+            smallPath = PhotoStorageUtil.getThumbnailPath(photo.getFilePath(), smallSize);
+            File smallFile = PhotoStorageUtil.getPhotoFile(smallPath);
+            if (!smallFile.isFile()) {
+                BufferedImage small;
+                if (base != null) {
+                    double scale = Math.min((double) smallSize / base.getWidth(),
+                                            (double) smallSize / base.getHeight());
+                    small = ImageDecoder.scale(base, (int) Math.round(base.getWidth() * scale),
+                                               (int) Math.round(base.getHeight() * scale));
+                } else {
+                    // The medium copy, when there is one, is much cheaper to decode than the original
+                    File source = longest > mediumSize ? PhotoStorageUtil.getPhotoFile(mediumPath) : original;
+                    small = ImageDecoder.decodeToFit(source, smallSize, smallSize);
+                }
+                ImageDecoder.writeJpeg(small, smallFile, JPEG_QUALITY);
+            }
+        }
+
+        photo.setSmallThumbnailPath(smallPath);
+        photo.setMediumThumbnailPath(mediumPath);
+        return true;
+    }
+}
@@ -0,0 +1,343 @@
+package org.bmc.app.test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import org.bmc.app.util.DBConnection;
+
+/**
+ * Loads a synthetic, reproducible dataset for the report benchmark.
+ *
+ * The scale is the number of customers; every other table is sized from it
+ * (4 jobs per customer, ~5 work log entries per started job, 3 materials per
+ * job, ...). A fixed random seed keeps row counts and distributions identical
+ * between runs so rows-scanned figures can be compared against a baseline.
+ *
+ * WARNING: {@link #load(int)} truncates every table it fills. Only point it at
+ * a scratch database.
+ */
+public class BenchmarkDataGenerator {
+
+    private static final Logger LOGGER = Logger.getLogger(BenchmarkDataGenerator.class.getName());
+
+    private static final long SEED = 457L;
+    private static final int BATCH_SIZE = 1000;
+    private static final BigDecimal QUARTER_HOUR = new BigDecimal("0.25");
+
+    // Children first so the truncate order also works with foreign key checks on
+    private static final String[] TABLES = {
+        "Payment", "Shipment", "Photo", "Notes", "WorkLog", "JobStage", "Invoice", "JobMaterial",
+        "POItem", "PurchaseOrder", "Job", "QuoteItem", "Quote", "Material", "Vendor", "Employee",
+        "Customer", "DeletedRow"
+    };
+
+    private static final String[] CATEGORIES = {"Metal", "Finish", "Hardware", "Abrasive", "Chemical"};
+    private static final String[] ROLES = {"restorer", "fabricator"};
+    private static final String[] PO_STATUSES = {"Pending", "Received", "Received", "Cancelled"};
+
+    private final Random random = new Random(SEED);
+    private final LocalDate today = LocalDate.now();
+
+    private int customers;
+    private int employees;
+    private int vendors;
+    private int materials;
+    private int jobs;
+    private String[] jobStatus;
+    private LocalDate[] jobStart;
+
+    /**
+     * Replace the contents of the benchmark database with a dataset of the given scale
+     *
+     * @param scale number of customers
+     * @throws SQLException if any statement fails
+     */
+    public void load(int scale) throws SQLException {
+        customers = scale;
+        employees = Math.max(5, scale / 20);
+        vendors = Math.max(5, scale / 50);
+        materials = Math.max(20, scale / 5);
+        jobs = scale * 4;
+        random.setSeed(SEED);
+
+        long start = System.currentTimeMillis();
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            truncateAll(conn);
+            insertCustomers(conn);
+            insertEmployees(conn);
+            insertVendors(conn);
+            insertMaterials(conn);
+            insertJobs(conn);
+            insertJobMaterials(conn);
+            insertWorkLogs(conn);
+            insertInvoices(conn);
+            insertPurchaseOrders(conn);
+            conn.commit();
+
+            try (Statement stmt = conn.createStatement()) {
+                for (String table : TABLES) {
+                    try {
+                        stmt.execute("ANALYZE TABLE " + table);
+                    } catch (SQLException e) {
+                        // Optional table not present in this schema
+                    }
+                }
+            }
+        }
+        LOGGER.info(String.format("Loaded scale %d (%d jobs) in %d ms",
+            scale, jobs, System.currentTimeMillis() - start));
+    }
+
+    private void truncateAll(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SET FOREIGN_KEY_CHECKS = 0");
+            try {
+                for (String table : TABLES) {
+                    try {
+                        stmt.execute("TRUNCATE TABLE " + table);
+                    } catch (SQLException e) {
+                        LOGGER.fine("Skipping truncate of " + table + ": " + e.getMessage());
+                    }
+                }
+            } finally {
+                stmt.execute("SET FOREIGN_KEY_CHECKS = 1");
+            }
+        }
+    }
+
+    private void insertCustomers(Connection conn) throws SQLException {
+        String sql = "INSERT INTO Customer (name, contact_name, phone, email, address) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 1; i <= customers; i++) {
+                pstmt.setString(1, "Customer " + i);
+                pstmt.setString(2, "Contact " + i);
+                pstmt.setString(3, String.format("410-555-%04d", i % 10000));
+                pstmt.setString(4, "customer" + i + "@example.com");
+                pstmt.setString(5, i + " Benchmark Ave, Baltimore, MD");
+                addBatch(conn, pstmt, i);
+            }
+            flush(conn, pstmt);
+        }
+    }
+
+    private void insertEmployees(Connection conn) throws SQLException {
+        String sql = "INSERT INTO Employee (name, role, specialization, contact_info, hourly_rate) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 1; i <= employees; i++) {
+                pstmt.setString(1, "Employee " + i);
+                pstmt.setString(2, ROLES[i % ROLES.length]);
+                pstmt.setString(3, "Specialty " + (i % 7));
+                pstmt.setString(4, "employee" + i + "@example.com");
+                pstmt.setBigDecimal(5, money(18 + random.nextInt(30)));
+                addBatch(conn, pstmt, i);
+            }
+            flush(conn, pstmt);
+        }
+    }
+
+    private void insertVendors(Connection conn) throws SQLException {
+        String sql = "INSERT INTO Vendor (name, contact_info, phone, email) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 1; i <= vendors; i++) {
+                pstmt.setString(1, "Vendor " + i);
+                pstmt.setString(2, "Sales " + i);
+                pstmt.setString(3, String.format("443-555-%04d", i % 10000));
+                pstmt.setString(4, "vendor" + i + "@example.com");
+                addBatch(conn, pstmt, i);
+            }
+            flush(conn, pstmt);
+        }
+    }
+
+    private void insertMaterials(Connection conn) throws SQLException {
+        String sql = "INSERT INTO Material (name, category, stock_quantity, reorder_level, unit_cost, vendor_id) " +
+                     "VALUES (?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 1; i <= materials; i++) {
+                pstmt.setString(1, "Material " + i);
+                pstmt.setString(2, CATEGORIES[i % CATEGORIES.length]);
+                pstmt.setInt(3, random.nextInt(200));
+                pstmt.setInt(4, 5 + random.nextInt(20));
+                pstmt.setBigDecimal(5, money(1 + random.nextInt(150)));
+                pstmt.setInt(6, 1 + random.nextInt(vendors));
+                addBatch(conn, pstmt, i);
+            }
+            flush(conn, pstmt);
+        }
+    }
+
+    private void insertJobs(Connection conn) throws SQLException {
+        String sql = "INSERT INTO Job (customer_id, employee_id, quote_id, description, start_date, due_date, status, " +
+                     "estimated_labor_cost, estimated_material_cost) VALUES (?, ?, NULL, ?, ?, ?, ?, ?, ?)";
+        jobStatus = new String[jobs + 1];
+        jobStart = new LocalDate[jobs + 1];
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 1; i <= jobs; i++) {
+                int roll = random.nextInt(10);
+                String status = roll < 5 ? "Completed" : roll < 8 ? "InProgress" : "Planned";
+                // Completed jobs spread over three years; open jobs are recent
+                LocalDate start = "Completed".equals(status)
+                    ? today.minusDays(30 + random.nextInt(3 * 365))
+                    : today.minusDays(random.nextInt(60));
+                jobStatus[i] = status;
+                jobStart[i] = start;
+
+                pstmt.setInt(1, 1 + skewed(customers));
+                pstmt.setInt(2, 1 + random.nextInt(employees));
+                pstmt.setString(3, "Benchmark job " + i);
+                pstmt.setDate(4, Date.valueOf(start));
+                pstmt.setDate(5, Date.valueOf(start.plusDays(7 + random.nextInt(90))));
+                pstmt.setString(6, status);
+                pstmt.setBigDecimal(7, money(200 + random.nextInt(3000)));
+                pstmt.setBigDecimal(8, money(50 + random.nextInt(1500)));
+                addBatch(conn, pstmt, i);
+            }
+            flush(conn, pstmt);
+        }
+    }
+
+    private void insertJobMaterials(Connection conn) throws SQLException {
+        String sql = "INSERT INTO JobMaterial (job_id, material_id, quantity_used) VALUES (?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int count = 0;
+            for (int job = 1; job <= jobs; job++) {
+                // Three distinct materials per job: a random base plus fixed strides
+                int base = random.nextInt(materials);
+                for (int k = 0; k < 3; k++) {
+                    pstmt.setInt(1, job);
+                    pstmt.setInt(2, 1 + (base + k * 7) % materials);
+                    pstmt.setInt(3, 1 + random.nextInt(25));
+                    addBatch(conn, pstmt, ++count);
+                }
+            }
+            flush(conn, pstmt);
+        }
+    }
+
+    private void insertWorkLogs(Connection conn) throws SQLException {
+        String sql = "INSERT INTO WorkLog (job_id, employee_id, stage_id, hours_worked, work_date) VALUES (?, ?, NULL, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int count = 0;
+            for (int job = 1; job <= jobs; job++) {
+                if ("Planned".equals(jobStatus[job])) {
+                    continue;
+                }
+                int entries = 3 + random.nextInt(5);
+                for (int k = 0; k < entries; k++) {
+                    pstmt.setInt(1, job);
+                    pstmt.setInt(2, 1 + random.nextInt(employees));
+                    // Quarter-hour entries between 0.25 and 8 hours
+                    pstmt.setBigDecimal(3, QUARTER_HOUR.multiply(BigDecimal.valueOf(1 + random.nextInt(32))));
+                    pstmt.setDate(4, Date.valueOf(jobStart[job].plusDays(k)));
+                    addBatch(conn, pstmt, ++count);
+                }
+            }
+            flush(conn, pstmt);
+        }
+    }
+
+    private void insertInvoices(Connection conn) throws SQLException {
+        String sql = "INSERT INTO Invoice (job_id, invoice_date, labor_cost, material_cost, total_amount, paid) " +
+                     "VALUES (?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int count = 0;
+            for (int job = 1; job <= jobs; job++) {
+                boolean invoiced = "Completed".equals(jobStatus[job])
+                    || ("InProgress".equals(jobStatus[job]) && random.nextBoolean());
+                if (!invoiced) {
+                    continue;
+                }
+                BigDecimal labor = money(150 + random.nextInt(3500));
+                BigDecimal material = money(40 + random.nextInt(1800));
+                LocalDate invoiceDate = jobStart[job].plusDays(10 + random.nextInt(40));
+                if (invoiceDate.isAfter(today)) {
+                    invoiceDate = today;
+                }
+                pstmt.setInt(1, job);
+                pstmt.setDate(2, Date.valueOf(invoiceDate));
+                pstmt.setBigDecimal(3, labor);
+                pstmt.setBigDecimal(4, material);
+                pstmt.setBigDecimal(5, labor.add(material));
+                pstmt.setBoolean(6, random.nextInt(10) < 7);
+                addBatch(conn, pstmt, ++count);
+            }
+            flush(conn, pstmt);
+        }
+    }
+
+    private void insertPurchaseOrders(Connection conn) throws SQLException {
+        String poSql = "INSERT INTO PurchaseOrder (vendor_id, order_date, total_cost, status) VALUES (?, ?, ?, ?)";
+        String itemSql = "INSERT INTO POItem (po_id, material_id, quantity, unit_price) VALUES (?, ?, ?, ?)";
+        int orders = Math.max(10, customers / 2);
+        try (PreparedStatement poStmt = conn.prepareStatement(poSql);
+             PreparedStatement itemStmt = conn.prepareStatement(itemSql)) {
+            int itemCount = 0;
+            for (int po = 1; po <= orders; po++) {
+                int items = 1 + random.nextInt(4);
+                BigDecimal total = BigDecimal.ZERO;
+                for (int k = 0; k < items; k++) {
+                    int quantity = 1 + random.nextInt(50);
+                    BigDecimal price = money(1 + random.nextInt(150));
+                    total = total.add(price.multiply(BigDecimal.valueOf(quantity)));
+                    itemStmt.setInt(1, po);
+                    itemStmt.setInt(2, 1 + random.nextInt(materials));
+                    itemStmt.setInt(3, quantity);
+                    itemStmt.setBigDecimal(4, price);
+                    itemStmt.addBatch();
+                    itemCount++;
+                }
+                poStmt.setInt(1, 1 + random.nextInt(vendors));
+                poStmt.setDate(2, Date.valueOf(today.minusDays(random.nextInt(2 * 365))));
+                poStmt.setBigDecimal(3, total);
+                poStmt.setString(4, PO_STATUSES[random.nextInt(PO_STATUSES.length)]);
+                poStmt.addBatch();
+
+                // Orders must exist before their items when foreign keys are enforced
+                if (po % BATCH_SIZE == 0) {
+                    poStmt.executeBatch();
+                    itemStmt.executeBatch();
+                    conn.commit();
+                }
+            }
+            poStmt.executeBatch();
+            itemStmt.executeBatch();
+            conn.commit();
+            LOGGER.fine("Inserted " + orders + " purchase orders with " + itemCount + " items");
+        }
+    }
+
+    /**
+     * Pick a customer index with a long tail so some customers have many jobs
+     * (repeat customers) and most have few, like real order history
+     */
+    private int skewed(int bound) {
+        double u = random.nextDouble();
+        return Math.min(bound - 1, (int) (bound * u * u));
+    }
+
+    private static BigDecimal money(int dollars) {
+        return BigDecimal.valueOf(dollars).setScale(2, RoundingMode.UNNECESSARY);
+    }
+
+    private static void addBatch(Connection conn, PreparedStatement pstmt, int count) throws SQLException {
+        pstmt.addBatch();
+        if (count % BATCH_SIZE == 0) {
+            pstmt.executeBatch();
+            conn.commit();
+        }
+    }
+
+    private static void flush(Connection conn, PreparedStatement pstmt) throws SQLException {
+        pstmt.executeBatch();
+        conn.commit();
+    }
+}
@@ -0,0 +1,439 @@
+package org.bmc.app.test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.bmc.app.dao.ReportDAO;
+import org.bmc.app.util.DBConnection;
+
+/**
+ * Benchmark and regression check for every ReportDAO report.
+ *
+ * For each scale the harness loads a synthetic dataset
+ * ({@link BenchmarkDataGenerator}), then runs each report with warm-up and
+ * repeated measurement, recording latency percentiles and the number of rows
+ * the server read (InnoDB handler counters). Results are compared against a
+ * baseline file; the process exits with status 1 if any report regressed
+ * beyond the threshold, so it can gate a Maven build (see the
+ * report-benchmark profile in pom.xml). A report that logs a database
+ * error, or returns no rows where the baseline had some, also fails the
+ * run: ReportDAO answers errors with an empty list, which would otherwise
+ * look fast. Without a baseline file the run exits with status 3 instead
+ * of passing; create one with --update-baseline.
+ *
+ * The dataset is destructive to load, so -Ddb.url must point at a scratch
+ * database. Options:
+ * <pre>
+ *   --scales=500,2000,8000   customer counts to benchmark
+ *   --warmup=3               unmeasured runs per report
+ *   --iterations=15          measured runs per report
+ *   --threshold=0.25         allowed slowdown (25%) before failing
+ *   --baseline=PATH          baseline file (default benchmark/report-baseline.properties)
+ *   --results=PATH           where to write this run (default target/report-benchmark.properties)
+ *   --update-baseline        overwrite the baseline with this run and exit 0
+ *   --no-load                benchmark the data already in the database (first scale label only)
+ * </pre>
+ */
+public class ReportBenchmark {
+
+    private static final Logger LOGGER = Logger.getLogger(ReportBenchmark.class.getName());
+
+    // Latency differences below this are timer/network noise, never a regression
+    private static final double MIN_REGRESSION_MS = 2.0;
+
+    private static final int STATUS_NO_BASELINE = 3;
+
+    private static final String[] HANDLER_COUNTERS = {
+        "Handler_read_first", "Handler_read_key", "Handler_read_last", "Handler_read_next",
+        "Handler_read_prev", "Handler_read_rnd", "Handler_read_rnd_next"
+    };
+
+    private int[] scales = {500, 2000, 8000};
+    private int warmup = 3;
+    private int iterations = 15;
+    private double threshold = 0.25;
+    private Path baselinePath = Paths.get("benchmark", "report-baseline.properties");
+    private Path resultsPath = Paths.get("target", "report-benchmark.properties");
+    private boolean updateBaseline;
+    private boolean load = true;
+
+    private final ReportDAO reportDAO = new ReportDAO();
+    private final ErrorCounter reportErrors = new ErrorCounter();
+    private long statusProbeOverhead;
+
+    public static void main(String[] args) {
+        ReportBenchmark benchmark = new ReportBenchmark();
+        int status;
+        try {
+            benchmark.parseArguments(args);
+            status = benchmark.run();
+        } catch (IllegalArgumentException e) {
+            LOGGER.severe(e.getMessage());
+            status = 2;
+        } catch (Exception e) {
+            LOGGER.severe("Benchmark failed: " + e);
+            status = 2;
+        }
+        System.exit(status);
+    }
+
+    private void parseArguments(String[] args) {
+        for (String arg : args) {
+            String value = arg.contains("=") ? arg.substring(arg.indexOf('=') + 1) : "";
+            if (arg.startsWith("--scales=")) {
+                scales = Arrays.stream(value.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+            } else if (arg.startsWith("--warmup=")) {
+                warmup = Integer.parseInt(value);
+            } else if (arg.startsWith("--iterations=")) {
+                iterations = Integer.parseInt(value);
+            } else if (arg.startsWith("--threshold=")) {
+                threshold = Double.parseDouble(value);
+            } else if (arg.startsWith("--baseline=")) {
+                baselinePath = Paths.get(value);
+            } else if (arg.startsWith("--results=")) {
+                resultsPath = Paths.get(value);
+            } else if (arg.equals("--update-baseline")) {
+                updateBaseline = true;
+            } else if (arg.equals("--no-load")) {
+                load = false;
+            } else {
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+        }
+        if (iterations < 1 || scales.length == 0) {
+            throw new IllegalArgumentException("Need at least one scale and one iteration");
+        }
+    }
+
+    private int run() throws Exception {
+        if (load && System.getProperty("db.url") == null) {
+            throw new IllegalArgumentException("Refusing to load benchmark data into the application database. " +
+                "Pass -Ddb.url (and db.user/db.password) pointing at a scratch schema, or use --no-load.");
+        }
+        if (!DBConnection.testConnection()) {
+            throw new IllegalStateException("Cannot connect to " + DBConnection.getDatabaseUrl());
+        }
+        LOGGER.info("Benchmarking reports against " + DBConnection.getDatabaseUrl());
+
+        statusProbeOverhead = measureProbeOverhead();
+        Map<String, Result> results = new LinkedHashMap<>();
+        int[] runScales = load ? scales : new int[] {scales[0]};
+
+        Logger reportLogger = Logger.getLogger(ReportDAO.class.getName());
+        reportLogger.addHandler(reportErrors);
+        try {
+            for (int scale : runScales) {
+                if (load) {
+                    new BenchmarkDataGenerator().load(scale);
+                }
+                for (Map.Entry<String, Callable<Collection<?>>> report : reports().entrySet()) {
+                    Result result = measure(scale, report.getKey(), report.getValue());
+                    results.put(result.key(), result);
+                    LOGGER.info(result.toString());
+                }
+            }
+        } finally {
+            reportLogger.removeHandler(reportErrors);
+        }
+
+        Properties current = toProperties(results);
+        store(current, resultsPath, "Report benchmark results");
+
+        boolean errorFree = true;
+        for (Result result : results.values()) {
+            if (result.errors > 0) {
+                LOGGER.severe(String.format("FAILED %s: %d database errors - its timings are meaningless",
+                    result.key(), result.errors));
+                errorFree = false;
+            }
+        }
+        if (!errorFree) {
+            LOGGER.severe("Report benchmark failed - reports hit database errors" +
+                (updateBaseline ? "; baseline not updated" : ""));
+            return 1;
+        }
+
+        if (updateBaseline) {
+            store(current, baselinePath, "Report benchmark baseline - regenerate with --update-baseline");
+            LOGGER.info("Baseline written to " + baselinePath.toAbsolutePath());
+            return 0;
+        }
+        if (!Files.exists(baselinePath)) {
+            LOGGER.severe("No baseline at " + baselinePath.toAbsolutePath() + " - nothing to compare against. " +
+                "Check the results in " + resultsPath + " and rerun with --update-baseline to create one.");
+            return STATUS_NO_BASELINE;
+        }
+        return compare(results, loadProperties(baselinePath)) ? 0 : 1;
+    }
+
+    /**
+     * Every public no-argument ReportDAO method returning a collection, plus
+     * the single-employee labor report. New reports are picked up automatically.
+     */
+    private Map<String, Callable<Collection<?>>> reports() {
+        Map<String, Callable<Collection<?>>> reports = new TreeMap<>();
+        for (Method method : ReportDAO.class.getDeclaredMethods()) {
+            if (Modifier.isPublic(method.getModifiers()) && method.getParameterCount() == 0
+                    && Collection.class.isAssignableFrom(method.getReturnType())) {
+                reports.put(method.getName(), () -> (Collection<?>) method.invoke(reportDAO));
+            }
+        }
+        reports.put("getEmployeeLaborReport(1)", () -> {
+            Object single = reportDAO.getEmployeeLaborReport(1);
+            return single == null ? List.of() : List.of(single);
+        });
+        return reports;
+    }
+
+    private Result measure(int scale, String name, Callable<Collection<?>> report) throws Exception {
+        for (int i = 0; i < warmup; i++) {
+            report.call();
+        }
+
+        long[] nanos = new long[iterations];
+        long rowsRead = 0;
+        int resultRows = 0;
+        int errorsBefore = reportErrors.count();
+        try (Connection statusConn = DBConnection.getConnection()) {
+            for (int i = 0; i < iterations; i++) {
+                long before = handlerReads(statusConn);
+                long start = System.nanoTime();
+                resultRows = report.call().size();
+                nanos[i] = System.nanoTime() - start;
+                long reads = handlerReads(statusConn) - before - statusProbeOverhead;
+                // Keep the smallest figure: other sessions can only add reads, never remove them
+                rowsRead = i == 0 ? reads : Math.min(rowsRead, reads);
+            }
+        }
+        Arrays.sort(nanos);
+        return new Result(scale, name, nanos, Math.max(0, rowsRead), resultRows,
+            reportErrors.count() - errorsBefore);
+    }
+
+    /**
+     * Sum of the server-wide handler read counters. Reports open their own
+     * connections, so session counters cannot see them; global counters are
+     * accurate as long as the benchmark database is otherwise idle.
+     */
+    private static long handlerReads(Connection conn) throws SQLException {
+        long total = 0;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SHOW GLOBAL STATUS LIKE 'Handler_read%'")) {
+            while (rs.next()) {
+                if (Arrays.asList(HANDLER_COUNTERS).contains(rs.getString(1))) {
+                    total += rs.getLong(2);
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Reads caused by the status query itself, subtracted from every sample
+     */
+    private static long measureProbeOverhead() throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            long overhead = Long.MAX_VALUE;
+            for (int i = 0; i < 5; i++) {
+                long first = handlerReads(conn);
+                long second = handlerReads(conn);
+                overhead = Math.min(overhead, second - first);
+            }
+            return overhead;
+        }
+    }
+
+    private boolean compare(Map<String, Result> results, Properties baseline) {
+        boolean passed = true;
+        for (Result result : results.values()) {
+            String key = result.key();
+            String baseP50 = baseline.getProperty(key + ".p50Ms");
+            if (baseP50 == null) {
+                LOGGER.warning(key + ": no baseline entry, skipping comparison");
+                continue;
+            }
+
+            double allowedMs = Double.parseDouble(baseP50) * (1 + threshold);
+            if (result.p50Ms() > allowedMs && result.p50Ms() - Double.parseDouble(baseP50) > MIN_REGRESSION_MS) {
+                LOGGER.severe(String.format("REGRESSION %s: p50 %.2f ms vs baseline %s ms (limit %.2f ms)",
+                    key, result.p50Ms(), baseP50, allowedMs));
+                passed = false;
+            }
+
+            String baseRows = baseline.getProperty(key + ".rowsRead");
+            if (baseRows != null) {
+                double allowedRows = Long.parseLong(baseRows) * (1 + threshold);
+                if (result.rowsRead > allowedRows) {
+                    LOGGER.severe(String.format("REGRESSION %s: %d rows read vs baseline %s (limit %.0f) - query plan changed?",
+                        key, result.rowsRead, baseRows, allowedRows));
+                    passed = false;
+                }
+            }
+
+            String baseResultRows = baseline.getProperty(key + ".resultRows");
+            if (baseResultRows != null && Integer.parseInt(baseResultRows) > 0 && result.resultRows == 0) {
+                LOGGER.severe(String.format("BROKEN %s: returned no rows, baseline returned %s",
+                    key, baseResultRows));
+                passed = false;
+            } else if (baseResultRows != null && Integer.parseInt(baseResultRows) != result.resultRows) {
+                LOGGER.warning(String.format("%s: returned %d rows, baseline returned %s (date-relative filters drift over time)",
+                    key, result.resultRows, baseResultRows));
+            }
+        }
+
+        if (passed) {
+            LOGGER.info(String.format("All reports within %.0f%% of baseline", threshold * 100));
+        } else {
+            LOGGER.severe("Report benchmark failed - see regressions above. " +
+                "If the slowdown is intended, rerun with --update-baseline.");
+        }
+        return passed;
+    }
+
+    private static Properties toProperties(Map<String, Result> results) {
+        Properties props = new Properties();
+        for (Result result : results.values()) {
+            String key = result.key();
+            props.setProperty(key + ".p50Ms", format(result.p50Ms()));
+            props.setProperty(key + ".p90Ms", format(result.percentileMs(90)));
+            props.setProperty(key + ".p99Ms", format(result.percentileMs(99)));
+            props.setProperty(key + ".maxMs", format(result.percentileMs(100)));
+            props.setProperty(key + ".rowsRead", Long.toString(result.rowsRead));
+            props.setProperty(key + ".resultRows", Integer.toString(result.resultRows));
+        }
+        return props;
+    }
+
+    private static String format(double ms) {
+        return String.format("%.3f", ms);
+    }
+
+    private static Properties loadProperties(Path path) throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            props.load(in);
+        }
+        return props;
+    }
+
+    private static void store(Properties props, Path path, String comment) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, ".benchmark-", ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            // Sorted keys keep baseline diffs readable
+            Properties sorted = new Properties() {
+                @Override
+                public synchronized Set<Map.Entry<Object, Object>> entrySet() {
+                    return new TreeMap<>(this).entrySet();
+                }
+            };
+            sorted.putAll(props);
+            sorted.store(out, comment);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Measurements for one report at one scale
+     */
+    private static class Result {
+        private final int scale;
+        private final String report;
+        private final long[] sortedNanos;
+        private final long rowsRead;
+        private final int resultRows;
+        private final int errors;
+
+        Result(int scale, String report, long[] sortedNanos, long rowsRead, int resultRows, int errors) {
+            this.scale = scale;
+            this.report = report;
+            this.sortedNanos = sortedNanos;
+            this.rowsRead = rowsRead;
+            this.resultRows = resultRows;
+            this.errors = errors;
+        }
+
+        String key() {
+            return "scale" + scale + "." + report.replaceAll("[^A-Za-z0-9]", "");
+        }
+
+        double p50Ms() {
+            return percentileMs(50);
+        }
+
+        /**
+         * Nearest-rank percentile
+         */
+        double percentileMs(int percentile) {
+            int rank = (int) Math.ceil(percentile / 100.0 * sortedNanos.length);
+            return sortedNanos[Math.max(0, rank - 1)] / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            List<String> parts = new ArrayList<>();
+            parts.add(String.format("p50=%.2fms", p50Ms()));
+            parts.add(String.format("p90=%.2fms", percentileMs(90)));
+            parts.add(String.format("p99=%.2fms", percentileMs(99)));
+            parts.add(String.format("rowsRead=%,d", rowsRead));
+            parts.add(String.format("resultRows=%d", resultRows));
+            if (errors > 0) {
+                parts.add(String.format("errors=%d", errors));
+            }
+            return String.format("[scale %d] %-36s %s", scale, report, String.join("  ", parts));
+        }
+    }
+
+    /**
+     * Counts the errors ReportDAO logs; it reports them only there
+     */
+    private static class ErrorCounter extends Handler {
+        private final AtomicInteger count = new AtomicInteger();
+
+        int count() {
+            return count.get();
+        }
+
+        @Override
+        public void publish(LogRecord record) {
+            if (record.getLevel().intValue() >= Level.SEVERE.intValue()) {
+                count.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package org.bmc.app.test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.bmc.app.dao.CustomerDAO;
+import org.bmc.app.dao.JobDAO;
+import org.bmc.app.dao.JobMaterialDAO;
+import org.bmc.app.dao.JobMaterialDAO.ReservationResult;
+import org.bmc.app.dao.MaterialDAO;
+import org.bmc.app.model.Customer;
+import org.bmc.app.model.Job;
+import org.bmc.app.model.Material;
+import org.bmc.app.util.DBConnection;
+
+/**
+ * Concurrency check for material stock reservations against a real database.
+ *
+ * Many threads assign, resize and remove one scarce material on separate
+ * jobs at the same moment, then the stock is checked: no more is reserved
+ * than is on hand, and the reserved quantity equals what the JobMaterial
+ * rows say. Completing and reopening a job must move its materials off and
+ * back on the stock, and concurrent stock edits through the compare-and-set
+ * update must not lose any increment.
+ *
+ * Creates its own customer, jobs and material and deletes them afterwards;
+ * run it against a scratch database with migration 007 applied. Exits with
+ * status 1 if any check fails.
+ */
+public class StockReservationStressTest {
+
+    private static final Logger LOGGER = Logger.getLogger(StockReservationStressTest.class.getName());
+
+    private static final int STOCK = 10;
+    private static final int JOBS = 25;
+    private static final int CHURN_ROUNDS = 40;
+    private static final int STOCK_EDITS = 30;
+
+    private final JobMaterialDAO jobMaterialDAO = new JobMaterialDAO();
+    private final MaterialDAO materialDAO = new MaterialDAO();
+    private final JobDAO jobDAO = new JobDAO();
+    private final ExecutorService pool = Executors.newFixedThreadPool(JOBS);
+
+    private Integer customerId;
+    private Integer materialId;
+    private final List<Integer> jobIds = new ArrayList<>();
+
+    public static void main(String[] args) {
+        LOGGER.info("=== Stock Reservation Stress Test ===");
+        if (!DBConnection.testConnection()) {
+            LOGGER.severe("Database connection failed - cannot run the stress test");
+            System.exit(1);
+        }
+
+        StockReservationStressTest test = new StockReservationStressTest();
+        boolean passed = false;
+        try {
+            test.setUp();
+            passed = test.testConcurrentAssign();
+            passed &= test.testConcurrentChurn();
+            passed &= test.testCompleteAndReopen();
+            passed &= test.testConcurrentStockEdits();
+        } catch (Exception e) {
+            LOGGER.severe("✗ Stress test aborted: " + e);
+        } finally {
+            test.tearDown();
+        }
+
+        if (passed) {
+            LOGGER.info("=== ALL STOCK RESERVATION TESTS PASSED ===");
+        } else {
+            LOGGER.severe("=== SOME TESTS FAILED ===");
+            System.exit(1);
+        }
+    }
+
+    private void setUp() {
+        Customer customer = new CustomerDAO().create(
+            new Customer("Reservation Stress Test", null, null, null, null));
+        if (customer == null || customer.getCustomerId() == null) {
+            throw new IllegalStateException("cannot create test customer");
+        }
+        customerId = customer.getCustomerId();
+
+        Material material = new Material(null, "Reservation Stress Test Material", "Test",
+            STOCK, 0, BigDecimal.ONE);
+        if (!materialDAO.save(material) || material.getMaterialId() == null) {
+            throw new IllegalStateException("cannot create test material");
+        }
+        materialId = material.getMaterialId();
+
+        for (int i = 0; i < JOBS; i++) {
+            Job job = jobDAO.create(new Job(customerId, null, "Reservation stress job " + (i + 1),
+                LocalDate.now(), LocalDate.now().plusDays(7), Job.Status.PLANNED, null, null));
+            if (job == null || job.getJobId() == null) {
+                throw new IllegalStateException("cannot create test job");
+            }
+            jobIds.add(job.getJobId());
+        }
+        LOGGER.info(String.format("Created material %d with %d in stock and %d jobs", materialId, STOCK, JOBS));
+    }
+
+    /**
+     * Every job asks for one unit at once, two threads per job: exactly
+     * STOCK reservations may succeed, and each job at most once
+     */
+    private boolean testConcurrentAssign() throws Exception {
+        LOGGER.info("--- Concurrent assignment ---");
+        List<Callable<ReservationResult>> tasks = new ArrayList<>();
+        for (Integer jobId : jobIds) {
+            tasks.add(() -> jobMaterialDAO.assignMaterial(jobId, materialId, 1));
+            tasks.add(() -> jobMaterialDAO.assignMaterial(jobId, materialId, 1));
+        }
+        Map<ReservationResult, Integer> counts = runTogether(tasks);
+        LOGGER.info("Results: " + counts);
+
+        boolean passed = check(counts.getOrDefault(ReservationResult.OK, 0) == STOCK,
+            "exactly " + STOCK + " assignments succeeded");
+        passed &= check(counts.getOrDefault(ReservationResult.FAILED, 0) == 0, "no assignment failed outright");
+        passed &= checkInvariants(STOCK);
+        return passed;
+    }
+
+    /**
+     * Resize, remove and re-add assignments from many threads; the
+     * bookkeeping must still match whatever state they left behind
+     */
+    private boolean testConcurrentChurn() throws Exception {
+        LOGGER.info("--- Concurrent resize / remove / assign ---");
+        List<Callable<ReservationResult>> tasks = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < CHURN_ROUNDS; i++) {
+            int jobId = jobIds.get(random.nextInt(jobIds.size()));
+            int quantity = 1 + random.nextInt(3);
+            switch (i % 3) {
+                case 0:
+                    tasks.add(() -> jobMaterialDAO.updateQuantity(jobId, materialId, quantity));
+                    break;
+                case 1:
+                    tasks.add(() -> jobMaterialDAO.removeMaterial(jobId, materialId));
+                    break;
+                default:
+                    tasks.add(() -> jobMaterialDAO.assignMaterial(jobId, materialId, quantity));
+                    break;
+            }
+        }
+        Map<ReservationResult, Integer> counts = runTogether(tasks);
+        LOGGER.info("Results: " + counts);
+
+        boolean passed = check(counts.getOrDefault(ReservationResult.FAILED, 0) == 0, "no operation failed outright");
+        passed &= checkInvariants(STOCK);
+        return passed;
+    }
+
+    /**
+     * Completing a job consumes its reservation from the stock; reopening
+     * it puts both back
+     */
+    private boolean testCompleteAndReopen() throws SQLException {
+        LOGGER.info("--- Complete and reopen a job ---");
+        Integer jobId = null;
+        int used = 0;
+        for (Integer candidate : jobIds) {
+            used = queryInt("SELECT COALESCE(SUM(quantity_used), 0) FROM JobMaterial WHERE job_id = ?", candidate);
+            if (used > 0) {
+                jobId = candidate;
+                break;
+            }
+        }
+        if (jobId == null) {
+            if (jobMaterialDAO.assignMaterial(jobIds.get(0), materialId, 1) != ReservationResult.OK) {
+                return check(false, "a job holds a reservation to complete");
+            }
+            jobId = jobIds.get(0);
+            used = 1;
+        }
+
+        int reservedBefore = reserved();
+        Job job = jobDAO.findById(jobId);
+        job.setStatus(Job.Status.COMPLETED);
+        boolean passed = check(jobDAO.update(job), "job completed");
+        passed &= check(stock() == STOCK - used, "completion took " + used + " off the stock");
+        passed &= check(reserved() == reservedBefore - used, "completion released the reservation");
+
+        job.setStatus(Job.Status.IN_PROGRESS);
+        passed &= check(jobDAO.update(job), "job reopened");
+        passed &= check(stock() == STOCK, "reopening put the stock back");
+        passed &= check(reserved() == reservedBefore, "reopening reserved the material again");
+        passed &= checkInvariants(STOCK);
+        return passed;
+    }
+
+    /**
+     * Each thread adds one to the stock through the compare-and-set
+     * update, retrying when another edit got in first
+     */
+    private boolean testConcurrentStockEdits() throws Exception {
+        LOGGER.info("--- Concurrent stock edits ---");
+        int before = stock();
+        List<Callable<ReservationResult>> tasks = new ArrayList<>();
+        for (int i = 0; i < STOCK_EDITS; i++) {
+            tasks.add(() -> {
+                while (true) {
+                    int current = materialDAO.findById(materialId).getStockQuantity();
+                    int result = materialDAO.updateStock(materialId, current, current + 1);
+                    if (result != 0) {
+                        return result > 0 ? ReservationResult.OK : ReservationResult.FAILED;
+                    }
+                }
+            });
+        }
+        Map<ReservationResult, Integer> counts = runTogether(tasks);
+        LOGGER.info("Results: " + counts);
+
+        boolean passed = check(counts.getOrDefault(ReservationResult.OK, 0) == STOCK_EDITS, "every edit was applied");
+        passed &= check(stock() == before + STOCK_EDITS, "no increment was lost");
+        passed &= checkInvariants(before + STOCK_EDITS);
+        return passed;
+    }
+
+    private boolean checkInvariants(int expectedStock) throws SQLException {
+        int stock = stock();
+        int reserved = reserved();
+        int assigned = queryInt("SELECT COALESCE(SUM(jm.quantity_used), 0) FROM JobMaterial jm "
+            + "JOIN Job j ON j.job_id = jm.job_id WHERE jm.material_id = ? AND j.status <> 'Completed'", materialId);
+        LOGGER.info(String.format("Stock %d, reserved %d, assigned to open jobs %d", stock, reserved, assigned));
+
+        boolean passed = check(stock == expectedStock, "stock on hand unchanged by reservations");
+        passed &= check(reserved == assigned, "reserved quantity matches the job assignments");
+        passed &= check(reserved <= stock, "no more reserved than on hand");
+        return passed;
+    }
+
+    /**
+     * Run the tasks on the pool, released together so they overlap
+     */
+    private Map<ReservationResult, Integer> runTogether(List<Callable<ReservationResult>> tasks) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ReservationResult>> futures = new ArrayList<>();
+        for (Callable<ReservationResult> task : tasks) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        start.countDown();
+
+        Map<ReservationResult, Integer> counts = new EnumMap<>(ReservationResult.class);
+        for (Future<ReservationResult> future : futures) {
+            counts.merge(future.get(60, TimeUnit.SECONDS), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private int stock() throws SQLException {
+        return queryInt("SELECT stock_quantity FROM Material WHERE material_id = ?", materialId);
+    }
+
+    private int reserved() throws SQLException {
+        return queryInt("SELECT reserved_quantity FROM Material WHERE material_id = ?", materialId);
+    }
+
+    private static int queryInt(String sql, int id) throws SQLException {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    private static boolean check(boolean condition, String description) {
+        if (condition) {
+            LOGGER.info("✓ " + description);
+        } else {
+            LOGGER.severe("✗ " + description);
+        }
+        return condition;
+    }
+
+    private void tearDown() {
+        pool.shutdownNow();
+        try (Connection conn = DBConnection.getConnection()) {
+            if (materialId != null) {
+                execute(conn, "DELETE FROM JobMaterial WHERE material_id = ?", materialId);
+            }
+            for (Integer jobId : jobIds) {
+                execute(conn, "DELETE FROM Job WHERE job_id = ?", jobId);
+            }
+            if (materialId != null) {
+                execute(conn, "DELETE FROM Material WHERE material_id = ?", materialId);
+            }
+            if (customerId != null) {
+                execute(conn, "DELETE FROM Customer WHERE customer_id = ?", customerId);
+            }
+            LOGGER.info("Removed test data");
+        } catch (SQLException e) {
+            LOGGER.warning("Could not remove test data: " + e.getMessage());
+        }
+    }
+
+    private static void execute(Connection conn, String sql, int id) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, id);
+            stmt.executeUpdate();
+        }
+    }
+}
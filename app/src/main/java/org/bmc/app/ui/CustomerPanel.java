@@ -1,13 +1,20 @@
 package org.bmc.app.ui;
 
+import org.bmc.app.dao.ChangeSet;
 import org.bmc.app.dao.CustomerDAO;
+import org.bmc.app.dao.DataChangeNotifier.Entity;
+import org.bmc.app.dao.ExportDAO;
+import org.bmc.app.dao.JobDAO;
 import org.bmc.app.model.Customer;
+import org.bmc.app.ui.EntityTableModel.Column;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.sql.Timestamp;
+import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -19,14 +26,18 @@ public class CustomerPanel extends JPanel {
     
     private CustomerDAO customerDAO;
     private JTable customerTable;
-    private DefaultTableModel tableModel;
+    private EntityTableModel<Customer> tableModel;
     private JTextField searchField;
-    private JButton addButton, editButton, deleteButton, refreshButton;
+    private IncrementalSearchSupport<Customer> search;
+    private JButton addButton, editButton, deleteButton, refreshButton, exportPhotosButton;
+    private Timestamp lastSync; // server time of the last delta, null forces a full reload
+    private RefreshPolicy refreshPolicy;
     
     public CustomerPanel() {
         this.customerDAO = new CustomerDAO();
         initializePanel();
-        loadCustomerData();
+        refreshPolicy = new RefreshPolicy("customer data", this, this::fetchCustomerData, Entity.CUSTOMER);
+        refreshPolicy.refresh();
     }
     
     private void initializePanel() {
@@ -53,11 +64,11 @@ public class CustomerPanel extends JPanel {
         // Search functionality
         toolbar.add(new JLabel("Search:"));
         searchField = new JTextField(20);
-        searchField.addActionListener(e -> performSearch());
+        searchField.setToolTipText("Type to filter by company, contact, phone, email or address");
         toolbar.add(searchField);
         
         JButton searchButton = new JButton("Search");
-        searchButton.addActionListener(e -> performSearch());
+        searchButton.addActionListener(e -> searchField.postActionEvent());
         toolbar.add(searchButton);
         
         toolbar.add(new JSeparator(SwingConstants.VERTICAL));
@@ -81,97 +92,82 @@ public class CustomerPanel extends JPanel {
         refreshButton.addActionListener(e -> refreshData());
         toolbar.add(refreshButton);
         
+        JButton exportButton = new JButton("Export...");
+        exportButton.addActionListener(e -> ExportSupport.exportDataset(this, ExportDAO.Dataset.CUSTOMERS));
+        toolbar.add(exportButton);
+        
+        exportPhotosButton = new JButton("Export Photos...");
+        exportPhotosButton.addActionListener(e -> exportPhotos());
+        exportPhotosButton.setEnabled(false);
+        toolbar.add(exportPhotosButton);
+        
         return toolbar;
     }
     
     private void createTable() {
-        String[] columnNames = {"ID", "Company Name", "Contact Name", "Phone", "Email", "Address"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table read-only
-            }
-        };
+        tableModel = new EntityTableModel<>(Customer::getCustomerId, Arrays.asList(
+            Column.of("ID", Integer.class, Customer::getCustomerId, 50),
+            Column.of("Company Name", String.class, Customer::getName, 200),
+            Column.of("Contact Name", String.class, Customer::getContactName, 150),
+            Column.of("Phone", String.class, Customer::getPhone, 120),
+            Column.of("Email", String.class, Customer::getEmail, 180),
+            Column.of("Address", String.class, Customer::getAddress, 250)
+        ));
         
         customerTable = new JTable(tableModel);
-        customerTable.setAutoCreateRowSorter(true);
+        TableRowSorter<EntityTableModel<Customer>> sorter = new TableRowSorter<>(tableModel);
+        customerTable.setRowSorter(sorter);
         customerTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         customerTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
                 boolean hasSelection = customerTable.getSelectedRow() != -1;
                 editButton.setEnabled(hasSelection);
                 deleteButton.setEnabled(hasSelection);
+                exportPhotosButton.setEnabled(hasSelection);
             }
         });
+        tableModel.configure(customerTable);
         
-        // Set column widths
-        customerTable.getColumnModel().getColumn(0).setPreferredWidth(50);  // ID
-        customerTable.getColumnModel().getColumn(1).setPreferredWidth(200); // Company
-        customerTable.getColumnModel().getColumn(2).setPreferredWidth(150); // Contact
-        customerTable.getColumnModel().getColumn(3).setPreferredWidth(120); // Phone
-        customerTable.getColumnModel().getColumn(4).setPreferredWidth(180); // Email
-        customerTable.getColumnModel().getColumn(5).setPreferredWidth(250); // Address
+        search = new IncrementalSearchSupport<>(searchField, tableModel, sorter, Arrays.asList(
+            Customer::getName, Customer::getContactName, Customer::getPhone,
+            Customer::getEmail, Customer::getAddress
+        )).withServerSearch(customerDAO::searchByName);
     }
     
     private JPanel createInfoPanel() {
         JPanel infoPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         infoPanel.setBorder(BorderFactory.createEtchedBorder());
         
-        JLabel infoLabel = new JLabel("Select a customer to edit or delete. Use search to find specific customers.");
+        JLabel infoLabel = new JLabel("Select a customer to edit or delete. Type in the search box to filter customers.");
         infoPanel.add(infoLabel);
         
         return infoPanel;
     }
     
-    private void loadCustomerData() {
-        try {
+    /**
+     * Fetch only the rows changed since the last sync, on a background thread,
+     * and return the step that merges them into the table. Falls back to a
+     * full reload if change tracking is unavailable.
+     */
+    private Runnable fetchCustomerData() {
+        ChangeSet<Customer> changes = customerDAO.findChangedSince(lastSync);
+        if (changes == null) {
             List<Customer> customers = customerDAO.findAll();
-            populateTable(customers);
-            logger.info("Loaded " + customers.size() + " customers into table");
-        } catch (Exception e) {
-            logger.severe("Error loading customer data: " + e.getMessage());
-            JOptionPane.showMessageDialog(this, 
-                "Error loading customer data: " + e.getMessage(),
-                "Database Error", 
-                JOptionPane.ERROR_MESSAGE);
-        }
-    }
-    
-    private void populateTable(List<Customer> customers) {
-        tableModel.setRowCount(0); // Clear existing data
-        
-        for (Customer customer : customers) {
-            Object[] row = {
-                customer.getCustomerId(),
-                customer.getName(),
-                customer.getContactName(),
-                customer.getPhone(),
-                customer.getEmail(),
-                customer.getAddress()
+            return () -> {
+                populateTable(customers);
+                lastSync = null;
+                logger.info("Loaded " + customers.size() + " customers into table");
             };
-            tableModel.addRow(row);
         }
+        return () -> {
+            int touched = tableModel.applyChanges(changes);
+            lastSync = changes.getWatermark();
+            logger.fine("Customer sync " + changes + " touched " + touched + " rows");
+        };
     }
     
-    private void performSearch() {
-        String searchTerm = searchField.getText().trim();
-        
-        if (searchTerm.isEmpty()) {
-            loadCustomerData(); // Show all customers
-            return;
-        }
-        
-        try {
-            List<Customer> results = customerDAO.searchByName(searchTerm);
-            populateTable(results);
-            logger.info("Search for '" + searchTerm + "' returned " + results.size() + " results");
-        } catch (Exception e) {
-            logger.severe("Error searching customers: " + e.getMessage());
-            JOptionPane.showMessageDialog(this,
-                "Error searching customers: " + e.getMessage(),
-                "Search Error",
-                JOptionPane.ERROR_MESSAGE);
-        }
+    private void populateTable(List<Customer> customers) {
+        tableModel.replaceAll(customers);
     }
     
     private void addCustomer() {
@@ -186,7 +182,7 @@ public class CustomerPanel extends JPanel {
         int selectedRow = customerTable.getSelectedRow();
         if (selectedRow == -1) return;
         
-        Integer customerId = (Integer) tableModel.getValueAt(selectedRow, 0);
+        Integer customerId = tableModel.getRow(customerTable.convertRowIndexToModel(selectedRow)).getCustomerId();
         try {
             Customer customer = customerDAO.findById(customerId);
             CustomerDialog dialog = new CustomerDialog((Frame) SwingUtilities.getWindowAncestor(this), customer);
@@ -205,8 +201,9 @@ public class CustomerPanel extends JPanel {
         int selectedRow = customerTable.getSelectedRow();
         if (selectedRow == -1) return;
         
-        Integer customerId = (Integer) tableModel.getValueAt(selectedRow, 0);
-        String companyName = (String) tableModel.getValueAt(selectedRow, 1);
+        Customer customer = tableModel.getRow(customerTable.convertRowIndexToModel(selectedRow));
+        Integer customerId = customer.getCustomerId();
+        String companyName = customer.getName();
         
         int choice = JOptionPane.showConfirmDialog(this,
             "Are you sure you want to delete customer:\n" + companyName + " (ID: " + customerId + ")?",
@@ -232,8 +229,28 @@ public class CustomerPanel extends JPanel {
         }
     }
     
+    /**
+     * Export the photos of every job for the selected customer
+     */
+    private void exportPhotos() {
+        Customer customer = tableModel.getSelected(customerTable);
+        if (customer == null) return;
+        
+        Integer customerId = customer.getCustomerId();
+        String baseName = customer.getName().trim().replaceAll("[^A-Za-z0-9]+", "_") + "_photos";
+        ExportSupport.exportPhotos(this, customer.getName(), baseName,
+            () -> new JobDAO().findByCustomer(customerId));
+    }
+    
     public void refreshData() {
-        loadCustomerData();
         searchField.setText(""); // Clear search field
+        refreshPolicy.refresh();
+    }
+    
+    /**
+     * Tracks when this panel's data needs reloading
+     */
+    public RefreshPolicy getRefreshPolicy() {
+        return refreshPolicy;
     }
 }
\ No newline at end of file
@@ -0,0 +1,158 @@
+package org.bmc.app.ui;
+
+import org.bmc.app.service.DashboardAggregator;
+import org.bmc.app.service.DashboardAggregator.Snapshot;
+
+import javax.swing.*;
+import java.awt.*;
+import java.text.NumberFormat;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.TextStyle;
+import java.util.Locale;
+
+/**
+ * At-a-glance view of the shop: jobs due soon and overdue, materials at or
+ * below their reorder level, unpaid invoices, and this month's invoiced
+ * revenue and logged labor hours.
+ *
+ * The figures are pushed by {@link DashboardAggregator}, which keeps them
+ * current in the background, so showing this tab never queries the database.
+ */
+public class DashboardPanel extends JPanel {
+
+    private static final String UNAVAILABLE = "n/a"; // shown instead of a figure that could not be read
+    private static final Color ALERT_COLOR = new Color(180, 30, 30);
+    private static final DateTimeFormatter TIME_FORMATTER =
+        DateTimeFormatter.ofPattern("HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private final DashboardAggregator aggregator = DashboardAggregator.getInstance();
+    private final NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.US);
+    private final NumberFormat hoursFormat = NumberFormat.getNumberInstance(Locale.US);
+
+    private KpiCard dueSoonCard;
+    private KpiCard overdueCard;
+    private KpiCard lowStockCard;
+    private KpiCard receivablesCard;
+    private KpiCard revenueCard;
+    private KpiCard laborCard;
+    private JLabel updatedLabel;
+
+    public DashboardPanel() {
+        hoursFormat.setMaximumFractionDigits(1);
+        initializeComponents();
+
+        aggregator.addListener(this::showSnapshot);
+        Snapshot current = aggregator.getSnapshot();
+        if (current != null) {
+            showSnapshot(current);
+        }
+    }
+
+    private void initializeComponents() {
+        setLayout(new BorderLayout(10, 10));
+        setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
+
+        JLabel titleLabel = new JLabel("Dashboard");
+        titleLabel.setFont(new Font("Arial", Font.BOLD, 18));
+        add(titleLabel, BorderLayout.NORTH);
+
+        JPanel cards = new JPanel(new GridLayout(2, 3, 15, 15));
+        dueSoonCard = new KpiCard("Jobs Due Soon");
+        overdueCard = new KpiCard("Overdue Jobs");
+        lowStockCard = new KpiCard("Low Stock Materials");
+        receivablesCard = new KpiCard("Outstanding Receivables");
+        revenueCard = new KpiCard("Revenue This Month");
+        laborCard = new KpiCard("Labor Hours This Month");
+        cards.add(dueSoonCard);
+        cards.add(overdueCard);
+        cards.add(lowStockCard);
+        cards.add(receivablesCard);
+        cards.add(revenueCard);
+        cards.add(laborCard);
+
+        // Keep cards at a readable size instead of stretching over the whole tab
+        JPanel cardsHolder = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        cardsHolder.add(cards);
+        add(cardsHolder, BorderLayout.CENTER);
+
+        JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        updatedLabel = new JLabel("Calculating...");
+        updatedLabel.setFont(new Font("Arial", Font.ITALIC, 11));
+        JButton refreshButton = new JButton("Refresh");
+        refreshButton.addActionListener(e -> aggregator.refreshNow());
+        bottomPanel.add(refreshButton);
+        bottomPanel.add(updatedLabel);
+        add(bottomPanel, BorderLayout.SOUTH);
+    }
+
+    private void showSnapshot(Snapshot snapshot) {
+        if (snapshot.isJobsAvailable()) {
+            dueSoonCard.setFigure(String.valueOf(snapshot.getJobsDueSoon()),
+                                  "Open, due in the next " + snapshot.getDueSoonDays() + " days", false);
+            overdueCard.setFigure(String.valueOf(snapshot.getJobsOverdue()), "Open, past due date",
+                                  snapshot.getJobsOverdue() > 0);
+        } else {
+            dueSoonCard.setFigure(UNAVAILABLE, "Jobs could not be read", true);
+            overdueCard.setFigure(UNAVAILABLE, "Jobs could not be read", true);
+        }
+        if (snapshot.isMaterialsAvailable()) {
+            lowStockCard.setFigure(String.valueOf(snapshot.getLowStockCount()), "At or below reorder level",
+                                   snapshot.getLowStockCount() > 0);
+        } else {
+            lowStockCard.setFigure(UNAVAILABLE, "Materials could not be read", true);
+        }
+
+        String monthName = snapshot.getMonth().getMonth().getDisplayName(TextStyle.FULL, Locale.US) + " " +
+                           snapshot.getMonth().getYear();
+        if (snapshot.isInvoicesAvailable()) {
+            receivablesCard.setFigure(currencyFormat.format(snapshot.getReceivables()), "Unpaid invoices", false);
+            revenueCard.setFigure(currencyFormat.format(snapshot.getMonthRevenue()), "Invoiced in " + monthName, false);
+        } else {
+            receivablesCard.setFigure(UNAVAILABLE, "Invoices could not be read", true);
+            revenueCard.setFigure(UNAVAILABLE, "Invoices could not be read", true);
+        }
+        if (snapshot.isLaborHoursAvailable()) {
+            laborCard.setFigure(hoursFormat.format(snapshot.getMonthLaborHours()), "Logged in " + monthName, false);
+        } else {
+            laborCard.setFigure(UNAVAILABLE, "Work logs could not be read", true);
+        }
+
+        updatedLabel.setText("Updated " + TIME_FORMATTER.format(snapshot.getUpdatedAt()));
+    }
+
+    /**
+     * One figure with a caption
+     */
+    private static class KpiCard extends JPanel {
+        private final JLabel valueLabel = new JLabel("-");
+        private final JLabel detailLabel = new JLabel(" ");
+
+        KpiCard(String title) {
+            setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
+            setBackground(Color.WHITE);
+            setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(Color.GRAY),
+                BorderFactory.createEmptyBorder(12, 15, 12, 15)));
+            setPreferredSize(new Dimension(240, 120));
+
+            JLabel titleLabel = new JLabel(title);
+            titleLabel.setFont(new Font("Arial", Font.BOLD, 13));
+            valueLabel.setFont(new Font("Arial", Font.BOLD, 30));
+            detailLabel.setFont(new Font("Arial", Font.PLAIN, 11));
+            detailLabel.setForeground(Color.DARK_GRAY);
+
+            add(titleLabel);
+            add(Box.createVerticalStrut(8));
+            add(valueLabel);
+            add(Box.createVerticalStrut(4));
+            add(detailLabel);
+        }
+
+        void setFigure(String value, String detail, boolean alert) {
+            valueLabel.setText(value);
+            valueLabel.setForeground(alert ? ALERT_COLOR : Color.BLACK);
+            detailLabel.setText(detail);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package org.bmc.app.ui;
+
+import org.bmc.app.util.EdtWatchdog;
+import org.bmc.app.util.EdtWatchdog.HotSpot;
+import org.bmc.app.util.PhotoStorageUtil;
+import org.bmc.app.util.ThumbnailCache;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Non-modal window showing application health: how long Event Dispatch
+ * Thread events take, where the UI stalled, and how well the photo
+ * thumbnail cache is working. Updates once a second.
+ */
+public class DiagnosticsDialog extends JDialog {
+
+    private final EdtWatchdog watchdog = EdtWatchdog.getInstance();
+    private final Timer refreshTimer;
+
+    private JLabel summaryLabel;
+    private DefaultTableModel histogramModel;
+    private DefaultTableModel hotSpotModel;
+    private JTable hotSpotTable;
+    private JTextArea stackArea;
+    private List<HotSpot> hotSpots;
+    private long shownStallCount = -1;
+    private DefaultTableModel cacheModel;
+
+    public DiagnosticsDialog(Frame parent) {
+        super(parent, "Diagnostics", false);
+        initializeDialog();
+        refreshTimer = new Timer(1000, e -> refreshStats());
+        refreshStats();
+        refreshTimer.start();
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                refreshTimer.stop();
+            }
+        });
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        setLocationRelativeTo(parent);
+    }
+
+    private void initializeDialog() {
+        setLayout(new BorderLayout());
+        setSize(900, 600);
+
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("UI Responsiveness", createResponsivenessTab());
+        tabs.addTab("Photo Cache", createPhotoCacheTab());
+        add(tabs, BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        JButton resetButton = new JButton("Reset");
+        resetButton.setEnabled(watchdog != null);
+        resetButton.addActionListener(e -> {
+            watchdog.reset();
+            shownStallCount = -1;
+            refreshStats();
+        });
+        buttonPanel.add(resetButton);
+
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dispose());
+        buttonPanel.add(closeButton);
+        add(buttonPanel, BorderLayout.SOUTH);
+    }
+
+    private JPanel createResponsivenessTab() {
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+
+        summaryLabel = new JLabel();
+        panel.add(summaryLabel, BorderLayout.NORTH);
+
+        // Latency histogram
+        histogramModel = new DefaultTableModel(new String[]{"Event Time", "Events", "Share"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable histogramTable = new JTable(histogramModel);
+        JScrollPane histogramScroll = new JScrollPane(histogramTable);
+        histogramScroll.setBorder(BorderFactory.createTitledBorder("Latency"));
+        histogramScroll.setPreferredSize(new Dimension(260, 200));
+
+        // Hot spots by call site
+        hotSpotModel = new DefaultTableModel(new String[]{"Call Site", "Stalls", "Total (ms)", "Max (ms)"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+
+            @Override
+            public Class<?> getColumnClass(int column) {
+                return column == 0 ? String.class : Long.class;
+            }
+        };
+        hotSpotTable = new JTable(hotSpotModel);
+        hotSpotTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        hotSpotTable.getColumnModel().getColumn(0).setPreferredWidth(400);
+        hotSpotTable.getSelectionModel().addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                showSelectedStack();
+            }
+        });
+        JScrollPane hotSpotScroll = new JScrollPane(hotSpotTable);
+        hotSpotScroll.setBorder(BorderFactory.createTitledBorder("Stalls by Call Site"));
+
+        JSplitPane tables = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, histogramScroll, hotSpotScroll);
+        tables.setResizeWeight(0.25);
+
+        stackArea = new JTextArea();
+        stackArea.setEditable(false);
+        stackArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 11));
+        JScrollPane stackScroll = new JScrollPane(stackArea);
+        stackScroll.setBorder(BorderFactory.createTitledBorder("Slowest Stall Stack"));
+
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, tables, stackScroll);
+        split.setResizeWeight(0.5);
+        panel.add(split, BorderLayout.CENTER);
+        return panel;
+    }
+
+    private JPanel createPhotoCacheTab() {
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+
+        cacheModel = new DefaultTableModel(new String[]{"Measure", "Value"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable cacheTable = new JTable(cacheModel);
+        cacheTable.getColumnModel().getColumn(0).setPreferredWidth(250);
+        cacheTable.getColumnModel().getColumn(1).setPreferredWidth(400);
+        panel.add(new JScrollPane(cacheTable), BorderLayout.CENTER);
+
+        JPanel actions = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JButton clearButton = new JButton("Clear Memory Cache");
+        clearButton.addActionListener(e -> {
+            ThumbnailCache.getInstance().clearMemory();
+            refreshCacheStats();
+        });
+        actions.add(clearButton);
+        panel.add(actions, BorderLayout.SOUTH);
+        return panel;
+    }
+
+    private void refreshCacheStats() {
+        ThumbnailCache.Stats stats = ThumbnailCache.getInstance().getStats();
+        long requests = stats.getRequests();
+        cacheModel.setRowCount(0);
+        cacheModel.addRow(new Object[]{"Requests", String.format("%,d", requests)});
+        cacheModel.addRow(new Object[]{"Memory hits", countAndShare(stats.getMemoryHits(), requests)});
+        cacheModel.addRow(new Object[]{"Disk hits", countAndShare(stats.getDiskHits(), requests)});
+        cacheModel.addRow(new Object[]{"Misses (decoded from photo)", countAndShare(stats.getMisses(), requests)});
+        cacheModel.addRow(new Object[]{"Average decode on miss", stats.getMisses() > 0
+            ? (stats.getDecodeMillis() / stats.getMisses()) + " ms" : "-"});
+        cacheModel.addRow(new Object[]{"Memory used", String.format("%s of %s, %,d images",
+            PhotoStorageUtil.formatFileSize(stats.getMemoryBytes()),
+            PhotoStorageUtil.formatFileSize(stats.getMemoryBudget()), stats.getMemoryEntries())});
+        cacheModel.addRow(new Object[]{"Evicted to stay in budget", String.format("%,d", stats.getEvictions())});
+        cacheModel.addRow(new Object[]{"Reclaimed by garbage collector", String.format("%,d", stats.getCollected())});
+        cacheModel.addRow(new Object[]{"Disk used", (stats.getDiskBytes() >= 0
+            ? PhotoStorageUtil.formatFileSize(stats.getDiskBytes()) : "not scanned yet") +
+            " of " + PhotoStorageUtil.formatFileSize(stats.getDiskBudget())});
+    }
+
+    private static String countAndShare(long count, long total) {
+        return total > 0 ? String.format("%,d (%.1f%%)", count, 100.0 * count / total) : String.format("%,d", count);
+    }
+
+    private void refreshStats() {
+        refreshCacheStats();
+        if (watchdog == null) {
+            summaryLabel.setText("EDT watchdog is disabled (diagnostics.edtWatchdog.enabled=false)");
+            return;
+        }
+        EdtWatchdog.Stats stats = watchdog.getStats();
+
+        summaryLabel.setText(String.format(
+            "<html>Since %s: <b>%,d</b> events, <b>%,d</b> stalls over %d ms, slowest %,d ms.<br>Stall log: %s</html>",
+            new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(stats.getSinceMillis())),
+            stats.getEventCount(), stats.getStallCount(), stats.getThresholdMillis(), stats.getMaxMillis(),
+            watchdog.getLogFile().toAbsolutePath()));
+
+        long[] histogram = stats.getHistogram();
+        histogramModel.setRowCount(0);
+        long lower = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            String range = i < EdtWatchdog.BUCKET_LIMITS.length
+                ? lower + " - " + EdtWatchdog.BUCKET_LIMITS[i] + " ms"
+                : "≥ " + lower + " ms";
+            double share = stats.getEventCount() > 0 ? 100.0 * histogram[i] / stats.getEventCount() : 0;
+            histogramModel.addRow(new Object[]{range, histogram[i], String.format("%.1f%%", share)});
+            if (i < EdtWatchdog.BUCKET_LIMITS.length) {
+                lower = EdtWatchdog.BUCKET_LIMITS[i];
+            }
+        }
+
+        // Rebuilding the table would reset the stack view, so only do it when stalls were added
+        if (stats.getStallCount() == shownStallCount) {
+            return;
+        }
+        shownStallCount = stats.getStallCount();
+        String selected = selectedCallSite();
+        hotSpots = stats.getHotSpots();
+        hotSpotModel.setRowCount(0);
+        for (HotSpot spot : hotSpots) {
+            hotSpotModel.addRow(new Object[]{spot.getCallSite(), spot.getCount(), spot.getTotalMillis(),
+                                             spot.getMaxMillis()});
+        }
+        for (int i = 0; i < hotSpots.size(); i++) {
+            if (hotSpots.get(i).getCallSite().equals(selected)) {
+                int viewRow = hotSpotTable.convertRowIndexToView(i);
+                hotSpotTable.getSelectionModel().setSelectionInterval(viewRow, viewRow);
+            }
+        }
+    }
+
+    private String selectedCallSite() {
+        int row = hotSpotTable.getSelectedRow();
+        return row == -1 || hotSpots == null ? null : hotSpots.get(hotSpotTable.convertRowIndexToModel(row)).getCallSite();
+    }
+
+    private void showSelectedStack() {
+        int row = hotSpotTable.getSelectedRow();
+        if (row == -1 || hotSpots == null) {
+            stackArea.setText("");
+            return;
+        }
+        HotSpot spot = hotSpots.get(hotSpotTable.convertRowIndexToModel(row));
+        StringBuilder text = new StringBuilder();
+        text.append(spot.getCallSite()).append(" - slowest ").append(spot.getMaxMillis()).append(" ms\n");
+        for (StackTraceElement frame : spot.getSlowestStack()) {
+            text.append("    at ").append(frame).append('\n');
+        }
+        stackArea.setText(text.toString());
+        stackArea.setCaretPosition(0);
+    }
+}
@@ -3,6 +3,8 @@ package org.bmc.app.ui;
 import java.awt.BorderLayout;
 import java.awt.FlowLayout;
 import java.awt.Frame;
+import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -15,12 +17,16 @@ import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JSeparator;
 import javax.swing.JTable;
+import javax.swing.JTextField;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingConstants;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableRowSorter;
 
+import org.bmc.app.dao.DataChangeNotifier.Entity;
 import org.bmc.app.dao.EmployeeDAO;
+import org.bmc.app.dao.ExportDAO;
 import org.bmc.app.model.Employee;
+import org.bmc.app.ui.EntityTableModel.Column;
 
 /**
  * Panel for managing employee data with table view and basic operations.
@@ -30,14 +36,18 @@ public class EmployeePanel extends JPanel {
     
     private EmployeeDAO employeeDAO;
     private JTable employeeTable;
-    private DefaultTableModel tableModel;
+    private EntityTableModel<Employee> tableModel;
     private JComboBox<String> roleFilter;
+    private JTextField searchField;
+    private IncrementalSearchSupport<Employee> search;
     private JButton addButton, editButton, deleteButton, refreshButton;
+    private RefreshPolicy refreshPolicy;
     
     public EmployeePanel() {
         this.employeeDAO = new EmployeeDAO();
         initializePanel();
-        loadEmployeeData();
+        refreshPolicy = new RefreshPolicy("employee data", this, this::fetchEmployeeData, Entity.EMPLOYEE);
+        refreshPolicy.refresh();
     }
     
     private void initializePanel() {
@@ -61,6 +71,12 @@ public class EmployeePanel extends JPanel {
     private JPanel createToolbar() {
         JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.LEFT));
         
+        // Search functionality
+        toolbar.add(new JLabel("Search:"));
+        searchField = new JTextField(15);
+        searchField.setToolTipText("Type to filter by name, specialization or contact info");
+        toolbar.add(searchField);
+        
         // Role filter
         toolbar.add(new JLabel("Filter by Role:"));
         String[] roles = {"All", "manager", "restorer", "fabricator", "consultant"};
@@ -89,20 +105,28 @@ public class EmployeePanel extends JPanel {
         refreshButton.addActionListener(e -> refreshData());
         toolbar.add(refreshButton);
         
+        JButton exportButton = new JButton("Export...");
+        exportButton.addActionListener(e -> ExportSupport.exportDataset(this, ExportDAO.Dataset.EMPLOYEES));
+        toolbar.add(exportButton);
+        
         return toolbar;
     }
     
     private void createTable() {
-        String[] columnNames = {"ID", "Name", "Role", "Specialization", "Contact Info", "Hourly Rate"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table read-only
-            }
-        };
+        tableModel = new EntityTableModel<>(Employee::getEmployeeId, Arrays.asList(
+            Column.of("ID", Integer.class, Employee::getEmployeeId, 50),
+            Column.of("Name", String.class, Employee::getName, 150),
+            Column.of("Role", Employee.Role.class, Employee::getRole, 100),
+            Column.of("Specialization", String.class, Employee::getSpecialization, 150),
+            Column.of("Contact Info", String.class, Employee::getContactInfo, 200),
+            Column.of("Hourly Rate", BigDecimal.class,
+                (Employee employee) -> employee.getHourlyRate() != null ? employee.getHourlyRate() : BigDecimal.ZERO, 100)
+                .renderedBy(TableRenderers.currency())
+        ));
         
         employeeTable = new JTable(tableModel);
-        employeeTable.setAutoCreateRowSorter(true);
+        TableRowSorter<EntityTableModel<Employee>> sorter = new TableRowSorter<>(tableModel);
+        employeeTable.setRowSorter(sorter);
         employeeTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         employeeTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
@@ -111,81 +135,52 @@ public class EmployeePanel extends JPanel {
                 deleteButton.setEnabled(hasSelection);
             }
         });
+        tableModel.configure(employeeTable);
         
-        // Set column widths
-        employeeTable.getColumnModel().getColumn(0).setPreferredWidth(50);  // ID
-        employeeTable.getColumnModel().getColumn(1).setPreferredWidth(150); // Name
-        employeeTable.getColumnModel().getColumn(2).setPreferredWidth(100); // Role
-        employeeTable.getColumnModel().getColumn(3).setPreferredWidth(150); // Specialization
-        employeeTable.getColumnModel().getColumn(4).setPreferredWidth(200); // Contact Info
-        employeeTable.getColumnModel().getColumn(5).setPreferredWidth(100); // Hourly Rate
+        search = new IncrementalSearchSupport<>(searchField, tableModel, sorter, Arrays.asList(
+            Employee::getName, Employee::getSpecialization, Employee::getContactInfo
+        )).withServerSearch(employeeDAO::searchByName);
     }
     
     private JPanel createInfoPanel() {
         JPanel infoPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         infoPanel.setBorder(BorderFactory.createEtchedBorder());
         
-        JLabel infoLabel = new JLabel("Select an employee to edit or delete. Use role filter to narrow results.");
+        JLabel infoLabel = new JLabel("Select an employee to edit or delete. Use search or the role filter to narrow results.");
         infoPanel.add(infoLabel);
         
         return infoPanel;
     }
     
-    private void loadEmployeeData() {
-        try {
-            List<Employee> employees = employeeDAO.findAll();
+    /**
+     * Load all employees on a background thread and return the step that shows them
+     */
+    private Runnable fetchEmployeeData() {
+        List<Employee> employees = employeeDAO.findAll();
+        return () -> {
             populateTable(employees);
             logger.info("Loaded " + employees.size() + " employees into table");
-        } catch (Exception e) {
-            logger.severe("Error loading employee data: " + e.getMessage());
-            JOptionPane.showMessageDialog(this, 
-                "Error loading employee data: " + e.getMessage(),
-                "Database Error", 
-                JOptionPane.ERROR_MESSAGE);
-        }
+        };
     }
     
     private void populateTable(List<Employee> employees) {
-        tableModel.setRowCount(0); // Clear existing data
-        
-        for (Employee employee : employees) {
-            Object[] row = {
-                employee.getEmployeeId(),
-                employee.getName(),
-                employee.getRole(),
-                employee.getSpecialization(),
-                employee.getContactInfo(),
-                employee.getHourlyRate() != null ? String.format("$%.2f", employee.getHourlyRate()) : "$0.00"
-            };
-            tableModel.addRow(row);
-        }
+        tableModel.replaceAll(employees);
     }
     
     private void filterByRole() {
         String selectedRole = (String) roleFilter.getSelectedItem();
         
+        // Filter the loaded rows in place so search and refresh see every employee
         if ("All".equals(selectedRole)) {
-            loadEmployeeData();
-            return;
-        }
-        
-        try {
+            search.setBaseFilter(null);
+        } else {
             Employee.Role role = Employee.Role.fromString(selectedRole);
-            if (role != null) {
-                List<Employee> results = employeeDAO.findByRole(role);
-                populateTable(results);
-                logger.info("Filter by role '" + selectedRole + "' returned " + results.size() + " results");
-            } else {
+            if (role == null) {
                 logger.warning("Invalid role selected: " + selectedRole);
-                loadEmployeeData(); // Fallback to showing all
             }
-        } catch (Exception e) {
-            logger.severe("Error filtering employees: " + e.getMessage());
-            JOptionPane.showMessageDialog(this,
-                "Error filtering employees: " + e.getMessage(),
-                "Filter Error",
-                JOptionPane.ERROR_MESSAGE);
+            search.setBaseFilter(role == null ? null : employee -> employee.getRole() == role);
         }
+        logger.info("Filter by role '" + selectedRole + "' shows " + employeeTable.getRowCount() + " results");
     }
     
     private void addEmployee() {
@@ -200,7 +195,7 @@ public class EmployeePanel extends JPanel {
         int selectedRow = employeeTable.getSelectedRow();
         if (selectedRow == -1) return;
         
-        Integer employeeId = (Integer) tableModel.getValueAt(selectedRow, 0);
+        Integer employeeId = tableModel.getRow(employeeTable.convertRowIndexToModel(selectedRow)).getEmployeeId();
         try {
             Employee employee = employeeDAO.findById(employeeId);
             EmployeeDialog dialog = new EmployeeDialog((Frame) javax.swing.SwingUtilities.getWindowAncestor(this), employee);
@@ -219,8 +214,9 @@ public class EmployeePanel extends JPanel {
         int selectedRow = employeeTable.getSelectedRow();
         if (selectedRow == -1) return;
         
-        Integer employeeId = (Integer) tableModel.getValueAt(selectedRow, 0);
-        String name = (String) tableModel.getValueAt(selectedRow, 1);
+        Employee employee = tableModel.getRow(employeeTable.convertRowIndexToModel(selectedRow));
+        Integer employeeId = employee.getEmployeeId();
+        String name = employee.getName();
         
         int choice = JOptionPane.showConfirmDialog(this,
             "Are you sure you want to delete employee:\n" + name + " (ID: " + employeeId + ")?",
@@ -247,7 +243,15 @@ public class EmployeePanel extends JPanel {
     }
     
     public void refreshData() {
-        loadEmployeeData();
+        searchField.setText("");
         roleFilter.setSelectedIndex(0); // Reset to "All"
+        refreshPolicy.refresh();
+    }
+    
+    /**
+     * Tracks when this panel's data needs reloading
+     */
+    public RefreshPolicy getRefreshPolicy() {
+        return refreshPolicy;
     }
 }
\ No newline at end of file
@@ -0,0 +1,359 @@
+package org.bmc.app.ui;
+
+import org.bmc.app.dao.ChangeSet;
+
+import javax.swing.JTable;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableCellRenderer;
+import javax.swing.table.TableColumn;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Read-only table model that views a list of domain objects directly.
+ *
+ * Cells are read from the entity on demand through column accessors and
+ * returned as typed values (Integer, BigDecimal, LocalDate, ...); display
+ * formatting is left to renderers (see {@link TableRenderers}), so no
+ * per-row Object[] copies or formatted strings are built on load. Rows are
+ * indexed by primary key so single-row updates, inserts and deletes fire
+ * fine-grained events instead of repainting the whole table, and a reload
+ * is diffed against the current rows by key (see {@link #replaceAll}).
+ *
+ * @param <T> entity type
+ */
+public class EntityTableModel<T> extends AbstractTableModel {
+
+    /**
+     * A column definition: header, value type, accessor and layout hints
+     *
+     * @param <T> entity type
+     */
+    public static final class Column<T> {
+        private final String name;
+        private final Class<?> type;
+        private final Function<T, ?> accessor;
+        private final int preferredWidth;
+        private final TableCellRenderer renderer;
+
+        private Column(String name, Class<?> type, Function<T, ?> accessor, int preferredWidth,
+                       TableCellRenderer renderer) {
+            this.name = name;
+            this.type = type;
+            this.accessor = accessor;
+            this.preferredWidth = preferredWidth;
+            this.renderer = renderer;
+        }
+
+        /**
+         * Create a column rendered with the table's default renderer for its type
+         */
+        public static <T, V> Column<T> of(String name, Class<V> type, Function<T, ? extends V> accessor,
+                                          int preferredWidth) {
+            return new Column<>(name, type, accessor, preferredWidth, null);
+        }
+
+        /**
+         * Copy of this column drawn with a specific renderer
+         */
+        public Column<T> renderedBy(TableCellRenderer cellRenderer) {
+            return new Column<>(name, type, accessor, preferredWidth, cellRenderer);
+        }
+    }
+
+    private final List<Column<T>> columns;
+    private final Function<T, Integer> keyOf;
+    private final List<T> rows = new ArrayList<>();
+    private final Map<Integer, Integer> indexByKey = new HashMap<>();
+    private int reloadCount;
+
+    /**
+     * @param keyOf extracts the primary key used for updates and deletes
+     * @param columns column definitions in display order
+     */
+    public EntityTableModel(Function<T, Integer> keyOf, List<Column<T>> columns) {
+        this.keyOf = keyOf;
+        this.columns = new ArrayList<>(columns);
+    }
+
+    /**
+     * Apply preferred widths and per-column renderers to a table using this model
+     */
+    public void configure(JTable table) {
+        for (int i = 0; i < columns.size(); i++) {
+            TableColumn tableColumn = table.getColumnModel().getColumn(i);
+            Column<T> column = columns.get(i);
+            if (column.preferredWidth > 0) {
+                tableColumn.setPreferredWidth(column.preferredWidth);
+            }
+            if (column.renderer != null) {
+                tableColumn.setCellRenderer(column.renderer);
+            }
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns.get(column).name;
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return columns.get(column).type;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return columns.get(column).accessor.apply(rows.get(row));
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    /**
+     * Get the entity shown in a model row
+     */
+    public T getRow(int modelRow) {
+        return rows.get(modelRow);
+    }
+
+    /**
+     * Get the entity selected in a table (view index converted to model index)
+     *
+     * @return selected entity, or null if nothing is selected
+     */
+    public T getSelected(JTable table) {
+        int viewRow = table.getSelectedRow();
+        return viewRow == -1 ? null : rows.get(table.convertRowIndexToModel(viewRow));
+    }
+
+    /**
+     * Primary key of an entity, as used by this model
+     */
+    public Integer getKey(T entity) {
+        return keyOf.apply(entity);
+    }
+
+    /**
+     * Get all entities in model order
+     */
+    public List<T> getRows() {
+        return Collections.unmodifiableList(rows);
+    }
+
+    /**
+     * Number of full reloads ({@link #setRows}, {@link #replaceAll}) so far;
+     * it changes before their events fire, so listeners can tell a reload
+     * from single-row changes
+     */
+    public int getReloadCount() {
+        return reloadCount;
+    }
+
+    /**
+     * Model row holding the entity with a primary key
+     *
+     * @return model row, or -1 if not present
+     */
+    public int indexOfKey(Integer key) {
+        Integer index = indexByKey.get(key);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Replace every row, discarding selection. Prefer {@link #replaceAll}
+     * for refreshing a table the user is looking at.
+     */
+    public void setRows(Collection<? extends T> entities) {
+        reloadCount++;
+        rows.clear();
+        rows.addAll(entities);
+        reindexFrom(0);
+        fireTableDataChanged();
+    }
+
+    /**
+     * Replace the rows with a new snapshot, firing events only for what
+     * changed: rows whose key disappeared are deleted, rows whose visible
+     * values changed are updated, and new keys are appended (the row sorter
+     * decides where they show). Contiguous rows share one event. Rows that
+     * survive keep their model index, so the table keeps its selection and
+     * scroll position, and unchanged rows are not repainted.
+     *
+     * @return number of rows inserted, updated or deleted
+     */
+    public int replaceAll(Collection<? extends T> entities) {
+        reloadCount++;
+        Map<Integer, T> incoming = new LinkedHashMap<>();
+        for (T entity : entities) {
+            incoming.put(keyOf.apply(entity), entity);
+        }
+        int touched = 0;
+
+        // Deletes, bottom up so earlier indices stay valid; each range leaves the model consistent
+        int lowestDeleted = -1;
+        int i = rows.size() - 1;
+        while (i >= 0) {
+            if (incoming.containsKey(keyOf.apply(rows.get(i)))) {
+                i--;
+                continue;
+            }
+            int last = i;
+            while (i >= 0 && !incoming.containsKey(keyOf.apply(rows.get(i)))) {
+                indexByKey.remove(keyOf.apply(rows.get(i)));
+                i--;
+            }
+            int first = i + 1;
+            rows.subList(first, last + 1).clear();
+            fireTableRowsDeleted(first, last);
+            touched += last - first + 1;
+            lowestDeleted = first;
+        }
+        if (lowestDeleted != -1) {
+            reindexFrom(lowestDeleted);
+        }
+
+        // Updates in place, one event per run of changed rows
+        int runStart = -1;
+        for (i = 0; i < rows.size(); i++) {
+            T fresh = incoming.remove(keyOf.apply(rows.get(i)));
+            T previous = rows.set(i, fresh);
+            if (!sameValues(previous, fresh)) {
+                touched++;
+                if (runStart == -1) {
+                    runStart = i;
+                }
+            } else if (runStart != -1) {
+                fireTableRowsUpdated(runStart, i - 1);
+                runStart = -1;
+            }
+        }
+        if (runStart != -1) {
+            fireTableRowsUpdated(runStart, rows.size() - 1);
+        }
+
+        // Whatever is left is new
+        if (!incoming.isEmpty()) {
+            int first = rows.size();
+            rows.addAll(incoming.values());
+            reindexFrom(first);
+            fireTableRowsInserted(first, rows.size() - 1);
+            touched += incoming.size();
+        }
+        return touched;
+    }
+
+    /**
+     * Update an entity in place, or append it if its key is new
+     *
+     * @return true if a row was inserted or a visible value changed
+     */
+    public boolean upsert(T entity) {
+        int index = indexOfKey(keyOf.apply(entity));
+        if (index == -1) {
+            rows.add(entity);
+            int row = rows.size() - 1;
+            indexByKey.put(keyOf.apply(entity), row);
+            fireTableRowsInserted(row, row);
+            return true;
+        }
+        T previous = rows.set(index, entity);
+        if (sameValues(previous, entity)) {
+            return false;
+        }
+        fireTableRowsUpdated(index, index);
+        return true;
+    }
+
+    /**
+     * Remove the entity with a primary key
+     *
+     * @return true if a row was removed
+     */
+    public boolean remove(Integer key) {
+        int index = indexOfKey(key);
+        if (index == -1) {
+            return false;
+        }
+        rows.remove(index);
+        indexByKey.remove(key);
+        reindexFrom(index);
+        fireTableRowsDeleted(index, index);
+        return true;
+    }
+
+    /**
+     * Merge a change set from a DAO findChangedSince call
+     *
+     * @return number of rows inserted, updated or deleted
+     */
+    public int applyChanges(ChangeSet<T> changes) {
+        if (changes.isFullSnapshot()) {
+            return replaceAll(changes.getChanged());
+        }
+
+        int touched = 0;
+        for (T entity : changes.getChanged()) {
+            if (upsert(entity)) {
+                touched++;
+            }
+        }
+
+        // Delete from the bottom up so earlier indices stay valid, then reindex once
+        List<Integer> deleted = new ArrayList<>();
+        for (Integer key : changes.getDeletedIds()) {
+            int index = indexOfKey(key);
+            if (index != -1) {
+                deleted.add(index);
+                indexByKey.remove(key);
+            }
+        }
+        if (!deleted.isEmpty()) {
+            deleted.sort(Collections.reverseOrder());
+            for (int index : deleted) {
+                rows.remove(index);
+                fireTableRowsDeleted(index, index);
+            }
+            reindexFrom(deleted.get(deleted.size() - 1));
+            touched += deleted.size();
+        }
+        return touched;
+    }
+
+    private boolean sameValues(T a, T b) {
+        for (Column<T> column : columns) {
+            if (!Objects.equals(column.accessor.apply(a), column.accessor.apply(b))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void reindexFrom(int start) {
+        if (start == 0) {
+            indexByKey.clear();
+        }
+        for (int i = start; i < rows.size(); i++) {
+            indexByKey.put(keyOf.apply(rows.get(i)), i);
+        }
+    }
+}
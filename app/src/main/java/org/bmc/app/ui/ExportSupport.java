@@ -0,0 +1,394 @@
+package org.bmc.app.ui;
+
+import org.bmc.app.dao.ExportDAO;
+import org.bmc.app.model.Job;
+import org.bmc.app.model.Photo;
+import org.bmc.app.service.PhotoZipExporter;
+import org.bmc.app.util.PhotoStorageUtil;
+import org.bmc.app.util.StreamingExporter;
+import org.bmc.app.util.StreamingExporter.Format;
+
+import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import java.awt.*;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Shared export actions for the entity panels and ReportsPanel.
+ *
+ * Database exports stream from a ResultSet on a background thread with a
+ * ProgressMonitor offering cancel; report exports write a report's rows with
+ * raw numbers and dates the same way. Photo exports write the photos of jobs
+ * into a ZIP file.
+ */
+public final class ExportSupport {
+    private static final Logger logger = Logger.getLogger(ExportSupport.class.getName());
+
+    private ExportSupport() {
+    }
+
+    /**
+     * Export a full dataset straight from the database
+     *
+     * @param parent component used to position dialogs
+     * @param dataset dataset to export
+     */
+    public static void exportDataset(Component parent, ExportDAO.Dataset dataset) {
+        Target target = chooseTarget(parent, dataset.getFileName(), "Export " + dataset.getLabel());
+        if (target == null) {
+            return;
+        }
+
+        ExportDAO exportDAO = new ExportDAO();
+        ProgressMonitor monitor = new ProgressMonitor(parent,
+            "Exporting " + dataset.getLabel() + " to " + target.path.getFileName(), "Counting rows...", 0, 100);
+        monitor.setMillisToDecideToPopup(200);
+        monitor.setMillisToPopup(200);
+
+        SwingWorker<Long, Void> worker = new SwingWorker<Long, Void>() {
+            private volatile long totalRows;
+            private volatile long rowsDone;
+
+            @Override
+            protected Long doInBackground() throws Exception {
+                SwingWorker<Long, Void> self = this;
+                totalRows = exportDAO.count(dataset);
+                return exportDAO.export(dataset, target.path, target.format, new StreamingExporter.ExportMonitor() {
+                    @Override
+                    public void rowsWritten(long rows) {
+                        rowsDone = rows;
+                        if (totalRows > 0) {
+                            setProgress((int) Math.min(99, rows * 100 / totalRows));
+                        }
+                    }
+
+                    @Override
+                    public boolean isCancelled() {
+                        return self.isCancelled();
+                    }
+                });
+            }
+
+            @Override
+            protected void done() {
+                monitor.close();
+                try {
+                    long rows = get();
+                    if (rows >= 0) {
+                        JOptionPane.showMessageDialog(parent,
+                            String.format("Exported %,d rows to:%n%s", rows, target.path),
+                            "Export Complete", JOptionPane.INFORMATION_MESSAGE);
+                    }
+                } catch (CancellationException e) {
+                    logger.info("Export of " + dataset.getLabel() + " cancelled after " + rowsDone + " rows");
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    logger.severe("Export of " + dataset.getLabel() + " failed: " + cause.getMessage());
+                    JOptionPane.showMessageDialog(parent,
+                        "Export failed: " + cause.getMessage(), "Export Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+
+        worker.addPropertyChangeListener(evt -> {
+            if ("progress".equals(evt.getPropertyName())) {
+                monitor.setProgress((Integer) evt.getNewValue());
+                monitor.setNote(String.format("%d%% complete", (Integer) evt.getNewValue()));
+            }
+        });
+
+        // ProgressMonitor has no cancel callback, so poll it while the export runs
+        Timer cancelPoller = new Timer(200, null);
+        cancelPoller.addActionListener(e -> {
+            if (worker.isDone()) {
+                cancelPoller.stop();
+            } else if (monitor.isCanceled()) {
+                worker.cancel(false);
+                cancelPoller.stop();
+            }
+        });
+        cancelPoller.start();
+        worker.execute();
+    }
+
+    /**
+     * Export a report's rows. The report is run (or read from its snapshot)
+     * and written on a background thread with the same progress and cancel
+     * dialog as dataset exports; the query itself cannot be interrupted, so
+     * a cancel takes effect once it returns.
+     *
+     * @param parent component used to position dialogs
+     * @param label report name, e.g. "Top Customers"
+     * @param baseName suggested file name without extension
+     * @param columns column names in row order
+     * @param rows supplies the report rows; called on a background thread
+     * @param values converts a report row to raw column values (numbers and
+     *               dates, not display text)
+     * @param <T> report row type
+     */
+    public static <T> void exportReport(Component parent, String label, String baseName, String[] columns,
+                                        Supplier<List<T>> rows, Function<T, Object[]> values) {
+        Target target = chooseTarget(parent, baseName, "Export " + label);
+        if (target == null) {
+            return;
+        }
+
+        ProgressMonitor monitor = new ProgressMonitor(parent,
+            "Exporting " + label + " to " + target.path.getFileName(), "Running report...", 0, 100);
+        monitor.setMillisToDecideToPopup(200);
+        monitor.setMillisToPopup(200);
+
+        SwingWorker<Long, Void> worker = new SwingWorker<Long, Void>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                SwingWorker<Long, Void> self = this;
+                List<T> reportRows = rows.get();
+                if (isCancelled()) {
+                    return -1L;
+                }
+                int total = reportRows.size();
+                return StreamingExporter.exportRows(columns, reportRows.stream().map(values).iterator(),
+                    target.path, target.format, new StreamingExporter.ExportMonitor() {
+                        @Override
+                        public void rowsWritten(long written) {
+                            if (total > 0) {
+                                setProgress((int) Math.min(99, written * 100 / total));
+                            }
+                        }
+
+                        @Override
+                        public boolean isCancelled() {
+                            return self.isCancelled();
+                        }
+                    });
+            }
+
+            @Override
+            protected void done() {
+                monitor.close();
+                try {
+                    long written = get();
+                    if (written >= 0) {
+                        JOptionPane.showMessageDialog(parent,
+                            String.format("Exported %,d rows to:%n%s", written, target.path),
+                            "Export Complete", JOptionPane.INFORMATION_MESSAGE);
+                    }
+                } catch (CancellationException e) {
+                    logger.info("Export of " + label + " cancelled");
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    logger.severe("Export of " + label + " failed: " + cause.getMessage());
+                    JOptionPane.showMessageDialog(parent,
+                        "Export failed: " + cause.getMessage(), "Export Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+
+        worker.addPropertyChangeListener(evt -> {
+            if ("progress".equals(evt.getPropertyName())) {
+                monitor.setProgress((Integer) evt.getNewValue());
+                monitor.setNote(String.format("%d%% complete", (Integer) evt.getNewValue()));
+            }
+        });
+
+        // ProgressMonitor has no cancel callback, so poll it while the export runs
+        Timer cancelPoller = new Timer(200, null);
+        cancelPoller.addActionListener(e -> {
+            if (worker.isDone()) {
+                cancelPoller.stop();
+            } else if (monitor.isCanceled()) {
+                worker.cancel(false);
+                cancelPoller.stop();
+            }
+        });
+        cancelPoller.start();
+        worker.execute();
+    }
+
+    /**
+     * Export the photos of some jobs into a ZIP file
+     *
+     * @param parent component used to position dialogs
+     * @param label what is being exported, e.g. "Job #12"
+     * @param baseName suggested file name without extension
+     * @param jobs supplies the jobs; called on a background thread
+     */
+    public static void exportPhotos(Component parent, String label, String baseName, Supplier<List<Job>> jobs) {
+        Path target = chooseZipTarget(parent, baseName, "Export Photos of " + label);
+        if (target == null) {
+            return;
+        }
+
+        PhotoZipExporter exporter = PhotoZipExporter.getInstance();
+        ProgressMonitor monitor = new ProgressMonitor(parent,
+            "Exporting photos of " + label + " to " + target.getFileName(), "Finding photos...", 0, 100);
+        monitor.setMillisToDecideToPopup(200);
+        monitor.setMillisToPopup(200);
+
+        SwingWorker<PhotoZipExporter.ExportResult, Void> worker = new SwingWorker<PhotoZipExporter.ExportResult, Void>() {
+            @Override
+            protected PhotoZipExporter.ExportResult doInBackground() throws Exception {
+                SwingWorker<PhotoZipExporter.ExportResult, Void> self = this;
+                Map<Job, List<Photo>> photosByJob = exporter.findPhotos(jobs.get());
+                int total = photosByJob.values().stream().mapToInt(List::size).sum();
+                if (total == 0) {
+                    return null;
+                }
+                return exporter.export(photosByJob, target, new StreamingExporter.ExportMonitor() {
+                    @Override
+                    public void rowsWritten(long photos) {
+                        setProgress((int) Math.min(99, photos * 100 / total));
+                    }
+
+                    @Override
+                    public boolean isCancelled() {
+                        return self.isCancelled();
+                    }
+                });
+            }
+
+            @Override
+            protected void done() {
+                monitor.close();
+                try {
+                    PhotoZipExporter.ExportResult result = get();
+                    if (result == null) {
+                        JOptionPane.showMessageDialog(parent, label + " has no photos to export.",
+                            "Export Photos", JOptionPane.INFORMATION_MESSAGE);
+                    } else if (!result.isCancelled()) {
+                        showPhotoExportResult(parent, result, target);
+                    }
+                } catch (CancellationException e) {
+                    logger.info("Photo export of " + label + " cancelled");
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    logger.severe("Photo export of " + label + " failed: " + cause.getMessage());
+                    JOptionPane.showMessageDialog(parent,
+                        "Export failed: " + cause.getMessage(), "Export Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+
+        worker.addPropertyChangeListener(evt -> {
+            if ("progress".equals(evt.getPropertyName())) {
+                monitor.setProgress((Integer) evt.getNewValue());
+                monitor.setNote(String.format("%d%% complete", (Integer) evt.getNewValue()));
+            }
+        });
+
+        // ProgressMonitor has no cancel callback, so poll it while the export runs
+        Timer cancelPoller = new Timer(200, null);
+        cancelPoller.addActionListener(e -> {
+            if (worker.isDone()) {
+                cancelPoller.stop();
+            } else if (monitor.isCanceled()) {
+                worker.cancel(false);
+                cancelPoller.stop();
+            }
+        });
+        cancelPoller.start();
+        worker.execute();
+    }
+
+    private static void showPhotoExportResult(Component parent, PhotoZipExporter.ExportResult result, Path target) {
+        StringBuilder message = new StringBuilder(String.format("Exported %,d photos (%s) to:%n%s",
+            result.getPhotos(), PhotoStorageUtil.formatFileSize(result.getBytes()), target));
+        if (result.getMissing().isEmpty()) {
+            JOptionPane.showMessageDialog(parent, message.toString(), "Export Complete",
+                JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        message.append(String.format("%n%n%,d photos were skipped because their file is missing:",
+                                     result.getMissing().size()));
+        List<String> missing = result.getMissing();
+        for (int i = 0; i < Math.min(10, missing.size()); i++) {
+            message.append(String.format("%n  %s", missing.get(i)));
+        }
+        if (missing.size() > 10) {
+            message.append(String.format("%n  ...and %,d more", missing.size() - 10));
+        }
+        JOptionPane.showMessageDialog(parent, message.toString(), "Export Complete",
+            JOptionPane.WARNING_MESSAGE);
+    }
+
+    private static Path chooseZipTarget(Component parent, String baseName, String title) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle(title);
+        chooser.setAcceptAllFileFilterUsed(false);
+        chooser.setFileFilter(new FileNameExtensionFilter("ZIP archive (*.zip)", "zip"));
+        chooser.setSelectedFile(new File(baseName + ".zip"));
+
+        if (chooser.showSaveDialog(parent) != JFileChooser.APPROVE_OPTION) {
+            return null;
+        }
+
+        File file = chooser.getSelectedFile();
+        if (!file.getName().toLowerCase().endsWith(".zip")) {
+            file = new File(file.getParentFile(), file.getName() + ".zip");
+        }
+        if (file.exists()) {
+            int choice = JOptionPane.showConfirmDialog(parent,
+                file.getName() + " already exists. Replace it?", "Confirm Overwrite",
+                JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+            if (choice != JOptionPane.YES_OPTION) {
+                return null;
+            }
+        }
+        return file.toPath();
+    }
+
+    private static Target chooseTarget(Component parent, String baseName, String title) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle(title);
+        chooser.setAcceptAllFileFilterUsed(false);
+        FileNameExtensionFilter csvFilter = new FileNameExtensionFilter(Format.CSV.getDescription(), Format.CSV.getExtension());
+        FileNameExtensionFilter jsonFilter = new FileNameExtensionFilter(Format.NDJSON.getDescription(),
+            Format.NDJSON.getExtension(), "jsonl", "json");
+        chooser.addChoosableFileFilter(csvFilter);
+        chooser.addChoosableFileFilter(jsonFilter);
+        chooser.setFileFilter(csvFilter);
+        chooser.setSelectedFile(new File(baseName + "." + Format.CSV.getExtension()));
+
+        if (chooser.showSaveDialog(parent) != JFileChooser.APPROVE_OPTION) {
+            return null;
+        }
+
+        Format format = chooser.getFileFilter() == jsonFilter ? Format.NDJSON : Format.CSV;
+        File file = chooser.getSelectedFile();
+        String name = file.getName().toLowerCase();
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl") || name.endsWith(".json")) {
+            format = Format.NDJSON;
+        } else if (name.endsWith(".csv")) {
+            format = Format.CSV;
+        } else {
+            file = new File(file.getParentFile(), file.getName() + "." + format.getExtension());
+        }
+
+        if (file.exists()) {
+            int choice = JOptionPane.showConfirmDialog(parent,
+                file.getName() + " already exists. Replace it?", "Confirm Overwrite",
+                JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+            if (choice != JOptionPane.YES_OPTION) {
+                return null;
+            }
+        }
+        return new Target(file.toPath(), format);
+    }
+
+    private static final class Target {
+        private final Path path;
+        private final Format format;
+
+        private Target(Path path, Format format) {
+            this.path = path;
+            this.format = format;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package org.bmc.app.ui;
+
+import org.bmc.app.util.AppConfig;
+import org.bmc.app.util.PrefixSearchIndex;
+
+import javax.swing.JTextField;
+import javax.swing.RowFilter;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.TableRowSorter;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * Search-as-you-type for a panel backed by an {@link EntityTableModel}.
+ *
+ * Typing filters the rows already loaded in the table through a
+ * {@link PrefixSearchIndex}, debounced so a burst of keystrokes causes one
+ * lookup. The table model stays complete (only the row sorter hides rows), so
+ * delta syncs keep working while a search is active. The database is queried
+ * only when nothing loaded matches: its substring results are merged into the
+ * model and shown alongside the local hits.
+ *
+ * @param <T> entity type
+ */
+public class IncrementalSearchSupport<T> {
+    private static final Logger logger = Logger.getLogger(IncrementalSearchSupport.class.getName());
+
+    private static final int DEBOUNCE_MILLIS = AppConfig.getInt("ui.search.debounceMillis", 150);
+    private static final int SERVER_MIN_LENGTH = AppConfig.getInt("ui.search.serverMinLength", 3);
+
+    private final JTextField searchField;
+    private final EntityTableModel<T> model;
+    private final TableRowSorter<EntityTableModel<T>> sorter;
+    private final List<Function<T, String>> fields;
+    private final Timer debounceTimer;
+
+    private Function<String, List<T>> serverSearch;
+    private Predicate<T> baseFilter;
+    private PrefixSearchIndex<T> index;
+    private String currentTerm = "";
+    private Set<Integer> serverHits = Collections.emptySet();
+    private final Set<String> serverSearched = new HashSet<>(); // since the term changed or the rows were reloaded
+    private int seenReloadCount;
+    private SwingWorker<List<T>, Void> pendingServerSearch;
+    private boolean refilterQueued;
+
+    /**
+     * @param searchField field the user types into
+     * @param model table model holding the loaded rows
+     * @param sorter the table's row sorter; this class owns its row filter
+     * @param fields text fields to match against
+     */
+    public IncrementalSearchSupport(JTextField searchField, EntityTableModel<T> model,
+                                    TableRowSorter<EntityTableModel<T>> sorter, List<Function<T, String>> fields) {
+        this.searchField = searchField;
+        this.model = model;
+        this.sorter = sorter;
+        this.fields = fields;
+
+        debounceTimer = new Timer(DEBOUNCE_MILLIS, e -> applyFilter(false));
+        debounceTimer.setRepeats(false);
+
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) { debounceTimer.restart(); }
+            @Override
+            public void removeUpdate(DocumentEvent e) { debounceTimer.restart(); }
+            @Override
+            public void changedUpdate(DocumentEvent e) { debounceTimer.restart(); }
+        });
+        // Enter skips the debounce and goes to the server if nothing local matches
+        searchField.addActionListener(e -> {
+            debounceTimer.stop();
+            applyFilter(true);
+        });
+
+        // Delta refreshes fire events too, but only a reload can drop the rows a
+        // server search found, so only then may the same term be asked again
+        seenReloadCount = model.getReloadCount();
+        model.addTableModelListener(e -> {
+            index = null;
+            if (model.getReloadCount() != seenReloadCount) {
+                seenReloadCount = model.getReloadCount();
+                serverSearched.clear();
+            }
+            // Re-filter after the sorter has processed the same event
+            if (!currentTerm.isEmpty() && !refilterQueued) {
+                refilterQueued = true;
+                SwingUtilities.invokeLater(() -> {
+                    refilterQueued = false;
+                    applyFilter(false);
+                });
+            }
+        });
+    }
+
+    /**
+     * Query used when no loaded row matches, e.g. a DAO substring search.
+     * Runs on a background thread; should return an empty list on error.
+     */
+    public IncrementalSearchSupport<T> withServerSearch(Function<String, List<T>> search) {
+        this.serverSearch = search;
+        return this;
+    }
+
+    /**
+     * Additional filter (e.g. a role combo box) applied together with the
+     * search text; null shows every row
+     */
+    public void setBaseFilter(Predicate<T> filter) {
+        this.baseFilter = filter;
+        applyFilter(false);
+    }
+
+    /**
+     * Number of rows currently shown
+     */
+    public int getMatchCount() {
+        return sorter.getViewRowCount();
+    }
+
+    private void applyFilter(boolean allowServer) {
+        String term = searchField.getText().trim();
+        if (!term.equals(currentTerm)) {
+            currentTerm = term;
+            serverHits = Collections.emptySet();
+            serverSearched.clear();
+        }
+
+        if (term.isEmpty()) {
+            setFilter(null);
+            return;
+        }
+
+        long start = System.nanoTime();
+        if (index == null) {
+            index = PrefixSearchIndex.build(model.getRows(), model::getKey, fields);
+        }
+        Set<Integer> matches = index.search(term);
+        matches.addAll(serverHits);
+        setFilter(matches);
+        logger.fine("Search '" + term + "' matched " + matches.size() + " of " + index.size() +
+                    " rows in " + (System.nanoTime() - start) / 1000 + " us");
+
+        if (matches.isEmpty() && serverSearch != null
+                && (allowServer || term.length() >= SERVER_MIN_LENGTH) && serverSearched.add(term)) {
+            searchServer(term);
+        }
+    }
+
+    private void setFilter(Set<Integer> keys) {
+        Predicate<T> base = baseFilter;
+        if (keys == null && base == null) {
+            sorter.setRowFilter(null);
+            return;
+        }
+        sorter.setRowFilter(new RowFilter<EntityTableModel<T>, Integer>() {
+            @Override
+            public boolean include(Entry<? extends EntityTableModel<T>, ? extends Integer> entry) {
+                T row = entry.getModel().getRow(entry.getIdentifier());
+                return (base == null || base.test(row))
+                    && (keys == null || keys.contains(entry.getModel().getKey(row)));
+            }
+        });
+    }
+
+    private void searchServer(String term) {
+        if (pendingServerSearch != null) {
+            pendingServerSearch.cancel(false);
+        }
+        pendingServerSearch = new SwingWorker<List<T>, Void>() {
+            @Override
+            protected List<T> doInBackground() {
+                return serverSearch.apply(term);
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled() || !term.equals(currentTerm)) {
+                    return;
+                }
+                try {
+                    List<T> results = get();
+                    Set<Integer> hits = new HashSet<>();
+                    for (T entity : results) {
+                        hits.add(model.getKey(entity));
+                        model.upsert(entity);
+                    }
+                    serverHits = hits;
+                    logger.info("Server search for '" + term + "' returned " + results.size() + " results");
+                    applyFilter(false);
+                } catch (Exception e) {
+                    logger.warning("Server search for '" + term + "' failed: " + e.getMessage());
+                }
+            }
+        };
+        pendingServerSearch.execute();
+    }
+}
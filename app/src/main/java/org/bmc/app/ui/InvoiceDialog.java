@@ -1,9 +1,9 @@
 package org.bmc.app.ui;
 
 import org.bmc.app.dao.InvoiceDAO;
-import org.bmc.app.dao.JobDAO;
 import org.bmc.app.model.Invoice;
 import org.bmc.app.model.Job;
+import org.bmc.app.service.ReferenceDataCache;
 
 import javax.swing.*;
 import java.awt.*;
@@ -11,7 +11,6 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.util.List;
 
 /**
  * Modal dialog for creating new invoices or editing existing invoice records.
@@ -27,11 +26,11 @@ public class InvoiceDialog extends JDialog {
     private static final int JOB_DESC_MAX_LENGTH = 40;
     
     private final InvoiceDAO invoiceDAO;
-    private final JobDAO jobDAO;
     private final Invoice invoice;
     private boolean saved;
     
-    private JComboBox<JobItem> jobCombo;
+    private JComboBox<Job> jobCombo;
+    private ReferenceComboBoxModel<Job> jobModel;
     private JTextField laborCostField;
     private JTextField materialCostField;
     private JTextField totalAmountField;
@@ -39,36 +38,24 @@ public class InvoiceDialog extends JDialog {
     private JCheckBox paidCheckBox;
     
     /**
-     * Wrapper class for displaying job information in combo box.
+     * Text shown for a job in the combo box.
      */
-    private static class JobItem {
-        final Integer id;
-        final String description;
-        
-        JobItem(Integer id, String description) {
-            this.id = id;
-            this.description = description;
-        }
-        
-        @Override
-        public String toString() {
-            if (description.length() > JOB_DESC_MAX_LENGTH) {
-                return "Job #" + id + ": " + description.substring(0, JOB_DESC_MAX_LENGTH) + "...";
-            }
-            return "Job #" + id + ": " + description;
+    private static String jobLabel(Job job) {
+        String description = job.getDescription() != null ? job.getDescription() : "";
+        if (description.length() > JOB_DESC_MAX_LENGTH) {
+            return "Job #" + job.getJobId() + ": " + description.substring(0, JOB_DESC_MAX_LENGTH) + "...";
         }
+        return "Job #" + job.getJobId() + ": " + description;
     }
     
     public InvoiceDialog(Frame parent, Invoice invoice) {
         super(parent, invoice == null ? "Add Invoice" : "Edit Invoice", true);
         this.invoiceDAO = new InvoiceDAO();
-        this.jobDAO = new JobDAO();
         this.invoice = invoice;
         this.saved = false;
         
         initializeComponents();
         layoutComponents();
-        loadJobs();
         
         if (invoice != null) {
             populateFields();
@@ -82,6 +69,8 @@ public class InvoiceDialog extends JDialog {
     
     private void initializeComponents() {
         jobCombo = new JComboBox<>();
+        jobModel = ReferenceComboBoxModel.install(jobCombo, ReferenceDataCache.Kind.JOBS,
+            Job::getJobId, InvoiceDialog::jobLabel, null);
         laborCostField = new JTextField(AMOUNT_FIELD_COLS);
         materialCostField = new JTextField(AMOUNT_FIELD_COLS);
         totalAmountField = new JTextField(AMOUNT_FIELD_COLS);
@@ -165,26 +154,8 @@ public class InvoiceDialog extends JDialog {
         return panel;
     }
     
-    private void loadJobs() {
-        try {
-            List<Job> jobs = jobDAO.findAll();
-            jobCombo.removeAllItems();
-            for (Job j : jobs) {
-                jobCombo.addItem(new JobItem(j.getJobId(), j.getDescription()));
-            }
-        } catch (Exception e) {
-            showErrorDialog("Error loading jobs: " + e.getMessage());
-        }
-    }
-    
     private void populateFields() {
-        for (int i = 0; i < jobCombo.getItemCount(); i++) {
-            JobItem item = jobCombo.getItemAt(i);
-            if (item.id.equals(invoice.getJobId())) {
-                jobCombo.setSelectedIndex(i);
-                break;
-            }
-        }
+        jobModel.setSelectedKey(invoice.getJobId());
         
         if (invoice.getLaborCost() != null) {
             laborCostField.setText(invoice.getLaborCost().toString());
@@ -228,14 +199,14 @@ public class InvoiceDialog extends JDialog {
         }
         
         try {
-            JobItem selectedJob = (JobItem) jobCombo.getSelectedItem();
+            Integer jobId = jobModel.getSelectedKey();
             BigDecimal amount = parseAmount();
             LocalDate date = parseDate();
             
             if (invoice == null) {
-                createNewInvoice(selectedJob.id, amount, date);
+                createNewInvoice(jobId, amount, date);
             } else {
-                updateExistingInvoice(selectedJob.id, amount, date);
+                updateExistingInvoice(jobId, amount, date);
             }
             
             saved = true;
@@ -3,6 +3,10 @@ package org.bmc.app.ui;
 import java.awt.BorderLayout;
 import java.awt.FlowLayout;
 import java.awt.Frame;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -16,11 +20,16 @@ import javax.swing.JScrollPane;
 import javax.swing.JSeparator;
 import javax.swing.JTable;
 import javax.swing.ListSelectionModel;
+import javax.swing.RowFilter;
 import javax.swing.SwingConstants;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableRowSorter;
 
+import org.bmc.app.dao.ChangeSet;
+import org.bmc.app.dao.DataChangeNotifier.Entity;
+import org.bmc.app.dao.ExportDAO;
 import org.bmc.app.dao.InvoiceDAO;
 import org.bmc.app.model.Invoice;
+import org.bmc.app.ui.EntityTableModel.Column;
 
 /**
  * Panel for managing invoice data with table view and payment status filtering.
@@ -30,14 +39,18 @@ public class InvoicePanel extends JPanel {
     
     private InvoiceDAO invoiceDAO;
     private JTable invoiceTable;
-    private DefaultTableModel tableModel;
+    private EntityTableModel<Invoice> tableModel;
+    private TableRowSorter<EntityTableModel<Invoice>> rowSorter;
     private JComboBox<String> paymentStatusFilter;
     private JButton addButton, editButton, deleteButton, refreshButton, markPaidButton;
+    private Timestamp lastSync; // server time of the last full load or delta, null forces a full reload
+    private RefreshPolicy refreshPolicy;
     
     public InvoicePanel() {
         this.invoiceDAO = new InvoiceDAO();
         initializePanel();
-        loadInvoiceData();
+        refreshPolicy = new RefreshPolicy("invoice data", this, this::fetchInvoiceData, Entity.INVOICE);
+        refreshPolicy.refresh();
     }
     
     private void initializePanel() {
@@ -94,44 +107,39 @@ public class InvoicePanel extends JPanel {
         refreshButton.addActionListener(e -> refreshData());
         toolbar.add(refreshButton);
         
+        JButton exportButton = new JButton("Export...");
+        exportButton.addActionListener(e -> ExportSupport.exportDataset(this, ExportDAO.Dataset.INVOICES));
+        toolbar.add(exportButton);
+        
         return toolbar;
     }
     
     private void createTable() {
-        String[] columnNames = {"Invoice ID", "Job ID", "Amount", "Invoice Date", "Payment Status"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table read-only
-            }
-        };
+        tableModel = new EntityTableModel<>(Invoice::getInvoiceId, Arrays.asList(
+            Column.of("Invoice ID", Integer.class, Invoice::getInvoiceId, 80),
+            Column.of("Job ID", Integer.class, Invoice::getJobId, 70),
+            Column.of("Amount", BigDecimal.class, Invoice::getTotalAmount, 100).renderedBy(TableRenderers.currency()),
+            Column.of("Invoice Date", LocalDate.class, Invoice::getInvoiceDate, 100).renderedBy(TableRenderers.date()),
+            Column.of("Payment Status", Boolean.class, Invoice::getPaid, 120)
+                .renderedBy(TableRenderers.booleanText("Paid", "Unpaid"))
+        ));
         
         invoiceTable = new JTable(tableModel);
-        invoiceTable.setAutoCreateRowSorter(true);
+        rowSorter = new TableRowSorter<>(tableModel);
+        invoiceTable.setRowSorter(rowSorter);
         invoiceTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         invoiceTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
-                boolean hasSelection = invoiceTable.getSelectedRow() != -1;
+                Invoice selected = tableModel.getSelected(invoiceTable);
+                boolean hasSelection = selected != null;
                 editButton.setEnabled(hasSelection);
                 deleteButton.setEnabled(hasSelection);
                 
                 // Enable "Mark Paid" only for unpaid invoices
-                if (hasSelection) {
-                    int selectedRow = invoiceTable.getSelectedRow();
-                    String paymentStatus = (String) tableModel.getValueAt(selectedRow, 4);
-                    markPaidButton.setEnabled("Unpaid".equals(paymentStatus));
-                } else {
-                    markPaidButton.setEnabled(false);
-                }
+                markPaidButton.setEnabled(hasSelection && !Boolean.TRUE.equals(selected.getPaid()));
             }
         });
-        
-        // Set column widths
-        invoiceTable.getColumnModel().getColumn(0).setPreferredWidth(80);  // Invoice ID
-        invoiceTable.getColumnModel().getColumn(1).setPreferredWidth(70);  // Job ID
-        invoiceTable.getColumnModel().getColumn(2).setPreferredWidth(100); // Amount
-        invoiceTable.getColumnModel().getColumn(3).setPreferredWidth(100); // Invoice Date
-        invoiceTable.getColumnModel().getColumn(4).setPreferredWidth(120); // Payment Status
+        tableModel.configure(invoiceTable);
     }
     
     private JPanel createInfoPanel() {
@@ -144,56 +152,48 @@ public class InvoicePanel extends JPanel {
         return infoPanel;
     }
     
-    private void loadInvoiceData() {
-        try {
+    /**
+     * Fetch only the rows changed since the last sync, on a background thread,
+     * and return the step that merges them into the table. Falls back to a
+     * full reload if change tracking is unavailable.
+     */
+    private Runnable fetchInvoiceData() {
+        ChangeSet<Invoice> changes = invoiceDAO.findChangedSince(lastSync);
+        if (changes == null) {
             List<Invoice> invoices = invoiceDAO.findAll();
-            populateTable(invoices);
-            logger.info("Loaded " + invoices.size() + " invoices into table");
-        } catch (Exception e) {
-            logger.severe("Error loading invoice data: " + e.getMessage());
-            JOptionPane.showMessageDialog(this, 
-                "Error loading invoice data: " + e.getMessage(),
-                "Database Error", 
-                JOptionPane.ERROR_MESSAGE);
+            return () -> {
+                populateTable(invoices);
+                lastSync = null;
+                logger.info("Loaded " + invoices.size() + " invoices into table");
+            };
         }
+        return () -> {
+            int touched = tableModel.applyChanges(changes);
+            lastSync = changes.getWatermark();
+            logger.fine("Invoice sync " + changes + " touched " + touched + " rows");
+        };
     }
     
     private void populateTable(List<Invoice> invoices) {
-        tableModel.setRowCount(0); // Clear existing data
-        
-        for (Invoice invoice : invoices) {
-            Object[] row = {
-                invoice.getInvoiceId(),
-                invoice.getJobId(),
-                String.format("$%.2f", invoice.getTotalAmount()),
-                invoice.getInvoiceDate(),
-                invoice.getPaid() ? "Paid" : "Unpaid"
-            };
-            tableModel.addRow(row);
-        }
+        tableModel.replaceAll(invoices);
     }
     
     private void filterByPaymentStatus() {
         String selectedStatus = (String) paymentStatusFilter.getSelectedItem();
         
+        // Filter the loaded rows in place so the model stays complete for delta syncs
         if ("All".equals(selectedStatus)) {
-            loadInvoiceData();
-            return;
-        }
-        
-        try {
-            boolean isPaid = "Paid".equals(selectedStatus);
-            List<Invoice> results = invoiceDAO.findByPaymentStatus(isPaid);
-            
-            populateTable(results);
-            logger.info("Filter by payment status '" + selectedStatus + "' returned " + results.size() + " results");
-        } catch (Exception e) {
-            logger.severe("Error filtering invoices by payment status: " + e.getMessage());
-            JOptionPane.showMessageDialog(this,
-                "Error filtering invoices: " + e.getMessage(),
-                "Filter Error",
-                JOptionPane.ERROR_MESSAGE);
+            rowSorter.setRowFilter(null);
+        } else {
+            boolean paid = "Paid".equals(selectedStatus);
+            rowSorter.setRowFilter(new RowFilter<EntityTableModel<Invoice>, Integer>() {
+                @Override
+                public boolean include(Entry<? extends EntityTableModel<Invoice>, ? extends Integer> entry) {
+                    return Boolean.TRUE.equals(entry.getModel().getRow(entry.getIdentifier()).getPaid()) == paid;
+                }
+            });
         }
+        logger.info("Filter by payment status '" + selectedStatus + "' shows " + invoiceTable.getRowCount() + " results");
     }
     
     private void addInvoice() {
@@ -208,7 +208,7 @@ public class InvoicePanel extends JPanel {
         int selectedRow = invoiceTable.getSelectedRow();
         if (selectedRow == -1) return;
         
-        Integer invoiceId = (Integer) tableModel.getValueAt(selectedRow, 0);
+        Integer invoiceId = tableModel.getRow(invoiceTable.convertRowIndexToModel(selectedRow)).getInvoiceId();
         try {
             Invoice invoice = invoiceDAO.findById(invoiceId);
             InvoiceDialog dialog = new InvoiceDialog((Frame) javax.swing.SwingUtilities.getWindowAncestor(this), invoice);
@@ -227,8 +227,9 @@ public class InvoicePanel extends JPanel {
         int selectedRow = invoiceTable.getSelectedRow();
         if (selectedRow == -1) return;
         
-        Integer invoiceId = (Integer) tableModel.getValueAt(selectedRow, 0);
-        String amount = (String) tableModel.getValueAt(selectedRow, 2);
+        Invoice selected = tableModel.getRow(invoiceTable.convertRowIndexToModel(selectedRow));
+        Integer invoiceId = selected.getInvoiceId();
+        String amount = String.format("$%.2f", selected.getTotalAmount());
         
         int choice = JOptionPane.showConfirmDialog(this,
             "Mark invoice " + invoiceId + " (" + amount + ") as paid?",
@@ -263,8 +264,9 @@ public class InvoicePanel extends JPanel {
         int selectedRow = invoiceTable.getSelectedRow();
         if (selectedRow == -1) return;
         
-        Integer invoiceId = (Integer) tableModel.getValueAt(selectedRow, 0);
-        String amount = (String) tableModel.getValueAt(selectedRow, 2);
+        Invoice selected = tableModel.getRow(invoiceTable.convertRowIndexToModel(selectedRow));
+        Integer invoiceId = selected.getInvoiceId();
+        String amount = String.format("$%.2f", selected.getTotalAmount());
         
         int choice = JOptionPane.showConfirmDialog(this,
             "Are you sure you want to delete invoice " + invoiceId + " (" + amount + ")?",
@@ -291,7 +293,14 @@ public class InvoicePanel extends JPanel {
     }
     
     public void refreshData() {
-        loadInvoiceData();
         paymentStatusFilter.setSelectedIndex(0); // Reset to "All"
+        refreshPolicy.refresh();
+    }
+    
+    /**
+     * Tracks when this panel's data needs reloading
+     */
+    public RefreshPolicy getRefreshPolicy() {
+        return refreshPolicy;
     }
 }
\ No newline at end of file
@@ -1,25 +1,28 @@
 package org.bmc.app.ui;
 
-import org.bmc.app.dao.CustomerDAO;
-import org.bmc.app.dao.EmployeeDAO;
 import org.bmc.app.dao.JobDAO;
 import org.bmc.app.dao.PhotoDAO;
 import org.bmc.app.model.Customer;
 import org.bmc.app.model.Employee;
 import org.bmc.app.model.Job;
 import org.bmc.app.model.Photo;
+import org.bmc.app.service.PhotoService;
+import org.bmc.app.service.ReferenceDataCache;
+import org.bmc.app.service.ThumbnailGenerator;
 import org.bmc.app.util.PhotoStorageUtil;
+import org.bmc.app.util.ThumbnailLoader;
 
 import javax.swing.*;
-import javax.imageio.ImageIO;
 import java.awt.*;
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
 
 /**
  * Modal dialog for creating new jobs or editing existing job records.
@@ -29,20 +32,22 @@ import java.util.List;
  */
 public class JobDialog extends JDialog {
     
+    private static final Logger logger = Logger.getLogger(JobDialog.class.getName());
+    
     private static final int DESC_ROWS = 4;
     private static final int DESC_COLS = 30;
     private static final int DATE_FIELD_COLS = 15;
     private static final String DATE_FORMAT_HINT = " (YYYY-MM-DD)";
     
     private final JobDAO jobDAO;
-    private final CustomerDAO customerDAO;
-    private final EmployeeDAO employeeDAO;
     private final PhotoDAO photoDAO;
     private final Job job;
     private boolean saved;
     
-    private JComboBox<CustomerItem> customerCombo;
-    private JComboBox<EmployeeItem> employeeCombo;
+    private JComboBox<Customer> customerCombo;
+    private JComboBox<Employee> employeeCombo;
+    private ReferenceComboBoxModel<Customer> customerModel;
+    private ReferenceComboBoxModel<Employee> employeeModel;
     private JTextArea descriptionArea;
     private JComboBox<Job.Status> statusCombo;
     private JTextField startDateField;
@@ -52,47 +57,9 @@ public class JobDialog extends JDialog {
     private JPanel photoThumbnailPanel;
     private List<Photo> jobPhotos;
     
-    /**
-     * Wrapper class for displaying customer information in combo box.
-     */
-    private static class CustomerItem {
-        final Integer id;
-        final String name;
-        
-        CustomerItem(Integer id, String name) {
-            this.id = id;
-            this.name = name;
-        }
-        
-        @Override
-        public String toString() {
-            return name + " (ID: " + id + ")";
-        }
-    }
-    
-    /**
-     * Wrapper class for displaying employee information in combo box.
-     */
-    private static class EmployeeItem {
-        final Integer id;
-        final String name;
-        
-        EmployeeItem(Integer id, String name) {
-            this.id = id;
-            this.name = name;
-        }
-        
-        @Override
-        public String toString() {
-            return name != null ? name : "(None)";
-        }
-    }
-    
     public JobDialog(Frame parent, Job job) {
         super(parent, job == null ? "Add Job" : "Edit Job", true);
         this.jobDAO = new JobDAO();
-        this.customerDAO = new CustomerDAO();
-        this.employeeDAO = new EmployeeDAO();
         this.photoDAO = new PhotoDAO();
         this.job = job;
         this.saved = false;
@@ -100,8 +67,6 @@ public class JobDialog extends JDialog {
         
         initializeComponents();
         layoutComponents();
-        loadCustomers();
-        loadEmployees();
         
         if (job != null) {
             populateFields();
@@ -113,8 +78,13 @@ public class JobDialog extends JDialog {
     }
     
     private void initializeComponents() {
+        // Choices come from the shared reference data cache, so the dialog opens without a query
         customerCombo = new JComboBox<>();
+        customerModel = ReferenceComboBoxModel.install(customerCombo, ReferenceDataCache.Kind.CUSTOMERS,
+            Customer::getCustomerId, c -> c.getName() + " (ID: " + c.getCustomerId() + ")", null);
         employeeCombo = new JComboBox<>();
+        employeeModel = ReferenceComboBoxModel.install(employeeCombo, ReferenceDataCache.Kind.EMPLOYEES,
+            Employee::getEmployeeId, Employee::getName, "(None)");
         descriptionArea = new JTextArea(DESC_ROWS, DESC_COLS);
         descriptionArea.setLineWrap(true);
         descriptionArea.setWrapStyleWord(true);
@@ -202,52 +172,9 @@ public class JobDialog extends JDialog {
         return panel;
     }
     
-    private void loadCustomers() {
-        try {
-            List<Customer> customers = customerDAO.findAll();
-            customerCombo.removeAllItems();
-            for (Customer c : customers) {
-                customerCombo.addItem(new CustomerItem(c.getCustomerId(), c.getName()));
-            }
-        } catch (Exception e) {
-            showErrorDialog("Error loading customers: " + e.getMessage());
-        }
-    }
-    
-    private void loadEmployees() {
-        try {
-            List<Employee> employees = employeeDAO.findAll();
-            employeeCombo.removeAllItems();
-            employeeCombo.addItem(new EmployeeItem(null, "(None)"));
-            for (Employee e : employees) {
-                employeeCombo.addItem(new EmployeeItem(e.getEmployeeId(), e.getName()));
-            }
-        } catch (Exception e) {
-            showErrorDialog("Error loading employees: " + e.getMessage());
-        }
-    }
-    
     private void populateFields() {
-        for (int i = 0; i < customerCombo.getItemCount(); i++) {
-            CustomerItem item = customerCombo.getItemAt(i);
-            if (item.id.equals(job.getCustomerId())) {
-                customerCombo.setSelectedIndex(i);
-                break;
-            }
-        }
-        
-        // Set employee selection
-        if (job.getEmployeeId() != null) {
-            for (int i = 0; i < employeeCombo.getItemCount(); i++) {
-                EmployeeItem item = employeeCombo.getItemAt(i);
-                if (item.id != null && item.id.equals(job.getEmployeeId())) {
-                    employeeCombo.setSelectedIndex(i);
-                    break;
-                }
-            }
-        } else {
-            employeeCombo.setSelectedIndex(0); // Select "(None)"
-        }
+        customerModel.setSelectedKey(job.getCustomerId());
+        employeeModel.setSelectedKey(job.getEmployeeId()); // null selects "(None)"
         
         descriptionArea.setText(job.getDescription());
         statusCombo.setSelectedItem(job.getStatus());
@@ -272,14 +199,14 @@ public class JobDialog extends JDialog {
         }
         
         try {
-            CustomerItem selectedCustomer = (CustomerItem) customerCombo.getSelectedItem();
+            Integer customerId = customerModel.getSelectedKey();
             LocalDate startDate = parseDateField(startDateField);
             LocalDate dueDate = parseDateField(dueDateField);
             
             if (job == null) {
-                createNewJob(selectedCustomer.id, startDate, dueDate);
+                createNewJob(customerId, startDate, dueDate);
             } else {
-                updateExistingJob(selectedCustomer.id, startDate, dueDate);
+                updateExistingJob(customerId, startDate, dueDate);
             }
             
             saved = true;
@@ -311,8 +238,6 @@ public class JobDialog extends JDialog {
     }
     
     private void createNewJob(Integer customerId, LocalDate startDate, LocalDate dueDate) throws Exception {
-        EmployeeItem selectedEmployee = (EmployeeItem) employeeCombo.getSelectedItem();
-        
         Job newJob = new Job(
             customerId,
             null,
@@ -323,15 +248,13 @@ public class JobDialog extends JDialog {
             parseEstimatedLaborCost(),
             parseEstimatedMaterialCost()
         );
-        newJob.setEmployeeId(selectedEmployee != null ? selectedEmployee.id : null);
+        newJob.setEmployeeId(employeeModel.getSelectedKey());
         jobDAO.create(newJob);
     }
     
     private void updateExistingJob(Integer customerId, LocalDate startDate, LocalDate dueDate) throws Exception {
-        EmployeeItem selectedEmployee = (EmployeeItem) employeeCombo.getSelectedItem();
-        
         job.setCustomerId(customerId);
-        job.setEmployeeId(selectedEmployee != null ? selectedEmployee.id : null);
+        job.setEmployeeId(employeeModel.getSelectedKey());
         job.setDescription(descriptionArea.getText().trim());
         job.setStartDate(startDate);
         job.setDueDate(dueDate);
@@ -393,6 +316,10 @@ public class JobDialog extends JDialog {
         JButton uploadButton = new JButton("Upload Photo");
         uploadButton.addActionListener(e -> handlePhotoUpload());
         buttonPanel.add(uploadButton);
+        JButton importButton = new JButton("Import...");
+        importButton.setToolTipText("Import many photos, or whole folders, at once");
+        importButton.addActionListener(e -> handlePhotoImport());
+        buttonPanel.add(importButton);
         panel.add(buttonPanel, BorderLayout.SOUTH);
         
         return panel;
@@ -443,21 +370,18 @@ public class JobDialog extends JDialog {
         imageLabel.setHorizontalAlignment(JLabel.CENTER);
         imageLabel.setPreferredSize(new Dimension(200, 150));
         
-        try {
-            File imageFile = PhotoStorageUtil.getPhotoFile(photo.getFilePath());
-            if (imageFile != null && imageFile.exists()) {
-                BufferedImage img = ImageIO.read(imageFile);
-                if (img != null) {
-                    Image scaledImg = img.getScaledInstance(200, 150, Image.SCALE_SMOOTH);
-                    imageLabel.setIcon(new ImageIcon(scaledImg));
-                } else {
-                    imageLabel.setText("Image not found");
-                }
-            } else {
-                imageLabel.setText("File not found");
-            }
-        } catch (Exception e) {
-            imageLabel.setText("Error loading image");
+        // Decoded in the background so opening the dialog doesn't wait on every photo
+        File imageFile = PhotoStorageUtil.getPhotoFile(photo, 200, 150);
+        if (imageFile != null && imageFile.exists()) {
+            imageLabel.setText("Loading...");
+            ThumbnailLoader.getInstance().load(imageFile, 200, 150,
+                image -> {
+                    imageLabel.setText(null);
+                    imageLabel.setIcon(new ImageIcon(image));
+                },
+                imageLabel::setText);
+        } else {
+            imageLabel.setText("File not found");
         }
         
         // Click to view full size
@@ -507,30 +431,129 @@ public class JobDialog extends JDialog {
                 "Photo Description", 
                 JOptionPane.PLAIN_MESSAGE);
             
-            // Save photo
-            String relativePath = PhotoStorageUtil.savePhoto(selectedFile, job.getJobId(), description);
-            if (relativePath != null) {
-                // Create database record
-                Photo photo = new Photo(job.getJobId(), relativePath, description);
-                Photo savedPhoto = photoDAO.create(photo);
-                
-                if (savedPhoto != null) {
+            // Store the image (once per distinct image) and record it in the background
+            setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+            PhotoService.getInstance().addPhotoAsync(job.getJobId(), selectedFile, description,
+                savedPhoto -> {
+                    setCursor(Cursor.getDefaultCursor());
                     jobPhotos.add(savedPhoto);
                     refreshPhotoThumbnails();
+                    // Small and medium copies are made in the background; show the small one once ready
+                    ThumbnailGenerator.getInstance().generate(savedPhoto, generated -> refreshPhotoThumbnails());
                     JOptionPane.showMessageDialog(this, "Photo uploaded successfully!");
-                } else {
-                    JOptionPane.showMessageDialog(this, 
-                        "Failed to save photo to database", 
-                        "Error", 
-                        JOptionPane.ERROR_MESSAGE);
+                },
+                message -> {
+                    setCursor(Cursor.getDefaultCursor());
+                    JOptionPane.showMessageDialog(this, message, "Error", JOptionPane.ERROR_MESSAGE);
+                });
+        }
+    }
+    
+    /**
+     * Imports several photos or folders of photos in the background, with a
+     * progress dialog that can cancel the import
+     */
+    private void handlePhotoImport() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+        fileChooser.setMultiSelectionEnabled(true);
+        fileChooser.setDialogTitle("Import Photos or Folders");
+        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+            "Image files and folders", "jpg", "jpeg", "png", "gif", "bmp"));
+        
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        List<File> selection = Arrays.asList(fileChooser.getSelectedFiles());
+        
+        ProgressMonitor monitor = new ProgressMonitor(this, "Importing photos", "Finding images...", 0, 100);
+        monitor.setMillisToDecideToPopup(200);
+        monitor.setMillisToPopup(200);
+        
+        // Not SwingWorker.cancel: a cancel that arrives after the insert began must still deliver
+        // the result, or the imported photos would be neither shown nor reported
+        AtomicBoolean cancelRequested = new AtomicBoolean();
+        SwingWorker<PhotoService.ImportResult, Void> worker = new SwingWorker<PhotoService.ImportResult, Void>() {
+            @Override
+            protected PhotoService.ImportResult doInBackground() {
+                return PhotoService.getInstance().importPhotos(job.getJobId(), selection,
+                    new PhotoService.ImportMonitor() {
+                        @Override
+                        public void filesProcessed(int done, int total) {
+                            setProgress(Math.min(99, done * 100 / total));
+                            SwingUtilities.invokeLater(() -> monitor.setNote(done + " of " + total + " files"));
+                        }
+                        
+                        @Override
+                        public boolean isCancelled() {
+                            return cancelRequested.get();
+                        }
+                    });
+            }
+            
+            @Override
+            protected void done() {
+                monitor.close();
+                PhotoService.ImportResult result;
+                try {
+                    result = get();
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    logger.severe("Photo import failed: " + cause.getMessage());
+                    JOptionPane.showMessageDialog(JobDialog.this,
+                        "Import failed: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
                 }
-            } else {
-                JOptionPane.showMessageDialog(this, 
-                    "Failed to save photo file. Check file format and size.", 
-                    "Error", 
-                    JOptionPane.ERROR_MESSAGE);
+                if (result.isCancelled()) {
+                    return; // the import saw the cancel and undid itself
+                }
+                showImportResult(result);
+            }
+        };
+        worker.addPropertyChangeListener(evt -> {
+            if ("progress".equals(evt.getPropertyName())) {
+                monitor.setProgress((Integer) evt.getNewValue());
+            }
+        });
+        
+        // ProgressMonitor has no cancel callback, so poll it while the import runs
+        Timer cancelPoller = new Timer(200, null);
+        cancelPoller.addActionListener(e -> {
+            if (worker.isDone()) {
+                cancelPoller.stop();
+            } else if (monitor.isCanceled()) {
+                cancelRequested.set(true);
+                cancelPoller.stop();
+            }
+        });
+        cancelPoller.start();
+        worker.execute();
+    }
+    
+    private void showImportResult(PhotoService.ImportResult result) {
+        if (!result.getImported().isEmpty()) {
+            jobPhotos.addAll(result.getImported());
+            refreshPhotoThumbnails();
+        }
+        
+        StringBuilder message = new StringBuilder();
+        message.append(String.format("Imported %d photo(s).", result.getImported().size()));
+        if (result.getDuplicates() > 0) {
+            message.append(String.format("%n%d of them were already stored and take no extra space.",
+                result.getDuplicates()));
+        }
+        if (!result.getRejected().isEmpty()) {
+            message.append(String.format("%n%nNot imported (%d):", result.getRejected().size()));
+            int shown = Math.min(10, result.getRejected().size());
+            for (String rejection : result.getRejected().subList(0, shown)) {
+                message.append(String.format("%n  %s", rejection));
+            }
+            if (result.getRejected().size() > shown) {
+                message.append(String.format("%n  ... and %d more", result.getRejected().size() - shown));
             }
         }
+        JOptionPane.showMessageDialog(this, message.toString(), "Photo Import",
+            result.getRejected().isEmpty() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
     }
     
     /**
@@ -543,11 +566,8 @@ public class JobDialog extends JDialog {
             JOptionPane.YES_NO_OPTION);
         
         if (confirm == JOptionPane.YES_OPTION) {
-            // Delete from database
-            if (photoDAO.delete(photo.getPhotoId())) {
-                // Delete file
-                PhotoStorageUtil.deletePhoto(photo.getFilePath());
-                
+            // Delete from database, and the file once no other photo uses it
+            if (PhotoService.getInstance().deletePhoto(photo)) {
                 // Remove from list and refresh
                 jobPhotos.remove(photo);
                 refreshPhotoThumbnails();
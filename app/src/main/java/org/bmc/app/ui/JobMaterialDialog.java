@@ -1,17 +1,17 @@
 package org.bmc.app.ui;
 
-import org.bmc.app.dao.MaterialDAO;
 import org.bmc.app.model.Material;
+import org.bmc.app.service.ReferenceDataCache;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.List;
 
 /**
  * Dialog for assigning materials to a job or updating material quantities.
  */
 public class JobMaterialDialog extends JDialog {
-    private JComboBox<MaterialItem> materialComboBox;
+    private JComboBox<Material> materialComboBox;
+    private ReferenceComboBoxModel<Material> materialModel;
     private JSpinner quantitySpinner;
     private JButton saveButton;
     private JButton cancelButton;
@@ -20,31 +20,8 @@ public class JobMaterialDialog extends JDialog {
     private int selectedMaterialId = -1;
     private int quantity = 1;
     
-    private MaterialDAO materialDAO;
-    
-    /**
-     * Wrapper class for Material to display in combo box
-     */
-    private static class MaterialItem {
-        private Material material;
-        
-        public MaterialItem(Material material) {
-            this.material = material;
-        }
-        
-        public Material getMaterial() {
-            return material;
-        }
-        
-        @Override
-        public String toString() {
-            return material.getName() + " (Stock: " + material.getStockQuantity() + ")";
-        }
-    }
-    
     public JobMaterialDialog(Frame parent, String title, Integer existingMaterialId, Integer existingQuantity) {
         super(parent, title, true);
-        this.materialDAO = new MaterialDAO();
         
         initializeComponents(existingMaterialId, existingQuantity);
         layoutComponents();
@@ -55,18 +32,14 @@ public class JobMaterialDialog extends JDialog {
     }
     
     private void initializeComponents(Integer existingMaterialId, Integer existingQuantity) {
-        // Load materials
-        List<Material> materials = materialDAO.findAll();
+        // Materials come from the shared reference data cache
         materialComboBox = new JComboBox<>();
+        materialModel = ReferenceComboBoxModel.install(materialComboBox, ReferenceDataCache.Kind.MATERIALS,
+            Material::getMaterialId, m -> m.getName() + " (Available: " + m.getAvailableQuantity() + ")", null);
         
-        for (Material material : materials) {
-            MaterialItem item = new MaterialItem(material);
-            materialComboBox.addItem(item);
-            
-            // Pre-select if editing
-            if (existingMaterialId != null && material.getMaterialId() == existingMaterialId) {
-                materialComboBox.setSelectedItem(item);
-            }
+        // Pre-select if editing
+        if (existingMaterialId != null) {
+            materialModel.setSelectedKey(existingMaterialId);
         }
         
         // Disable material selection if editing
@@ -138,8 +111,8 @@ public class JobMaterialDialog extends JDialog {
     
     private void onSave() {
         // Validate
-        MaterialItem selectedItem = (MaterialItem) materialComboBox.getSelectedItem();
-        if (selectedItem == null) {
+        Material selectedMaterial = materialModel.getSelected();
+        if (selectedMaterial == null) {
             JOptionPane.showMessageDialog(this, 
                 "Please select a material", 
                 "Validation Error", 
@@ -147,7 +120,7 @@ public class JobMaterialDialog extends JDialog {
             return;
         }
         
-        selectedMaterialId = selectedItem.getMaterial().getMaterialId();
+        selectedMaterialId = selectedMaterial.getMaterialId();
         quantity = (Integer) quantitySpinner.getValue();
         
         confirmed = true;
@@ -1,13 +1,22 @@
 package org.bmc.app.ui;
 
+import org.bmc.app.dao.DataChangeNotifier.Entity;
+import org.bmc.app.dao.ExportDAO;
 import org.bmc.app.dao.JobDAO;
 import org.bmc.app.dao.JobMaterialDAO;
 import org.bmc.app.dao.JobMaterialDAO.JobMaterialInfo;
+import org.bmc.app.dao.JobMaterialDAO.ReservationResult;
 import org.bmc.app.model.Job;
+import org.bmc.app.ui.EntityTableModel.Column;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableRowSorter;
 import java.awt.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -20,16 +29,21 @@ public class JobPanel extends JPanel {
     private JobDAO jobDAO;
     private JobMaterialDAO jobMaterialDAO;
     private JTable jobTable;
-    private DefaultTableModel tableModel;
+    private EntityTableModel<Job> tableModel;
+    private TableRowSorter<EntityTableModel<Job>> rowSorter;
+    private RefreshPolicy refreshPolicy;
     private JComboBox<String> statusFilter;
     private JTextField customerFilter;
-    private JButton addButton, editButton, deleteButton, refreshButton, manageMaterialsButton, viewPhotosButton;
+    private JButton addButton, editButton, deleteButton, refreshButton, manageMaterialsButton, viewPhotosButton,
+        exportPhotosButton;
     
     public JobPanel() {
         this.jobDAO = new JobDAO();
         this.jobMaterialDAO = new JobMaterialDAO();
         initializePanel();
-        loadJobData();
+        refreshPolicy = new RefreshPolicy("job data", this, this::fetchJobData,
+            Entity.JOB, Entity.CUSTOMER, Entity.EMPLOYEE, Entity.MATERIAL);
+        refreshPolicy.refresh();
     }
     
     private void initializePanel() {
@@ -57,17 +71,17 @@ public class JobPanel extends JPanel {
         toolbar.add(new JLabel("Status:"));
         String[] statuses = {"All", "Pending", "InProgress", "Completed", "OnHold", "Cancelled"};
         statusFilter = new JComboBox<>(statuses);
-        statusFilter.addActionListener(e -> filterByStatus());
+        statusFilter.addActionListener(e -> applyFilters());
         toolbar.add(statusFilter);
         
         // Customer filter
         toolbar.add(new JLabel("Customer ID:"));
         customerFilter = new JTextField(8);
-        customerFilter.addActionListener(e -> filterByCustomer());
+        customerFilter.addActionListener(e -> applyFilters());
         toolbar.add(customerFilter);
         
         JButton customerSearchButton = new JButton("Filter");
-        customerSearchButton.addActionListener(e -> filterByCustomer());
+        customerSearchButton.addActionListener(e -> applyFilters());
         toolbar.add(customerSearchButton);
         
         toolbar.add(new JSeparator(SwingConstants.VERTICAL));
@@ -97,24 +111,41 @@ public class JobPanel extends JPanel {
         viewPhotosButton.setEnabled(false);
         toolbar.add(viewPhotosButton);
         
+        exportPhotosButton = new JButton("Export Photos...");
+        exportPhotosButton.addActionListener(e -> exportPhotos());
+        exportPhotosButton.setEnabled(false);
+        toolbar.add(exportPhotosButton);
+        
         refreshButton = new JButton("Refresh");
         refreshButton.addActionListener(e -> refreshData());
         toolbar.add(refreshButton);
         
+        JButton exportButton = new JButton("Export...");
+        exportButton.addActionListener(e -> ExportSupport.exportDataset(this, ExportDAO.Dataset.JOBS));
+        toolbar.add(exportButton);
+        
         return toolbar;
     }
     
     private void createTable() {
-        String[] columnNames = {"Job ID", "Customer", "Employee", "Description", "Status", "Start Date", "Due Date", "Estimated Cost"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table read-only
-            }
-        };
+        tableModel = new EntityTableModel<>(Job::getJobId, Arrays.asList(
+            Column.of("Job ID", Integer.class, Job::getJobId, 70),
+            Column.of("Customer", Object.class,
+                (Job job) -> job.getCustomerName() != null ? job.getCustomerName() : job.getCustomerId(), 150),
+            Column.of("Employee", Object.class,
+                (Job job) -> job.getEmployeeName() != null ? job.getEmployeeName()
+                    : (job.getEmployeeId() != null ? job.getEmployeeId() : "(None)"), 120),
+            Column.of("Description", String.class, Job::getDescription, 300),
+            Column.of("Status", Job.Status.class, Job::getStatus, 100),
+            Column.of("Start Date", LocalDate.class, Job::getStartDate, 100).renderedBy(TableRenderers.date()),
+            Column.of("Due Date", LocalDate.class, Job::getDueDate, 100).renderedBy(TableRenderers.date()),
+            Column.of("Estimated Cost", BigDecimal.class, Job::getEstimatedTotalCost, 120)
+                .renderedBy(TableRenderers.currency())
+        ));
         
         jobTable = new JTable(tableModel);
-        jobTable.setAutoCreateRowSorter(true);
+        rowSorter = new TableRowSorter<>(tableModel);
+        jobTable.setRowSorter(rowSorter);
         jobTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         jobTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
@@ -123,17 +154,10 @@ public class JobPanel extends JPanel {
                 deleteButton.setEnabled(hasSelection);
                 manageMaterialsButton.setEnabled(hasSelection);
                 viewPhotosButton.setEnabled(hasSelection);
+                exportPhotosButton.setEnabled(hasSelection);
             }
         });
-        
-        // Set column widths
-        jobTable.getColumnModel().getColumn(0).setPreferredWidth(70);  // Job ID
-        jobTable.getColumnModel().getColumn(1).setPreferredWidth(80);  // Customer ID
-        jobTable.getColumnModel().getColumn(2).setPreferredWidth(300); // Description
-        jobTable.getColumnModel().getColumn(3).setPreferredWidth(100); // Status
-        jobTable.getColumnModel().getColumn(4).setPreferredWidth(100); // Start Date
-        jobTable.getColumnModel().getColumn(5).setPreferredWidth(100); // Due Date
-        jobTable.getColumnModel().getColumn(6).setPreferredWidth(120); // Estimated Cost
+        tableModel.configure(jobTable);
     }
     
     private JPanel createInfoPanel() {
@@ -146,99 +170,61 @@ public class JobPanel extends JPanel {
         return infoPanel;
     }
     
-    private void loadJobData() {
-        try {
-            List<Job> jobs = jobDAO.findAll();
+    /**
+     * Load all jobs on a background thread and return the step that shows them
+     */
+    private Runnable fetchJobData() {
+        List<Job> jobs = jobDAO.findAll();
+        return () -> {
             populateTable(jobs);
             logger.info("Loaded " + jobs.size() + " jobs into table");
-        } catch (Exception e) {
-            logger.severe("Error loading job data: " + e.getMessage());
-            JOptionPane.showMessageDialog(this, 
-                "Error loading job data: " + e.getMessage(),
-                "Database Error", 
-                JOptionPane.ERROR_MESSAGE);
-        }
+        };
     }
     
     private void populateTable(List<Job> jobs) {
-        tableModel.setRowCount(0); // Clear existing data
-        
-        for (Job job : jobs) {
-            // Calculate total estimated cost from labor + material
-            java.math.BigDecimal totalEstimate = java.math.BigDecimal.ZERO;
-            if (job.getEstimatedLaborCost() != null) {
-                totalEstimate = totalEstimate.add(job.getEstimatedLaborCost());
-            }
-            if (job.getEstimatedMaterialCost() != null) {
-                totalEstimate = totalEstimate.add(job.getEstimatedMaterialCost());
-            }
-            
-            Object[] row = {
-                job.getJobId(),
-                job.getCustomerName() != null ? job.getCustomerName() : job.getCustomerId(),
-                job.getEmployeeName() != null ? job.getEmployeeName() : (job.getEmployeeId() != null ? job.getEmployeeId().toString() : "(None)"),
-                job.getDescription(),
-                job.getStatus().toString(),
-                job.getStartDate(),
-                job.getDueDate(),
-                String.format("$%.2f", totalEstimate)
-            };
-            tableModel.addRow(row);
-        }
+        tableModel.replaceAll(jobs);
     }
     
-    private void filterByStatus() {
+    /**
+     * Filter the loaded rows by status and customer in place, so background
+     * refreshes keep the full job list
+     */
+    private void applyFilters() {
         String selectedStatus = (String) statusFilter.getSelectedItem();
-        
-        if ("All".equals(selectedStatus)) {
-            loadJobData();
-            return;
+        Job.Status status = "All".equals(selectedStatus) ? null : Job.Status.fromString(selectedStatus);
+        if (status == null && !"All".equals(selectedStatus)) {
+            logger.warning("Invalid status selected: " + selectedStatus);
         }
         
-        try {
-            Job.Status status = Job.Status.fromString(selectedStatus);
-            if (status != null) {
-                List<Job> results = jobDAO.findByStatus(status);
-                populateTable(results);
-                logger.info("Filter by status '" + selectedStatus + "' returned " + results.size() + " results");
-            } else {
-                logger.warning("Invalid status selected: " + selectedStatus);
-                loadJobData(); // Fallback to showing all
-            }
-        } catch (Exception e) {
-            logger.severe("Error filtering jobs by status: " + e.getMessage());
-            JOptionPane.showMessageDialog(this,
-                "Error filtering jobs: " + e.getMessage(),
-                "Filter Error",
-                JOptionPane.ERROR_MESSAGE);
-        }
-    }
-    
-    private void filterByCustomer() {
         String customerIdText = customerFilter.getText().trim();
-        
-        if (customerIdText.isEmpty()) {
-            loadJobData();
-            return;
+        Integer customerId = null;
+        if (!customerIdText.isEmpty()) {
+            try {
+                customerId = Integer.parseInt(customerIdText);
+            } catch (NumberFormatException e) {
+                JOptionPane.showMessageDialog(this,
+                    "Please enter a valid customer ID (number).",
+                    "Invalid Input",
+                    JOptionPane.WARNING_MESSAGE);
+                return;
+            }
         }
         
-        try {
-            Integer customerId = Integer.parseInt(customerIdText);
-            List<Job> results = jobDAO.findByCustomer(customerId);
-            populateTable(results);
-            logger.info("Filter by customer ID " + customerId + " returned " + results.size() + " results");
-        } catch (NumberFormatException e) {
-            JOptionPane.showMessageDialog(this,
-                "Please enter a valid customer ID (number).",
-                "Invalid Input",
-                JOptionPane.WARNING_MESSAGE);
-        } catch (Exception e) {
-            logger.severe("Error filtering jobs by customer: " + e.getMessage());
-            JOptionPane.showMessageDialog(this,
-                "Error filtering jobs: " + e.getMessage(),
-                "Filter Error",
-                JOptionPane.ERROR_MESSAGE);
+        if (status == null && customerId == null) {
+            rowSorter.setRowFilter(null);
+        } else {
+            Integer customer = customerId;
+            rowSorter.setRowFilter(new RowFilter<EntityTableModel<Job>, Integer>() {
+                @Override
+                public boolean include(Entry<? extends EntityTableModel<Job>, ? extends Integer> entry) {
+                    Job job = entry.getModel().getRow(entry.getIdentifier());
+                    return (status == null || job.getStatus() == status)
+                        && (customer == null || customer.equals(job.getCustomerId()));
+                }
+            });
         }
+        logger.info("Filter status '" + selectedStatus + "', customer '" + customerIdText + "' shows " +
+                    jobTable.getRowCount() + " results");
     }
     
     private void addJob() {
@@ -250,10 +236,10 @@ public class JobPanel extends JPanel {
     }
     
     private void editJob() {
-        int selectedRow = jobTable.getSelectedRow();
-        if (selectedRow == -1) return;
+        Job selected = tableModel.getSelected(jobTable);
+        if (selected == null) return;
         
-        Integer jobId = (Integer) tableModel.getValueAt(selectedRow, 0);
+        Integer jobId = selected.getJobId();
         try {
             Job job = jobDAO.findById(jobId);
             JobDialog dialog = new JobDialog((Frame) SwingUtilities.getWindowAncestor(this), job);
@@ -269,11 +255,11 @@ public class JobPanel extends JPanel {
     }
     
     private void deleteJob() {
-        int selectedRow = jobTable.getSelectedRow();
-        if (selectedRow == -1) return;
+        Job selected = tableModel.getSelected(jobTable);
+        if (selected == null) return;
         
-        Integer jobId = (Integer) tableModel.getValueAt(selectedRow, 0);
-        String description = (String) tableModel.getValueAt(selectedRow, 2);
+        Integer jobId = selected.getJobId();
+        String description = selected.getDescription();
         
         int choice = JOptionPane.showConfirmDialog(this,
             "Are you sure you want to delete job:\n" + description + " (ID: " + jobId + ")?",
@@ -300,11 +286,11 @@ public class JobPanel extends JPanel {
     }
     
     private void manageMaterials() {
-        int selectedRow = jobTable.getSelectedRow();
-        if (selectedRow == -1) return;
+        Job selected = tableModel.getSelected(jobTable);
+        if (selected == null) return;
         
-        Integer jobId = (Integer) tableModel.getValueAt(selectedRow, 0);
-        String description = (String) tableModel.getValueAt(selectedRow, 2);
+        Integer jobId = selected.getJobId();
+        String description = selected.getDescription();
         
         // Show materials management dialog
         JobMaterialsDialog dialog = new JobMaterialsDialog(
@@ -316,10 +302,10 @@ public class JobPanel extends JPanel {
     }
     
     private void viewPhotos() {
-        int selectedRow = jobTable.getSelectedRow();
-        if (selectedRow == -1) return;
+        Job selected = tableModel.getSelected(jobTable);
+        if (selected == null) return;
         
-        Integer jobId = (Integer) tableModel.getValueAt(selectedRow, 0);
+        Integer jobId = selected.getJobId();
         
         // Show photo gallery dialog
         PhotoGalleryDialog dialog = new PhotoGalleryDialog(
@@ -329,10 +315,25 @@ public class JobPanel extends JPanel {
         dialog.setVisible(true);
     }
     
+    private void exportPhotos() {
+        Job selected = tableModel.getSelected(jobTable);
+        if (selected == null) return;
+        
+        ExportSupport.exportPhotos(this, "Job #" + selected.getJobId(), "job_" + selected.getJobId() + "_photos",
+            () -> Collections.singletonList(selected));
+    }
+    
     public void refreshData() {
-        loadJobData();
-        statusFilter.setSelectedIndex(0); // Reset to "All"
         customerFilter.setText(""); // Clear customer filter
+        statusFilter.setSelectedIndex(0); // Reset to "All"
+        refreshPolicy.refresh();
+    }
+    
+    /**
+     * Tracks when this panel's data needs reloading
+     */
+    public RefreshPolicy getRefreshPolicy() {
+        return refreshPolicy;
     }
     
     /**
@@ -367,7 +368,7 @@ public class JobPanel extends JPanel {
             add(headerPanel, BorderLayout.NORTH);
             
             // Table
-            String[] columns = {"Material ID", "Material Name", "Category", "Quantity Used", "Stock Available"};
+            String[] columns = {"Material ID", "Material Name", "Category", "Quantity Used", "Available"};
             materialsTableModel = new DefaultTableModel(columns, 0) {
                 @Override
                 public boolean isCellEditable(int row, int column) {
@@ -425,7 +426,7 @@ public class JobPanel extends JPanel {
                     mat.getMaterialName(),
                     mat.getCategory() != null ? mat.getCategory() : "",
                     mat.getQuantityUsed(),
-                    mat.getStockQuantity()
+                    mat.getAvailableQuantity()
                 };
                 materialsTableModel.addRow(row);
             }
@@ -441,23 +442,20 @@ public class JobPanel extends JPanel {
             dialog.setVisible(true);
             
             if (dialog.isConfirmed()) {
-                boolean success = jobMaterialDAO.assignMaterial(
+                ReservationResult result = jobMaterialDAO.assignMaterial(
                     jobId, 
                     dialog.getSelectedMaterialId(), 
                     dialog.getQuantity()
                 );
                 
-                if (success) {
+                if (result == ReservationResult.OK) {
                     loadMaterials();
                     JOptionPane.showMessageDialog(this,
                         "Material assigned successfully.",
                         "Success",
                         JOptionPane.INFORMATION_MESSAGE);
                 } else {
-                    JOptionPane.showMessageDialog(this,
-                        "Failed to assign material. Material may already be assigned to this job.",
-                        "Error",
-                        JOptionPane.ERROR_MESSAGE);
+                    showReservationError(result, "Failed to assign material.");
                 }
             }
         }
@@ -478,23 +476,20 @@ public class JobPanel extends JPanel {
             dialog.setVisible(true);
             
             if (dialog.isConfirmed()) {
-                boolean success = jobMaterialDAO.updateQuantity(
+                ReservationResult result = jobMaterialDAO.updateQuantity(
                     jobId, 
                     materialId, 
                     dialog.getQuantity()
                 );
                 
-                if (success) {
+                if (result == ReservationResult.OK) {
                     loadMaterials();
                     JOptionPane.showMessageDialog(this,
                         "Quantity updated successfully.",
                         "Success",
                         JOptionPane.INFORMATION_MESSAGE);
                 } else {
-                    JOptionPane.showMessageDialog(this,
-                        "Failed to update quantity.",
-                        "Error",
-                        JOptionPane.ERROR_MESSAGE);
+                    showReservationError(result, "Failed to update quantity.");
                 }
             }
         }
@@ -513,21 +508,42 @@ public class JobPanel extends JPanel {
                 JOptionPane.WARNING_MESSAGE);
             
             if (choice == JOptionPane.YES_OPTION) {
-                boolean success = jobMaterialDAO.removeMaterial(jobId, materialId);
+                ReservationResult result = jobMaterialDAO.removeMaterial(jobId, materialId);
                 
-                if (success) {
+                if (result == ReservationResult.OK) {
                     loadMaterials();
                     JOptionPane.showMessageDialog(this,
                         "Material removed successfully.",
                         "Success",
                         JOptionPane.INFORMATION_MESSAGE);
                 } else {
-                    JOptionPane.showMessageDialog(this,
-                        "Failed to remove material.",
-                        "Error",
-                        JOptionPane.ERROR_MESSAGE);
+                    showReservationError(result, "Failed to remove material.");
                 }
             }
         }
+        
+        /**
+         * Explain why a stock reservation was refused; the table is reloaded
+         * since another user's change is the usual cause
+         */
+        private void showReservationError(ReservationResult result, String failedMessage) {
+            String message;
+            switch (result) {
+                case INSUFFICIENT_STOCK:
+                    message = "Not enough of this material is available. It may have been reserved for another job.";
+                    break;
+                case ALREADY_ASSIGNED:
+                    message = "This material is already assigned to this job.";
+                    break;
+                case NOT_FOUND:
+                    message = "The job or material no longer exists, or the material is no longer assigned.";
+                    break;
+                default:
+                    message = failedMessage;
+                    break;
+            }
+            loadMaterials();
+            JOptionPane.showMessageDialog(this, message, "Error", JOptionPane.ERROR_MESSAGE);
+        }
     }
 }
\ No newline at end of file
@@ -1,5 +1,12 @@
 package org.bmc.app.ui;
 
+import org.bmc.app.service.DashboardAggregator;
+import org.bmc.app.service.PhotoGarbageCollector;
+import org.bmc.app.service.PhotoMetadataIndexer;
+import org.bmc.app.service.PhotoTranscoder;
+import org.bmc.app.service.ReferenceDataCache;
+import org.bmc.app.service.ReportSnapshotService;
+
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
@@ -21,6 +28,7 @@ public class MainFrame extends JFrame {
     private MaterialPanel materialPanel;
     private PurchaseOrderPanel purchaseOrderPanel;
     private ReportsPanel reportsPanel;
+    private DashboardPanel dashboardPanel;
     
     public MainFrame() {
         initializeFrame();
@@ -88,11 +96,21 @@ public class MainFrame extends JFrame {
         reportsItem.setMnemonic('R');
         reportsItem.addActionListener(e -> showReportsDialog());
         
+        JMenuItem diagnosticsItem = new JMenuItem("Diagnostics...");
+        diagnosticsItem.setMnemonic('D');
+        diagnosticsItem.addActionListener(e -> showDiagnosticsDialog());
+        
+        JMenuItem photoStorageItem = new JMenuItem("Photo Storage...");
+        photoStorageItem.setMnemonic('P');
+        photoStorageItem.addActionListener(e -> new PhotoStorageDialog(this).setVisible(true));
+        
         JMenuItem settingsItem = new JMenuItem("Settings");
         settingsItem.setMnemonic('S');
         settingsItem.addActionListener(e -> showSettingsDialog());
         
         toolsMenu.add(reportsItem);
+        toolsMenu.add(diagnosticsItem);
+        toolsMenu.add(photoStorageItem);
         toolsMenu.addSeparator();
         toolsMenu.add(settingsItem);
         
@@ -125,28 +143,50 @@ public class MainFrame extends JFrame {
         materialPanel = new MaterialPanel();
         purchaseOrderPanel = new PurchaseOrderPanel();
         reportsPanel = new ReportsPanel();
+        dashboardPanel = new DashboardPanel();
+        
+        // Start pre-computing heavy reports once ReportsPanel is listening for them
+        ReportSnapshotService.getInstance().start();
+        
+        // Warm the lists dialogs pick from, so the first Add/Edit opens without waiting
+        ReferenceDataCache.getInstance().preload();
+        
+        // Dashboard figures are computed in the background and kept current from then on
+        DashboardAggregator.getInstance().start();
+        
+        // Finds photo files and rows that no longer match, in the background
+        PhotoGarbageCollector.getInstance().start();
+        
+        // Records sizes and dates of photos uploaded before they were read at upload
+        PhotoMetadataIndexer.getInstance().start();
+        
+        // Re-encodes large PNG and BMP photos as JPEG while the user is idle (off by default)
+        PhotoTranscoder.getInstance().start();
         
         // Add tabs with mnemonics
+        tabbedPane.addTab("Dashboard", null, dashboardPanel, "Key figures at a glance");
+        tabbedPane.setMnemonicAt(0, java.awt.event.KeyEvent.VK_D);
+        
         tabbedPane.addTab("Customers", null, customerPanel, "Manage customer information");
-        tabbedPane.setMnemonicAt(0, java.awt.event.KeyEvent.VK_C);
+        tabbedPane.setMnemonicAt(1, java.awt.event.KeyEvent.VK_C);
         
         tabbedPane.addTab("Employees", null, employeePanel, "Manage employee information");
-        tabbedPane.setMnemonicAt(1, java.awt.event.KeyEvent.VK_E);
+        tabbedPane.setMnemonicAt(2, java.awt.event.KeyEvent.VK_E);
         
         tabbedPane.addTab("Jobs", null, jobPanel, "Manage restoration jobs");
-        tabbedPane.setMnemonicAt(2, java.awt.event.KeyEvent.VK_J);
+        tabbedPane.setMnemonicAt(3, java.awt.event.KeyEvent.VK_J);
         
         tabbedPane.addTab("Invoices", null, invoicePanel, "Manage billing and invoices");
-        tabbedPane.setMnemonicAt(3, java.awt.event.KeyEvent.VK_I);
+        tabbedPane.setMnemonicAt(4, java.awt.event.KeyEvent.VK_I);
         
         tabbedPane.addTab("Materials", null, materialPanel, "Manage materials and inventory");
-        tabbedPane.setMnemonicAt(4, java.awt.event.KeyEvent.VK_M);
+        tabbedPane.setMnemonicAt(5, java.awt.event.KeyEvent.VK_M);
         
         tabbedPane.addTab("Purchase Orders", null, purchaseOrderPanel, "Manage purchase orders");
-        tabbedPane.setMnemonicAt(5, java.awt.event.KeyEvent.VK_P);
+        tabbedPane.setMnemonicAt(6, java.awt.event.KeyEvent.VK_P);
         
         tabbedPane.addTab("Reports", null, reportsPanel, "View reports and analytics");
-        tabbedPane.setMnemonicAt(6, java.awt.event.KeyEvent.VK_R);
+        tabbedPane.setMnemonicAt(7, java.awt.event.KeyEvent.VK_R);
         
         add(tabbedPane, BorderLayout.CENTER);
         
@@ -185,7 +225,7 @@ public class MainFrame extends JFrame {
             String tabName = tabbedPane.getTitleAt(selectedIndex);
             logger.info("Switched to tab: " + tabName);
             
-            // Refresh data when switching tabs
+            // Reload only if the panel's data is stale or was changed elsewhere
             refreshCurrentPanel();
         });
     }
@@ -195,31 +235,38 @@ public class MainFrame extends JFrame {
         employeePanel.refreshData();
         jobPanel.refreshData();
         invoicePanel.refreshData();
+        materialPanel.getRefreshPolicy().refresh();
         purchaseOrderPanel.refreshData();
+        DashboardAggregator.getInstance().refreshNow();
         
-        JOptionPane.showMessageDialog(
-            this,
-            "All data refreshed successfully",
-            "Refresh Complete",
-            JOptionPane.INFORMATION_MESSAGE
-        );
+        // Panels reload in the background and update as their data arrives
+        logger.info("Refreshing all panels");
     }
     
     private void refreshCurrentPanel() {
-        int selectedIndex = tabbedPane.getSelectedIndex();
-        if (selectedIndex == 0) {
-            customerPanel.refreshData();
-        } else if (selectedIndex == 1) {
-            employeePanel.refreshData();
-        } else if (selectedIndex == 2) {
-            jobPanel.refreshData();
-        } else if (selectedIndex == 3) {
-            invoicePanel.refreshData();
-        } else if (selectedIndex == 5) {
-            purchaseOrderPanel.refreshData();
+        RefreshPolicy policy = getRefreshPolicy(tabbedPane.getSelectedComponent());
+        if (policy != null) {
+            policy.refreshIfNeeded();
         }
     }
     
+    private RefreshPolicy getRefreshPolicy(Component panel) {
+        if (panel == customerPanel) {
+            return customerPanel.getRefreshPolicy();
+        } else if (panel == employeePanel) {
+            return employeePanel.getRefreshPolicy();
+        } else if (panel == jobPanel) {
+            return jobPanel.getRefreshPolicy();
+        } else if (panel == invoicePanel) {
+            return invoicePanel.getRefreshPolicy();
+        } else if (panel == materialPanel) {
+            return materialPanel.getRefreshPolicy();
+        } else if (panel == purchaseOrderPanel) {
+            return purchaseOrderPanel.getRefreshPolicy();
+        }
+        return null; // Reports have their own refresh controls; the dashboard is pushed updates
+    }
+    
     private void showReportsDialog() {
         JOptionPane.showMessageDialog(
             this,
@@ -229,6 +276,10 @@ public class MainFrame extends JFrame {
         );
     }
     
+    private void showDiagnosticsDialog() {
+        new DiagnosticsDialog(this).setVisible(true);
+    }
+    
     private void showSettingsDialog() {
         JOptionPane.showMessageDialog(
             this,
@@ -1,13 +1,12 @@
 package org.bmc.app.ui;
 
-import org.bmc.app.dao.VendorDAO;
 import org.bmc.app.model.Material;
 import org.bmc.app.model.Vendor;
+import org.bmc.app.service.ReferenceDataCache;
 
 import javax.swing.*;
 import java.awt.*;
 import java.math.BigDecimal;
-import java.util.List;
 
 /**
  * Dialog for adding/editing materials
@@ -20,15 +19,14 @@ public class MaterialDialog extends JDialog {
     private JSpinner reorderLevelSpinner;
     private JTextField unitCostField;
     private JComboBox<Vendor> vendorComboBox;
+    private ReferenceComboBoxModel<Vendor> vendorModel;
     
     private boolean confirmed = false;
     private Material material;
-    private VendorDAO vendorDAO;
 
     public MaterialDialog(Frame parent, Material material) {
         super(parent, material == null ? "Add Material" : "Edit Material", true);
         this.material = material;
-        this.vendorDAO = new VendorDAO();
         initializeComponents();
         if (material != null) {
             populateFields();
@@ -88,11 +86,8 @@ public class MaterialDialog extends JDialog {
         formPanel.add(new JLabel("Vendor:"), gbc);
         gbc.gridx = 1;
         vendorComboBox = new JComboBox<>();
-        vendorComboBox.addItem(null); // Add empty option
-        List<Vendor> vendors = vendorDAO.findAll();
-        for (Vendor vendor : vendors) {
-            vendorComboBox.addItem(vendor);
-        }
+        vendorModel = ReferenceComboBoxModel.install(vendorComboBox, ReferenceDataCache.Kind.VENDORS,
+            Vendor::getVendorId, Vendor::getName, " "); // empty option first
         formPanel.add(vendorComboBox, gbc);
 
         add(formPanel, BorderLayout.CENTER);
@@ -126,21 +121,16 @@ public class MaterialDialog extends JDialog {
             if (material.getStockQuantity() != null) {
                 stockQuantitySpinner.setValue(material.getStockQuantity());
             }
+            // Saving an edit does not write the stock; Update Stock checks for concurrent changes
+            stockQuantitySpinner.setEnabled(false);
+            stockQuantitySpinner.setToolTipText("Use Update Stock to change the quantity on hand");
             if (material.getReorderLevel() != null) {
                 reorderLevelSpinner.setValue(material.getReorderLevel());
             }
             if (material.getUnitCost() != null) {
                 unitCostField.setText(material.getUnitCost().toString());
             }
-            if (material.getVendorId() != null) {
-                for (int i = 0; i < vendorComboBox.getItemCount(); i++) {
-                    Vendor vendor = vendorComboBox.getItemAt(i);
-                    if (vendor != null && vendor.getVendorId().equals(material.getVendorId())) {
-                        vendorComboBox.setSelectedIndex(i);
-                        break;
-                    }
-                }
-            }
+            vendorModel.setSelectedKey(material.getVendorId());
         }
     }
 
@@ -178,12 +168,7 @@ public class MaterialDialog extends JDialog {
         material.setReorderLevel((Integer) reorderLevelSpinner.getValue());
         material.setUnitCost(new BigDecimal(unitCostField.getText().trim()));
         
-        Vendor selectedVendor = (Vendor) vendorComboBox.getSelectedItem();
-        if (selectedVendor != null) {
-            material.setVendorId(selectedVendor.getVendorId());
-        } else {
-            material.setVendorId(null);
-        }
+        material.setVendorId(vendorModel.getSelectedKey());
     }
 
     public boolean isConfirmed() {
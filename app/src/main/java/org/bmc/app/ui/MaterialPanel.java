@@ -1,13 +1,19 @@
 package org.bmc.app.ui;
 
+import org.bmc.app.dao.ChangeSet;
+import org.bmc.app.dao.DataChangeNotifier.Entity;
+import org.bmc.app.dao.ExportDAO;
 import org.bmc.app.dao.MaterialDAO;
 import org.bmc.app.model.Material;
+import org.bmc.app.ui.EntityTableModel.Column;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableCellRenderer;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -20,13 +26,17 @@ public class MaterialPanel extends JPanel {
     
     private final MaterialDAO materialDAO;
     private JTable materialTable;
-    private DefaultTableModel tableModel;
+    private EntityTableModel<Material> tableModel;
     private JTextField searchField;
-    private TableRowSorter<DefaultTableModel> sorter;
+    private TableRowSorter<EntityTableModel<Material>> sorter;
+    private IncrementalSearchSupport<Material> search;
+    private Timestamp lastSync; // server time of the last delta, null forces a full reload
+    private RefreshPolicy refreshPolicy;
 
     public MaterialPanel() {
         this.materialDAO = new MaterialDAO();
         initializePanel();
+        refreshPolicy = new RefreshPolicy("material data", this, this::fetchMaterialData, Entity.MATERIAL);
         loadMaterialData();
     }
 
@@ -43,6 +53,7 @@ public class MaterialPanel extends JPanel {
         JButton updateStockButton = new JButton("Update Stock");
         JButton reorderAlertButton = new JButton("Reorder Alerts");
         JButton refreshButton = new JButton("Refresh");
+        JButton exportButton = new JButton("Export...");
 
         addButton.addActionListener(e -> addMaterial());
         editButton.addActionListener(e -> editMaterial());
@@ -50,6 +61,7 @@ public class MaterialPanel extends JPanel {
         updateStockButton.addActionListener(e -> updateStock());
         reorderAlertButton.addActionListener(e -> showReorderAlerts());
         refreshButton.addActionListener(e -> loadMaterialData());
+        exportButton.addActionListener(e -> ExportSupport.exportDataset(this, ExportDAO.Dataset.MATERIALS));
 
         toolbarPanel.add(addButton);
         toolbarPanel.add(editButton);
@@ -57,6 +69,7 @@ public class MaterialPanel extends JPanel {
         toolbarPanel.add(updateStockButton);
         toolbarPanel.add(reorderAlertButton);
         toolbarPanel.add(refreshButton);
+        toolbarPanel.add(exportButton);
 
         add(toolbarPanel, BorderLayout.NORTH);
 
@@ -64,60 +77,53 @@ public class MaterialPanel extends JPanel {
         JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         searchPanel.add(new JLabel("Search:"));
         searchField = new JTextField(20);
+        searchField.setToolTipText("Type to filter by name, category or vendor");
         JButton searchButton = new JButton("Search");
         
-        searchButton.addActionListener(e -> searchMaterials());
-        searchField.addActionListener(e -> searchMaterials());
+        searchButton.addActionListener(e -> searchField.postActionEvent());
 
         searchPanel.add(searchField);
         searchPanel.add(searchButton);
         toolbarPanel.add(searchPanel);
 
         // Table
-        String[] columns = {"ID", "Name", "Category", "Vendor", "Stock Qty", "Reorder Level", "Unit Cost"};
-        tableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        tableModel = new EntityTableModel<>(Material::getMaterialId, Arrays.asList(
+            Column.of("ID", Integer.class, Material::getMaterialId, 50),
+            Column.of("Name", String.class, Material::getName, 180),
+            Column.of("Category", String.class, Material::getCategory, 120),
+            Column.of("Vendor", String.class,
+                (Material material) -> material.getVendorName() != null ? material.getVendorName() : "", 150),
+            Column.of("Stock Qty", Integer.class, Material::getStockQuantity, 80),
+            Column.of("Reserved", Integer.class, Material::getReservedQuantity, 70),
+            Column.of("Available", Integer.class, Material::getAvailableQuantity, 70),
+            Column.of("Reorder Level", Integer.class, Material::getReorderLevel, 90),
+            Column.of("Unit Cost", BigDecimal.class, Material::getUnitCost, 90).renderedBy(TableRenderers.currency())
+        ));
         
-        materialTable = new JTable(tableModel);
-        materialTable.setAutoCreateRowSorter(true);
-        materialTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
-        materialTable.setAutoCreateRowSorter(true);
-        sorter = new TableRowSorter<>(tableModel);
-        materialTable.setRowSorter(sorter);
-        
-        // Custom renderer to highlight low stock items in red
-        materialTable.setDefaultRenderer(Object.class, new DefaultTableCellRenderer() {
+        // Highlight low stock rows in red; done per row here so every column renderer gets it
+        materialTable = new JTable(tableModel) {
             @Override
-            public Component getTableCellRendererComponent(JTable table, Object value,
-                                                          boolean isSelected, boolean hasFocus,
-                                                          int row, int column) {
-                Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
-                
-                if (!isSelected) {
-                    // Get stock quantity and reorder level from the table
-                    int modelRow = table.convertRowIndexToModel(row);
-                    Integer stockQty = (Integer) table.getModel().getValueAt(modelRow, 4);
-                    Integer reorderLevel = (Integer) table.getModel().getValueAt(modelRow, 5);
-                    
-                    if (stockQty != null && reorderLevel != null && stockQty <= reorderLevel) {
+            public Component prepareRenderer(TableCellRenderer renderer, int row, int column) {
+                Component c = super.prepareRenderer(renderer, row, column);
+                if (!isRowSelected(row)) {
+                    Material material = tableModel.getRow(convertRowIndexToModel(row));
+                    if (material.isLowStock()) {
                         c.setBackground(new Color(255, 200, 200)); // Light red
-                        c.setForeground(Color.BLACK);
                     } else {
-                        c.setBackground(Color.WHITE);
-                        c.setForeground(Color.BLACK);
+                        c.setBackground(getBackground());
                     }
-                } else {
-                    c.setBackground(table.getSelectionBackground());
-                    c.setForeground(table.getSelectionForeground());
+                    c.setForeground(Color.BLACK);
                 }
-                
                 return c;
             }
-        });
+        };
+        materialTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        sorter = new TableRowSorter<>(tableModel);
+        materialTable.setRowSorter(sorter);
+        tableModel.configure(materialTable);
+        search = new IncrementalSearchSupport<>(searchField, tableModel, sorter, Arrays.asList(
+            Material::getName, Material::getCategory, Material::getVendorName
+        )).withServerSearch(materialDAO::search);
 
         // Double-click to edit
         materialTable.addMouseListener(new java.awt.event.MouseAdapter() {
@@ -139,26 +145,44 @@ public class MaterialPanel extends JPanel {
         add(statusPanel, BorderLayout.SOUTH);
     }
 
+    /**
+     * Reload in the background; the table keeps its rows until the data arrives
+     */
     private void loadMaterialData() {
-        List<Material> materials = materialDAO.findAll();
-        updateTable(materials);
-        LOGGER.info("Loaded " + materials.size() + " materials into table");
+        refreshPolicy.refresh();
     }
 
-    private void updateTable(List<Material> materials) {
-        tableModel.setRowCount(0);
-        for (Material material : materials) {
-            Object[] row = {
-                material.getMaterialId(),
-                material.getName(),
-                material.getCategory(),
-                material.getVendorName() != null ? material.getVendorName() : "",
-                material.getStockQuantity(),
-                material.getReorderLevel(),
-                String.format("$%.2f", material.getUnitCost())
+    /**
+     * Fetch only the rows changed since the last sync, on a background thread,
+     * and return the step that merges them into the table. Falls back to a
+     * full reload if change tracking is unavailable.
+     */
+    private Runnable fetchMaterialData() {
+        ChangeSet<Material> changes = materialDAO.findChangedSince(lastSync);
+        if (changes == null) {
+            List<Material> materials = materialDAO.findAll();
+            return () -> {
+                updateTable(materials);
+                LOGGER.info("Loaded " + materials.size() + " materials into table");
+                lastSync = null;
             };
-            tableModel.addRow(row);
         }
+        return () -> {
+            int touched = tableModel.applyChanges(changes);
+            lastSync = changes.getWatermark();
+            LOGGER.fine("Material sync " + changes + " touched " + touched + " rows");
+        };
+    }
+
+    /**
+     * Tracks when this panel's data needs reloading
+     */
+    public RefreshPolicy getRefreshPolicy() {
+        return refreshPolicy;
+    }
+
+    private void updateTable(List<Material> materials) {
+        tableModel.replaceAll(materials);
     }
 
     private void addMaterial() {
@@ -193,7 +217,7 @@ public class MaterialPanel extends JPanel {
         }
 
         int modelRow = materialTable.convertRowIndexToModel(selectedRow);
-        Integer materialId = (Integer) tableModel.getValueAt(modelRow, 0);
+        Integer materialId = tableModel.getRow(modelRow).getMaterialId();
         Material material = materialDAO.findById(materialId);
 
         if (material != null) {
@@ -229,8 +253,8 @@ public class MaterialPanel extends JPanel {
         }
 
         int modelRow = materialTable.convertRowIndexToModel(selectedRow);
-        Integer materialId = (Integer) tableModel.getValueAt(modelRow, 0);
-        String materialName = (String) tableModel.getValueAt(modelRow, 1);
+        Integer materialId = tableModel.getRow(modelRow).getMaterialId();
+        String materialName = tableModel.getRow(modelRow).getName();
 
         int confirm = JOptionPane.showConfirmDialog(this,
                 "Are you sure you want to delete material: " + materialName + "?",
@@ -264,45 +288,67 @@ public class MaterialPanel extends JPanel {
         }
 
         int modelRow = materialTable.convertRowIndexToModel(selectedRow);
-        Integer materialId = (Integer) tableModel.getValueAt(modelRow, 0);
+        Integer materialId = tableModel.getRow(modelRow).getMaterialId();
         Material material = materialDAO.findById(materialId);
 
-        if (material != null) {
+        // The new quantity is written only if the stock is still what was shown,
+        // so a concurrent change is never silently overwritten
+        while (material != null) {
+            int expectedQuantity = material.getStockQuantity() != null ? material.getStockQuantity() : 0;
             String input = JOptionPane.showInputDialog(this,
-                    "Enter new stock quantity for " + material.getName() + ":",
-                    material.getStockQuantity());
-
-            if (input != null) {
-                try {
-                    int newQuantity = Integer.parseInt(input.trim());
-                    if (newQuantity < 0) {
-                        JOptionPane.showMessageDialog(this,
-                                "Stock quantity cannot be negative.",
-                                "Invalid Input",
-                                JOptionPane.ERROR_MESSAGE);
-                        return;
-                    }
-                    material.setStockQuantity(newQuantity);
-                    if (materialDAO.update(material)) {
-                        JOptionPane.showMessageDialog(this,
-                                "Stock updated successfully!",
-                                "Success",
-                                JOptionPane.INFORMATION_MESSAGE);
-                        loadMaterialData();
-                    } else {
-                        JOptionPane.showMessageDialog(this,
-                                "Failed to update stock.",
-                                "Error",
-                                JOptionPane.ERROR_MESSAGE);
-                    }
-                } catch (NumberFormatException e) {
-                    JOptionPane.showMessageDialog(this,
-                            "Please enter a valid number.",
-                            "Invalid Input",
-                            JOptionPane.ERROR_MESSAGE);
-                }
+                    "Enter new stock quantity for " + material.getName()
+                            + " (" + material.getReservedQuantity() + " reserved for jobs):",
+                    expectedQuantity);
+            if (input == null) {
+                return;
+            }
+
+            int newQuantity;
+            try {
+                newQuantity = Integer.parseInt(input.trim());
+            } catch (NumberFormatException e) {
+                JOptionPane.showMessageDialog(this,
+                        "Please enter a valid number.",
+                        "Invalid Input",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            if (newQuantity < 0) {
+                JOptionPane.showMessageDialog(this,
+                        "Stock quantity cannot be negative.",
+                        "Invalid Input",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            int result = materialDAO.updateStock(materialId, expectedQuantity, newQuantity);
+            if (result > 0) {
+                JOptionPane.showMessageDialog(this,
+                        "Stock updated successfully!",
+                        "Success",
+                        JOptionPane.INFORMATION_MESSAGE);
+                loadMaterialData();
+                return;
+            }
+            if (result < 0) {
+                JOptionPane.showMessageDialog(this,
+                        "Failed to update stock.",
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            // Someone else changed the stock in the meantime; show the new figure and ask again
+            material = materialDAO.findById(materialId);
+            if (material != null) {
+                JOptionPane.showMessageDialog(this,
+                        "The stock of " + material.getName() + " was changed by someone else and is now "
+                                + material.getStockQuantity() + ". Please enter the quantity again.",
+                        "Stock Changed",
+                        JOptionPane.WARNING_MESSAGE);
             }
         }
+        loadMaterialData();
     }
 
     private void showReorderAlerts() {
@@ -319,8 +365,9 @@ public class MaterialPanel extends JPanel {
         StringBuilder message = new StringBuilder();
         message.append("Materials needing reorder:\n\n");
         for (Material material : lowStockMaterials) {
-            message.append(String.format("%s: %d in stock (reorder at %d)\n",
+            message.append(String.format("%s: %d available, %d in stock (reorder at %d)\n",
                     material.getName(),
+                    material.getAvailableQuantity(),
                     material.getStockQuantity(),
                     material.getReorderLevel()));
         }
@@ -330,15 +377,4 @@ public class MaterialPanel extends JPanel {
                 "Reorder Alerts (" + lowStockMaterials.size() + " materials)",
                 JOptionPane.WARNING_MESSAGE);
     }
-
-    private void searchMaterials() {
-        String keyword = searchField.getText().trim();
-        if (keyword.isEmpty()) {
-            loadMaterialData();
-        } else {
-            List<Material> results = materialDAO.search(keyword);
-            updateTable(results);
-            LOGGER.info("Search returned " + results.size() + " materials");
-        }
-    }
 }
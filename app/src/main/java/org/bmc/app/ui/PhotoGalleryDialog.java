@@ -2,58 +2,155 @@ package org.bmc.app.ui;
 
 import org.bmc.app.dao.PhotoDAO;
 import org.bmc.app.model.Photo;
+import org.bmc.app.service.ThumbnailGenerator;
 import org.bmc.app.util.PhotoStorageUtil;
+import org.bmc.app.util.ThumbnailLoader;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
-import java.awt.image.BufferedImage;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.io.File;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
 
 /**
  * Read-only dialog for viewing all photos associated with a job.
+ *
+ * Photos are shown in a wrapping list, so only cards on screen are painted.
+ * Thumbnails are decoded in the background as cards scroll into view (a
+ * placeholder shows until then), and pending decodes for cards that scroll
+ * well out of view are cancelled. Sizes, dates and sorting come from the
+ * metadata recorded with each photo, so none of them opens an image file.
  */
 public class PhotoGalleryDialog extends JDialog {
+    private static final Logger logger = Logger.getLogger(PhotoGalleryDialog.class.getName());
+
+    private static final int THUMBNAIL_WIDTH = 250;
+    private static final int THUMBNAIL_HEIGHT = 200;
+    private static final int PREFETCH_ROWS = 1; // rows beyond the viewport worth decoding
+    private static final int MAX_CACHED_THUMBNAILS = 150;
+    private static final DateTimeFormatter TAKEN_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    /**
+     * Orders the gallery can be sorted in
+     */
+    private enum SortOrder {
+        UPLOADED("Upload order", Comparator.comparing(Photo::getPhotoId)),
+        TAKEN("Date taken", Comparator.comparing(Photo::getTakenAt, Comparator.nullsLast(Comparator.naturalOrder()))),
+        RESOLUTION("Largest first", Comparator.comparing(PhotoGalleryDialog::pixels).reversed()),
+        FILE_SIZE("File size", Comparator.comparing(Photo::getFileSize,
+                                                    Comparator.nullsLast(Comparator.reverseOrder())));
+
+        private final String label;
+        private final Comparator<Photo> comparator;
+
+        SortOrder(String label, Comparator<Photo> comparator) {
+            this.label = label;
+            this.comparator = comparator.thenComparing(Photo::getPhotoId);
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
     private PhotoDAO photoDAO;
     private int jobId;
-    private List<Photo> photos;
-    private JPanel thumbnailPanel;
-    
+    private DefaultListModel<Photo> photoListModel;
+    private JList<Photo> photoList;
+    private JPanel contentPanel;
+    private JLabel messageLabel;
+    private JComboBox<SortOrder> sortCombo;
+    private List<Photo> photos = new ArrayList<>();
+
+    // Thumbnail state by photo ID, touched only on the Event Dispatch Thread
+    private final Map<Integer, ImageIcon> thumbnails = new LinkedHashMap<Integer, ImageIcon>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, ImageIcon> eldest) {
+            return size() > MAX_CACHED_THUMBNAILS;
+        }
+    };
+    private final Map<Integer, String> failures = new HashMap<>();
+    private final Map<Integer, Future<?>> pending = new HashMap<>();
+    private final Map<Integer, Integer> indexById = new HashMap<>();
+
     public PhotoGalleryDialog(Frame parent, int jobId) {
         super(parent, "Photos for Job #" + jobId, true);
         this.photoDAO = new PhotoDAO();
         this.jobId = jobId;
-        
+
         initializeDialog();
         loadPhotos();
-        refreshThumbnails();
     }
-    
+
     private void initializeDialog() {
         setLayout(new BorderLayout(10, 10));
         setSize(900, 700);
         setLocationRelativeTo(getParent());
-        
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+
         // Title panel
-        JPanel titlePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JPanel titlePanel = new JPanel(new BorderLayout());
         titlePanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 0, 10));
         JLabel titleLabel = new JLabel("Job #" + jobId + " Photo Gallery");
         titleLabel.setFont(new Font("Arial", Font.BOLD, 16));
-        titlePanel.add(titleLabel);
-        add(titlePanel, BorderLayout.NORTH);
+        titlePanel.add(titleLabel, BorderLayout.WEST);
         
-        // Thumbnail scroll pane
-        thumbnailPanel = new JPanel();
-        thumbnailPanel.setLayout(new GridLayout(0, 3, 15, 15)); // 3 columns
-        thumbnailPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-        thumbnailPanel.setBackground(Color.WHITE);
-        
-        JScrollPane scrollPane = new JScrollPane(thumbnailPanel);
+        JPanel sortPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        sortPanel.add(new JLabel("Sort by:"));
+        sortCombo = new JComboBox<>(SortOrder.values());
+        sortCombo.addActionListener(e -> sortPhotos());
+        sortPanel.add(sortCombo);
+        titlePanel.add(sortPanel, BorderLayout.EAST);
+        add(titlePanel, BorderLayout.NORTH);
+
+        // Thumbnail grid; fixed cell sizes keep JList from rendering every card to measure it
+        photoListModel = new DefaultListModel<>();
+        photoList = new JList<>(photoListModel);
+        photoList.setLayoutOrientation(JList.HORIZONTAL_WRAP);
+        photoList.setVisibleRowCount(-1);
+        photoList.setFixedCellWidth(THUMBNAIL_WIDTH + 30);
+        photoList.setFixedCellHeight(THUMBNAIL_HEIGHT + 75);
+        photoList.setCellRenderer(new PhotoCardRenderer());
+        photoList.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        photoList.setBackground(Color.WHITE);
+        photoList.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+
+        // Click to view full size
+        photoList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = photoList.locationToIndex(e.getPoint());
+                if (index != -1 && photoList.getCellBounds(index, index).contains(e.getPoint())) {
+                    viewFullSize(photoListModel.get(index));
+                }
+            }
+        });
+
+        JScrollPane scrollPane = new JScrollPane(photoList);
         scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
         scrollPane.getVerticalScrollBar().setUnitIncrement(16);
-        add(scrollPane, BorderLayout.CENTER);
-        
+        scrollPane.getViewport().addChangeListener(e -> cancelOutOfView());
+
+        messageLabel = new JLabel("Loading photos...");
+        messageLabel.setFont(new Font("Arial", Font.ITALIC, 14));
+        messageLabel.setHorizontalAlignment(SwingConstants.CENTER);
+
+        contentPanel = new JPanel(new CardLayout());
+        contentPanel.add(messageLabel, "message");
+        contentPanel.add(scrollPane, "photos");
+        add(contentPanel, BorderLayout.CENTER);
+
         // Bottom panel with close button
         JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
         JButton closeButton = new JButton("Close");
@@ -61,107 +158,249 @@ public class PhotoGalleryDialog extends JDialog {
         bottomPanel.add(closeButton);
         add(bottomPanel, BorderLayout.SOUTH);
     }
-    
+
     private void loadPhotos() {
-        try {
-            photos = photoDAO.findByJobId(jobId);
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this,
-                "Error loading photos: " + e.getMessage(),
-                "Database Error",
-                JOptionPane.ERROR_MESSAGE);
-            photos = List.of();
+        new SwingWorker<List<Photo>, Void>() {
+            @Override
+            protected List<Photo> doInBackground() {
+                return photoDAO.findByJobId(jobId);
+            }
+
+            @Override
+            protected void done() {
+                List<Photo> photos;
+                try {
+                    photos = get();
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(PhotoGalleryDialog.this,
+                        "Error loading photos: " + cause.getMessage(),
+                        "Database Error",
+                        JOptionPane.ERROR_MESSAGE);
+                    photos = List.of();
+                }
+                showPhotos(photos);
+            }
+        }.execute();
+    }
+
+    private void showPhotos(List<Photo> loaded) {
+        CardLayout cards = (CardLayout) contentPanel.getLayout();
+        if (loaded.isEmpty()) {
+            messageLabel.setText("No photos available for this job.");
+            cards.show(contentPanel, "message");
+            return;
         }
+        photos = new ArrayList<>(loaded);
+        sortPhotos();
+        cards.show(contentPanel, "photos");
+        logger.fine("Showing " + photos.size() + " photos for job " + jobId);
     }
-    
-    private void refreshThumbnails() {
-        thumbnailPanel.removeAll();
-        
-        if (photos.isEmpty()) {
-            JLabel emptyLabel = new JLabel("No photos available for this job.");
-            emptyLabel.setFont(new Font("Arial", Font.ITALIC, 14));
-            emptyLabel.setHorizontalAlignment(SwingConstants.CENTER);
-            thumbnailPanel.setLayout(new BorderLayout());
-            thumbnailPanel.add(emptyLabel, BorderLayout.CENTER);
-        } else {
-            thumbnailPanel.setLayout(new GridLayout(0, 3, 15, 15));
-            for (Photo photo : photos) {
-                JPanel photoCard = createPhotoCard(photo);
-                thumbnailPanel.add(photoCard);
-            }
+
+    /**
+     * Put the cards in the chosen order; thumbnails already decoded are kept
+     */
+    private void sortPhotos() {
+        photos.sort(((SortOrder) sortCombo.getSelectedItem()).comparator);
+        photoListModel.clear();
+        indexById.clear();
+        for (int i = 0; i < photos.size(); i++) {
+            indexById.put(photos.get(i).getPhotoId(), i);
         }
-        
-        thumbnailPanel.revalidate();
-        thumbnailPanel.repaint();
+        photoListModel.addAll(photos);
+        photoList.ensureIndexIsVisible(0);
     }
-    
-    private JPanel createPhotoCard(Photo photo) {
-        JPanel card = new JPanel(new BorderLayout(5, 5));
-        card.setBorder(BorderFactory.createCompoundBorder(
-            BorderFactory.createLineBorder(Color.GRAY, 1),
-            BorderFactory.createEmptyBorder(5, 5, 5, 5)
-        ));
-        card.setBackground(Color.WHITE);
-        
-        // Thumbnail image
-        JLabel imageLabel = new JLabel();
-        imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
-        imageLabel.setPreferredSize(new Dimension(250, 200));
-        imageLabel.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
-        
-        // Load thumbnail
-        try {
-            File photoFile = PhotoStorageUtil.getPhotoFile(photo.getFilePath());
-            if (photoFile.exists()) {
-                BufferedImage img = ImageIO.read(photoFile);
-                if (img != null) {
-                    // Scale to thumbnail size
-                    Image scaledImage = img.getScaledInstance(250, 200, Image.SCALE_SMOOTH);
-                    imageLabel.setIcon(new ImageIcon(scaledImage));
-                } else {
-                    imageLabel.setText("Cannot load image");
-                }
-            } else {
-                imageLabel.setText("Image not found");
-            }
-        } catch (Exception e) {
-            imageLabel.setText("Error loading image");
+
+    private static long pixels(Photo photo) {
+        return photo.getWidth() != null && photo.getHeight() != null
+            ? (long) photo.getWidth() * photo.getHeight() : 0;
+    }
+
+    /**
+     * Start decoding a thumbnail unless it is cached, failed or already queued
+     */
+    private void requestThumbnail(Photo photo) {
+        Integer photoId = photo.getPhotoId();
+        if (thumbnails.containsKey(photoId) || failures.containsKey(photoId) || pending.containsKey(photoId)) {
+            return;
         }
-        
-        // Click to view full size
-        imageLabel.addMouseListener(new java.awt.event.MouseAdapter() {
-            @Override
-            public void mouseClicked(java.awt.event.MouseEvent e) {
-                viewFullSize(photo);
+        // Photos from before thumbnails existed get them now, for the next time they are shown
+        ThumbnailGenerator.getInstance().ensureThumbnails(photo, null);
+        File photoFile = PhotoStorageUtil.getPhotoFile(photo, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+        if (photoFile == null) {
+            failures.put(photoId, "Image not found");
+            return;
+        }
+        pending.put(photoId, ThumbnailLoader.getInstance().load(photoFile, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT,
+            image -> {
+                pending.remove(photoId);
+                thumbnails.put(photoId, new ImageIcon(image));
+                repaintPhoto(photoId);
+            },
+            message -> {
+                pending.remove(photoId);
+                failures.put(photoId, message);
+                repaintPhoto(photoId);
+            }));
+    }
+
+    private void repaintPhoto(Integer photoId) {
+        Integer index = indexById.get(photoId);
+        Rectangle bounds = index != null ? photoList.getCellBounds(index, index) : null;
+        if (bounds != null) {
+            photoList.repaint(bounds);
+        }
+    }
+
+    /**
+     * Cancel decodes for cards more than PREFETCH_ROWS rows outside the viewport
+     */
+    private void cancelOutOfView() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        int first = photoList.getFirstVisibleIndex();
+        int last = photoList.getLastVisibleIndex();
+        if (first == -1) {
+            return;
+        }
+        int perRow = Math.max(1, photoList.getWidth() / photoList.getFixedCellWidth());
+        int low = first - PREFETCH_ROWS * perRow;
+        int high = last + PREFETCH_ROWS * perRow;
+
+        Iterator<Map.Entry<Integer, Future<?>>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Future<?>> entry = it.next();
+            int index = indexById.get(entry.getKey());
+            if (index < low || index > high) {
+                entry.getValue().cancel(true);
+                it.remove();
             }
-        });
-        
-        card.add(imageLabel, BorderLayout.CENTER);
-        
-        // Photo info at bottom
-        JPanel infoPanel = new JPanel();
-        infoPanel.setLayout(new BoxLayout(infoPanel, BoxLayout.Y_AXIS));
-        infoPanel.setBackground(Color.WHITE);
-        
-        JLabel nameLabel = new JLabel(photo.getDisplayName());
-        nameLabel.setFont(new Font("Arial", Font.BOLD, 11));
-        nameLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
-        infoPanel.add(nameLabel);
-        
-        if (photo.getDescription() != null && !photo.getDescription().trim().isEmpty()) {
-            JLabel descLabel = new JLabel(photo.getDescription());
-            descLabel.setFont(new Font("Arial", Font.PLAIN, 10));
-            descLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
-            infoPanel.add(descLabel);
         }
-        
-        card.add(infoPanel, BorderLayout.SOUTH);
-        
-        return card;
     }
-    
+
+    @Override
+    public void dispose() {
+        for (Future<?> request : pending.values()) {
+            request.cancel(true);
+        }
+        pending.clear();
+        super.dispose();
+    }
+
     private void viewFullSize(Photo photo) {
         PhotoViewerDialog viewer = new PhotoViewerDialog(this, photo);
         viewer.setVisible(true);
     }
+
+    /**
+     * Paints one photo card; JList only asks for cards that are on screen,
+     * which is when their thumbnails get requested
+     */
+    private class PhotoCardRenderer extends JPanel implements ListCellRenderer<Photo> {
+        private final JLabel imageLabel = new JLabel();
+        private final JLabel nameLabel = new JLabel();
+        private final JLabel descLabel = new JLabel();
+        private final JLabel detailLabel = new JLabel();
+
+        PhotoCardRenderer() {
+            super(new BorderLayout(5, 5));
+            setBackground(Color.WHITE);
+
+            imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
+            imageLabel.setPreferredSize(new Dimension(THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT));
+            add(imageLabel, BorderLayout.CENTER);
+
+            // Photo info at bottom
+            JPanel infoPanel = new JPanel();
+            infoPanel.setLayout(new BoxLayout(infoPanel, BoxLayout.Y_AXIS));
+            infoPanel.setOpaque(false);
+            nameLabel.setFont(new Font("Arial", Font.BOLD, 11));
+            nameLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+            infoPanel.add(nameLabel);
+            descLabel.setFont(new Font("Arial", Font.PLAIN, 10));
+            descLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+            infoPanel.add(descLabel);
+            detailLabel.setFont(new Font("Arial", Font.PLAIN, 10));
+            detailLabel.setForeground(Color.GRAY);
+            detailLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+            infoPanel.add(detailLabel);
+            add(infoPanel, BorderLayout.SOUTH);
+        }
+
+        @Override
+        public Component getListCellRendererComponent(JList<? extends Photo> list, Photo photo, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+            setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createEmptyBorder(5, 5, 5, 5),
+                BorderFactory.createCompoundBorder(
+                    BorderFactory.createLineBorder(isSelected ? list.getSelectionBackground() : Color.GRAY,
+                                                   isSelected ? 2 : 1),
+                    BorderFactory.createEmptyBorder(5, 5, 5, 5))));
+
+            ImageIcon thumbnail = thumbnails.get(photo.getPhotoId());
+            if (thumbnail != null) {
+                imageLabel.setIcon(thumbnail);
+                imageLabel.setText(null);
+            } else {
+                String failure = failures.get(photo.getPhotoId());
+                // While loading, the recorded size gives the thumbnail's shape
+                imageLabel.setIcon(failure == null ? placeholderFor(photo) : null);
+                imageLabel.setText(failure != null ? failure : imageLabel.getIcon() == null ? "Loading..." : null);
+                if (failure == null) {
+                    requestThumbnail(photo);
+                }
+            }
+
+            nameLabel.setText(photo.getDisplayName());
+            String description = photo.getDescription();
+            descLabel.setText(description != null && !description.trim().isEmpty() ? description : " ");
+            detailLabel.setText(details(photo));
+            return this;
+        }
+
+        private Icon placeholderFor(Photo photo) {
+            if (photo.getWidth() == null || photo.getHeight() == null) {
+                return null;
+            }
+            double scale = Math.min(1.0, Math.min((double) THUMBNAIL_WIDTH / photo.getWidth(),
+                                                  (double) THUMBNAIL_HEIGHT / photo.getHeight()));
+            int width = Math.max(1, (int) Math.round(photo.getWidth() * scale));
+            int height = Math.max(1, (int) Math.round(photo.getHeight() * scale));
+            return new Icon() {
+                @Override
+                public void paintIcon(Component c, Graphics g, int x, int y) {
+                    g.setColor(new Color(235, 235, 235));
+                    g.fillRect(x, y, width, height);
+                }
+
+                @Override
+                public int getIconWidth() {
+                    return width;
+                }
+
+                @Override
+                public int getIconHeight() {
+                    return height;
+                }
+            };
+        }
+
+        /**
+         * e.g. "4032 x 3024, 2.4 MB, taken 2024-05-01 14:30"
+         */
+        private String details(Photo photo) {
+            List<String> parts = new ArrayList<>();
+            if (!photo.getDimensionsDisplay().isEmpty()) {
+                parts.add(photo.getDimensionsDisplay());
+            }
+            if (photo.getFileSize() != null) {
+                parts.add(PhotoStorageUtil.formatFileSize(photo.getFileSize()));
+            }
+            if (photo.getTakenAt() != null) {
+                parts.add("taken " + TAKEN_FORMATTER.format(photo.getTakenAt()));
+            }
+            return parts.isEmpty() ? " " : String.join(", ", parts);
+        }
+    }
 }
@@ -0,0 +1,222 @@
+package org.bmc.app.ui;
+
+import org.bmc.app.dao.PhotoDAO.TranscodeSavings;
+import org.bmc.app.model.Photo;
+import org.bmc.app.service.PhotoGarbageCollector;
+import org.bmc.app.service.PhotoGarbageCollector.Orphan;
+import org.bmc.app.service.PhotoGarbageCollector.Report;
+import org.bmc.app.service.PhotoTranscoder;
+import org.bmc.app.util.PhotoStorageUtil;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.logging.Logger;
+
+/**
+ * Shows how the photos/ directory and the Photo table disagree: files no
+ * photo uses, and photos whose file is missing. Either can be removed after
+ * confirmation. Opens with the latest background scan, if any, and the
+ * space saved by recompression when that is turned on.
+ */
+public class PhotoStorageDialog extends JDialog {
+    private static final Logger logger = Logger.getLogger(PhotoStorageDialog.class.getName());
+
+    private static final DateTimeFormatter TIME_FORMATTER =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+
+    private final PhotoGarbageCollector collector = PhotoGarbageCollector.getInstance();
+
+    private JLabel summaryLabel;
+    private DefaultTableModel orphanModel;
+    private DefaultTableModel danglingModel;
+    private JButton scanButton;
+    private JButton removeOrphansButton;
+    private JButton removeDanglingButton;
+    private Report report;
+
+    public PhotoStorageDialog(Frame parent) {
+        super(parent, "Photo Storage", false);
+        initializeDialog();
+        showReport(collector.getLastReport());
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        setLocationRelativeTo(parent);
+    }
+
+    private void initializeDialog() {
+        setLayout(new BorderLayout(5, 5));
+        setSize(800, 550);
+
+        summaryLabel = new JLabel();
+        summaryLabel.setBorder(BorderFactory.createEmptyBorder(8, 8, 0, 8));
+        JPanel headerPanel = new JPanel(new BorderLayout());
+        headerPanel.add(summaryLabel, BorderLayout.NORTH);
+        JLabel savingsLabel = createSavingsLabel();
+        if (savingsLabel != null) {
+            headerPanel.add(savingsLabel, BorderLayout.SOUTH);
+        }
+        add(headerPanel, BorderLayout.NORTH);
+
+        orphanModel = readOnlyModel("File", "Size", "Modified");
+        JTable orphanTable = new JTable(orphanModel);
+        orphanTable.getColumnModel().getColumn(0).setPreferredWidth(450);
+        JScrollPane orphanScroll = new JScrollPane(orphanTable);
+        orphanScroll.setBorder(BorderFactory.createTitledBorder("Files No Photo Uses"));
+
+        danglingModel = readOnlyModel("Photo ID", "Job ID", "Missing File");
+        JTable danglingTable = new JTable(danglingModel);
+        danglingTable.getColumnModel().getColumn(2).setPreferredWidth(450);
+        JScrollPane danglingScroll = new JScrollPane(danglingTable);
+        danglingScroll.setBorder(BorderFactory.createTitledBorder("Photos With Missing Files"));
+
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, orphanScroll, danglingScroll);
+        split.setResizeWeight(0.6);
+        add(split, BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        scanButton = new JButton("Scan Now");
+        scanButton.addActionListener(e -> scan());
+        removeOrphansButton = new JButton("Delete Unused Files...");
+        removeOrphansButton.addActionListener(e -> removeOrphans());
+        removeDanglingButton = new JButton("Delete Photos With Missing Files...");
+        removeDanglingButton.addActionListener(e -> removeDangling());
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dispose());
+        buttonPanel.add(scanButton);
+        buttonPanel.add(removeOrphansButton);
+        buttonPanel.add(removeDanglingButton);
+        buttonPanel.add(closeButton);
+        add(buttonPanel, BorderLayout.SOUTH);
+    }
+
+    /**
+     * Line about what recompression has saved, or null if it is turned off
+     */
+    private static JLabel createSavingsLabel() {
+        PhotoTranscoder transcoder = PhotoTranscoder.getInstance();
+        if (!transcoder.isEnabled()) {
+            return null;
+        }
+        TranscodeSavings savings = transcoder.getLastSavings();
+        String text = savings == null
+            ? "Recompression has not run yet."
+            : String.format("Recompression has saved %s on %,d files. %,d originals (%s) are still kept.",
+                PhotoStorageUtil.formatFileSize(savings.getBytesSaved()), savings.getFiles(),
+                savings.getRetainedFiles(), PhotoStorageUtil.formatFileSize(savings.getRetainedBytes()));
+        JLabel label = new JLabel(text);
+        label.setBorder(BorderFactory.createEmptyBorder(4, 8, 0, 8));
+        return label;
+    }
+
+    private static DefaultTableModel readOnlyModel(String... columns) {
+        return new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+    }
+
+    private void showReport(Report shown) {
+        report = shown;
+        orphanModel.setRowCount(0);
+        danglingModel.setRowCount(0);
+        if (shown == null) {
+            summaryLabel.setText("No scan yet. Click Scan Now to compare the photo folder with the database.");
+            removeOrphansButton.setEnabled(false);
+            removeDanglingButton.setEnabled(false);
+            return;
+        }
+
+        for (Orphan orphan : shown.getOrphans()) {
+            orphanModel.addRow(new Object[]{orphan.getPath(), PhotoStorageUtil.formatFileSize(orphan.getSize()),
+                                            TIME_FORMATTER.format(orphan.getModified())});
+        }
+        for (Photo photo : shown.getDangling()) {
+            danglingModel.addRow(new Object[]{photo.getPhotoId(), photo.getJobId(), photo.getFilePath()});
+        }
+        summaryLabel.setText(String.format(
+            "<html>Scanned %s: %,d photos, %,d files (%s). <b>%,d unused files (%s)</b>, " +
+            "<b>%,d photos with missing files</b>.%s</html>",
+            TIME_FORMATTER.format(shown.getFinishedAt()), shown.getPhotoCount(), shown.getFileCount(),
+            PhotoStorageUtil.formatFileSize(shown.getFileBytes()), shown.getOrphans().size(),
+            PhotoStorageUtil.formatFileSize(shown.getOrphanBytes()), shown.getDangling().size(),
+            shown.isComplete() ? "" : " The scan did not finish; scan again before deleting anything."));
+        removeOrphansButton.setEnabled(shown.isComplete() && !shown.getOrphans().isEmpty());
+        removeDanglingButton.setEnabled(shown.isComplete() && !shown.getDangling().isEmpty());
+    }
+
+    private void scan() {
+        setBusy("Scanning...");
+        new SwingWorker<Report, Void>() {
+            @Override
+            protected Report doInBackground() {
+                return collector.scan(() -> !isDisplayable());
+            }
+
+            @Override
+            protected void done() {
+                scanButton.setEnabled(true);
+                try {
+                    Report result = get();
+                    if (result == null) {
+                        summaryLabel.setText("A scan is already running in the background; try again shortly.");
+                        return;
+                    }
+                    showReport(result);
+                } catch (Exception e) {
+                    logger.severe("Photo scan failed: " + e.getMessage());
+                    showReport(report);
+                    JOptionPane.showMessageDialog(PhotoStorageDialog.this, "Scan failed: " + e.getMessage(),
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    private void removeOrphans() {
+        int confirm = JOptionPane.showConfirmDialog(this,
+            String.format("Delete %,d files (%s) that no photo uses?", report.getOrphans().size(),
+                          PhotoStorageUtil.formatFileSize(report.getOrphanBytes())),
+            "Confirm Delete", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+        if (confirm != JOptionPane.YES_OPTION) {
+            return;
+        }
+        runThenRescan("Deleting unused files...", () -> collector.removeOrphans(report.getOrphans()));
+    }
+
+    private void removeDangling() {
+        int confirm = JOptionPane.showConfirmDialog(this,
+            String.format("Delete %,d photos whose image file is missing?", report.getDangling().size()),
+            "Confirm Delete", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+        if (confirm != JOptionPane.YES_OPTION) {
+            return;
+        }
+        runThenRescan("Deleting photos...", () -> collector.removeDangling(report.getDangling()));
+    }
+
+    private void runThenRescan(String message, Runnable removal) {
+        setBusy(message);
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() {
+                removal.run();
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                scan();
+            }
+        }.execute();
+    }
+
+    private void setBusy(String message) {
+        summaryLabel.setText(message);
+        scanButton.setEnabled(false);
+        removeOrphansButton.setEnabled(false);
+        removeDanglingButton.setEnabled(false);
+    }
+}
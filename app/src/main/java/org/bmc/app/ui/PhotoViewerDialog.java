@@ -1,22 +1,31 @@
 package org.bmc.app.ui;
 
 import org.bmc.app.model.Photo;
+import org.bmc.app.util.ImageDecoder;
 import org.bmc.app.util.PhotoStorageUtil;
+import org.bmc.app.util.ThumbnailLoader;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
-import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
 
 /**
  * Dialog for viewing photos in full size.
- * Displays the full resolution image with zoom and pan capabilities.
+ * Opens on a fitted preview, then zooms and pans over the full resolution
+ * image, decoding only the part on screen.
  */
 public class PhotoViewerDialog extends JDialog {
+    private static final Logger logger = Logger.getLogger(PhotoViewerDialog.class.getName());
+    
+    private static final int MAX_WIDTH = 780;
+    private static final int MAX_HEIGHT = 530;
     
     private Photo photo;
-    private JLabel imageLabel;
+    private TiledImageView imageView;
+    private JLabel zoomLabel;
+    private Future<?> pendingDecode;
     
     public PhotoViewerDialog(Dialog parent, Photo photo) {
         super(parent, "Photo Viewer", true);
@@ -33,11 +42,9 @@ public class PhotoViewerDialog extends JDialog {
         setSize(800, 600);
         
         // Image display area
-        imageLabel = new JLabel();
-        imageLabel.setHorizontalAlignment(JLabel.CENTER);
-        imageLabel.setVerticalAlignment(JLabel.CENTER);
+        imageView = new TiledImageView();
         
-        JScrollPane scrollPane = new JScrollPane(imageLabel);
+        JScrollPane scrollPane = new JScrollPane(imageView);
         scrollPane.setPreferredSize(new Dimension(780, 550));
         add(scrollPane, BorderLayout.CENTER);
         
@@ -49,6 +56,26 @@ public class PhotoViewerDialog extends JDialog {
         nameLabel.setFont(nameLabel.getFont().deriveFont(Font.BOLD, 14f));
         infoPanel.add(nameLabel, BorderLayout.WEST);
         
+        // Zoom controls; the mouse wheel and double-click zoom too
+        JPanel zoomPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 5, 0));
+        JButton fitButton = new JButton("Fit");
+        fitButton.addActionListener(e -> imageView.zoomToFit());
+        JButton actualSizeButton = new JButton("100%");
+        actualSizeButton.addActionListener(e -> imageView.setScale(1.0, null));
+        JButton zoomOutButton = new JButton("-");
+        zoomOutButton.addActionListener(e -> imageView.zoomBy(0.5, null));
+        JButton zoomInButton = new JButton("+");
+        zoomInButton.addActionListener(e -> imageView.zoomBy(2.0, null));
+        zoomLabel = new JLabel();
+        imageView.addPropertyChangeListener("scale",
+            e -> zoomLabel.setText(Math.round(imageView.getScale() * 100) + "%"));
+        zoomPanel.add(fitButton);
+        zoomPanel.add(actualSizeButton);
+        zoomPanel.add(zoomOutButton);
+        zoomPanel.add(zoomInButton);
+        zoomPanel.add(zoomLabel);
+        infoPanel.add(zoomPanel, BorderLayout.CENTER);
+        
         JButton closeButton = new JButton("Close");
         closeButton.addActionListener(e -> dispose());
         infoPanel.add(closeButton, BorderLayout.EAST);
@@ -56,47 +83,70 @@ public class PhotoViewerDialog extends JDialog {
         add(infoPanel, BorderLayout.SOUTH);
     }
     
+    /**
+     * Decode the photo at display size on a background thread; the dialog
+     * shows a placeholder until it is ready
+     */
     private void loadAndDisplayPhoto() {
-        try {
-            File imageFile = PhotoStorageUtil.getPhotoFile(photo.getFilePath());
-            if (imageFile != null && imageFile.exists()) {
-                BufferedImage img = ImageIO.read(imageFile);
-                if (img != null) {
-                    // Scale image to fit window while maintaining aspect ratio
-                    int maxWidth = 780;
-                    int maxHeight = 530;
-                    
-                    int imgWidth = img.getWidth();
-                    int imgHeight = img.getHeight();
-                    
-                    double scale = Math.min(
-                        (double) maxWidth / imgWidth,
-                        (double) maxHeight / imgHeight
-                    );
-                    
-                    // Only scale down if image is larger than display area
-                    if (scale < 1.0) {
-                        int scaledWidth = (int) (imgWidth * scale);
-                        int scaledHeight = (int) (imgHeight * scale);
-                        Image scaledImg = img.getScaledInstance(scaledWidth, scaledHeight, Image.SCALE_SMOOTH);
-                        imageLabel.setIcon(new ImageIcon(scaledImg));
-                    } else {
-                        // Display at original size
-                        imageLabel.setIcon(new ImageIcon(img));
+        // The medium copy covers this window; only photos without one decode the original
+        File imageFile = PhotoStorageUtil.getPhotoFile(photo, MAX_WIDTH, MAX_HEIGHT);
+        if (imageFile == null || !imageFile.exists()) {
+            showError("Image file not found");
+            return;
+        }
+        
+        imageView.setMessage("Loading...");
+        // Scale image to fit window while maintaining aspect ratio; smaller images stay at original size.
+        // Goes through the shared thumbnail cache, so reopening a photo is instant
+        pendingDecode = ThumbnailLoader.getInstance().load(imageFile, MAX_WIDTH, MAX_HEIGHT,
+            image -> {
+                imageView.setMessage(null);
+                imageView.setPreview(image);
+            },
+            this::showError);
+        loadOriginal();
+    }
+    
+    /**
+     * Read the original's size from its header, so zooming in past the
+     * preview decodes tiles of the original
+     */
+    private void loadOriginal() {
+        File original = PhotoStorageUtil.getPhotoFile(photo.getFilePath());
+        if (original == null || !original.isFile()) {
+            return;
+        }
+        new SwingWorker<Dimension, Void>() {
+            @Override
+            protected Dimension doInBackground() throws Exception {
+                return ImageDecoder.readSize(original);
+            }
+            
+            @Override
+            protected void done() {
+                try {
+                    Dimension size = get();
+                    if (size != null && isDisplayable()) {
+                        imageView.setSource(original, size);
                     }
-                } else {
-                    showError("Unable to load image");
+                } catch (Exception e) {
+                    logger.warning("Cannot read size of " + original + ": " + e.getMessage());
                 }
-            } else {
-                showError("Image file not found");
             }
-        } catch (Exception e) {
-            showError("Error loading image: " + e.getMessage());
+        }.execute();
+    }
+    
+    @Override
+    public void dispose() {
+        if (pendingDecode != null) {
+            pendingDecode.cancel(true);
         }
+        imageView.dispose();
+        super.dispose();
     }
     
     private void showError(String message) {
-        imageLabel.setText(message);
-        imageLabel.setForeground(Color.RED);
+        imageView.setForeground(Color.RED);
+        imageView.setMessage(message);
     }
 }
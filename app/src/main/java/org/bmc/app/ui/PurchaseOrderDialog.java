@@ -1,12 +1,11 @@
 package org.bmc.app.ui;
 
-import org.bmc.app.dao.MaterialDAO;
 import org.bmc.app.dao.POItemDAO;
-import org.bmc.app.dao.VendorDAO;
 import org.bmc.app.model.Material;
 import org.bmc.app.model.POItem;
 import org.bmc.app.model.PurchaseOrder;
 import org.bmc.app.model.Vendor;
+import org.bmc.app.service.ReferenceDataCache;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -25,6 +24,7 @@ public class PurchaseOrderDialog extends JDialog {
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     
     private JComboBox<Vendor> vendorComboBox;
+    private ReferenceComboBoxModel<Vendor> vendorModel;
     private JTextField orderDateField;
     private JComboBox<String> statusComboBox;
     private JTextField totalCostField;
@@ -35,15 +35,11 @@ public class PurchaseOrderDialog extends JDialog {
     
     private boolean confirmed = false;
     private PurchaseOrder purchaseOrder;
-    private VendorDAO vendorDAO;
-    private MaterialDAO materialDAO;
     private POItemDAO poItemDAO;
 
     public PurchaseOrderDialog(Frame parent, PurchaseOrder purchaseOrder) {
         super(parent, purchaseOrder == null ? "Add Purchase Order" : "Edit Purchase Order", true);
         this.purchaseOrder = purchaseOrder;
-        this.vendorDAO = new VendorDAO();
-        this.materialDAO = new MaterialDAO();
         this.poItemDAO = new POItemDAO();
         this.items = new ArrayList<>();
         
@@ -72,10 +68,8 @@ public class PurchaseOrderDialog extends JDialog {
         formPanel.add(new JLabel("Vendor: *"), gbc);
         gbc.gridx = 1;
         vendorComboBox = new JComboBox<>();
-        List<Vendor> vendors = vendorDAO.findAll();
-        for (Vendor vendor : vendors) {
-            vendorComboBox.addItem(vendor);
-        }
+        vendorModel = ReferenceComboBoxModel.install(vendorComboBox, ReferenceDataCache.Kind.VENDORS,
+            Vendor::getVendorId, Vendor::getName, null);
         formPanel.add(vendorComboBox, gbc);
 
         // Order Date field
@@ -162,13 +156,7 @@ public class PurchaseOrderDialog extends JDialog {
         if (purchaseOrder != null) {
             // Set vendor selection
             if (purchaseOrder.getVendorId() != null) {
-                for (int i = 0; i < vendorComboBox.getItemCount(); i++) {
-                    Vendor vendor = vendorComboBox.getItemAt(i);
-                    if (vendor != null && vendor.getVendorId().equals(purchaseOrder.getVendorId())) {
-                        vendorComboBox.setSelectedIndex(i);
-                        break;
-                    }
-                }
+                vendorModel.setSelectedKey(purchaseOrder.getVendorId());
             }
             
             if (purchaseOrder.getOrderDate() != null) {
@@ -205,21 +193,8 @@ public class PurchaseOrderDialog extends JDialog {
         itemDialog.add(new JLabel("Material:"), gbc);
         gbc.gridx = 1;
         JComboBox<Material> materialComboBox = new JComboBox<>();
-        List<Material> materials = materialDAO.findAll();
-        for (Material material : materials) {
-            materialComboBox.addItem(material);
-        }
-        materialComboBox.setRenderer(new DefaultListCellRenderer() {
-            @Override
-            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
-                                                         boolean isSelected, boolean cellHasFocus) {
-                super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
-                if (value instanceof Material) {
-                    setText(((Material) value).getName());
-                }
-                return this;
-            }
-        });
+        ReferenceComboBoxModel.install(materialComboBox, ReferenceDataCache.Kind.MATERIALS,
+            Material::getMaterialId, Material::getName, null);
         itemDialog.add(materialComboBox, gbc);
         
         // Quantity spinner
@@ -1,15 +1,22 @@
 package org.bmc.app.ui;
 
+import org.bmc.app.dao.ChangeSet;
+import org.bmc.app.dao.DataChangeNotifier.Entity;
+import org.bmc.app.dao.ExportDAO;
 import org.bmc.app.dao.POItemDAO;
 import org.bmc.app.dao.PurchaseOrderDAO;
 import org.bmc.app.model.POItem;
 import org.bmc.app.model.PurchaseOrder;
+import org.bmc.app.ui.EntityTableModel.Column;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
-import java.time.format.DateTimeFormatter;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -19,19 +26,22 @@ import java.util.logging.Logger;
  */
 public class PurchaseOrderPanel extends JPanel {
     private static final Logger LOGGER = Logger.getLogger(PurchaseOrderPanel.class.getName());
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     
     private final PurchaseOrderDAO purchaseOrderDAO;
     private final POItemDAO poItemDAO;
     private JTable purchaseOrderTable;
-    private DefaultTableModel tableModel;
+    private EntityTableModel<PurchaseOrder> tableModel;
     private JTextField searchField;
-    private TableRowSorter<DefaultTableModel> sorter;
+    private TableRowSorter<EntityTableModel<PurchaseOrder>> sorter;
+    private Timestamp lastSync; // server time of the last delta, null forces a full reload
+    private RefreshPolicy refreshPolicy;
 
     public PurchaseOrderPanel() {
         this.purchaseOrderDAO = new PurchaseOrderDAO();
         this.poItemDAO = new POItemDAO();
         initializePanel();
+        refreshPolicy = new RefreshPolicy("purchase order data", this, this::fetchPurchaseOrderData,
+            Entity.PURCHASE_ORDER);
         loadPurchaseOrderData();
     }
 
@@ -47,18 +57,21 @@ public class PurchaseOrderPanel extends JPanel {
         JButton deleteButton = new JButton("Delete");
         JButton viewItemsButton = new JButton("View Items");
         JButton refreshButton = new JButton("Refresh");
+        JButton exportButton = new JButton("Export...");
 
         addButton.addActionListener(e -> addPurchaseOrder());
         editButton.addActionListener(e -> editPurchaseOrder());
         deleteButton.addActionListener(e -> deletePurchaseOrder());
         viewItemsButton.addActionListener(e -> viewItems());
         refreshButton.addActionListener(e -> loadPurchaseOrderData());
+        exportButton.addActionListener(e -> ExportSupport.exportDataset(this, ExportDAO.Dataset.PURCHASE_ORDERS));
 
         toolbarPanel.add(addButton);
         toolbarPanel.add(editButton);
         toolbarPanel.add(deleteButton);
         toolbarPanel.add(viewItemsButton);
         toolbarPanel.add(refreshButton);
+        toolbarPanel.add(exportButton);
 
         add(toolbarPanel, BorderLayout.NORTH);
 
@@ -68,28 +81,30 @@ public class PurchaseOrderPanel extends JPanel {
         searchField = new JTextField(20);
         JButton searchButton = new JButton("Search");
         
-        searchButton.addActionListener(e -> searchPurchaseOrders());
-        searchField.addActionListener(e -> searchPurchaseOrders());
+        searchField.setToolTipText("Type to filter by PO number, vendor or status");
+        searchButton.addActionListener(e -> searchField.postActionEvent());
 
         searchPanel.add(searchField);
         searchPanel.add(searchButton);
         toolbarPanel.add(searchPanel);
 
         // Table
-        String[] columns = {"PO #", "Vendor", "Order Date", "Total Cost", "Status"};
-        tableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        tableModel = new EntityTableModel<>(PurchaseOrder::getPoId, Arrays.asList(
+            Column.of("PO #", Integer.class, PurchaseOrder::getPoId, 60),
+            Column.of("Vendor", String.class, PurchaseOrder::getVendorName, 200),
+            Column.of("Order Date", LocalDate.class, PurchaseOrder::getOrderDate, 100).renderedBy(TableRenderers.date()),
+            Column.of("Total Cost", BigDecimal.class, PurchaseOrder::getTotalCost, 100).renderedBy(TableRenderers.currency()),
+            Column.of("Status", String.class, PurchaseOrder::getStatus, 100)
+        ));
         
         purchaseOrderTable = new JTable(tableModel);
-        purchaseOrderTable.setAutoCreateRowSorter(true);
         purchaseOrderTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
-        purchaseOrderTable.setAutoCreateRowSorter(true);
         sorter = new TableRowSorter<>(tableModel);
         purchaseOrderTable.setRowSorter(sorter);
+        tableModel.configure(purchaseOrderTable);
+        new IncrementalSearchSupport<>(searchField, tableModel, sorter, Arrays.asList(
+            (PurchaseOrder po) -> String.valueOf(po.getPoId()), PurchaseOrder::getVendorName, PurchaseOrder::getStatus
+        )).withServerSearch(purchaseOrderDAO::search);
 
         // Double-click to edit
         purchaseOrderTable.addMouseListener(new java.awt.event.MouseAdapter() {
@@ -111,24 +126,37 @@ public class PurchaseOrderPanel extends JPanel {
         add(statusPanel, BorderLayout.SOUTH);
     }
 
+    /**
+     * Reload in the background; the table keeps its rows until the data arrives
+     */
     private void loadPurchaseOrderData() {
-        List<PurchaseOrder> purchaseOrders = purchaseOrderDAO.findAll();
-        updateTable(purchaseOrders);
-        LOGGER.info("Loaded " + purchaseOrders.size() + " purchase orders into table");
+        refreshPolicy.refresh();
     }
 
-    private void updateTable(List<PurchaseOrder> purchaseOrders) {
-        tableModel.setRowCount(0);
-        for (PurchaseOrder po : purchaseOrders) {
-            Object[] row = {
-                po.getPoId(),
-                po.getVendorName(),
-                po.getOrderDate() != null ? po.getOrderDate().format(DATE_FORMATTER) : "",
-                String.format("$%.2f", po.getTotalCost()),
-                po.getStatus()
+    /**
+     * Fetch only the rows changed since the last sync, on a background thread,
+     * and return the step that merges them into the table. Falls back to a
+     * full reload if change tracking is unavailable.
+     */
+    private Runnable fetchPurchaseOrderData() {
+        ChangeSet<PurchaseOrder> changes = purchaseOrderDAO.findChangedSince(lastSync);
+        if (changes == null) {
+            List<PurchaseOrder> purchaseOrders = purchaseOrderDAO.findAll();
+            return () -> {
+                updateTable(purchaseOrders);
+                LOGGER.info("Loaded " + purchaseOrders.size() + " purchase orders into table");
+                lastSync = null;
             };
-            tableModel.addRow(row);
         }
+        return () -> {
+            int touched = tableModel.applyChanges(changes);
+            lastSync = changes.getWatermark();
+            LOGGER.fine("Purchase order sync " + changes + " touched " + touched + " rows");
+        };
+    }
+
+    private void updateTable(List<PurchaseOrder> purchaseOrders) {
+        tableModel.replaceAll(purchaseOrders);
     }
 
     private void addPurchaseOrder() {
@@ -171,7 +199,7 @@ public class PurchaseOrderPanel extends JPanel {
         }
 
         int modelRow = purchaseOrderTable.convertRowIndexToModel(selectedRow);
-        Integer poId = (Integer) tableModel.getValueAt(modelRow, 0);
+        Integer poId = tableModel.getRow(modelRow).getPoId();
         
         PurchaseOrder po = purchaseOrderDAO.findById(poId);
         if (po == null) {
@@ -222,8 +250,8 @@ public class PurchaseOrderPanel extends JPanel {
         }
 
         int modelRow = purchaseOrderTable.convertRowIndexToModel(selectedRow);
-        Integer poId = (Integer) tableModel.getValueAt(modelRow, 0);
-        String vendor = (String) tableModel.getValueAt(modelRow, 1);
+        Integer poId = tableModel.getRow(modelRow).getPoId();
+        String vendor = tableModel.getRow(modelRow).getVendorName();
 
         int confirm = JOptionPane.showConfirmDialog(this, 
             "Are you sure you want to delete Purchase Order #" + poId + " (" + vendor + ")?\n" +
@@ -259,7 +287,7 @@ public class PurchaseOrderPanel extends JPanel {
         }
 
         int modelRow = purchaseOrderTable.convertRowIndexToModel(selectedRow);
-        Integer poId = (Integer) tableModel.getValueAt(modelRow, 0);
+        Integer poId = tableModel.getRow(modelRow).getPoId();
         
         List<POItem> items = poItemDAO.findByPurchaseOrder(poId);
         
@@ -298,18 +326,14 @@ public class PurchaseOrderPanel extends JPanel {
         itemsDialog.setVisible(true);
     }
 
-    private void searchPurchaseOrders() {
-        String keyword = searchField.getText().trim();
-        if (keyword.isEmpty()) {
-            loadPurchaseOrderData();
-        } else {
-            List<PurchaseOrder> results = purchaseOrderDAO.search(keyword);
-            updateTable(results);
-            LOGGER.info("Search found " + results.size() + " purchase orders");
-        }
-    }
-
     public void refreshData() {
         loadPurchaseOrderData();
     }
+
+    /**
+     * Tracks when this panel's data needs reloading
+     */
+    public RefreshPolicy getRefreshPolicy() {
+        return refreshPolicy;
+    }
 }
@@ -0,0 +1,290 @@
+package org.bmc.app.ui;
+
+import org.bmc.app.service.ReferenceDataCache;
+import org.bmc.app.service.ReferenceDataCache.Kind;
+
+import javax.swing.AbstractListModel;
+import javax.swing.ComboBoxModel;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.JComboBox;
+import javax.swing.JList;
+import javax.swing.event.AncestorEvent;
+import javax.swing.event.AncestorListener;
+import java.awt.Component;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Combo box model over one list of {@link ReferenceDataCache}, so a dialog's
+ * pickers fill from memory instead of the database.
+ *
+ * While the combo box is on screen the model follows the cache: when the list
+ * is refreshed in the background the items are swapped in place and the
+ * selected row stays selected (the selected object itself is kept, so no
+ * action event fires). Typing selects by the text shown in the list, not by
+ * the entity's toString: keys typed within a second of each other extend the
+ * prefix, and a prefix that starts no label can match the start of a later
+ * word ("smi" finds "John Smith").
+ *
+ * @param <T> entity type
+ */
+public class ReferenceComboBoxModel<T> extends AbstractListModel<T> implements ComboBoxModel<T> {
+
+    private static final long TYPE_AHEAD_RESET_MILLIS = 1000;
+
+    private final ReferenceDataCache cache = ReferenceDataCache.getInstance();
+    private final Kind kind;
+    private final Function<T, Integer> keyOf;
+    private final Function<T, String> labelOf;
+    private final String noneLabel;
+    private final Consumer<Kind> cacheListener = this::cacheRefreshed;
+
+    private Predicate<T> filter = item -> true;
+    private List<T> items = new ArrayList<>();
+    private String[] searchText = new String[0];
+    private T selected;
+
+    /**
+     * @param kind cached list to show
+     * @param keyOf primary key of an item
+     * @param labelOf text shown for an item
+     * @param noneLabel text of an empty first choice, or null for none
+     */
+    public ReferenceComboBoxModel(Kind kind, Function<T, Integer> keyOf, Function<T, String> labelOf,
+                                  String noneLabel) {
+        this.kind = kind;
+        this.keyOf = keyOf;
+        this.labelOf = labelOf;
+        this.noneLabel = noneLabel;
+        reload();
+    }
+
+    /**
+     * Create a model and attach it to a combo box, with a renderer and
+     * type-ahead that use the label
+     */
+    public static <T> ReferenceComboBoxModel<T> install(JComboBox<T> combo, Kind kind, Function<T, Integer> keyOf,
+                                                        Function<T, String> labelOf, String noneLabel) {
+        ReferenceComboBoxModel<T> model = new ReferenceComboBoxModel<>(kind, keyOf, labelOf, noneLabel);
+        combo.setModel(model);
+        combo.setRenderer(model.new LabelRenderer());
+        combo.setKeySelectionManager(model.new TypeAhead());
+        model.updatePrototype(combo);
+
+        // Follow the cache only while shown, so closed dialogs are not kept alive by the listener
+        combo.addAncestorListener(new AncestorListener() {
+            @Override
+            public void ancestorAdded(AncestorEvent event) {
+                model.cache.addListener(model.cacheListener);
+                model.reload();
+            }
+
+            @Override
+            public void ancestorRemoved(AncestorEvent event) {
+                model.cache.removeListener(model.cacheListener);
+            }
+
+            @Override
+            public void ancestorMoved(AncestorEvent event) {
+            }
+        });
+        return model;
+    }
+
+    /**
+     * Show only items matching a condition (e.g. active records)
+     */
+    public void setFilter(Predicate<T> filter) {
+        this.filter = filter != null ? filter : item -> true;
+        reload();
+    }
+
+    /**
+     * Select the item with a primary key; null selects the empty choice
+     */
+    public void setSelectedKey(Integer key) {
+        T match = null;
+        if (key != null) {
+            for (T item : items) {
+                if (item != null && key.equals(keyOf.apply(item))) {
+                    match = item;
+                    break;
+                }
+            }
+        }
+        setSelectedItem(match);
+    }
+
+    /**
+     * Get the primary key of the selected item, or null
+     */
+    public Integer getSelectedKey() {
+        return selected != null ? keyOf.apply(selected) : null;
+    }
+
+    public T getSelected() {
+        return selected;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void setSelectedItem(Object item) {
+        if (!Objects.equals(selected, item)) {
+            selected = (T) item;
+            fireContentsChanged(this, -1, -1);
+        }
+    }
+
+    @Override
+    public Object getSelectedItem() {
+        return selected;
+    }
+
+    @Override
+    public int getSize() {
+        return items.size();
+    }
+
+    @Override
+    public T getElementAt(int index) {
+        return items.get(index);
+    }
+
+    String labelFor(T item) {
+        return item != null ? labelOf.apply(item) : (noneLabel != null ? noneLabel : " ");
+    }
+
+    private void cacheRefreshed(Kind refreshed) {
+        if (refreshed == kind) {
+            reload();
+        }
+    }
+
+    /**
+     * Copy the cached list, keeping the selected object in place of its
+     * refreshed copy
+     */
+    @SuppressWarnings("unchecked")
+    private void reload() {
+        Integer selectedKey = getSelectedKey();
+        List<T> next = new ArrayList<>();
+        if (noneLabel != null) {
+            next.add(null);
+        }
+        boolean selectionFound = selected == null;
+        for (Object element : cache.get(kind)) {
+            T item = (T) element;
+            if (!filter.test(item)) {
+                continue;
+            }
+            if (selectedKey != null && selectedKey.equals(keyOf.apply(item))) {
+                item = selected;
+                selectionFound = true;
+            }
+            next.add(item);
+        }
+
+        String[] text = new String[next.size()];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = labelFor(next.get(i)).toLowerCase(Locale.ROOT);
+        }
+
+        int oldSize = items.size();
+        items = next;
+        searchText = text;
+        if (oldSize > 0) {
+            fireIntervalRemoved(this, 0, oldSize - 1);
+        }
+        if (!next.isEmpty()) {
+            fireIntervalAdded(this, 0, next.size() - 1);
+        }
+        if (!selectionFound) {
+            setSelectedItem(null); // deleted meanwhile
+        } else if (selected == null && noneLabel == null && !next.isEmpty()) {
+            setSelectedItem(next.get(0));
+        }
+    }
+
+    /**
+     * Size the combo box from its longest label instead of rendering every item
+     */
+    private void updatePrototype(JComboBox<T> combo) {
+        T longest = null;
+        int longestLength = -1;
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i) != null && searchText[i].length() > longestLength) {
+                longest = items.get(i);
+                longestLength = searchText[i].length();
+            }
+        }
+        if (longest != null) {
+            combo.setPrototypeDisplayValue(longest);
+        }
+    }
+
+    private class LabelRenderer extends DefaultListCellRenderer {
+        @Override
+        @SuppressWarnings("unchecked")
+        public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+            super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+            setText(labelFor((T) value));
+            return this;
+        }
+    }
+
+    /**
+     * Prefix matching on the shown label: whole label first, then the start
+     * of any word
+     */
+    private class TypeAhead implements JComboBox.KeySelectionManager {
+        private String prefix = "";
+        private long lastKeyTime;
+
+        @Override
+        public int selectionForKey(char key, ComboBoxModel<?> model) {
+            long now = System.currentTimeMillis();
+            if (now - lastKeyTime > TYPE_AHEAD_RESET_MILLIS) {
+                prefix = "";
+            }
+            lastKeyTime = now;
+
+            String typed = prefix + Character.toLowerCase(key);
+            prefix = typed;
+            // Repeating one letter cycles through its matches; a longer prefix may stay put
+            boolean repeated = typed.chars().allMatch(c -> c == typed.charAt(0));
+            String needle = repeated ? typed.substring(0, 1) : typed;
+            int current = items.indexOf(selected);
+            int start = repeated ? current + 1 : Math.max(current, 0);
+
+            int match = find(needle, start, false);
+            return match != -1 ? match : find(needle, start, true);
+        }
+
+        private int find(String needle, int start, boolean anyWord) {
+            int size = searchText.length;
+            for (int offset = 0; offset < size; offset++) {
+                int i = (start + offset) % size;
+                String text = searchText[i];
+                boolean hit = anyWord ? indexOfWordStart(text, needle) != -1 : text.startsWith(needle);
+                if (hit) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int indexOfWordStart(String text, String word) {
+            int at = text.indexOf(word);
+            while (at > 0 && Character.isLetterOrDigit(text.charAt(at - 1))) {
+                at = text.indexOf(word, at + 1);
+            }
+            return at;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.bmc.app.ui;
+
+import org.bmc.app.dao.DataChangeNotifier;
+import org.bmc.app.dao.DataChangeNotifier.Entity;
+import org.bmc.app.util.AppConfig;
+
+import javax.swing.JComponent;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Decides when a panel's data must be reloaded, and reloads it off the Event
+ * Dispatch Thread while the panel keeps showing what it has.
+ *
+ * A panel is out of date when it has never loaded, when a DAO write touched
+ * one of the entities it shows (from any panel or dialog), or when its data
+ * is older than ui.refresh.maxAgeSeconds (default 300) and so may miss
+ * changes made by other users. Switching to the panel's tab only reloads in
+ * those cases. A panel that is on screen reloads shortly after a relevant
+ * write; hidden panels wait until they are shown.
+ *
+ * The loader runs on a worker thread and returns the step that applies its
+ * result to the table, which then runs on the Event Dispatch Thread. Requests
+ * made while a load is running are folded into one follow-up load.
+ */
+public class RefreshPolicy {
+    private static final Logger logger = Logger.getLogger(RefreshPolicy.class.getName());
+
+    private static final long MAX_AGE_MILLIS = AppConfig.getLong("ui.refresh.maxAgeSeconds", 300) * 1000;
+    private static final int CHANGE_DELAY_MILLIS = 250;
+
+    private final String name;
+    private final JComponent panel;
+    private final Supplier<Runnable> loader;
+    private final Set<Entity> dependsOn;
+    private final Timer changeTimer;
+
+    private volatile boolean dirty = true;
+    private long loadedAt;
+    private boolean loading;
+    private boolean reloadQueued;
+
+    /**
+     * @param name what the panel shows, for messages
+     * @param panel panel that owns the data; used for visibility and error dialogs
+     * @param loader called on a worker thread; returns the step that updates the panel
+     * @param dependsOn entities whose writes make this panel out of date
+     */
+    public RefreshPolicy(String name, JComponent panel, Supplier<Runnable> loader, Entity... dependsOn) {
+        this.name = name;
+        this.panel = panel;
+        this.loader = loader;
+        this.dependsOn = EnumSet.copyOf(Arrays.asList(dependsOn));
+
+        // Give the panel's own post-save refresh a chance to run first
+        changeTimer = new Timer(CHANGE_DELAY_MILLIS, e -> {
+            if (dirty && panel.isShowing()) {
+                refresh();
+            }
+        });
+        changeTimer.setRepeats(false);
+
+        DataChangeNotifier.addListener(entity -> {
+            if (this.dependsOn.contains(entity)) {
+                dirty = true;
+                SwingUtilities.invokeLater(changeTimer::restart);
+            }
+        });
+    }
+
+    /**
+     * True if the data has never loaded, was changed by a write, or is too old
+     */
+    public boolean needsRefresh() {
+        return dirty || loadedAt == 0 || System.currentTimeMillis() - loadedAt > MAX_AGE_MILLIS;
+    }
+
+    /**
+     * Reload only if the data is out of date and no load is already running.
+     * Call on the Event Dispatch Thread.
+     */
+    public void refreshIfNeeded() {
+        if (loading) {
+            return;
+        }
+        if (needsRefresh()) {
+            refresh();
+        } else {
+            logger.fine(name + " is up to date, loaded " + (System.currentTimeMillis() - loadedAt) + " ms ago");
+        }
+    }
+
+    /**
+     * Reload in the background now. Call on the Event Dispatch Thread.
+     */
+    public void refresh() {
+        if (loading) {
+            reloadQueued = true;
+            return;
+        }
+        loading = true;
+        dirty = false; // a write that lands after the query started sets it again
+
+        new SwingWorker<Runnable, Void>() {
+            private final long start = System.currentTimeMillis();
+
+            @Override
+            protected Runnable doInBackground() {
+                return loader.get();
+            }
+
+            @Override
+            protected void done() {
+                loading = false;
+                try {
+                    Runnable apply = get();
+                    if (apply != null) {
+                        apply.run();
+                    }
+                    loadedAt = System.currentTimeMillis();
+                    logger.fine("Refreshed " + name + " in " + (loadedAt - start) + " ms");
+                } catch (InterruptedException | ExecutionException e) {
+                    dirty = true;
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    logger.log(Level.SEVERE, "Error loading " + name, cause);
+                    JOptionPane.showMessageDialog(panel,
+                        "Error loading " + name + ": " + cause.getMessage(),
+                        "Database Error",
+                        JOptionPane.ERROR_MESSAGE);
+                }
+                if (reloadQueued) {
+                    reloadQueued = false;
+                    refresh();
+                }
+            }
+        }.execute();
+    }
+}
@@ -9,15 +9,34 @@ import org.bmc.app.dao.ReportDAO.UnpaidInvoiceReport;
 import org.bmc.app.dao.ReportDAO.VendorSpendingReport;
 import org.bmc.app.dao.ReportDAO.JobCostComparisonReport;
 import org.bmc.app.dao.ReportDAO.RepeatCustomerReport;
+import org.bmc.app.service.AnalyticsCube;
+import org.bmc.app.service.AnalyticsCube.Dimension;
+import org.bmc.app.service.AnalyticsCube.Measure;
+import org.bmc.app.service.ReportSnapshotService;
+import org.bmc.app.service.ReportSnapshotService.Snapshot;
+import org.bmc.app.service.ReportSnapshotService.SnapshotReport;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.text.NumberFormat;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 /**
@@ -27,6 +46,9 @@ public class ReportsPanel extends JPanel {
     private static final Logger logger = Logger.getLogger(ReportsPanel.class.getName());
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final NumberFormat CURRENCY_FORMATTER = NumberFormat.getCurrencyInstance(Locale.US);
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final String PIVOT_NONE = "(none)";
+    private static final DateTimeFormatter GENERATED_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
     
     private ReportDAO reportDAO;
     private JTabbedPane reportTabs;
@@ -54,15 +76,36 @@ public class ReportsPanel extends JPanel {
     // Vendor Spending Report Components
     private JTable vendorSpendingTable;
     private DefaultTableModel vendorSpendingTableModel;
+    private JLabel vendorSpendingGeneratedLabel;
     
     // Labor Cost Comparison Report Components
     private JTable jobCostComparisonTable;
     private DefaultTableModel jobCostComparisonTableModel;
+    private JLabel jobCostGeneratedLabel;
+    
+    // Pre-computed heavy reports
+    private final ReportSnapshotService snapshotService = ReportSnapshotService.getInstance();
     
     // Repeat Customer Report Components
     private JTable repeatCustomerTable;
     private DefaultTableModel repeatCustomerTableModel;
     
+    // Pivot Analysis Components
+    private AnalyticsCube analyticsCube;
+    private JComboBox<Dimension> pivotRowDimension;
+    private JComboBox<Object> pivotColumnDimension;
+    private JComboBox<Measure> pivotMeasure;
+    private JComboBox<Object> pivotFilterDimension;
+    private JComboBox<String> pivotFilterValue;
+    private JTable pivotTable;
+    private DefaultTableModel pivotTableModel;
+    private JLabel pivotStatusLabel;
+    private String[] pivotExportColumns;
+    private List<Object[]> pivotExportRows;
+    
+    // Export action of each report tab
+    private final Map<Component, Runnable> reportExports = new HashMap<>();
+    
     public ReportsPanel() {
         this.reportDAO = new ReportDAO();
         setLayout(new BorderLayout(10, 10));
@@ -70,6 +113,9 @@ public class ReportsPanel extends JPanel {
         
         createReportTabs();
         
+        // Show new snapshots as soon as the background scheduler produces them
+        snapshotService.addListener(report -> SwingUtilities.invokeLater(() -> showSnapshot(report)));
+        
         logger.info("Reports panel initialized");
     }
     
@@ -77,16 +123,165 @@ public class ReportsPanel extends JPanel {
         reportTabs = new JTabbedPane();
         
         // Add each report as a separate tab
-        reportTabs.addTab("Jobs Due Soon", createJobsDueSoonPanel());
-        reportTabs.addTab("Top Customers", createTopCustomersPanel());
-        reportTabs.addTab("Material Shortages", createMaterialShortagesPanel());
-        reportTabs.addTab("Employee Labor", createEmployeeLaborPanel());
-        reportTabs.addTab("Unpaid Invoices (30+ Days)", createUnpaidInvoicesPanel());
-        reportTabs.addTab("Vendor Spending by Month", createVendorSpendingPanel());
-        reportTabs.addTab("Job Cost Comparison", createJobCostComparisonPanel());
-        reportTabs.addTab("Repeat Customers", createRepeatCustomersPanel());
+        addReportTab("Jobs Due Soon", createJobsDueSoonPanel(), this::exportJobsDueSoon);
+        addReportTab("Top Customers", createTopCustomersPanel(), this::exportTopCustomers);
+        addReportTab("Material Shortages", createMaterialShortagesPanel(), this::exportMaterialShortages);
+        addReportTab("Employee Labor", createEmployeeLaborPanel(), this::exportEmployeeLabor);
+        addReportTab("Unpaid Invoices (30+ Days)", createUnpaidInvoicesPanel(), this::exportUnpaidInvoices);
+        addReportTab("Vendor Spending by Month", createVendorSpendingPanel(), this::exportVendorSpending);
+        addReportTab("Job Cost Comparison", createJobCostComparisonPanel(), this::exportJobCostComparison);
+        addReportTab("Repeat Customers", createRepeatCustomersPanel(), this::exportRepeatCustomers);
+        addReportTab("Pivot Analysis", createPivotPanel(), this::exportPivot);
         
         add(reportTabs, BorderLayout.CENTER);
+        
+        // Export toolbar applies to whichever report tab is selected
+        JPanel exportPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        JButton exportButton = new JButton("Export Current Report...");
+        exportButton.addActionListener(e -> exportCurrentReport());
+        exportPanel.add(exportButton);
+        add(exportPanel, BorderLayout.NORTH);
+    }
+    
+    private void addReportTab(String title, JPanel panel, Runnable export) {
+        reportTabs.addTab(title, panel);
+        reportExports.put(panel, export);
+    }
+    
+    /**
+     * Export the report on the selected tab
+     */
+    private void exportCurrentReport() {
+        Runnable export = reportExports.get(reportTabs.getSelectedComponent());
+        if (export != null) {
+            export.run();
+        }
+    }
+    
+    /**
+     * Export a report's rows with raw values; the tables hold display text
+     * such as "$1,234.56", which is no use in a CSV or JSON file
+     */
+    private <T> void exportReport(String[] columns, Supplier<List<T>> rows, Function<T, Object[]> values) {
+        String title = reportTabs.getTitleAt(reportTabs.getSelectedIndex());
+        String baseName = title.toLowerCase().replaceAll("[^a-z0-9]+", "_").replaceAll("^_|_$", "");
+        ExportSupport.exportReport(this, title, baseName, columns, rows, values);
+    }
+    
+    /**
+     * Rows of a report that may be pre-computed: the snapshot being shown,
+     * otherwise a live query
+     */
+    private <T> Supplier<List<T>> snapshotOrLive(SnapshotReport report, Supplier<List<T>> live) {
+        return () -> {
+            if (!snapshotService.isEnabled(report)) {
+                return live.get();
+            }
+            Snapshot<T> snapshot = snapshotService.getSnapshot(report);
+            return snapshot != null ? snapshot.getRows() : Collections.emptyList();
+        };
+    }
+    
+    private void exportJobsDueSoon() {
+        exportReport(
+            new String[]{"job_id", "customer_name", "description", "due_date", "days_until_due", "status"},
+            reportDAO::getJobsDueInNext7Days,
+            job -> new Object[]{job.getJobId(), job.getCustomerName(), job.getDescription(), job.getDueDate(),
+                                job.getDaysUntilDue(), job.getStatus()});
+    }
+    
+    private void exportTopCustomers() {
+        exportReport(
+            new String[]{"rank", "customer_id", "customer_name", "phone", "email", "job_count", "total_revenue"},
+            () -> {
+                List<Object[]> rows = new ArrayList<>();
+                for (TopCustomerReport customer : reportDAO.getTopCustomersByRevenue()) {
+                    rows.add(new Object[]{rows.size() + 1, customer.getCustomerId(), customer.getCustomerName(),
+                                          customer.getPhone(), customer.getEmail(), customer.getJobCount(),
+                                          customer.getTotalRevenue()});
+                }
+                return rows;
+            },
+            Function.identity());
+    }
+    
+    private void exportMaterialShortages() {
+        exportReport(
+            new String[]{"material_id", "material_name", "category", "stock_quantity", "total_required",
+                         "shortage_amount", "active_jobs_affected"},
+            reportDAO::getMaterialShortages,
+            shortage -> new Object[]{shortage.getMaterialId(), shortage.getMaterialName(), shortage.getCategory(),
+                                     shortage.getStockQuantity(), shortage.getTotalRequired(),
+                                     shortage.getShortageAmount(), shortage.getActiveJobsAffected()});
+    }
+    
+    private void exportEmployeeLabor() {
+        exportReport(
+            new String[]{"employee_id", "employee_name", "role", "hourly_rate", "total_hours", "total_pay",
+                         "job_count"},
+            reportDAO::getEmployeeLaborReport,
+            report -> new Object[]{report.getEmployeeId(), report.getEmployeeName(), report.getRole(),
+                                   report.getHourlyRate(), report.getTotalHours(), report.getTotalPay(),
+                                   report.getJobCount()});
+    }
+    
+    private void exportUnpaidInvoices() {
+        exportReport(
+            new String[]{"invoice_id", "job_id", "customer_name", "job_description", "invoice_date",
+                         "total_amount", "days_outstanding"},
+            reportDAO::getUnpaidInvoicesOlderThan30Days,
+            invoice -> new Object[]{invoice.getInvoiceId(), invoice.getJobId(), invoice.getCustomerName(),
+                                    invoice.getJobDescription(), invoice.getInvoiceDate(),
+                                    invoice.getTotalAmount(), invoice.getDaysOutstanding()});
+    }
+    
+    private void exportVendorSpending() {
+        exportReport(
+            new String[]{"vendor_id", "vendor_name", "vendor_contact", "year", "month", "month_name",
+                         "total_spending", "purchase_order_count"},
+            snapshotOrLive(SnapshotReport.VENDOR_SPENDING_BY_MONTH, reportDAO::getVendorSpendingByMonth),
+            (VendorSpendingReport record) -> new Object[]{record.getVendorId(), record.getVendorName(),
+                record.getVendorContact(), record.getYear(), record.getMonth(), record.getMonthName(),
+                record.getTotalSpending(), record.getPurchaseOrderCount()});
+    }
+    
+    private void exportJobCostComparison() {
+        exportReport(
+            new String[]{"job_id", "customer_name", "description", "status",
+                         "estimated_labor_cost", "actual_labor_cost", "labor_variance", "labor_variance_percent",
+                         "estimated_material_cost", "actual_material_cost", "material_variance",
+                         "material_variance_percent",
+                         "estimated_total_cost", "actual_total_cost", "total_variance", "total_variance_percent"},
+            snapshotOrLive(SnapshotReport.JOB_COST_COMPARISON, reportDAO::getJobCostComparison),
+            (JobCostComparisonReport comp) -> new Object[]{comp.getJobId(), comp.getCustomerName(),
+                comp.getDescription(), comp.getStatus(),
+                comp.getEstimatedLaborCost(), comp.getActualLaborCost(), comp.getLaborVariance(),
+                comp.getLaborVariancePercent(),
+                comp.getEstimatedMaterialCost(), comp.getActualMaterialCost(), comp.getMaterialVariance(),
+                comp.getMaterialVariancePercent(),
+                comp.getEstimatedTotalCost(), comp.getActualTotalCost(), comp.getTotalVariance(),
+                comp.getTotalVariancePercent()});
+    }
+    
+    private void exportRepeatCustomers() {
+        exportReport(
+            new String[]{"customer_id", "customer_name", "completed_job_count", "total_revenue",
+                         "first_job_date", "last_job_date"},
+            reportDAO::getRepeatCustomers,
+            customer -> new Object[]{customer.getCustomerId(), customer.getCustomerName(),
+                                     customer.getCompletedJobCount(), customer.getTotalRevenue(),
+                                     customer.getFirstJobDate(), customer.getLastJobDate()});
+    }
+    
+    /**
+     * Export the pivot as shown, with unformatted measure values
+     */
+    private void exportPivot() {
+        if (pivotExportColumns == null) {
+            return;
+        }
+        List<Object[]> rows = pivotExportRows;
+        exportReport(pivotExportColumns, () -> rows, Function.identity());
     }
     
     /**
@@ -531,9 +726,9 @@ public class ReportsPanel extends JPanel {
         titleLabel.setFont(new Font("Arial", Font.BOLD, 16));
         headerPanel.add(titleLabel, BorderLayout.WEST);
         
-        JButton refreshButton = new JButton("Refresh");
-        refreshButton.addActionListener(e -> loadVendorSpendingReport());
-        headerPanel.add(refreshButton, BorderLayout.EAST);
+        vendorSpendingGeneratedLabel = new JLabel();
+        headerPanel.add(createRefreshControls(SnapshotReport.VENDOR_SPENDING_BY_MONTH,
+            vendorSpendingGeneratedLabel, this::loadVendorSpendingReport), BorderLayout.EAST);
         
         panel.add(headerPanel, BorderLayout.NORTH);
         
@@ -578,13 +773,21 @@ public class ReportsPanel extends JPanel {
     }
     
     /**
-     * Load vendor spending report from database
+     * Load vendor spending report, from the latest snapshot when pre-computed
      */
     private void loadVendorSpendingReport() {
+        if (snapshotService.isEnabled(SnapshotReport.VENDOR_SPENDING_BY_MONTH)) {
+            Snapshot<VendorSpendingReport> snapshot = snapshotService.getSnapshot(SnapshotReport.VENDOR_SPENDING_BY_MONTH);
+            updateGeneratedLabel(vendorSpendingGeneratedLabel, SnapshotReport.VENDOR_SPENDING_BY_MONTH, snapshot);
+            populateVendorSpending(snapshot != null ? snapshot.getRows() : Collections.emptyList());
+        } else {
+            populateVendorSpending(reportDAO.getVendorSpendingByMonth());
+        }
+    }
+    
+    private void populateVendorSpending(List<VendorSpendingReport> spending) {
         vendorSpendingTableModel.setRowCount(0); // Clear existing rows
         
-        List<VendorSpendingReport> spending = reportDAO.getVendorSpendingByMonth();
-        
         for (VendorSpendingReport record : spending) {
             Object[] row = {
                 record.getVendorId(),
@@ -614,9 +817,9 @@ public class ReportsPanel extends JPanel {
         titleLabel.setFont(new Font("Arial", Font.BOLD, 16));
         headerPanel.add(titleLabel, BorderLayout.WEST);
         
-        JButton refreshButton = new JButton("Refresh");
-        refreshButton.addActionListener(e -> loadJobCostComparisonReport());
-        headerPanel.add(refreshButton, BorderLayout.EAST);
+        jobCostGeneratedLabel = new JLabel();
+        headerPanel.add(createRefreshControls(SnapshotReport.JOB_COST_COMPARISON,
+            jobCostGeneratedLabel, this::loadJobCostComparisonReport), BorderLayout.EAST);
         
         panel.add(headerPanel, BorderLayout.NORTH);
         
@@ -707,13 +910,21 @@ public class ReportsPanel extends JPanel {
     }
     
     /**
-     * Load job cost comparison report from database
+     * Load job cost comparison report, from the latest snapshot when pre-computed
      */
     private void loadJobCostComparisonReport() {
+        if (snapshotService.isEnabled(SnapshotReport.JOB_COST_COMPARISON)) {
+            Snapshot<JobCostComparisonReport> snapshot = snapshotService.getSnapshot(SnapshotReport.JOB_COST_COMPARISON);
+            updateGeneratedLabel(jobCostGeneratedLabel, SnapshotReport.JOB_COST_COMPARISON, snapshot);
+            populateJobCostComparison(snapshot != null ? snapshot.getRows() : Collections.emptyList());
+        } else {
+            populateJobCostComparison(reportDAO.getJobCostComparison());
+        }
+    }
+    
+    private void populateJobCostComparison(List<JobCostComparisonReport> comparisons) {
         jobCostComparisonTableModel.setRowCount(0); // Clear existing rows
         
-        List<JobCostComparisonReport> comparisons = reportDAO.getJobCostComparison();
-        
         for (JobCostComparisonReport comp : comparisons) {
             Object[] row = {
                 comp.getJobId(),
@@ -736,6 +947,68 @@ public class ReportsPanel extends JPanel {
         logger.info("Loaded " + comparisons.size() + " job cost comparisons into table");
     }
     
+    /**
+     * Header controls for a report that may be served from a snapshot: the
+     * generation time and a Live Refresh button that queries the database
+     * now. Reports that are not pre-computed get the usual Refresh button.
+     */
+    private JPanel createRefreshControls(SnapshotReport report, JLabel generatedLabel, Runnable reload) {
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 0));
+        if (!snapshotService.isEnabled(report)) {
+            JButton refreshButton = new JButton("Refresh");
+            refreshButton.addActionListener(e -> reload.run());
+            controls.add(refreshButton);
+            return controls;
+        }
+        
+        generatedLabel.setFont(new Font("Arial", Font.ITALIC, 11));
+        generatedLabel.setForeground(Color.GRAY);
+        controls.add(generatedLabel);
+        
+        JButton liveButton = new JButton("Live Refresh");
+        liveButton.setToolTipText("Run " + report.getLabel() + " against the database now");
+        liveButton.addActionListener(e -> {
+            liveButton.setEnabled(false);
+            generatedLabel.setText("Running live query...");
+            new SwingWorker<Void, Void>() {
+                @Override
+                protected Void doInBackground() {
+                    snapshotService.refreshNow(report);
+                    return null;
+                }
+                
+                @Override
+                protected void done() {
+                    liveButton.setEnabled(true);
+                    reload.run();
+                }
+            }.execute();
+        });
+        controls.add(liveButton);
+        return controls;
+    }
+    
+    private void updateGeneratedLabel(JLabel label, SnapshotReport report, Snapshot<?> snapshot) {
+        boolean failed = snapshotService.isRefreshFailed(report);
+        label.setForeground(failed ? Color.RED : Color.GRAY);
+        if (snapshot == null) {
+            label.setText(failed ? "Refresh failed, no snapshot yet" : "Generating snapshot in background...");
+            return;
+        }
+        label.setText(String.format(failed ? "Refresh failed, showing snapshot generated %s (%,d ms)"
+                                           : "Generated %s (%,d ms)",
+            GENERATED_FORMATTER.format(snapshot.getGeneratedAt().atZone(ZoneId.systemDefault())),
+            snapshot.getDurationMillis()));
+    }
+    
+    private void showSnapshot(SnapshotReport report) {
+        if (report == SnapshotReport.VENDOR_SPENDING_BY_MONTH) {
+            loadVendorSpendingReport();
+        } else if (report == SnapshotReport.JOB_COST_COMPARISON) {
+            loadJobCostComparisonReport();
+        }
+    }
+    
     /**
      * Create the Repeat Customers report panel
      */
@@ -818,6 +1091,252 @@ public class ReportsPanel extends JPanel {
         logger.info("Loaded " + repeatCustomers.size() + " repeat customers into table");
     }
     
+    /**
+     * Create the Pivot Analysis panel backed by the in-memory analytics cube
+     */
+    private JPanel createPivotPanel() {
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        
+        analyticsCube = new AnalyticsCube();
+        
+        // Header
+        JPanel headerPanel = new JPanel(new BorderLayout());
+        JLabel titleLabel = new JLabel("Pivot Analysis");
+        titleLabel.setFont(new Font("Arial", Font.BOLD, 16));
+        headerPanel.add(titleLabel, BorderLayout.WEST);
+        
+        JPanel headerButtons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        JButton refreshButton = new JButton("Refresh");
+        refreshButton.setToolTipText("Load invoices and work logs added since the last refresh");
+        refreshButton.addActionListener(e -> loadPivotCube(false));
+        JButton reloadButton = new JButton("Reload All");
+        reloadButton.setToolTipText("Rebuild the cube from scratch to pick up edited rows");
+        reloadButton.addActionListener(e -> loadPivotCube(true));
+        headerButtons.add(refreshButton);
+        headerButtons.add(reloadButton);
+        headerPanel.add(headerButtons, BorderLayout.EAST);
+        
+        // Pivot controls
+        JPanel controlsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        pivotRowDimension = new JComboBox<>(Dimension.values());
+        pivotRowDimension.setSelectedItem(Dimension.CUSTOMER);
+        
+        pivotColumnDimension = new JComboBox<>();
+        pivotColumnDimension.addItem(PIVOT_NONE);
+        for (Dimension dimension : Dimension.values()) {
+            pivotColumnDimension.addItem(dimension);
+        }
+        pivotColumnDimension.setSelectedItem(Dimension.QUARTER);
+        
+        pivotMeasure = new JComboBox<>(Measure.values());
+        
+        pivotFilterDimension = new JComboBox<>();
+        pivotFilterDimension.addItem(PIVOT_NONE);
+        for (Dimension dimension : Dimension.values()) {
+            pivotFilterDimension.addItem(dimension);
+        }
+        pivotFilterValue = new JComboBox<>();
+        pivotFilterValue.setPrototypeDisplayValue("XXXXXXXXXXXXXXXXXXXX");
+        pivotFilterValue.setEnabled(false);
+        
+        controlsPanel.add(new JLabel("Rows:"));
+        controlsPanel.add(pivotRowDimension);
+        controlsPanel.add(new JLabel("Columns:"));
+        controlsPanel.add(pivotColumnDimension);
+        controlsPanel.add(new JLabel("Measure:"));
+        controlsPanel.add(pivotMeasure);
+        controlsPanel.add(new JLabel("Filter:"));
+        controlsPanel.add(pivotFilterDimension);
+        controlsPanel.add(pivotFilterValue);
+        
+        pivotRowDimension.addActionListener(e -> runPivotQuery());
+        pivotColumnDimension.addActionListener(e -> runPivotQuery());
+        pivotMeasure.addActionListener(e -> runPivotQuery());
+        pivotFilterDimension.addActionListener(e -> updatePivotFilterValues());
+        pivotFilterValue.addActionListener(e -> runPivotQuery());
+        
+        JPanel northPanel = new JPanel(new BorderLayout());
+        northPanel.add(headerPanel, BorderLayout.NORTH);
+        northPanel.add(controlsPanel, BorderLayout.SOUTH);
+        panel.add(northPanel, BorderLayout.NORTH);
+        
+        // Table
+        pivotTableModel = new DefaultTableModel() {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        pivotTable = new JTable(pivotTableModel);
+        pivotTable.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+        pivotTable.getTableHeader().setReorderingAllowed(false);
+        pivotTable.setRowHeight(25);
+        
+        JScrollPane scrollPane = new JScrollPane(pivotTable);
+        panel.add(scrollPane, BorderLayout.CENTER);
+        
+        // Info footer
+        JPanel footerPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        pivotStatusLabel = new JLabel("Loading analytics cube...");
+        pivotStatusLabel.setFont(new Font("Arial", Font.ITALIC, 11));
+        pivotStatusLabel.setForeground(Color.GRAY);
+        footerPanel.add(pivotStatusLabel);
+        panel.add(footerPanel, BorderLayout.SOUTH);
+        
+        // Load initial data in the background; the cube can take a while on large databases
+        loadPivotCube(true);
+        
+        return panel;
+    }
+    
+    /**
+     * Load or incrementally refresh the analytics cube off the EDT, then re-run the pivot
+     */
+    private void loadPivotCube(boolean fullReload) {
+        pivotStatusLabel.setText(fullReload ? "Loading analytics cube..." : "Refreshing analytics cube...");
+        
+        new SwingWorker<Boolean, Void>() {
+            @Override
+            protected Boolean doInBackground() {
+                return fullReload ? analyticsCube.reload() : analyticsCube.refresh();
+            }
+            
+            @Override
+            protected void done() {
+                try {
+                    if (!get()) {
+                        pivotStatusLabel.setText("Failed to load analytics cube: database query failed");
+                        return;
+                    }
+                } catch (Exception e) {
+                    logger.severe("Error loading analytics cube: " + e.getMessage());
+                    pivotStatusLabel.setText("Failed to load analytics cube: " + e.getMessage());
+                    return;
+                }
+                updatePivotFilterValues();
+            }
+        }.execute();
+    }
+    
+    /**
+     * Populate the filter value list for the selected filter dimension
+     */
+    private void updatePivotFilterValues() {
+        Object selected = pivotFilterDimension.getSelectedItem();
+        Object previousValue = pivotFilterValue.getSelectedItem();
+        
+        pivotFilterValue.removeAllItems();
+        if (selected instanceof Dimension && analyticsCube.isLoaded()) {
+            for (String value : analyticsCube.getValues((Dimension) selected)) {
+                pivotFilterValue.addItem(value);
+            }
+            if (previousValue != null) {
+                pivotFilterValue.setSelectedItem(previousValue);
+            }
+            pivotFilterValue.setEnabled(true);
+        } else {
+            pivotFilterValue.setEnabled(false);
+        }
+        
+        runPivotQuery();
+    }
+    
+    /**
+     * Run the selected pivot against the cube and show it as a cross-tab
+     */
+    private void runPivotQuery() {
+        if (analyticsCube == null || !analyticsCube.isLoaded() || pivotTableModel == null) {
+            return;
+        }
+        
+        Dimension rowDimension = (Dimension) pivotRowDimension.getSelectedItem();
+        Object columnSelection = pivotColumnDimension.getSelectedItem();
+        Dimension columnDimension = columnSelection instanceof Dimension ? (Dimension) columnSelection : null;
+        Measure measure = (Measure) pivotMeasure.getSelectedItem();
+        
+        List<Dimension> groupBy = new ArrayList<>();
+        groupBy.add(rowDimension);
+        if (columnDimension != null) {
+            groupBy.add(columnDimension);
+        }
+        
+        Map<Dimension, Set<String>> filters = new HashMap<>();
+        Object filterDimension = pivotFilterDimension.getSelectedItem();
+        Object filterValue = pivotFilterValue.getSelectedItem();
+        if (filterDimension instanceof Dimension && filterValue != null) {
+            filters.put((Dimension) filterDimension, Collections.singleton(filterValue.toString()));
+        }
+        
+        AnalyticsCube.QueryResult result = analyticsCube.query(groupBy, filters, measure);
+        
+        // Pivot the (row, column) groups into a cross-tab with row totals
+        Set<String> columnKeys = new TreeSet<>();
+        Map<String, Map<String, BigDecimal>> cells = new LinkedHashMap<>();
+        for (AnalyticsCube.Row row : result.getRows()) {
+            String columnKey = columnDimension != null ? row.getKey(1) : measure.getLabel();
+            columnKeys.add(columnKey);
+            cells.computeIfAbsent(row.getKey(0), k -> new HashMap<>()).put(columnKey, row.getValue());
+        }
+        
+        List<String> columns = new ArrayList<>();
+        columns.add(rowDimension.getLabel());
+        columns.addAll(columnKeys);
+        if (columnDimension != null) {
+            columns.add("Total");
+        }
+        pivotTableModel.setColumnIdentifiers(columns.toArray());
+        pivotTableModel.setRowCount(0);
+        List<Object[]> exportRows = new ArrayList<>();
+        
+        for (Map.Entry<String, Map<String, BigDecimal>> entry : cells.entrySet()) {
+            Object[] tableRow = new Object[columns.size()];
+            Object[] exportRow = new Object[columns.size()];
+            tableRow[0] = entry.getKey();
+            exportRow[0] = entry.getKey();
+            BigDecimal total = BigDecimal.ZERO;
+            int column = 1;
+            for (String columnKey : columnKeys) {
+                BigDecimal value = entry.getValue().get(columnKey);
+                exportRow[column] = value;
+                tableRow[column++] = value != null ? formatMeasure(value, measure) : "";
+                if (value != null) {
+                    total = total.add(value);
+                }
+            }
+            if (columnDimension != null) {
+                tableRow[column] = formatMeasure(total, measure);
+                exportRow[column] = total;
+            }
+            pivotTableModel.addRow(tableRow);
+            exportRows.add(exportRow);
+        }
+        pivotExportColumns = columns.toArray(new String[0]);
+        pivotExportRows = exportRows;
+        
+        pivotTable.getColumnModel().getColumn(0).setPreferredWidth(180);
+        for (int i = 1; i < pivotTable.getColumnCount(); i++) {
+            pivotTable.getColumnModel().getColumn(i).setPreferredWidth(110);
+        }
+        
+        pivotStatusLabel.setText(String.format(
+            "%,d facts in cube (refreshed %s) - query scanned %,d facts in %.2f ms",
+            analyticsCube.getFactCount(),
+            TIME_FORMATTER.format(Instant.ofEpochMilli(analyticsCube.getLastRefreshMillis()).atZone(ZoneId.systemDefault())),
+            result.getFactsScanned(), result.getElapsedMillis()));
+        logger.info("Pivot " + groupBy + " / " + measure + " returned " + result.getRows().size() + " groups");
+    }
+    
+    private String formatMeasure(BigDecimal value, Measure measure) {
+        if (measure.isCurrency()) {
+            return CURRENCY_FORMATTER.format(value);
+        }
+        if (measure == Measure.COUNT) {
+            return value.toPlainString();
+        }
+        return value.setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+    
     /**
      * Refresh all reports
      */
@@ -830,6 +1349,7 @@ public class ReportsPanel extends JPanel {
         loadVendorSpendingReport();
         loadJobCostComparisonReport();
         loadRepeatCustomersReport();
+        loadPivotCube(false);
         logger.info("All reports refreshed");
     }
 }
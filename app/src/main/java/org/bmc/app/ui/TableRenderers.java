@@ -0,0 +1,61 @@
+package org.bmc.app.ui;
+
+import javax.swing.SwingConstants;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.TableCellRenderer;
+import java.text.NumberFormat;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.Locale;
+
+/**
+ * Shared cell renderers for {@link EntityTableModel} columns. Values are
+ * formatted only when a cell is painted, so only visible rows pay for it.
+ */
+final class TableRenderers {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private TableRenderers() {
+    }
+
+    /**
+     * Right-aligned US currency, e.g. $1,234.50; blank for null
+     */
+    static TableCellRenderer currency() {
+        NumberFormat format = NumberFormat.getCurrencyInstance(Locale.US);
+        DefaultTableCellRenderer renderer = new DefaultTableCellRenderer() {
+            @Override
+            protected void setValue(Object value) {
+                setText(value instanceof Number ? format.format(value) : "");
+            }
+        };
+        renderer.setHorizontalAlignment(SwingConstants.RIGHT);
+        return renderer;
+    }
+
+    /**
+     * ISO date (yyyy-MM-dd); blank for null
+     */
+    static TableCellRenderer date() {
+        return new DefaultTableCellRenderer() {
+            @Override
+            protected void setValue(Object value) {
+                setText(value instanceof TemporalAccessor ? DATE_FORMATTER.format((TemporalAccessor) value)
+                        : value != null ? value.toString() : "");
+            }
+        };
+    }
+
+    /**
+     * Text labels for a boolean column, e.g. "Paid"/"Unpaid"
+     */
+    static TableCellRenderer booleanText(String whenTrue, String whenFalse) {
+        return new DefaultTableCellRenderer() {
+            @Override
+            protected void setValue(Object value) {
+                setText(Boolean.TRUE.equals(value) ? whenTrue : whenFalse);
+            }
+        };
+    }
+}
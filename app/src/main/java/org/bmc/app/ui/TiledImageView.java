@@ -0,0 +1,564 @@
+package org.bmc.app.ui;
+
+import org.bmc.app.util.AppConfig;
+import org.bmc.app.util.ImageDecoder;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.ComponentListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Zoomable, pannable view of a photo that decodes only what is on screen.
+ *
+ * The image is cut into tiles of 512 decoded pixels at power-of-two
+ * subsampling steps. Painting draws the tiles covering the viewport at the
+ * step matching the zoom, and missing tiles are decoded in the background
+ * from just their source region, subsampled, so a 50 MP photo is never held
+ * in memory whole. Until a tile arrives, a coarser tile or the
+ * low-resolution preview is drawn stretched in its place. Decoded tiles are
+ * kept in an LRU limited to photos.viewer.tileCacheMB (default 64).
+ *
+ * The mouse wheel zooms around the pointer, dragging pans, and a
+ * double-click switches between fit-to-window and 100%.
+ */
+public class TiledImageView extends JComponent implements Scrollable {
+    private static final Logger logger = Logger.getLogger(TiledImageView.class.getName());
+
+    private static final int TILE_SIZE = 512;
+    private static final int MAX_FALLBACK_STEP = 64;
+    private static final double MAX_SCALE = 4.0;
+    private static final double ZOOM_STEP = 1.25;
+    private static final long TILE_CACHE_BYTES = AppConfig.getLong("photos.viewer.tileCacheMB", 64) * 1024 * 1024;
+
+    private final ExecutorService decoder;
+    private final ComponentListener viewportListener = new ComponentAdapter() {
+        @Override
+        public void componentResized(ComponentEvent e) {
+            if (fitted) {
+                zoomToFit();
+            } else {
+                updateSize();
+            }
+        }
+    };
+
+    private File source;
+    private int imageWidth;
+    private int imageHeight;
+    private BufferedImage preview;
+    private String message;
+    private double scale = 1.0;
+    private boolean fitted = true;
+    private int generation;
+    private Point dragStart;
+
+    // Touched only on the Event Dispatch Thread; access-ordered
+    private final LinkedHashMap<String, BufferedImage> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    private long tileBytes;
+    private final Set<String> pending = new HashSet<>();
+    private final Set<String> failed = new HashSet<>();
+    // Tiles on screen at the last paint; queued decodes of any others are skipped
+    private volatile Set<String> wanted = Collections.emptySet();
+
+    public TiledImageView() {
+        AtomicInteger count = new AtomicInteger();
+        decoder = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "tile-decoder-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        setOpaque(true);
+        setBackground(Color.DARK_GRAY);
+        setForeground(Color.LIGHT_GRAY);
+
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragStart = e.getLocationOnScreen();
+                setCursor(Cursor.getPredefinedCursor(Cursor.MOVE_CURSOR));
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                dragStart = null;
+                setCursor(Cursor.getDefaultCursor());
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                pan(e.getLocationOnScreen());
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    if (fitted) {
+                        setScale(1.0, e.getPoint());
+                    } else {
+                        zoomToFit();
+                    }
+                }
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                zoomBy(e.getWheelRotation() < 0 ? ZOOM_STEP : 1 / ZOOM_STEP, e.getPoint());
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+    }
+
+    /**
+     * Set the low-resolution image drawn until tiles are decoded. Without a
+     * source, it is the whole image.
+     */
+    public void setPreview(BufferedImage image) {
+        preview = image;
+        if (source == null) {
+            imageWidth = image.getWidth();
+            imageHeight = image.getHeight();
+        }
+        refresh();
+    }
+
+    /**
+     * Set the full-resolution file tiles are decoded from
+     *
+     * @param file image file
+     * @param size its pixel size, from {@link ImageDecoder#readSize}
+     */
+    public void setSource(File file, Dimension size) {
+        generation++;
+        tiles.clear();
+        tileBytes = 0;
+        pending.clear();
+        failed.clear();
+        if (imageWidth > 0 && !fitted) {
+            // Keep what is on screen the same size
+            scale = scale * imageWidth / size.width;
+        }
+        source = file;
+        imageWidth = size.width;
+        imageHeight = size.height;
+        refresh();
+    }
+
+    /**
+     * Show a line of text over the image, in the foreground color
+     *
+     * @param text message, or null to remove it
+     */
+    public void setMessage(String text) {
+        message = text;
+        repaint();
+    }
+
+    /**
+     * Zoom as screen pixels per image pixel; fires a "scale" property change
+     */
+    public double getScale() {
+        return scale;
+    }
+
+    public void zoomToFit() {
+        fitted = true;
+        applyScale(fitScale(), null);
+    }
+
+    public void zoomBy(double factor, Point anchor) {
+        setScale(scale * factor, anchor);
+    }
+
+    /**
+     * Zoom keeping one point of the image still
+     *
+     * @param newScale screen pixels per image pixel
+     * @param anchor point in this component that stays put, or null for the
+     *        middle of the viewport
+     */
+    public void setScale(double newScale, Point anchor) {
+        fitted = false;
+        applyScale(newScale, anchor);
+    }
+
+    /**
+     * Stop decoding and release the tiles; call when the view is closed
+     */
+    public void dispose() {
+        decoder.shutdownNow();
+        tiles.clear();
+        tileBytes = 0;
+        preview = null;
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        JViewport viewport = viewport();
+        if (viewport != null) {
+            viewport.addComponentListener(viewportListener);
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        JViewport viewport = viewport();
+        if (viewport != null) {
+            viewport.removeComponentListener(viewportListener);
+        }
+        super.removeNotify();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(getBackground());
+        g.fillRect(0, 0, getWidth(), getHeight());
+        if (imageWidth > 0) {
+            Graphics2D g2 = (Graphics2D) g.create();
+            try {
+                g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                paintImage(g2);
+            } finally {
+                g2.dispose();
+            }
+        }
+        if (message != null) {
+            FontMetrics metrics = g.getFontMetrics();
+            Rectangle visible = getVisibleRect();
+            g.setColor(getForeground());
+            g.drawString(message, visible.x + (visible.width - metrics.stringWidth(message)) / 2,
+                         visible.y + visible.height / 2);
+        }
+    }
+
+    private void paintImage(Graphics2D g2) {
+        Dimension display = displaySize();
+        int x0 = offsetX();
+        int y0 = offsetY();
+        if (preview != null) {
+            // Only the clipped part is actually scaled
+            g2.drawImage(preview, x0, y0, display.width, display.height, null);
+        }
+        if (source == null || decoder.isShutdown()
+                || (preview != null && scale <= (double) preview.getWidth() / imageWidth)) {
+            return; // the preview already has every pixel the screen can show
+        }
+
+        Rectangle visible = getVisibleRect().intersection(new Rectangle(x0, y0, display.width, display.height));
+        if (visible.isEmpty()) {
+            return;
+        }
+        int step = stepFor(scale);
+        int span = TILE_SIZE * step;
+        int firstColumn = (int) ((visible.x - x0) / scale) / span;
+        int lastColumn = Math.min(imageWidth - 1, (int) ((visible.x + visible.width - x0) / scale)) / span;
+        int firstRow = (int) ((visible.y - y0) / scale) / span;
+        int lastRow = Math.min(imageHeight - 1, (int) ((visible.y + visible.height - y0) / scale)) / span;
+
+        Set<String> onScreen = new HashSet<>();
+        List<Rectangle> missing = new ArrayList<>();
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                Rectangle region = tileRegion(column, row, span);
+                String key = tileKey(step, column, row);
+                onScreen.add(key);
+                BufferedImage tile = tiles.get(key);
+                if (tile != null) {
+                    drawRegion(g2, tile, region, null);
+                    continue;
+                }
+                paintFallback(g2, region, step);
+                if (!pending.contains(key) && !failed.contains(key)) {
+                    missing.add(region);
+                }
+            }
+        }
+        wanted = onScreen;
+
+        // Middle of the screen first
+        double centerX = (visible.getCenterX() - x0) / scale;
+        double centerY = (visible.getCenterY() - y0) / scale;
+        missing.sort(Comparator.comparingDouble(
+            region -> Math.hypot(region.getCenterX() - centerX, region.getCenterY() - centerY)));
+        for (Rectangle region : missing) {
+            request(tileKey(step, region.x / span, region.y / span), region, step);
+        }
+    }
+
+    /**
+     * Draw the closest coarser tile already decoded over a missing one
+     */
+    private void paintFallback(Graphics2D g2, Rectangle region, int step) {
+        for (int coarser = step * 2; coarser <= MAX_FALLBACK_STEP; coarser *= 2) {
+            int span = TILE_SIZE * coarser;
+            int column = region.x / span;
+            int row = region.y / span;
+            BufferedImage tile = tiles.get(tileKey(coarser, column, row));
+            if (tile != null) {
+                drawRegion(g2, tile, tileRegion(column, row, span), toScreen(region));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Draw a tile stretched over where its region is on screen
+     *
+     * @param clip part of the screen to limit drawing to, or null
+     */
+    private void drawRegion(Graphics2D g2, BufferedImage tile, Rectangle region, Rectangle clip) {
+        Rectangle target = toScreen(region);
+        Graphics2D g = (Graphics2D) g2.create();
+        try {
+            if (clip != null) {
+                g.clip(clip);
+            }
+            g.drawImage(tile, target.x, target.y, target.width, target.height, null);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private void request(String key, Rectangle region, int step) {
+        File file = source;
+        int requested = generation;
+        try {
+            decoder.submit(() -> {
+                BufferedImage tile = null;
+                boolean error = false;
+                if (wanted.contains(key)) {
+                    try {
+                        tile = ImageDecoder.decodeRegionToFit(file, region, ceilDiv(region.width, step),
+                                                              ceilDiv(region.height, step));
+                        error = tile == null;
+                    } catch (InterruptedIOException e) {
+                        return; // closed
+                    } catch (IOException | RuntimeException e) {
+                        logger.warning("Error decoding tile " + key + " of " + file + ": " + e.getMessage());
+                        error = true;
+                    }
+                }
+                BufferedImage decoded = tile;
+                boolean decodeFailed = error;
+                SwingUtilities.invokeLater(() -> tileDone(requested, key, decoded, decodeFailed));
+            });
+            pending.add(key);
+        } catch (RejectedExecutionException e) {
+            // disposed
+        }
+    }
+
+    private void tileDone(int requested, String key, BufferedImage tile, boolean error) {
+        if (requested != generation) {
+            return; // decoded from a previous source
+        }
+        pending.remove(key);
+        if (tile != null) {
+            cacheTile(key, tile);
+            repaint();
+        } else if (error) {
+            failed.add(key);
+        }
+    }
+
+    /**
+     * Add a tile, then drop the least recently drawn ones over the budget.
+     * Tiles on screen are kept, or they would be decoded again right away.
+     */
+    private void cacheTile(String key, BufferedImage tile) {
+        BufferedImage previous = tiles.put(key, tile);
+        tileBytes += bytes(tile) - (previous != null ? bytes(previous) : 0);
+
+        Iterator<Map.Entry<String, BufferedImage>> eldest = tiles.entrySet().iterator();
+        while (tileBytes > TILE_CACHE_BYTES && eldest.hasNext()) {
+            Map.Entry<String, BufferedImage> entry = eldest.next();
+            if (!wanted.contains(entry.getKey())) {
+                eldest.remove();
+                tileBytes -= bytes(entry.getValue());
+            }
+        }
+    }
+
+    private void refresh() {
+        if (fitted) {
+            zoomToFit();
+        } else {
+            applyScale(scale, null);
+        }
+    }
+
+    private void applyScale(double newScale, Point anchor) {
+        double oldScale = scale;
+        newScale = Math.max(Math.min(1.0, fitScale()), Math.min(MAX_SCALE, newScale));
+        JViewport viewport = viewport();
+        if (viewport == null || imageWidth == 0) {
+            scale = newScale;
+            updateSize();
+            repaint();
+            firePropertyChange("scale", oldScale, scale);
+            return;
+        }
+
+        // Image point under the anchor, and where the anchor is on screen
+        Rectangle view = viewport.getViewRect();
+        if (anchor == null) {
+            anchor = new Point(view.x + view.width / 2, view.y + view.height / 2);
+        }
+        double imageX = (anchor.x - offsetX()) / scale;
+        double imageY = (anchor.y - offsetY()) / scale;
+        int screenX = anchor.x - view.x;
+        int screenY = anchor.y - view.y;
+
+        scale = newScale;
+        updateSize();
+        int maxX = Math.max(0, getWidth() - view.width);
+        int maxY = Math.max(0, getHeight() - view.height);
+        viewport.setViewPosition(new Point(
+            Math.max(0, Math.min(maxX, (int) Math.round(offsetX() + imageX * scale) - screenX)),
+            Math.max(0, Math.min(maxY, (int) Math.round(offsetY() + imageY * scale) - screenY))));
+        repaint();
+        firePropertyChange("scale", oldScale, scale);
+    }
+
+    /**
+     * Resize to the zoomed image, and at once rather than at the next
+     * layout, so the viewport can be positioned on the new size
+     */
+    private void updateSize() {
+        Dimension display = displaySize();
+        setPreferredSize(display);
+        JViewport viewport = viewport();
+        if (viewport != null) {
+            setSize(Math.max(display.width, viewport.getWidth()), Math.max(display.height, viewport.getHeight()));
+        }
+        revalidate();
+    }
+
+    private void pan(Point now) {
+        JViewport viewport = viewport();
+        if (viewport == null || dragStart == null) {
+            return;
+        }
+        Rectangle view = viewport.getViewRect();
+        int x = view.x + dragStart.x - now.x;
+        int y = view.y + dragStart.y - now.y;
+        viewport.setViewPosition(new Point(Math.max(0, Math.min(getWidth() - view.width, x)),
+                                           Math.max(0, Math.min(getHeight() - view.height, y))));
+        dragStart = now;
+    }
+
+    private double fitScale() {
+        JViewport viewport = viewport();
+        if (imageWidth == 0 || viewport == null || viewport.getWidth() == 0) {
+            return 1.0;
+        }
+        return Math.min(1.0, Math.min((double) viewport.getWidth() / imageWidth,
+                                      (double) viewport.getHeight() / imageHeight));
+    }
+
+    private Dimension displaySize() {
+        return new Dimension((int) Math.ceil(imageWidth * scale), (int) Math.ceil(imageHeight * scale));
+    }
+
+    // The image is centered when smaller than the viewport
+    private int offsetX() {
+        return Math.max(0, (getWidth() - displaySize().width) / 2);
+    }
+
+    private int offsetY() {
+        return Math.max(0, (getHeight() - displaySize().height) / 2);
+    }
+
+    private Rectangle toScreen(Rectangle region) {
+        int x = offsetX() + (int) Math.round(region.x * scale);
+        int y = offsetY() + (int) Math.round(region.y * scale);
+        return new Rectangle(x, y, offsetX() + (int) Math.round((region.x + region.width) * scale) - x,
+                             offsetY() + (int) Math.round((region.y + region.height) * scale) - y);
+    }
+
+    private Rectangle tileRegion(int column, int row, int span) {
+        return new Rectangle(column * span, row * span, span, span)
+            .intersection(new Rectangle(0, 0, imageWidth, imageHeight));
+    }
+
+    private JViewport viewport() {
+        Container parent = getParent();
+        return parent instanceof JViewport ? (JViewport) parent : null;
+    }
+
+    /**
+     * Largest power-of-two subsampling that still gives at least one decoded
+     * pixel per screen pixel
+     */
+    private static int stepFor(double scale) {
+        int step = 1;
+        while (step * 2 <= 1 / scale && step < MAX_FALLBACK_STEP) {
+            step *= 2;
+        }
+        return step;
+    }
+
+    private static String tileKey(int step, int column, int row) {
+        return step + "/" + column + "/" + row;
+    }
+
+    private static int ceilDiv(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
+    private static long bytes(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * 4;
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return 32;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return Math.max(32, (orientation == SwingConstants.HORIZONTAL ? visibleRect.width : visibleRect.height) - 32);
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        JViewport viewport = viewport();
+        return viewport != null && viewport.getWidth() > getPreferredSize().width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        JViewport viewport = viewport();
+        return viewport != null && viewport.getHeight() > getPreferredSize().height;
+    }
+}
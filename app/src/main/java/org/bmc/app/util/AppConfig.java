@@ -0,0 +1,99 @@
+package org.bmc.app.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Application settings from application.properties (everything other than the
+ * db.* connection settings, which DBConnection owns).
+ * Like DBConnection, any key can be overridden with a JVM system property.
+ */
+public class AppConfig {
+
+    private static final Logger LOGGER = Logger.getLogger(AppConfig.class.getName());
+
+    private static final Properties PROPERTIES = new Properties();
+
+    static {
+        try (InputStream input = AppConfig.class.getClassLoader().getResourceAsStream("application.properties")) {
+            if (input != null) {
+                PROPERTIES.load(input);
+            } else {
+                LOGGER.warning("application.properties not found, using defaults");
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Error reading application.properties, using defaults", e);
+        }
+    }
+
+    private AppConfig() {
+    }
+
+    /**
+     * Get a setting
+     *
+     * @param key property name
+     * @param defaultValue value when the property is not set
+     * @return trimmed value, or defaultValue
+     */
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(key, PROPERTIES.getProperty(key));
+        return value != null && !value.trim().isEmpty() ? value.trim() : defaultValue;
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            LOGGER.warning("Invalid integer for " + key + ": " + value + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            LOGGER.warning("Invalid number for " + key + ": " + value + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Get a comma-separated setting as a list
+     *
+     * @param key property name
+     * @param defaultValue comma-separated value when the property is not set
+     * @return non-empty trimmed entries
+     */
+    public static List<String> getList(String key, String defaultValue) {
+        List<String> values = new ArrayList<>();
+        String raw = getString(key, defaultValue);
+        if (raw != null) {
+            for (String part : raw.split(",")) {
+                if (!part.trim().isEmpty()) {
+                    values.add(part.trim());
+                }
+            }
+        }
+        return values;
+    }
+}
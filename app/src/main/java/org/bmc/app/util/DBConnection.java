@@ -12,6 +12,7 @@ import java.util.logging.Logger;
 /**
  * Database connection utility class for Baltimore Metal Crafters application.
  * Manages JDBC connections to MySQL database using configuration from application.properties.
+ * Any db.* property can be overridden with a JVM system property of the same name.
  */
 public class DBConnection {
     
@@ -42,10 +43,12 @@ public class DBConnection {
             
             props.load(input);
             
-            DB_URL = props.getProperty("db.url");
-            DB_USER = props.getProperty("db.user");
-            DB_PASSWORD = props.getProperty("db.password");
-            DB_DRIVER = props.getProperty("db.driver");
+            // System properties win so tools such as the report benchmark can point
+            // at a scratch database without editing application.properties
+            DB_URL = System.getProperty("db.url", props.getProperty("db.url"));
+            DB_USER = System.getProperty("db.user", props.getProperty("db.user"));
+            DB_PASSWORD = System.getProperty("db.password", props.getProperty("db.password"));
+            DB_DRIVER = System.getProperty("db.driver", props.getProperty("db.driver"));
             
             // Validate required properties
             if (DB_URL == null || DB_USER == null || DB_PASSWORD == null || DB_DRIVER == null) {
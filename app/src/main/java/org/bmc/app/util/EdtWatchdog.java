@@ -0,0 +1,358 @@
+package org.bmc.app.util;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+/**
+ * Detects Event Dispatch Thread stalls: events whose handling takes longer
+ * than a threshold, freezing the UI.
+ *
+ * A replacement event queue times every event, and a daemon thread samples
+ * the event in progress. Once it runs past the threshold, the EDT's stack is
+ * captured. When the event finishes, the stall is attributed to the first
+ * application frame on that stack (the call site) and appended to a log file.
+ * All event durations feed a latency histogram, which the Diagnostics dialog
+ * shows together with the call sites sorted by total time lost.
+ *
+ * Configuration (application.properties):
+ * <pre>
+ *   diagnostics.edtWatchdog.enabled          default true
+ *   diagnostics.edtWatchdog.thresholdMillis  default 100
+ *   diagnostics.edtWatchdog.logFile          default logs/edt-stalls.log
+ * </pre>
+ */
+public class EdtWatchdog {
+    private static final Logger LOGGER = Logger.getLogger(EdtWatchdog.class.getName());
+
+    /**
+     * Upper bounds (ms) of the latency histogram buckets; the last bucket is open-ended
+     */
+    public static final long[] BUCKET_LIMITS = {16, 50, 100, 250, 500, 1000, 2000};
+
+    private static final String APP_PACKAGE = "org.bmc.app.";
+    private static final int MAX_STACK_DEPTH = 40;
+    private static final DateTimeFormatter LOG_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private static EdtWatchdog instance;
+
+    private final long thresholdMillis;
+    private final Path logFile;
+    private final ExecutorService logWriter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "edt-watchdog-log");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Event in progress, written by the EDT and read by the watchdog thread
+    private volatile long currentStartNanos;
+    private volatile long currentSequence;
+    private volatile Thread edtThread;
+    private volatile StackTraceElement[] capturedStack;
+    private volatile long capturedSequence = -1;
+    private int depth;
+
+    // Statistics, guarded by this
+    private final long[] histogram = new long[BUCKET_LIMITS.length + 1];
+    private final Map<String, HotSpot> hotSpots = new HashMap<>();
+    private long eventCount;
+    private long stallCount;
+    private long maxMillis;
+    private long startedAt = System.currentTimeMillis();
+
+    /**
+     * Stalls attributed to one call site
+     */
+    public static final class HotSpot {
+        private final String callSite;
+        private long count;
+        private long totalMillis;
+        private long maxMillis;
+        private StackTraceElement[] slowestStack;
+
+        HotSpot(String callSite) {
+            this.callSite = callSite;
+        }
+
+        HotSpot(HotSpot other) {
+            this.callSite = other.callSite;
+            this.count = other.count;
+            this.totalMillis = other.totalMillis;
+            this.maxMillis = other.maxMillis;
+            this.slowestStack = other.slowestStack;
+        }
+
+        public String getCallSite() { return callSite; }
+        public long getCount() { return count; }
+        public long getTotalMillis() { return totalMillis; }
+        public long getMaxMillis() { return maxMillis; }
+        public StackTraceElement[] getSlowestStack() { return slowestStack; }
+    }
+
+    /**
+     * Point-in-time copy of the statistics
+     */
+    public static final class Stats {
+        private final long thresholdMillis;
+        private final long eventCount;
+        private final long stallCount;
+        private final long maxMillis;
+        private final long[] histogram;
+        private final List<HotSpot> hotSpots;
+        private final long sinceMillis;
+
+        Stats(long thresholdMillis, long eventCount, long stallCount, long maxMillis, long[] histogram,
+              List<HotSpot> hotSpots, long sinceMillis) {
+            this.thresholdMillis = thresholdMillis;
+            this.eventCount = eventCount;
+            this.stallCount = stallCount;
+            this.maxMillis = maxMillis;
+            this.histogram = histogram;
+            this.hotSpots = hotSpots;
+            this.sinceMillis = sinceMillis;
+        }
+
+        public long getThresholdMillis() { return thresholdMillis; }
+        public long getEventCount() { return eventCount; }
+        public long getStallCount() { return stallCount; }
+        public long getMaxMillis() { return maxMillis; }
+        /** Event counts per bucket of {@link #BUCKET_LIMITS}, plus one open-ended bucket */
+        public long[] getHistogram() { return histogram.clone(); }
+        /** Call sites, most total stall time first */
+        public List<HotSpot> getHotSpots() { return hotSpots; }
+        /** When collection started (epoch millis) */
+        public long getSinceMillis() { return sinceMillis; }
+    }
+
+    private EdtWatchdog(long thresholdMillis, Path logFile) {
+        this.thresholdMillis = thresholdMillis;
+        this.logFile = logFile;
+    }
+
+    /**
+     * Start watching the Event Dispatch Thread if enabled in configuration.
+     * Call once at startup; later calls do nothing.
+     */
+    public static synchronized void install() {
+        if (instance != null || !AppConfig.getBoolean("diagnostics.edtWatchdog.enabled", true)) {
+            return;
+        }
+        long threshold = Math.max(10, AppConfig.getLong("diagnostics.edtWatchdog.thresholdMillis", 100));
+        Path logFile = Paths.get(AppConfig.getString("diagnostics.edtWatchdog.logFile", "logs/edt-stalls.log"));
+        EdtWatchdog watchdog = new EdtWatchdog(threshold, logFile);
+
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(watchdog.new TimingEventQueue());
+        Thread thread = new Thread(watchdog::watch, "edt-watchdog");
+        thread.setDaemon(true);
+        thread.start();
+
+        instance = watchdog;
+        LOGGER.info("EDT watchdog installed, threshold " + threshold + " ms, log " + logFile.toAbsolutePath());
+    }
+
+    /**
+     * @return the installed watchdog, or null if it is disabled
+     */
+    public static synchronized EdtWatchdog getInstance() {
+        return instance;
+    }
+
+    public synchronized Stats getStats() {
+        List<HotSpot> spots = new ArrayList<>();
+        for (HotSpot spot : hotSpots.values()) {
+            spots.add(new HotSpot(spot));
+        }
+        spots.sort((a, b) -> Long.compare(b.totalMillis, a.totalMillis));
+        return new Stats(thresholdMillis, eventCount, stallCount, maxMillis, histogram.clone(),
+                         Collections.unmodifiableList(spots), startedAt);
+    }
+
+    /**
+     * Clear the statistics (the log file is kept)
+     */
+    public synchronized void reset() {
+        Arrays.fill(histogram, 0);
+        hotSpots.clear();
+        eventCount = 0;
+        stallCount = 0;
+        maxMillis = 0;
+        startedAt = System.currentTimeMillis();
+    }
+
+    public Path getLogFile() {
+        return logFile;
+    }
+
+    /**
+     * Event queue that times every dispatched event. Events dispatched from a
+     * nested loop (a modal dialog) are timed on their own; the event that
+     * opened the dialog is not counted, since the time was spent waiting on
+     * the user.
+     */
+    private class TimingEventQueue extends EventQueue {
+        private long sequence;
+
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+            edtThread = Thread.currentThread();
+            long outerSequence = currentSequence;
+            long outerStart = currentStartNanos;
+            long mySequence = ++sequence;
+            int myDepth = ++depth;
+
+            currentSequence = mySequence;
+            currentStartNanos = System.nanoTime();
+            long start = currentStartNanos;
+            try {
+                super.dispatchEvent(event);
+            } finally {
+                long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+                boolean nested = sequence != mySequence; // other events ran inside this one
+                depth--;
+                StackTraceElement[] stack = capturedSequence == mySequence ? capturedStack : null;
+
+                // Resume timing the outer event; it is only counted if nothing nested ran
+                currentSequence = myDepth > 1 ? outerSequence : 0;
+                currentStartNanos = myDepth > 1 ? outerStart : 0;
+
+                if (!nested) {
+                    record(elapsedMillis, stack, event);
+                }
+            }
+        }
+    }
+
+    private void watch() {
+        long interval = Math.max(5, thresholdMillis / 2);
+        while (true) {
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long sequence = currentSequence;
+            long start = currentStartNanos;
+            Thread edt = edtThread;
+            if (sequence == 0 || edt == null || sequence == capturedSequence) {
+                continue;
+            }
+            if ((System.nanoTime() - start) / 1_000_000 >= thresholdMillis) {
+                StackTraceElement[] stack = edt.getStackTrace();
+                // Still the same event, and not just a modal dialog waiting for input
+                if (sequence == currentSequence && !isWaitingForEvents(stack)) {
+                    capturedStack = stack;
+                    capturedSequence = sequence;
+                }
+            }
+        }
+    }
+
+    private static boolean isWaitingForEvents(StackTraceElement[] stack) {
+        for (int i = 0; i < Math.min(stack.length, 8); i++) {
+            if ("java.awt.EventQueue".equals(stack[i].getClassName())
+                    && "getNextEvent".equals(stack[i].getMethodName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void record(long elapsedMillis, StackTraceElement[] stack, AWTEvent event) {
+        boolean stall = elapsedMillis >= thresholdMillis && stack != null;
+        String callSite = stall ? callSite(stack) : null;
+        synchronized (this) {
+            eventCount++;
+            histogram[bucket(elapsedMillis)]++;
+            maxMillis = Math.max(maxMillis, elapsedMillis);
+            if (!stall) {
+                return;
+            }
+            stallCount++;
+            HotSpot spot = hotSpots.computeIfAbsent(callSite, HotSpot::new);
+            spot.count++;
+            spot.totalMillis += elapsedMillis;
+            if (elapsedMillis >= spot.maxMillis) {
+                spot.maxMillis = elapsedMillis;
+                spot.slowestStack = stack;
+            }
+        }
+        String eventType = event.getClass().getSimpleName();
+        LOGGER.warning("EDT stall " + elapsedMillis + " ms at " + callSite);
+        // File I/O here would add to the stall being reported
+        logWriter.execute(() -> appendToLog(elapsedMillis, callSite, stack, eventType));
+    }
+
+    private static int bucket(long millis) {
+        for (int i = 0; i < BUCKET_LIMITS.length; i++) {
+            if (millis < BUCKET_LIMITS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_LIMITS.length;
+    }
+
+    /**
+     * First application frame on the stack, skipping this class; failing that
+     * the first frame outside the JDK, or the top frame
+     */
+    private static String callSite(StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            if (frame.getClassName().startsWith(APP_PACKAGE)
+                    && !frame.getClassName().startsWith(EdtWatchdog.class.getName())) {
+                return frame.toString();
+            }
+        }
+        for (StackTraceElement frame : stack) {
+            if (!isJdkFrame(frame)) {
+                return frame.toString();
+            }
+        }
+        return stack.length > 0 ? stack[0].toString() : "(unknown)";
+    }
+
+    private static boolean isJdkFrame(StackTraceElement frame) {
+        String name = frame.getClassName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.")
+            || name.startsWith("jdk.") || name.startsWith("com.sun.");
+    }
+
+    private void appendToLog(long elapsedMillis, String callSite, StackTraceElement[] stack, String eventType) {
+        StringBuilder entry = new StringBuilder();
+        entry.append(LocalDateTime.now().format(LOG_TIME)).append(" EDT stall ").append(elapsedMillis)
+             .append(" ms at ").append(callSite).append(" (").append(eventType).append(")\n");
+        for (int i = 0; i < Math.min(stack.length, MAX_STACK_DEPTH); i++) {
+            entry.append("    at ").append(stack[i]).append('\n');
+        }
+
+        try {
+            Path parent = logFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(entry.toString());
+            }
+        } catch (IOException e) {
+            LOGGER.warning("Could not write EDT stall log " + logFile + ": " + e.getMessage());
+        }
+    }
+}
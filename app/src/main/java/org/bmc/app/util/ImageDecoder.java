@@ -0,0 +1,279 @@
+package org.bmc.app.util;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.swing.SwingUtilities;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Decodes images directly at the resolution they will be shown at.
+ *
+ * Instead of decoding a whole 12-48 MP photo and scaling the result, the
+ * ImageReader is asked to skip source pixels (subsampling) and, optionally,
+ * to read only a region, so the decoder never produces much more than the
+ * pixels needed. The remaining reduction is done in halving steps, which
+ * looks as good as SCALE_SMOOTH at a fraction of the cost.
+ *
+ * Decoded pixels are charged against a shared memory budget
+ * (photos.decodeBudgetMB, default 256): a decode waits until the budget has
+ * room, and one that could never fit is subsampled further. This keeps
+ * several large photos being opened at once from spiking the heap.
+ */
+public final class ImageDecoder {
+    private static final Logger LOGGER = Logger.getLogger(ImageDecoder.class.getName());
+
+    private static final int BYTES_PER_PIXEL = 4;
+    private static final int BUDGET_KB = (int) Math.min(Integer.MAX_VALUE,
+        Math.max(16, AppConfig.getLong("photos.decodeBudgetMB", 256)) * 1024);
+    private static final Semaphore BUDGET = new Semaphore(BUDGET_KB, true);
+
+    private static final ExecutorService POOL;
+
+    static {
+        AtomicInteger count = new AtomicInteger();
+        POOL = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "image-decoder-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private ImageDecoder() {
+    }
+
+    /**
+     * Read an image's pixel size from its header without decoding it
+     *
+     * @return size, or null if the format is not supported
+     */
+    public static Dimension readSize(File file) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            ImageReader reader = readerFor(input);
+            if (reader == null) {
+                return null;
+            }
+            try {
+                reader.setInput(input, true, true);
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Decode a whole image scaled to fit a box, keeping its aspect ratio.
+     * Images smaller than the box are not enlarged.
+     *
+     * @return the image, or null if the format is not supported
+     */
+    public static BufferedImage decodeToFit(File file, int maxWidth, int maxHeight) throws IOException {
+        return decodeRegionToFit(file, null, maxWidth, maxHeight);
+    }
+
+    /**
+     * Decode part of an image scaled to fit a box, keeping its aspect ratio
+     *
+     * @param region source pixels to read, or null for the whole image
+     * @return the image, or null if the format is not supported
+     */
+    public static BufferedImage decodeRegionToFit(File file, Rectangle region, int maxWidth, int maxHeight)
+            throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            ImageReader reader = readerFor(input);
+            if (reader == null) {
+                return null;
+            }
+            try {
+                reader.setInput(input, true, true);
+                Rectangle source = new Rectangle(0, 0, reader.getWidth(0), reader.getHeight(0));
+                if (region != null) {
+                    source = source.intersection(region);
+                    if (source.isEmpty()) {
+                        return null;
+                    }
+                }
+
+                // Largest step that still leaves at least the box size, then coarser if over budget
+                int step = Math.max(1, Math.min(source.width / Math.max(1, maxWidth),
+                                                source.height / Math.max(1, maxHeight)));
+                while (decodedKilobytes(source, step) > BUDGET_KB) {
+                    step++;
+                }
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceRegion(source);
+                param.setSourceSubsampling(step, step, 0, 0);
+
+                int kilobytes = decodedKilobytes(source, step);
+                acquire(kilobytes);
+                try {
+                    BufferedImage decoded = reader.read(0, param);
+                    double scale = Math.min(1.0, Math.min((double) maxWidth / decoded.getWidth(),
+                                                          (double) maxHeight / decoded.getHeight()));
+                    return scale < 1.0
+                        ? scale(decoded, (int) Math.round(decoded.getWidth() * scale),
+                                (int) Math.round(decoded.getHeight() * scale))
+                        : decoded;
+                } finally {
+                    BUDGET.release(kilobytes);
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Decode an image to fit a box on a background thread
+     *
+     * @param onDecoded called on the Event Dispatch Thread with the image
+     * @param onError called on the Event Dispatch Thread with a short message
+     * @return handle for cancelling the request
+     */
+    public static Future<?> decodeToFitAsync(File file, int maxWidth, int maxHeight,
+                                             Consumer<BufferedImage> onDecoded, Consumer<String> onError) {
+        return POOL.submit(() -> {
+            String error;
+            try {
+                long start = System.currentTimeMillis();
+                BufferedImage image = decodeToFit(file, maxWidth, maxHeight);
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                if (image != null) {
+                    LOGGER.fine("Decoded " + file.getName() + " at " + image.getWidth() + "x" + image.getHeight() +
+                                " in " + (System.currentTimeMillis() - start) + " ms");
+                    SwingUtilities.invokeLater(() -> onDecoded.accept(image));
+                    return;
+                }
+                error = "Unable to load image";
+            } catch (InterruptedIOException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warning("Error decoding " + file + ": " + e.getMessage());
+                error = "Error loading image: " + e.getMessage();
+            }
+            String message = error;
+            SwingUtilities.invokeLater(() -> onError.accept(message));
+        });
+    }
+
+    /**
+     * High-quality downscale: halve with bilinear filtering until within a
+     * factor of two of the target, then one last bilinear step
+     */
+    public static BufferedImage scale(BufferedImage image, int width, int height) {
+        width = Math.max(1, width);
+        height = Math.max(1, height);
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = image;
+        int currentWidth = image.getWidth();
+        int currentHeight = image.getHeight();
+        do {
+            int nextWidth = currentWidth / 2 >= width ? currentWidth / 2 : width;
+            int nextHeight = currentHeight / 2 >= height ? currentHeight / 2 : height;
+
+            BufferedImage next = new BufferedImage(nextWidth, nextHeight, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, nextWidth, nextHeight, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+            currentWidth = nextWidth;
+            currentHeight = nextHeight;
+        } while (currentWidth != width || currentHeight != height);
+        return current;
+    }
+
+    /**
+     * Write an image as JPEG through a temporary file, so readers never see
+     * a half-written file. Transparency is flattened onto white.
+     *
+     * @param quality compression quality, 0 to 1
+     */
+    public static void writeJpeg(BufferedImage image, File target, float quality) throws IOException {
+        BufferedImage rgb = image;
+        if (image.getType() != BufferedImage.TYPE_INT_RGB) {
+            rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = rgb.createGraphics();
+            try {
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, image.getWidth(), image.getHeight());
+                g.drawImage(image, 0, 0, null);
+            } finally {
+                g.dispose();
+            }
+        }
+
+        // Unique name, so two threads writing the same target don't share a temporary file
+        File temp = File.createTempFile(target.getName(), ".tmp", target.getAbsoluteFile().getParentFile());
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(temp)) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(quality);
+                writer.setOutput(output);
+                writer.write(null, new IIOImage(rgb, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    private static ImageReader readerFor(ImageInputStream input) {
+        if (input == null) {
+            return null;
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        return readers.hasNext() ? readers.next() : null;
+    }
+
+    private static int decodedKilobytes(Rectangle source, int step) {
+        long pixels = (long) ((source.width + step - 1) / step) * ((source.height + step - 1) / step);
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, pixels * BYTES_PER_PIXEL / 1024));
+    }
+
+    private static void acquire(int kilobytes) throws InterruptedIOException {
+        try {
+            BUDGET.acquire(kilobytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for decode memory");
+        }
+    }
+}
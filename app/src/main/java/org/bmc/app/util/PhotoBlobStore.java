@@ -0,0 +1,210 @@
+package org.bmc.app.util;
+
+import java.awt.Dimension;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+/**
+ * Content-addressed storage for photo files.
+ *
+ * Each file is kept once, named by the SHA-256 of its bytes and sharded by
+ * the first two bytes of the hash so no directory grows large:
+ * photos/blobs/3f/a2/3fa2...c9.jpg. Storing the same image again (for the
+ * same or another job) finds the existing file and writes nothing, and the
+ * path of any hash is computed without a directory search. The hash is
+ * computed while the upload is copied, so the source is read only once,
+ * and files appear in the store only complete and synced to disk.
+ * Files are shared between Photo rows; whoever deletes a row decides from
+ * the rows left with the same hash whether the file can go.
+ */
+public class PhotoBlobStore {
+
+    private static final Logger LOGGER = Logger.getLogger(PhotoBlobStore.class.getName());
+
+    private static final String BLOBS_DIR = "photos/blobs";
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * Result of storing a file
+     */
+    public static class Blob {
+        private final String hash;
+        private final String relativePath;
+        private final long size;
+        private final int width;
+        private final int height;
+        private final boolean duplicate;
+
+        Blob(String hash, String relativePath, long size, Dimension dimensions, boolean duplicate) {
+            this.hash = hash;
+            this.relativePath = relativePath;
+            this.size = size;
+            this.width = dimensions.width;
+            this.height = dimensions.height;
+            this.duplicate = duplicate;
+        }
+
+        /**
+         * SHA-256 of the content, as 64 lowercase hex digits
+         */
+        public String getHash() {
+            return hash;
+        }
+
+        public String getRelativePath() {
+            return relativePath;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * True if the content was already stored and no bytes were written
+         */
+        public boolean isDuplicate() {
+            return duplicate;
+        }
+    }
+
+    /**
+     * Stores a file under its content hash unless an identical file is
+     * already stored.
+     *
+     * The source is read a buffer at a time into one direct buffer; each
+     * buffer is hashed and written to a temporary file, so the bytes are
+     * read once and never copied through a Java array. The source is not
+     * memory-mapped: on Windows a mapped file cannot be deleted until the
+     * mapping is garbage-collected, and callers delete sources (such as a
+     * transcoded temporary file) right after storing them. The temporary
+     * file is forced to disk before it is renamed into place, and the
+     * directory after, so a crash leaves either no file or a complete one.
+     * The image header is read from the copy to reject files that are not
+     * images before anything becomes visible.
+     *
+     * @param sourceFile file to store
+     * @return where the content is stored, with its size and pixel dimensions
+     * @throws IOException if the file could not be read or written, or is
+     *         not a readable image
+     */
+    public static Blob store(File sourceFile) throws IOException {
+        Path blobsDir = Paths.get(BLOBS_DIR);
+        Files.createDirectories(blobsDir);
+        // Same file system as the target, so the final move is a rename
+        Path temp = Files.createTempFile(blobsDir, "upload", ".tmp");
+        try {
+            MessageDigest digest = newDigest();
+            long size;
+            try (FileChannel in = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                size = in.size();
+                ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+                while (in.read(buffer) >= 0) {
+                    buffer.flip();
+                    digest.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+                }
+                out.force(true);
+            }
+
+            Dimension dimensions = ImageDecoder.readSize(temp.toFile());
+            if (dimensions == null) {
+                throw new IOException("Not a readable image: " + sourceFile.getName());
+            }
+
+            String hash = toHex(digest.digest());
+            String relativePath = pathFor(hash, normalizeExtension(sourceFile.getName()));
+            Path target = Paths.get(relativePath);
+            if (Files.exists(target)) {
+                LOGGER.info("Photo already stored: " + relativePath);
+                return new Blob(hash, relativePath, size, dimensions, true);
+            }
+
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // Same content stored concurrently; either copy will do
+                return new Blob(hash, relativePath, size, dimensions, true);
+            }
+            syncDirectory(target.getParent());
+            LOGGER.info("Photo stored: " + relativePath);
+            return new Blob(hash, relativePath, size, dimensions, false);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Gets the relative path content with a hash is stored at
+     *
+     * @param hash SHA-256 as 64 lowercase hex digits
+     * @param extension file extension including the dot, or empty
+     * @return relative path, e.g. photos/blobs/3f/a2/3fa2...c9.jpg
+     */
+    public static String pathFor(String hash, String extension) {
+        return BLOBS_DIR + "/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + extension;
+    }
+
+    /**
+     * Lowercase extension of a file name, with .jpeg stored as .jpg so the
+     * same image uploaded under either name maps to one file
+     */
+    private static String normalizeExtension(String filename) {
+        int lastDot = filename.lastIndexOf('.');
+        String extension = lastDot > 0 ? filename.substring(lastDot).toLowerCase(Locale.ROOT) : "";
+        return extension.equals(".jpeg") ? ".jpg" : extension;
+    }
+
+    /**
+     * Force a directory entry (the rename) to disk. Not every platform can
+     * open a directory for this (Windows cannot); there the rename is
+     * already durable or there is nothing more to do.
+     */
+    private static void syncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            LOGGER.fine("Cannot sync directory " + dir + ": " + e.getMessage());
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e); // required of every JRE
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,196 @@
+package org.bmc.app.util;
+
+import org.bmc.app.model.Photo;
+import org.w3c.dom.Node;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+/**
+ * Reads what listings need to know about a photo from its file header:
+ * pixel size, format, file size and, for camera JPEGs, the EXIF capture
+ * date. No pixels are decoded; the ImageReader stops at the header, and
+ * for JPEGs the metadata it returns holds the raw EXIF segment, from which
+ * only the date tags are picked out.
+ */
+public final class PhotoMetadataReader {
+    private static final Logger LOGGER = Logger.getLogger(PhotoMetadataReader.class.getName());
+
+    /**
+     * Format recorded for a file that exists but no reader recognises, so
+     * it isn't read again
+     */
+    public static final String UNKNOWN_FORMAT = "unknown";
+
+    private static final String JPEG_METADATA_FORMAT = "javax_imageio_jpeg_image_1.0";
+    private static final int APP1_MARKER = 0xE1;
+    private static final int TAG_DATE_TIME = 0x0132;
+    private static final int TAG_EXIF_IFD = 0x8769;
+    private static final int TAG_DATE_TIME_ORIGINAL = 0x9003;
+    private static final int TAG_DATE_TIME_DIGITIZED = 0x9004;
+    private static final DateTimeFormatter EXIF_DATE = DateTimeFormatter.ofPattern("yyyy:MM:dd HH:mm:ss");
+
+    private PhotoMetadataReader() {
+    }
+
+    /**
+     * Fill in a photo's dimensions, format, file size and capture date from
+     * its file
+     *
+     * @param photo photo to update
+     * @param file its image file
+     * @return true if the metadata was recorded (possibly as
+     *         {@link #UNKNOWN_FORMAT}), false if the file is missing or
+     *         could not be read
+     */
+    public static boolean read(Photo photo, File file) {
+        if (file == null || !file.isFile()) {
+            return false;
+        }
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            photo.setFileSize(file.length());
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                photo.setFormat(UNKNOWN_FORMAT);
+                return true;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, false);
+                photo.setWidth(reader.getWidth(0));
+                photo.setHeight(reader.getHeight(0));
+                photo.setTakenAt(captureDate(reader));
+                photo.setFormat(reader.getFormatName().toLowerCase(Locale.ROOT));
+            } finally {
+                reader.dispose();
+            }
+            return true;
+        } catch (IOException e) {
+            LOGGER.warning("Cannot read metadata of " + file + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Capture date from a JPEG's EXIF segment: when the picture was taken,
+     * else digitized, else last changed in the camera
+     */
+    private static LocalDateTime captureDate(ImageReader reader) {
+        IIOMetadata metadata;
+        try {
+            metadata = reader.getImageMetadata(0);
+        } catch (IOException | RuntimeException e) {
+            return null; // header is readable but the metadata isn't; the date is optional
+        }
+        if (metadata == null || !JPEG_METADATA_FORMAT.equals(metadata.getNativeMetadataFormatName())) {
+            return null;
+        }
+
+        Node markers = firstChild(metadata.getAsTree(JPEG_METADATA_FORMAT), "markerSequence");
+        if (markers == null) {
+            return null;
+        }
+        // Segments the reader doesn't interpret, EXIF among them, come as "unknown" with their bytes
+        for (Node marker = markers.getFirstChild(); marker != null; marker = marker.getNextSibling()) {
+            if (!"unknown".equals(marker.getNodeName())) {
+                continue;
+            }
+            Node tag = marker.getAttributes().getNamedItem("MarkerTag");
+            Object data = ((IIOMetadataNode) marker).getUserObject();
+            if (tag != null && Integer.parseInt(tag.getNodeValue()) == APP1_MARKER && data instanceof byte[]) {
+                LocalDateTime date = exifDate((byte[]) data);
+                if (date != null) {
+                    return date;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Node firstChild(Node parent, String name) {
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (name.equals(child.getNodeName())) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Pick the date tags out of an APP1 segment: "Exif\0\0" followed by a
+     * TIFF structure of tagged directories
+     */
+    private static LocalDateTime exifDate(byte[] segment) {
+        if (segment.length < 14 || !new String(segment, 0, 6, StandardCharsets.ISO_8859_1).equals("Exif\0\0")) {
+            return null;
+        }
+        try {
+            ByteBuffer tiff = ByteBuffer.wrap(segment, 6, segment.length - 6).slice();
+            tiff.order(tiff.get(0) == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+            int firstDirectory = tiff.getInt(4);
+
+            String date = null;
+            int exifEntry = findEntry(tiff, firstDirectory, TAG_EXIF_IFD);
+            if (exifEntry >= 0) {
+                int exifDirectory = tiff.getInt(exifEntry + 8);
+                date = asciiValue(tiff, findEntry(tiff, exifDirectory, TAG_DATE_TIME_ORIGINAL));
+                if (date == null) {
+                    date = asciiValue(tiff, findEntry(tiff, exifDirectory, TAG_DATE_TIME_DIGITIZED));
+                }
+            }
+            if (date == null) {
+                date = asciiValue(tiff, findEntry(tiff, firstDirectory, TAG_DATE_TIME));
+            }
+            return date != null ? LocalDateTime.parse(date, EXIF_DATE) : null;
+        } catch (IndexOutOfBoundsException | DateTimeParseException e) {
+            return null; // truncated segment or a camera that writes blanks
+        }
+    }
+
+    /**
+     * Offset of a tag's 12-byte entry in a directory, or -1
+     */
+    private static int findEntry(ByteBuffer tiff, int directory, int tag) {
+        int count = tiff.getShort(directory) & 0xFFFF;
+        for (int i = 0; i < count; i++) {
+            int entry = directory + 2 + i * 12;
+            if ((tiff.getShort(entry) & 0xFFFF) == tag) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    private static String asciiValue(ByteBuffer tiff, int entry) {
+        if (entry < 0) {
+            return null;
+        }
+        int length = tiff.getInt(entry + 4);
+        if (length < 0 || length > tiff.limit()) {
+            return null;
+        }
+        int offset = length <= 4 ? entry + 8 : tiff.getInt(entry + 8);
+        byte[] text = new byte[length];
+        for (int i = 0; i < length; i++) {
+            text[i] = tiff.get(offset + i);
+        }
+        String value = new String(text, StandardCharsets.US_ASCII).trim();
+        int end = value.indexOf('\0');
+        return end >= 0 ? value.substring(0, end) : value;
+    }
+}
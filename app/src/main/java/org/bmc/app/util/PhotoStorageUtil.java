@@ -1,13 +1,14 @@
 package org.bmc.app.util;
 
+import org.bmc.app.model.Photo;
+
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.logging.Logger;
 
 /**
@@ -18,34 +19,29 @@ public class PhotoStorageUtil {
     
     private static final Logger LOGGER = Logger.getLogger(PhotoStorageUtil.class.getName());
     
-    // Base directory for storing photos (relative to application)
-    private static final String PHOTOS_BASE_DIR = "photos";
-    
     // Supported image formats
     private static final String[] SUPPORTED_FORMATS = {".jpg", ".jpeg", ".png", ".gif", ".bmp"};
     
     // Maximum file size (10MB)
     private static final long MAX_FILE_SIZE = 10 * 1024 * 1024;
     
+    // Longest edge of the downscaled copies made at upload
+    public static final int SMALL_THUMBNAIL_SIZE = AppConfig.getInt("photos.thumbnail.smallSize", 320);
+    public static final int MEDIUM_THUMBNAIL_SIZE = AppConfig.getInt("photos.thumbnail.mediumSize", 800);
+    
     /**
-     * Saves an uploaded photo file for a specific job
+     * Saves an uploaded photo file in the content-addressed store; an image
+     * that is already stored is not copied again
      * 
      * @param sourceFile the original file to copy
-     * @param jobId the job ID this photo belongs to
-     * @param description optional description for filename
-     * @return relative path to the saved file, or null if save failed
+     * @return the stored file with its content hash, or null if save failed
      */
-    public static String savePhoto(File sourceFile, Integer jobId, String description) {
+    public static PhotoBlobStore.Blob savePhoto(File sourceFile) {
         if (sourceFile == null || !sourceFile.exists() || !sourceFile.isFile()) {
             LOGGER.warning("Source file does not exist or is not a file");
             return null;
         }
         
-        if (jobId == null) {
-            LOGGER.warning("Job ID is required to save photo");
-            return null;
-        }
-        
         // Validate file type
         if (!isValidImageFile(sourceFile)) {
             LOGGER.warning("Unsupported file format: " + sourceFile.getName());
@@ -59,30 +55,9 @@ public class PhotoStorageUtil {
         }
         
         try {
-            // Create job-specific directory
-            Path jobDir = getJobPhotoDirectory(jobId);
-            Files.createDirectories(jobDir);
-            
-            // Generate unique filename
-            String originalName = sourceFile.getName();
-            String extension = getFileExtension(originalName);
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-            String sanitizedDesc = description != null && !description.trim().isEmpty() 
-                ? sanitize(description) + "_" 
-                : "";
-            String newFilename = String.format("job%d_%s%s%s", jobId, sanitizedDesc, timestamp, extension);
-            
-            // Copy file to destination
-            Path destinationPath = jobDir.resolve(newFilename);
-            Files.copy(sourceFile.toPath(), destinationPath, StandardCopyOption.REPLACE_EXISTING);
-            
-            // Return relative path
-            String relativePath = PHOTOS_BASE_DIR + "/job_" + jobId + "/" + newFilename;
-            LOGGER.info("Photo saved: " + relativePath);
-            return relativePath;
-            
+            return PhotoBlobStore.store(sourceFile);
         } catch (IOException e) {
-            LOGGER.severe("Error saving photo: " + e.getMessage());
+            LOGGER.warning("Error saving photo: " + e.getMessage());
             return null;
         }
     }
@@ -128,61 +103,111 @@ public class PhotoStorageUtil {
     }
     
     /**
-     * Checks if a photo file exists
+     * Gets the smallest stored copy of a photo that can fill a box without
+     * being enlarged: the small or medium thumbnail when generated and big
+     * enough, otherwise the original
      * 
-     * @param relativePath relative path to the photo
-     * @return true if file exists
+     * @param photo the photo
+     * @param maxWidth width of the box it will be shown in
+     * @param maxHeight height of the box it will be shown in
+     * @return File for the best copy, or null if the photo has no path
      */
-    public static boolean photoExists(String relativePath) {
-        File file = getPhotoFile(relativePath);
-        return file != null && file.exists() && file.isFile();
+    public static File getPhotoFile(Photo photo, int maxWidth, int maxHeight) {
+        int needed = Math.max(maxWidth, maxHeight);
+        String path = null;
+        if (needed <= SMALL_THUMBNAIL_SIZE) {
+            path = photo.getSmallThumbnailPath();
+        }
+        if (path == null && needed <= MEDIUM_THUMBNAIL_SIZE) {
+            path = photo.getMediumThumbnailPath();
+        }
+        if (path != null) {
+            File file = getPhotoFile(path);
+            if (file.isFile()) {
+                return file;
+            }
+        }
+        return getPhotoFile(photo.getFilePath());
     }
     
     /**
-     * Gets the directory for storing photos for a specific job
+     * Gets the relative path for a downscaled copy stored next to a photo,
+     * e.g. photos/blobs/3f/a2/3fa2...c9_320.jpg
      * 
-     * @param jobId the job ID
-     * @return Path to the job's photo directory
+     * @param relativePath relative path of the original
+     * @param size longest edge of the copy
+     * @return relative path for the copy (always JPEG)
      */
-    private static Path getJobPhotoDirectory(Integer jobId) {
-        return Paths.get(PHOTOS_BASE_DIR, "job_" + jobId);
+    public static String getThumbnailPath(String relativePath, int size) {
+        int lastDot = relativePath.lastIndexOf('.');
+        int lastSlash = Math.max(relativePath.lastIndexOf('/'), relativePath.lastIndexOf('\\'));
+        String base = lastDot > lastSlash ? relativePath.substring(0, lastDot) : relativePath;
+        return base + "_" + size + ".jpg";
     }
     
     /**
-     * Validates if a file is a supported image format
+     * Gets every file a photo refers to: its image, any downscaled copies
+     * and the file it was recompressed from, if still kept
      * 
-     * @param file the file to validate
-     * @return true if file has a supported image extension
+     * @param photo the photo
+     * @return relative paths, without duplicates
      */
-    private static boolean isValidImageFile(File file) {
-        String filename = file.getName().toLowerCase();
-        for (String format : SUPPORTED_FORMATS) {
-            if (filename.endsWith(format)) {
-                return true;
+    public static Set<String> getPhotoFilePaths(Photo photo) {
+        Set<String> paths = new LinkedHashSet<>();
+        for (String path : new String[]{photo.getSmallThumbnailPath(), photo.getMediumThumbnailPath(),
+                                        photo.getOriginalPath(), photo.getFilePath()}) {
+            if (path != null) {
+                paths.add(path);
             }
         }
-        return false;
+        return paths;
     }
     
     /**
-     * Gets the file extension including the dot
+     * Deletes a photo's files ({@link #getPhotoFilePaths}) except those still
+     * in use. Stored files are shared: by photos of the same image, and a
+     * kept original can be the image of a photo uploaded again since, so
+     * PhotoService passes the paths other photos still refer to.
      * 
-     * @param filename the filename
-     * @return extension (e.g., ".jpg") or empty string if none
+     * @param photo the photo whose files should be removed
+     * @param keep paths that must not be deleted
+     * @return true if the image file was deleted
      */
-    private static String getFileExtension(String filename) {
-        int lastDot = filename.lastIndexOf('.');
-        return lastDot > 0 ? filename.substring(lastDot) : "";
+    public static boolean deletePhotoFiles(Photo photo, Set<String> keep) {
+        boolean deleted = false;
+        for (String path : getPhotoFilePaths(photo)) {
+            if (!keep.contains(path) && deletePhoto(path) && path.equals(photo.getFilePath())) {
+                deleted = true;
+            }
+        }
+        return deleted;
+    }
+    
+    /**
+     * Checks if a photo file exists
+     * 
+     * @param relativePath relative path to the photo
+     * @return true if file exists
+     */
+    public static boolean photoExists(String relativePath) {
+        File file = getPhotoFile(relativePath);
+        return file != null && file.exists() && file.isFile();
     }
     
     /**
-     * Sanitizes a string for use in a filename
+     * Validates if a file is a supported image format
      * 
-     * @param input the string to sanitize
-     * @return sanitized string safe for filenames
+     * @param file the file to validate
+     * @return true if file has a supported image extension
      */
-    private static String sanitize(String input) {
-        return input.replaceAll("[^a-zA-Z0-9_-]", "_").substring(0, Math.min(input.length(), 30));
+    private static boolean isValidImageFile(File file) {
+        String filename = file.getName().toLowerCase();
+        for (String format : SUPPORTED_FORMATS) {
+            if (filename.endsWith(format)) {
+                return true;
+            }
+        }
+        return false;
     }
     
     /**
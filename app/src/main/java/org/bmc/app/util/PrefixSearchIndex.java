@@ -0,0 +1,168 @@
+package org.bmc.app.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Immutable in-memory token index for search-as-you-type.
+ *
+ * Each entity's text fields are split into lower-case words and stored in one
+ * sorted array, so all words starting with a prefix form a contiguous range
+ * found with two binary searches. A query matches an entity when every query
+ * word is a prefix of some word of the entity ("smi jo" finds "John Smith").
+ * Lookups touch only the matching range, so a keystroke costs microseconds
+ * even with tens of thousands of rows; rebuilding after the data changes is a
+ * single sort.
+ *
+ * @param <T> entity type
+ */
+public final class PrefixSearchIndex<T> {
+
+    private final String[] tokens;   // sorted, one entry per (word, entity) pair
+    private final int[] keys;        // key of the entity each token came from
+    private final int size;
+
+    private PrefixSearchIndex(String[] tokens, int[] keys, int size) {
+        this.tokens = tokens;
+        this.keys = keys;
+        this.size = size;
+    }
+
+    /**
+     * Index entities by the words of their text fields
+     *
+     * @param entities entities to index
+     * @param keyOf primary key of an entity
+     * @param fields text fields to index; null values are skipped
+     */
+    public static <T> PrefixSearchIndex<T> build(Collection<? extends T> entities, Function<T, Integer> keyOf,
+                                                 List<Function<T, String>> fields) {
+        List<Entry> entries = new ArrayList<>(entities.size() * fields.size() * 2);
+        for (T entity : entities) {
+            int key = keyOf.apply(entity);
+            Set<String> seen = new HashSet<>();
+            for (Function<T, String> field : fields) {
+                for (String token : tokenize(field.apply(entity))) {
+                    if (seen.add(token)) {
+                        entries.add(new Entry(token, key));
+                    }
+                }
+            }
+        }
+        Entry[] sorted = entries.toArray(new Entry[0]);
+        Arrays.sort(sorted, (a, b) -> a.token.compareTo(b.token));
+
+        String[] tokens = new String[sorted.length];
+        int[] keys = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            tokens[i] = sorted[i].token;
+            keys[i] = sorted[i].key;
+        }
+        return new PrefixSearchIndex<>(tokens, keys, entities.size());
+    }
+
+    /**
+     * Keys of entities matching every word of a query
+     *
+     * @param query free text; blank matches nothing
+     * @return matching keys (empty if none)
+     */
+    public Set<Integer> search(String query) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) {
+            return new HashSet<>();
+        }
+        // Start from the narrowest word so the intersections stay small
+        words.sort((a, b) -> Integer.compare(b.length(), a.length()));
+
+        Set<Integer> result = null;
+        for (String word : words) {
+            Set<Integer> matches = new HashSet<>();
+            int end = upperBound(word);
+            for (int i = lowerBound(word); i < end; i++) {
+                if (result == null || result.contains(keys[i])) {
+                    matches.add(keys[i]);
+                }
+            }
+            result = matches;
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Number of entities indexed
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Split text into lower-case words on anything that is not a letter or digit
+     */
+    public static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start == -1) {
+                start = i;
+            } else if (!wordChar && start != -1) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    // First token >= prefix
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = tokens.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (tokens[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // First token that is past the prefix range
+    private int upperBound(String prefix) {
+        int low = lowerBound(prefix);
+        int high = tokens.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (tokens[mid].startsWith(prefix)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static final class Entry {
+        final String token;
+        final int key;
+
+        Entry(String token, int key) {
+            this.token = token;
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package org.bmc.app.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.temporal.TemporalAccessor;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Row-at-a-time CSV / newline-delimited JSON writer for exports.
+ *
+ * Rows are encoded into a single reusable direct buffer and written to a
+ * FileChannel, so memory use is constant regardless of how many rows are
+ * exported. Output goes to a temporary file next to the target and is only
+ * moved into place when the export completes, so a cancelled or failed export
+ * never leaves a truncated file behind.
+ */
+public class StreamingExporter implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(StreamingExporter.class.getName());
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PROGRESS_INTERVAL = 1000;
+
+    /**
+     * Supported output formats
+     */
+    public enum Format {
+        CSV("csv", "CSV (*.csv)"),
+        NDJSON("ndjson", "JSON Lines (*.ndjson)");
+
+        private final String extension;
+        private final String description;
+
+        Format(String extension, String description) {
+            this.extension = extension;
+            this.description = description;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    /**
+     * Receives progress updates and is polled for cancellation during an export
+     */
+    public interface ExportMonitor {
+        void rowsWritten(long rows);
+
+        boolean isCancelled();
+    }
+
+    private final Path target;
+    private final Path tempFile;
+    private final Format format;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final StringBuilder line = new StringBuilder(256);
+
+    private String[] columns;
+    private long rowCount;
+    private long bytesWritten;
+    private boolean committed;
+
+    /**
+     * Open an exporter writing to the given file
+     *
+     * @param target final output file
+     * @param format output format
+     * @throws IOException if the temporary output file cannot be created
+     */
+    public StreamingExporter(Path target, Format format) throws IOException {
+        this.target = target.toAbsolutePath();
+        this.format = format;
+        Path directory = this.target.getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        this.tempFile = Files.createTempFile(directory, ".export-", ".tmp");
+        this.channel = FileChannel.open(tempFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Set the column names. Writes the CSV header row; for JSON the names
+     * become the object keys of every row.
+     *
+     * @param columnNames column names in row order
+     * @throws IOException if writing fails
+     */
+    public void writeHeader(String[] columnNames) throws IOException {
+        this.columns = columnNames.clone();
+        if (format == Format.CSV) {
+            line.setLength(0);
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                appendCsvText(columns[i]);
+            }
+            line.append("\r\n");
+            writeLine();
+        }
+    }
+
+    /**
+     * Write one row of values
+     *
+     * @param values row values in column order
+     * @throws IOException if writing fails
+     */
+    public void writeRow(Object[] values) throws IOException {
+        if (columns == null) {
+            throw new IllegalStateException("writeHeader must be called before writeRow");
+        }
+
+        line.setLength(0);
+        if (format == Format.CSV) {
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                appendCsvValue(i < values.length ? values[i] : null);
+            }
+            line.append("\r\n");
+        } else {
+            line.append('{');
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                appendJsonString(columns[i]);
+                line.append(':');
+                appendJsonValue(i < values.length ? values[i] : null);
+            }
+            line.append("}\n");
+        }
+        writeLine();
+        rowCount++;
+    }
+
+    /**
+     * Flush, fsync and atomically move the finished export into place
+     *
+     * @throws IOException if the file cannot be finalized
+     */
+    public void commit() throws IOException {
+        flushBuffer();
+        channel.force(true);
+        channel.close();
+        try {
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (java.nio.file.AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        committed = true;
+        LOGGER.info(() -> String.format("Exported %d rows (%d bytes) to %s", rowCount, bytesWritten, target));
+    }
+
+    /**
+     * Close the exporter. If {@link #commit()} was not called the partial
+     * output is discarded.
+     */
+    @Override
+    public void close() {
+        if (committed) {
+            return;
+        }
+        try {
+            channel.close();
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to discard partial export " + tempFile, e);
+        }
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Stream every row of a result set to a file. The result set is read
+     * forward only and never buffered, so it should come from a statement
+     * configured for streaming.
+     *
+     * @param rs result set positioned before the first row
+     * @param target output file
+     * @param format output format
+     * @param monitor progress/cancel callback, may be null
+     * @return number of rows written, or -1 if the export was cancelled
+     * @throws SQLException if reading the result set fails
+     * @throws IOException if writing fails
+     */
+    public static long exportResultSet(ResultSet rs, Path target, Format format, ExportMonitor monitor)
+            throws SQLException, IOException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int columnCount = meta.getColumnCount();
+        String[] names = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            names[i] = meta.getColumnLabel(i + 1);
+        }
+
+        Object[] values = new Object[columnCount];
+        try (StreamingExporter exporter = new StreamingExporter(target, format)) {
+            exporter.writeHeader(names);
+            while (rs.next()) {
+                for (int i = 0; i < columnCount; i++) {
+                    values[i] = rs.getObject(i + 1);
+                }
+                exporter.writeRow(values);
+
+                if (monitor != null && exporter.rowCount % PROGRESS_INTERVAL == 0) {
+                    monitor.rowsWritten(exporter.rowCount);
+                    if (monitor.isCancelled()) {
+                        LOGGER.info("Export to " + target + " cancelled after " + exporter.rowCount + " rows");
+                        return -1;
+                    }
+                }
+            }
+            exporter.commit();
+            if (monitor != null) {
+                monitor.rowsWritten(exporter.rowCount);
+            }
+            return exporter.rowCount;
+        }
+    }
+
+    /**
+     * Stream rows that are already in memory, such as a report's result, to
+     * a file. Values are written as they are, so pass numbers and dates
+     * rather than display text.
+     *
+     * @param columnNames column names in row order
+     * @param rows row values in column order
+     * @param target output file
+     * @param format output format
+     * @param monitor progress/cancel callback, may be null
+     * @return number of rows written, or -1 if the export was cancelled
+     * @throws IOException if writing fails
+     */
+    public static long exportRows(String[] columnNames, Iterator<Object[]> rows, Path target, Format format,
+                                  ExportMonitor monitor) throws IOException {
+        try (StreamingExporter exporter = new StreamingExporter(target, format)) {
+            exporter.writeHeader(columnNames);
+            while (rows.hasNext()) {
+                exporter.writeRow(rows.next());
+
+                if (monitor != null && exporter.rowCount % PROGRESS_INTERVAL == 0) {
+                    monitor.rowsWritten(exporter.rowCount);
+                    if (monitor.isCancelled()) {
+                        LOGGER.info("Export to " + target + " cancelled after " + exporter.rowCount + " rows");
+                        return -1;
+                    }
+                }
+            }
+            exporter.commit();
+            if (monitor != null) {
+                monitor.rowsWritten(exporter.rowCount);
+            }
+            return exporter.rowCount;
+        }
+    }
+
+    // Encoding
+
+    private void writeLine() throws IOException {
+        CharBuffer chars = CharBuffer.wrap(line);
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (result.isOverflow()) {
+                flushBuffer();
+            } else if (result.isUnderflow()) {
+                break;
+            } else {
+                result.throwException();
+            }
+        }
+        encoder.reset();
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void appendCsvValue(Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof String) {
+            appendCsvText((String) value);
+        } else {
+            String text = formatScalar(value);
+            if (value instanceof Number || value instanceof Boolean || value instanceof TemporalAccessor
+                    || value instanceof java.util.Date) {
+                line.append(text);
+            } else {
+                appendCsvText(text);
+            }
+        }
+    }
+
+    private void appendCsvText(String text) {
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!text.isEmpty() && (Character.isWhitespace(text.charAt(0))
+                || Character.isWhitespace(text.charAt(text.length() - 1)))) {
+            quote = true;
+        }
+        if (!quote) {
+            line.append(text);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    private void appendJsonValue(Object value) {
+        if (value == null) {
+            line.append("null");
+        } else if (value instanceof Boolean) {
+            line.append(value.toString());
+        } else if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                line.append("null");
+            } else {
+                line.append(formatScalar(value));
+            }
+        } else if (value instanceof Number) {
+            line.append(formatScalar(value));
+        } else {
+            appendJsonString(formatScalar(value));
+        }
+    }
+
+    private void appendJsonString(String text) {
+        line.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"': line.append("\\\""); break;
+                case '\\': line.append("\\\\"); break;
+                case '\n': line.append("\\n"); break;
+                case '\r': line.append("\\r"); break;
+                case '\t': line.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+            }
+        }
+        line.append('"');
+    }
+
+    /**
+     * Format a scalar without locale or scientific notation: BigDecimal as a
+     * plain string, SQL dates/times as ISO-8601.
+     */
+    private static String formatScalar(Object value) {
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return BigDecimal.valueOf(((Number) value).doubleValue()).stripTrailingZeros().toPlainString();
+        }
+        if (value instanceof java.sql.Date) {
+            return ((java.sql.Date) value).toLocalDate().toString();
+        }
+        if (value instanceof java.sql.Timestamp) {
+            return ((java.sql.Timestamp) value).toLocalDateTime().toString();
+        }
+        if (value instanceof java.sql.Time) {
+            return ((java.sql.Time) value).toLocalTime().toString();
+        }
+        if (value instanceof java.util.Date) {
+            return ((java.util.Date) value).toInstant().toString();
+        }
+        if (value instanceof byte[]) {
+            return Base64.getEncoder().encodeToString((byte[]) value);
+        }
+        return value.toString();
+    }
+}
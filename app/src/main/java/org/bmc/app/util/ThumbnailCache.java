@@ -0,0 +1,341 @@
+package org.bmc.app.util;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Two-level cache of decoded photos at display size, shared by every photo
+ * view.
+ *
+ * The memory level is an LRU map limited by the pixel bytes it holds
+ * (photos.thumbnailCache.memoryMB, default 64). Entries are soft
+ * references, so the garbage collector may drop them before the budget is
+ * reached if the heap gets tight. Below it, decoded images are kept as
+ * JPEG files in photos.thumbnailCache.dir (default cache/thumbnails),
+ * limited to photos.thumbnailCache.diskMB (default 256) with the least
+ * recently used files removed first. A disk hit costs a small JPEG decode
+ * instead of reading and subsampling the original.
+ *
+ * Entries are keyed by the source file's identity (path, length and
+ * modification time, hashed) plus the requested box, so an edited or
+ * replaced file never returns a stale image. Hit and miss counts are
+ * shown in the Diagnostics window.
+ */
+public class ThumbnailCache {
+    private static final Logger LOGGER = Logger.getLogger(ThumbnailCache.class.getName());
+
+    private static final ThumbnailCache INSTANCE = new ThumbnailCache(
+        AppConfig.getLong("photos.thumbnailCache.memoryMB", 64) * 1024 * 1024,
+        Paths.get(AppConfig.getString("photos.thumbnailCache.dir", "cache/thumbnails")),
+        AppConfig.getLong("photos.thumbnailCache.diskMB", 256) * 1024 * 1024);
+
+    private static final float JPEG_QUALITY = 0.9f;
+
+    /**
+     * Counters since startup
+     */
+    public static class Stats {
+        private final long memoryHits;
+        private final long diskHits;
+        private final long misses;
+        private final long evictions;
+        private final long collected;
+        private final int memoryEntries;
+        private final long memoryBytes;
+        private final long memoryBudget;
+        private final long diskBytes;
+        private final long diskBudget;
+        private final long decodeMillis;
+
+        Stats(long memoryHits, long diskHits, long misses, long evictions, long collected, int memoryEntries,
+              long memoryBytes, long memoryBudget, long diskBytes, long diskBudget, long decodeMillis) {
+            this.memoryHits = memoryHits;
+            this.diskHits = diskHits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.collected = collected;
+            this.memoryEntries = memoryEntries;
+            this.memoryBytes = memoryBytes;
+            this.memoryBudget = memoryBudget;
+            this.diskBytes = diskBytes;
+            this.diskBudget = diskBudget;
+            this.decodeMillis = decodeMillis;
+        }
+
+        public long getMemoryHits() { return memoryHits; }
+        public long getDiskHits() { return diskHits; }
+        /** Requests that had to decode the source image */
+        public long getMisses() { return misses; }
+        /** Entries dropped from memory to stay within the budget */
+        public long getEvictions() { return evictions; }
+        /** Entries whose image the garbage collector reclaimed */
+        public long getCollected() { return collected; }
+        public int getMemoryEntries() { return memoryEntries; }
+        public long getMemoryBytes() { return memoryBytes; }
+        public long getMemoryBudget() { return memoryBudget; }
+        /** Bytes in the disk cache, or -1 before it was first scanned */
+        public long getDiskBytes() { return diskBytes; }
+        public long getDiskBudget() { return diskBudget; }
+        /** Total time spent decoding source images on misses */
+        public long getDecodeMillis() { return decodeMillis; }
+
+        public long getRequests() {
+            return memoryHits + diskHits + misses;
+        }
+    }
+
+    private static final class Entry {
+        final SoftReference<BufferedImage> image;
+        final long bytes;
+
+        Entry(BufferedImage image) {
+            this.image = new SoftReference<>(image);
+            this.bytes = (long) image.getWidth() * image.getHeight() * 4;
+        }
+    }
+
+    private final long memoryBudget;
+    private final Path diskDir;
+    private final long diskBudget;
+
+    // Access-ordered, guarded by this
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryBytes;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong collected = new AtomicLong();
+    private final AtomicLong decodeMillis = new AtomicLong();
+    private final AtomicLong diskBytes = new AtomicLong(-1);
+    private final AtomicBoolean trimming = new AtomicBoolean();
+
+    private ThumbnailCache(long memoryBudget, Path diskDir, long diskBudget) {
+        this.memoryBudget = memoryBudget;
+        this.diskDir = diskDir;
+        this.diskBudget = diskBudget;
+    }
+
+    public static ThumbnailCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get an image from memory only; cheap enough for the Event Dispatch Thread
+     *
+     * @return the cached image, or null
+     */
+    public BufferedImage getIfInMemory(File file, int maxWidth, int maxHeight) {
+        BufferedImage image = fromMemory(keyFor(file, maxWidth, maxHeight));
+        if (image != null) {
+            memoryHits.incrementAndGet();
+        }
+        return image;
+    }
+
+    /**
+     * Get an image scaled to fit a box, from memory, from disk, or by
+     * decoding the file. Call from a background thread.
+     *
+     * @return the image, or null if the format is not supported
+     */
+    public BufferedImage get(File file, int maxWidth, int maxHeight) throws IOException {
+        String key = keyFor(file, maxWidth, maxHeight);
+        BufferedImage image = fromMemory(key);
+        if (image != null) {
+            memoryHits.incrementAndGet();
+            return image;
+        }
+
+        image = fromDisk(key);
+        if (image != null) {
+            diskHits.incrementAndGet();
+            toMemory(key, image);
+            return image;
+        }
+
+        misses.incrementAndGet();
+        long start = System.currentTimeMillis();
+        image = ImageDecoder.decodeToFit(file, maxWidth, maxHeight);
+        decodeMillis.addAndGet(System.currentTimeMillis() - start);
+        if (image != null) {
+            toMemory(key, image);
+            toDisk(key, image);
+        }
+        return image;
+    }
+
+    /**
+     * Drop everything held in memory (the disk cache is kept)
+     */
+    public synchronized void clearMemory() {
+        memory.clear();
+        memoryBytes = 0;
+    }
+
+    public Stats getStats() {
+        int entries;
+        long bytes;
+        synchronized (this) {
+            entries = memory.size();
+            bytes = memoryBytes;
+        }
+        return new Stats(memoryHits.get(), diskHits.get(), misses.get(), evictions.get(), collected.get(),
+                         entries, bytes, memoryBudget, diskBytes.get(), diskBudget, decodeMillis.get());
+    }
+
+    private synchronized BufferedImage fromMemory(String key) {
+        Entry entry = memory.get(key);
+        if (entry == null) {
+            return null;
+        }
+        BufferedImage image = entry.image.get();
+        if (image == null) {
+            memory.remove(key);
+            memoryBytes -= entry.bytes;
+            collected.incrementAndGet();
+        }
+        return image;
+    }
+
+    private synchronized void toMemory(String key, BufferedImage image) {
+        Entry entry = new Entry(image);
+        if (entry.bytes > memoryBudget) {
+            return;
+        }
+        Entry previous = memory.put(key, entry);
+        memoryBytes += entry.bytes - (previous != null ? previous.bytes : 0);
+
+        Iterator<Map.Entry<String, Entry>> eldest = memory.entrySet().iterator();
+        while (memoryBytes > memoryBudget && eldest.hasNext()) {
+            Entry evicted = eldest.next().getValue();
+            eldest.remove();
+            memoryBytes -= evicted.bytes;
+            evictions.incrementAndGet();
+        }
+    }
+
+    private BufferedImage fromDisk(String key) {
+        File file = diskFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            BufferedImage image = ImageIO.read(file);
+            if (image != null) {
+                // Recently used files survive trimming
+                file.setLastModified(System.currentTimeMillis());
+            }
+            return image;
+        } catch (IOException e) {
+            LOGGER.warning("Discarding unreadable cached thumbnail " + file + ": " + e.getMessage());
+            file.delete();
+            return null;
+        }
+    }
+
+    private void toDisk(String key, BufferedImage image) {
+        File file = diskFile(key);
+        try {
+            Files.createDirectories(file.toPath().getParent());
+            ImageDecoder.writeJpeg(image, file, JPEG_QUALITY);
+        } catch (IOException e) {
+            LOGGER.warning("Cannot write cached thumbnail " + file + ": " + e.getMessage());
+            return;
+        }
+        if (diskBytes.get() < 0) {
+            diskBytes.set(scanDiskBytes());
+        } else {
+            diskBytes.addAndGet(file.length());
+        }
+        if (diskBytes.get() > diskBudget) {
+            trimDisk();
+        }
+    }
+
+    /**
+     * Delete least recently used files until the disk cache is back under
+     * 90% of its budget, so trimming doesn't run on every write
+     */
+    private void trimDisk() {
+        if (!trimming.compareAndSet(false, true)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(diskDir)) {
+            List<File> files = new ArrayList<>();
+            paths.filter(Files::isRegularFile).forEach(path -> files.add(path.toFile()));
+            files.sort(Comparator.comparingLong(File::lastModified));
+
+            long total = files.stream().mapToLong(File::length).sum();
+            long target = diskBudget / 10 * 9;
+            int deleted = 0;
+            for (File file : files) {
+                if (total <= target) {
+                    break;
+                }
+                long length = file.length();
+                if (file.delete()) {
+                    total -= length;
+                    deleted++;
+                }
+            }
+            diskBytes.set(total);
+            LOGGER.fine("Trimmed " + deleted + " cached thumbnails");
+        } catch (IOException e) {
+            LOGGER.warning("Error trimming thumbnail cache: " + e.getMessage());
+        } finally {
+            trimming.set(false);
+        }
+    }
+
+    private long scanDiskBytes() {
+        try (Stream<Path> paths = Files.walk(diskDir)) {
+            return paths.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private File diskFile(String key) {
+        // Sharded like the photo store, so no directory gets large
+        return diskDir.resolve(key.substring(0, 2)).resolve(key + ".jpg").toFile();
+    }
+
+    private static String keyFor(File file, int maxWidth, int maxHeight) {
+        String identity = file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified();
+        return sha1(identity) + "_" + maxWidth + "x" + maxHeight;
+    }
+
+    private static String sha1(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e); // required of every JRE
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.bmc.app.util;
+
+import javax.swing.SwingUtilities;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Decodes photo thumbnails on a small shared pool of background threads.
+ *
+ * Images come from {@link ThumbnailCache}: one already in memory is handed
+ * back without a background task, otherwise the disk cache is tried before
+ * decoding through {@link ImageDecoder}, so a 12 MP photo is read at
+ * roughly thumbnail resolution instead of being fully decoded and scaled
+ * down. Requests can be cancelled; a cancelled request that has not started
+ * never touches the file.
+ */
+public class ThumbnailLoader {
+    private static final Logger LOGGER = Logger.getLogger(ThumbnailLoader.class.getName());
+
+    private static final ThumbnailLoader INSTANCE = new ThumbnailLoader(
+        AppConfig.getInt("photos.thumbnailThreads", Math.min(4, Runtime.getRuntime().availableProcessors())));
+
+    private final ExecutorService pool;
+
+    private ThumbnailLoader(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "thumbnail-loader-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+    }
+
+    public static ThumbnailLoader getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Decode a thumbnail in the background
+     *
+     * @param file image file
+     * @param maxWidth width of the box to fit
+     * @param maxHeight height of the box to fit
+     * @param onLoaded called on the Event Dispatch Thread with the thumbnail
+     * @param onError called on the Event Dispatch Thread with a short message
+     * @return handle for cancelling the request
+     */
+    public Future<?> load(File file, int maxWidth, int maxHeight,
+                          Consumer<BufferedImage> onLoaded, Consumer<String> onError) {
+        BufferedImage cached = ThumbnailCache.getInstance().getIfInMemory(file, maxWidth, maxHeight);
+        if (cached != null) {
+            SwingUtilities.invokeLater(() -> onLoaded.accept(cached));
+            return CompletableFuture.completedFuture(null);
+        }
+        return pool.submit(() -> {
+            String error;
+            try {
+                if (!file.exists()) {
+                    error = "Image not found";
+                } else {
+                    BufferedImage thumbnail = decodeThumbnail(file, maxWidth, maxHeight);
+                    if (Thread.currentThread().isInterrupted()) {
+                        return; // scrolled away while decoding
+                    }
+                    if (thumbnail != null) {
+                        SwingUtilities.invokeLater(() -> onLoaded.accept(thumbnail));
+                        return;
+                    }
+                    error = "Cannot load image";
+                }
+            } catch (InterruptedIOException e) {
+                return; // cancelled while waiting for decode memory
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warning("Error loading thumbnail " + file + ": " + e.getMessage());
+                error = "Error loading image";
+            }
+            String message = error;
+            SwingUtilities.invokeLater(() -> onError.accept(message));
+        });
+    }
+
+    /**
+     * Get an image fitted to a box, from the cache or by decoding it at
+     * about the size of the box
+     *
+     * @return thumbnail, or null if the format is not supported
+     */
+    public static BufferedImage decodeThumbnail(File file, int maxWidth, int maxHeight) throws IOException {
+        return ThumbnailCache.getInstance().get(file, maxWidth, maxHeight);
+    }
+}
@@ -0,0 +1,55 @@
+-- ===========================================================
+-- Migration 001: change tracking for delta refresh
+-- Adds updated_at to the tables the UI refreshes incrementally and a
+-- DeletedRow tombstone table filled by AFTER DELETE triggers, so clients
+-- can ask for "rows changed or deleted since T".
+-- ===========================================================
+
+USE jwashb2db;
+
+-- -----------------------------------------------------------
+-- updated_at columns (millisecond precision, maintained by MySQL)
+-- -----------------------------------------------------------
+ALTER TABLE Customer
+  ADD COLUMN updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+  ADD INDEX idx_customer_updated_at (updated_at);
+
+ALTER TABLE Invoice
+  ADD COLUMN updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+  ADD INDEX idx_invoice_updated_at (updated_at);
+
+ALTER TABLE Material
+  ADD COLUMN updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+  ADD INDEX idx_material_updated_at (updated_at);
+
+ALTER TABLE PurchaseOrder
+  ADD COLUMN updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+  ADD INDEX idx_purchaseorder_updated_at (updated_at);
+
+-- -----------------------------------------------------------
+-- Tombstones for deleted rows. Primary keys are AUTO_INCREMENT and never
+-- reused, so (table_name, row_id) identifies a deletion uniquely.
+-- -----------------------------------------------------------
+CREATE TABLE DeletedRow (
+  table_name       VARCHAR(64) NOT NULL,
+  row_id           INT NOT NULL,
+  deleted_at       TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+  PRIMARY KEY (table_name, row_id),
+  INDEX idx_deletedrow_table_time (table_name, deleted_at)
+);
+
+CREATE TRIGGER trg_customer_tombstone AFTER DELETE ON Customer FOR EACH ROW
+  REPLACE INTO DeletedRow (table_name, row_id) VALUES ('Customer', OLD.customer_id);
+
+CREATE TRIGGER trg_invoice_tombstone AFTER DELETE ON Invoice FOR EACH ROW
+  REPLACE INTO DeletedRow (table_name, row_id) VALUES ('Invoice', OLD.invoice_id);
+
+CREATE TRIGGER trg_material_tombstone AFTER DELETE ON Material FOR EACH ROW
+  REPLACE INTO DeletedRow (table_name, row_id) VALUES ('Material', OLD.material_id);
+
+CREATE TRIGGER trg_purchaseorder_tombstone AFTER DELETE ON PurchaseOrder FOR EACH ROW
+  REPLACE INTO DeletedRow (table_name, row_id) VALUES ('PurchaseOrder', OLD.po_id);
+
+-- Tombstones only need to outlive the longest gap between client refreshes.
+-- Clients whose last sync is older than this fall back to a full reload.
+-- DELETE FROM DeletedRow WHERE deleted_at < NOW(3) - INTERVAL 30 DAY;
@@ -0,0 +1,13 @@
+-- ===========================================================
+-- Migration 002: indexes for the dashboard
+-- The dashboard re-counts open jobs by due date and sums this month's
+-- work log hours every poll; these indexes keep both to a range scan.
+-- ===========================================================
+
+USE jwashb2db;
+
+ALTER TABLE Job
+  ADD INDEX idx_job_status_due_date (status, due_date);
+
+ALTER TABLE WorkLog
+  ADD INDEX idx_worklog_work_date (work_date);
@@ -0,0 +1,12 @@
+-- ===========================================================
+-- Migration 003: downscaled photo copies
+-- Photos get a small and a medium copy at upload, stored next to the
+-- original; these columns record where. NULL means not generated yet
+-- (older photos are filled in the first time they are shown).
+-- ===========================================================
+
+USE jwashb2db;
+
+ALTER TABLE Photo
+  ADD COLUMN thumb_small_path  VARCHAR(255) NULL,
+  ADD COLUMN thumb_medium_path VARCHAR(255) NULL;
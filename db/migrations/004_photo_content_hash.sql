@@ -0,0 +1,13 @@
+-- ===========================================================
+-- Migration 004: content-addressed photo files
+-- New uploads are stored once per distinct image, named by the SHA-256
+-- of their bytes, and several Photo rows may share one file. content_hash
+-- records the hash; a file is deleted when the last row with its hash is.
+-- NULL for photos uploaded earlier, which keep their own files.
+-- ===========================================================
+
+USE jwashb2db;
+
+ALTER TABLE Photo
+  ADD COLUMN content_hash CHAR(64) NULL,
+  ADD INDEX idx_photo_content_hash (content_hash);
@@ -0,0 +1,16 @@
+-- ===========================================================
+-- Migration 005: photo metadata
+-- Pixel size, format, file size and capture date of each photo, read
+-- from the file's header at upload, so listings can show and sort photos
+-- without opening their files. NULL format means not read yet; photos
+-- uploaded earlier are filled in by a background pass after startup.
+-- ===========================================================
+
+USE jwashb2db;
+
+ALTER TABLE Photo
+  ADD COLUMN width     INT NULL,
+  ADD COLUMN height    INT NULL,
+  ADD COLUMN format    VARCHAR(16) NULL,
+  ADD COLUMN file_size BIGINT NULL,
+  ADD COLUMN taken_at  DATETIME NULL;
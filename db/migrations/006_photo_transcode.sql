@@ -0,0 +1,15 @@
+-- ===========================================================
+-- Migration 006: photo recompression
+-- Large PNG and BMP photos may be re-encoded as JPEG in the background.
+-- The replaced file is kept at original_path for a retention window, then
+-- deleted and original_path cleared. original_size stays, so the space
+-- saved can still be reported. transcoded_at records when the transcoder
+-- handled the photo, also when it left the file as it was.
+-- ===========================================================
+
+USE jwashb2db;
+
+ALTER TABLE Photo
+  ADD COLUMN original_path VARCHAR(255) NULL,
+  ADD COLUMN original_size BIGINT NULL,
+  ADD COLUMN transcoded_at DATETIME NULL;
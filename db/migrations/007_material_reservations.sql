@@ -0,0 +1,26 @@
+-- ===========================================================
+-- Migration 007: material reservations
+-- stock_quantity stays the quantity on hand; reserved_quantity is the
+-- part of it promised to jobs that are not completed yet. Assigning a
+-- material to a job reserves it only if enough is available (on hand
+-- minus reserved), in the same transaction as the JobMaterial row.
+-- Completing a job takes its materials off both quantities.
+-- Existing assignments to open jobs are reserved here, and a missing
+-- stock quantity becomes 0 so availability can always be computed.
+-- ===========================================================
+
+USE jwashb2db;
+
+UPDATE Material SET stock_quantity = 0 WHERE stock_quantity IS NULL;
+
+ALTER TABLE Material
+  MODIFY COLUMN stock_quantity INT NOT NULL DEFAULT 0,
+  ADD COLUMN reserved_quantity INT NOT NULL DEFAULT 0;
+
+UPDATE Material m
+  JOIN (SELECT jm.material_id, SUM(jm.quantity_used) AS reserved
+          FROM JobMaterial jm
+          JOIN Job j ON j.job_id = jm.job_id
+         WHERE j.status <> 'Completed'
+         GROUP BY jm.material_id) r ON r.material_id = m.material_id
+   SET m.reserved_quantity = r.reserved;
@@ -0,0 +1,18 @@
+-- ===========================================================
+-- Migration 008: change tracking for joined display columns
+-- Invoices show their job's description and customer's name, and
+-- materials and purchase orders their vendor's name. Editing those
+-- rows has to reach the delta queries of the tables that show them,
+-- so Job and Vendor get the same updated_at column as migration 001
+-- gave the tables the UI refreshes.
+-- ===========================================================
+
+USE jwashb2db;
+
+ALTER TABLE Job
+  ADD COLUMN updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+  ADD INDEX idx_job_updated_at (updated_at);
+
+ALTER TABLE Vendor
+  ADD COLUMN updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+  ADD INDEX idx_vendor_updated_at (updated_at);